@@ -0,0 +1,347 @@
+/*
+ * C++ Community Plugin (cxx plugin)
+ * Copyright (C) 2021-2024 SonarOpenCommunity
+ * http://github.com/SonarOpenCommunity/sonar-cxx
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.cxx.squidbridge;
+
+import com.sonar.cxx.sslr.impl.RuleProfile;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Collects the time spent in the phases of the analysis, in the visitors and for the single files.
+ *
+ * A scanner only measures if a profiler is assigned to its context ({@link AstScanner#setProfiler}), the workers of
+ * a scanner share its profiler and the values are aggregated over all of them. Times are measured in nanoseconds and
+ * reported in milliseconds.
+ *
+ * Profiling of the grammar rules slows down the parser and must be enabled additionally. The report then names the
+ * rules causing most re-parsing (backtracking).
+ */
+public final class AnalysisProfiler {
+
+  /**
+   * Lexing of the source files including preprocessing.
+   */
+  public static final String LEXER = "lexer";
+  /**
+   * Lexing of the include files by the preprocessor (part of {@link #LEXER}).
+   */
+  public static final String PREPROCESSOR_INCLUDES = "preprocessorIncludes";
+  public static final String PARSER = "parser";
+  /**
+   * Creation of the AST after parsing, not measured if the parser creates the AST while parsing.
+   */
+  public static final String AST_CREATOR = "astCreator";
+  public static final String VISITORS = "visitors";
+
+  private static final Logger LOG = LoggerFactory.getLogger(AnalysisProfiler.class);
+  private static final int TOP_FILES = 20;
+  private static final int TOP_VISITORS = 5;
+  private static final int TOP_RULES = 20;
+  private static final int TOP_FILE_RULES = 10;
+  private static final int TOP_LOGGED_RULES = 5;
+  private static final long NANOS_PER_MILLI = 1_000_000L;
+
+  private final boolean ruleProfiling;
+
+  private final Map<String, LongAdder> phases = new ConcurrentHashMap<>();
+  private final Map<String, LongAdder> visitors = new ConcurrentHashMap<>();
+  private final Map<String, RuleProfile> rules = new ConcurrentHashMap<>();
+  private final AtomicInteger files = new AtomicInteger();
+  private final LongAdder totalTime = new LongAdder();
+  private final AtomicInteger peakTokens = new AtomicInteger();
+  private final AtomicInteger peakAstNodes = new AtomicInteger();
+  private final PriorityQueue<FileProfile> slowestFiles
+    = new PriorityQueue<>(Comparator.comparingLong(FileProfile::time));
+
+  /**
+   * Create a profiler for an analysis.
+   *
+   * @param ruleProfiling profile the grammar rules too
+   */
+  public AnalysisProfiler(boolean ruleProfiling) {
+    this.ruleProfiling = ruleProfiling;
+  }
+
+  public boolean isRuleProfilingEnabled() {
+    return ruleProfiling;
+  }
+
+  /**
+   * Add time to a phase of the analysis.
+   *
+   * @param phase name of the phase
+   * @param nanos duration in nanoseconds
+   */
+  public void addPhase(String phase, long nanos) {
+    phases.computeIfAbsent(phase, k -> new LongAdder()).add(nanos);
+  }
+
+  /**
+   * Add the time spent in a visitor (visitFile, visitNode, visitToken, leaveNode and leaveFile).
+   *
+   * @param visitor name of the visitor
+   * @param nanos duration in nanoseconds
+   */
+  public void addVisitor(String visitor, long nanos) {
+    visitors.computeIfAbsent(visitor, k -> new LongAdder()).add(nanos);
+  }
+
+  /**
+   * Add the measured values of an analyzed file.
+   *
+   * @param file measured values of the file
+   */
+  public void addFile(FileProfile file) {
+    files.incrementAndGet();
+    totalTime.add(file.time());
+    addPhase(LEXER, file.lexer());
+    addPhase(PARSER, file.parser());
+    if (file.astCreator() > 0) {
+      addPhase(AST_CREATOR, file.astCreator());
+    }
+    addPhase(VISITORS, file.visitors());
+    peakTokens.accumulateAndGet(file.tokens(), Math::max);
+    peakAstNodes.accumulateAndGet(file.astNodes(), Math::max);
+    for (var rule : file.rules()) {
+      rules.merge(rule.rule(), rule, RuleProfile::add);
+    }
+    synchronized (slowestFiles) {
+      slowestFiles.add(file);
+      if (slowestFiles.size() > TOP_FILES) {
+        slowestFiles.poll();
+      }
+    }
+  }
+
+  /**
+   * Write the collected values as JSON file.
+   *
+   * @param reportPath file to write
+   * @throws IOException file cannot be written
+   */
+  public void writeReport(Path reportPath) throws IOException {
+    Path parent = reportPath.toAbsolutePath().getParent();
+    if (parent != null) {
+      Files.createDirectories(parent);
+    }
+    Files.writeString(reportPath, toJson(), StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Returns the collected values in JSON format.
+   *
+   * @return JSON object with phases, visitors, grammar rules, peak values and slowest files
+   */
+  public String toJson() {
+    var sb = new StringBuilder(4096);
+    sb.append("{\n");
+    sb.append("  \"files\": ").append(files.get()).append(",\n");
+    sb.append("  \"time\": ").append(millis(totalTime.sum())).append(",\n");
+    sb.append("  \"peakTokens\": ").append(peakTokens.get()).append(",\n");
+    sb.append("  \"peakAstNodes\": ").append(peakAstNodes.get()).append(",\n");
+
+    sb.append("  \"phases\": {");
+    var separator = "\n";
+    for (var phase : sorted(phases)) {
+      sb.append(separator).append("    ").append(quote(phase.getKey())).append(": ").append(millis(phase.getValue()));
+      separator = ",\n";
+    }
+    sb.append("\n  },\n");
+
+    sb.append("  \"visitors\": [");
+    separator = "\n";
+    for (var visitor : sorted(visitors)) {
+      sb.append(separator).append("    {\"name\": ").append(quote(visitor.getKey()))
+        .append(", \"time\": ").append(millis(visitor.getValue())).append('}');
+      separator = ",\n";
+    }
+    sb.append("\n  ],\n");
+
+    sb.append("  \"grammarRules\": [");
+    separator = "\n";
+    for (var rule : top(getRules(), TOP_RULES)) {
+      sb.append(separator).append("    ");
+      appendRule(sb, rule);
+      separator = ",\n";
+    }
+    sb.append("\n  ],\n");
+
+    sb.append("  \"slowestFiles\": [");
+    separator = "\n";
+    for (var file : getSlowestFiles()) {
+      sb.append(separator).append("    {\"file\": ").append(quote(file.file()))
+        .append(", \"time\": ").append(millis(file.time()))
+        .append(", \"lexer\": ").append(millis(file.lexer()))
+        .append(", \"parser\": ").append(millis(file.parser()));
+      if (file.astCreator() > 0) {
+        sb.append(", \"astCreator\": ").append(millis(file.astCreator()));
+      }
+      sb.append(", \"visitors\": ").append(millis(file.visitors()))
+        .append(", \"tokens\": ").append(file.tokens())
+        .append(", \"astNodes\": ").append(file.astNodes())
+        .append(", \"rules\": [");
+      var ruleSeparator = "";
+      for (var rule : top(file.rules(), TOP_FILE_RULES)) {
+        sb.append(ruleSeparator);
+        appendRule(sb, rule);
+        ruleSeparator = ", ";
+      }
+      sb.append("]}");
+      separator = ",\n";
+    }
+    sb.append("\n  ]\n");
+    sb.append("}\n");
+    return sb.toString();
+  }
+
+  /**
+   * Log a summary of the collected values.
+   */
+  public void finalReport() {
+    if (files.get() == 0) {
+      return;
+    }
+    if (phases.containsKey(AST_CREATOR)) {
+      LOG.info("Analysis profile: {} file(s) in {} ms, lexer {} ms (includes {} ms), parser {} ms, "
+        + "AST creator {} ms, visitors {} ms, peak tokens {}, peak AST nodes {}",
+        files.get(), millis(totalTime.sum()), millis(phases.get(LEXER)), millis(phases.get(PREPROCESSOR_INCLUDES)),
+        millis(phases.get(PARSER)), millis(phases.get(AST_CREATOR)), millis(phases.get(VISITORS)),
+        peakTokens.get(), peakAstNodes.get());
+    } else {
+      // AST created while parsing: the time is part of the parser
+      LOG.info("Analysis profile: {} file(s) in {} ms, lexer {} ms (includes {} ms), parser {} ms, "
+        + "visitors {} ms, peak tokens {}, peak AST nodes {}",
+        files.get(), millis(totalTime.sum()), millis(phases.get(LEXER)), millis(phases.get(PREPROCESSOR_INCLUDES)),
+        millis(phases.get(PARSER)), millis(phases.get(VISITORS)), peakTokens.get(), peakAstNodes.get());
+    }
+    var sortedVisitors = sorted(visitors);
+    for (var visitor : sortedVisitors.subList(0, Math.min(TOP_VISITORS, sortedVisitors.size()))) {
+      LOG.info("Analysis profile: visitor '{}' {} ms", visitor.getKey(), millis(visitor.getValue()));
+    }
+    var slowest = getSlowestFiles();
+    if (!slowest.isEmpty()) {
+      LOG.info("Analysis profile: slowest file '{}' {} ms", slowest.get(0).file(), millis(slowest.get(0).time()));
+    }
+    for (var rule : top(getRules(), TOP_LOGGED_RULES)) {
+      LOG.info("Analysis profile: grammar rule '{}' {} backtracked tokens, {} backtracks, {} invocations, "
+        + "{} memo hits, {} ms", rule.rule(), rule.backtrackedTokens(), rule.backtracks(), rule.invocations(),
+        rule.memoHits(), millis(rule.time()));
+    }
+  }
+
+  private List<FileProfile> getSlowestFiles() {
+    List<FileProfile> result;
+    synchronized (slowestFiles) {
+      result = new ArrayList<>(slowestFiles);
+    }
+    result.sort(Comparator.comparingLong(FileProfile::time).reversed());
+    return result;
+  }
+
+  private List<RuleProfile> getRules() {
+    var result = new ArrayList<>(rules.values());
+    result.sort(RuleProfile.BY_BACKTRACKED_TOKENS);
+    return result;
+  }
+
+  private static <T> List<T> top(List<T> values, int count) {
+    return values.subList(0, Math.min(count, values.size()));
+  }
+
+  private static void appendRule(StringBuilder sb, RuleProfile rule) {
+    sb.append("{\"rule\": ").append(quote(rule.rule()))
+      .append(", \"invocations\": ").append(rule.invocations())
+      .append(", \"matches\": ").append(rule.matches())
+      .append(", \"backtracks\": ").append(rule.backtracks())
+      .append(", \"memoHits\": ").append(rule.memoHits())
+      .append(", \"backtrackedTokens\": ").append(rule.backtrackedTokens())
+      .append(", \"time\": ").append(millis(rule.time())).append('}');
+  }
+
+  private static List<Map.Entry<String, LongAdder>> sorted(Map<String, LongAdder> values) {
+    var result = new ArrayList<>(values.entrySet());
+    result.sort(Comparator.comparingLong((Map.Entry<String, LongAdder> e) -> e.getValue().sum()).reversed());
+    return result;
+  }
+
+  private static long millis(LongAdder nanos) {
+    return nanos != null ? millis(nanos.sum()) : 0;
+  }
+
+  private static long millis(long nanos) {
+    return nanos / NANOS_PER_MILLI;
+  }
+
+  private static String quote(String value) {
+    var sb = new StringBuilder(value.length() + 2);
+    sb.append('"');
+    for (var i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      switch (c) {
+        case '"':
+          sb.append("\\\"");
+          break;
+        case '\\':
+          sb.append("\\\\");
+          break;
+        case '\n':
+          sb.append("\\n");
+          break;
+        case '\r':
+          sb.append("\\r");
+          break;
+        case '\t':
+          sb.append("\\t");
+          break;
+        default:
+          if (c < 0x20) {
+            sb.append(String.format("\\u%04x", (int) c));
+          } else {
+            sb.append(c);
+          }
+      }
+    }
+    sb.append('"');
+    return sb.toString();
+  }
+
+  /**
+   * Measured values of one file, times in nanoseconds. The AST creator time is 0 if the AST is created while parsing
+   * (part of the parser time). The grammar rules are empty if rule profiling is disabled, otherwise sorted by
+   * {@link RuleProfile#BY_BACKTRACKED_TOKENS}.
+   */
+  public static record FileProfile(String file, long time, long lexer, long parser, long astCreator, long visitors,
+    int tokens, int astNodes, List<RuleProfile> rules) {
+
+  }
+
+}
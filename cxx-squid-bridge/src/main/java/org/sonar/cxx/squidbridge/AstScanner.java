@@ -34,15 +34,25 @@ import com.sonar.cxx.sslr.impl.Parser;
 import com.sonar.cxx.sslr.impl.ast.AstWalker;
 import java.io.File;
 import java.io.InterruptedIOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.cxx.squidbridge.api.AnalysisException;
+import org.sonar.cxx.squidbridge.api.SourceCode;
 import org.sonar.cxx.squidbridge.api.SourceCodeSearchEngine;
 import org.sonar.cxx.squidbridge.api.SourceCodeTreeDecorator;
+import org.sonar.cxx.squidbridge.api.SourceFile;
 import org.sonar.cxx.squidbridge.api.SourceProject;
 import org.sonar.cxx.squidbridge.indexer.SquidIndex;
 import org.sonar.cxx.squidbridge.measures.MetricDef;
@@ -53,7 +63,9 @@ public class AstScanner<G extends Grammar> {
   private static final String UNABLE_TO_PARSE = "Unable to parse file: ";
 
   private final List<SquidAstVisitor<G>> visitors;
-  private final Parser<G> parser;
+  private final Supplier<Parser<G>> parserFactory;
+  @Nullable
+  private Parser<G> parser;
   private final SquidAstVisitorContextImpl<G> context;
 
   private final SquidIndex indexer = new SquidIndex();
@@ -63,9 +75,10 @@ public class AstScanner<G extends Grammar> {
   protected AstScanner(Builder<G> builder) {
     this.visitors = Lists.newArrayList(builder.visitors);
     this.parser = builder.baseParser;
+    this.parserFactory = builder.parserFactory;
     this.context = builder.context;
 
-    this.context.setGrammar(parser.getGrammar());
+    this.context.setGrammar(builder.grammar);
     this.context.getProject().setSourceCodeIndexer(indexer);
     this.context.setCommentAnalyser(builder.commentAnalyser);
     this.metrics = builder.metrics;
@@ -73,6 +86,15 @@ public class AstScanner<G extends Grammar> {
     indexer.index(context.getProject());
   }
 
+  /**
+   * Profile the analysis: the scanner and its workers add the measured values to the profiler.
+   *
+   * @param profiler profiler of the analysis, null to disable profiling
+   */
+  public void setProfiler(@Nullable AnalysisProfiler profiler) {
+    context.setProfiler(profiler);
+  }
+
   public SourceCodeSearchEngine getIndex() {
     return indexer;
   }
@@ -98,7 +120,7 @@ public class AstScanner<G extends Grammar> {
       AstNode ast = null;
       try {
         try {
-          ast = parser.parse(file);
+          ast = parser().parse(file);
         } catch (Exception e) {
           parseException = handleParseException(file, e);
         }
@@ -113,33 +135,231 @@ public class AstScanner<G extends Grammar> {
   }
 
   public void scanInputFiles(Iterable<InputFile> inputFiles) {
+    scanInputFiles(inputFiles, null);
+  }
+
+  /**
+   * Scan the input files in streaming mode.
+   *
+   * After all visitors have left a file, its measures are aggregated and {@code onFileCompleted} is called with the
+   * resulting source file. Afterwards the source file is added to the project measures and removed from the index,
+   * so the results of the file can be garbage collected. Peak memory is bounded by the files in flight rather than
+   * by the project size. The index of this scanner does not contain the source files in this mode.
+   *
+   * @param inputFiles files to scan
+   * @param onFileCompleted called for each file after it is visited, {@code null} keeps all files in the index
+   */
+  public void scanInputFiles(Iterable<InputFile> inputFiles, @Nullable Consumer<SourceFile> onFileCompleted) {
     initVisitors();
 
-    var astWalker = new AstWalker(visitors);
+    var astWalker = createAstWalker();
 
     for (var inputFile : inputFiles) {
-      var file = new File(inputFile.uri().getPath());
-      checkCancel();
-      context.setInputFile(inputFile, filesMetric);
+      scanInputFile(astWalker, inputFile, onFileCompleted);
+    }
 
-      Exception parseException = null;
-      AstNode ast = null;
-      try {
-        try {
-          ast = parser.parse(inputFile.contents());
-        } catch (Exception e) {
-          parseException = handleParseException(file, e);
-        }
-        walkAndVisit(astWalker, ast, parseException);
-      } catch (Throwable e) {
-        throw new AnalysisException(UNABLE_TO_PARSE + file.getAbsolutePath(), e);
+    profileVisitors(astWalker);
+    destroyVisitors();
+    decorateSquidTree();
+  }
+
+  /**
+   * Scan the input files with several workers in parallel.
+   *
+   * Each worker is a scanner of its own (parser, preprocessor, context and visitors), created by
+   * {@code workerFactory} on the calling thread. The workers take the files from a shared queue. After all files are
+   * processed, the visitors of the workers are destroyed on the calling thread, one worker after the other, so
+   * visitors can merge their per-worker statistics without synchronization. Then the resulting source files of all
+   * workers are merged into the index of this scanner.
+   *
+   * @param inputFiles files to scan
+   * @param threads number of workers, with a value less than two the files are scanned by this scanner
+   * @param workerFactory creates a new independent scanner for a worker
+   */
+  public void scanInputFiles(Iterable<InputFile> inputFiles, int threads, Supplier<AstScanner<G>> workerFactory) {
+    scanInputFiles(inputFiles, threads, workerFactory, null);
+  }
+
+  /**
+   * Scan the input files with several workers in parallel, in streaming mode.
+   *
+   * Same as {@link #scanInputFiles(Iterable, Consumer)}, but {@code onFileCompleted} is called from the worker
+   * threads and must therefore be thread-safe.
+   *
+   * @param inputFiles files to scan
+   * @param threads number of workers, with a value less than two the files are scanned by this scanner
+   * @param workerFactory creates a new independent scanner for a worker
+   * @param onFileCompleted called for each file after it is visited, {@code null} keeps all files in the index
+   */
+  public void scanInputFiles(Iterable<InputFile> inputFiles, int threads, Supplier<AstScanner<G>> workerFactory,
+    @Nullable Consumer<SourceFile> onFileCompleted) {
+    if (threads < 2) {
+      scanInputFiles(inputFiles, onFileCompleted);
+      return;
+    }
+
+    initVisitors();
+
+    var queue = new ConcurrentLinkedQueue<InputFile>();
+    inputFiles.forEach(queue::add);
+
+    var workers = new ArrayList<AstScanner<G>>(threads);
+    for (var i = 0; i < threads; i++) {
+      var worker = workerFactory.get();
+      worker.setProfiler(context.getProfiler());
+      workers.add(worker);
+    }
+
+    var executor = Executors.newFixedThreadPool(threads);
+    try {
+      var tasks = new ArrayList<Callable<Void>>(threads);
+      for (var worker : workers) {
+        tasks.add(() -> {
+          worker.scanQueue(queue, onFileCompleted);
+          return null;
+        });
       }
+      for (var future : executor.invokeAll(tasks)) {
+        future.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new AnalysisException("Analysis cancelled", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+      if (cause instanceof Error error) {
+        throw error;
+      }
+      throw new AnalysisException(cause.getMessage(), cause);
+    } finally {
+      executor.shutdownNow();
     }
 
+    for (var worker : workers) {
+      worker.destroyVisitors();
+      merge(worker.context.getProject());
+    }
     destroyVisitors();
     decorateSquidTree();
   }
 
+  /**
+   * The parser is created on first use: in parallel mode only the workers parse, this scanner doesn't need one.
+   */
+  private Parser<G> parser() {
+    if (parser == null) {
+      parser = parserFactory.get();
+    }
+    return parser;
+  }
+
+  private void scanQueue(Queue<InputFile> queue, @Nullable Consumer<SourceFile> onFileCompleted) {
+    initVisitors();
+
+    var astWalker = createAstWalker();
+
+    InputFile inputFile;
+    while ((inputFile = queue.poll()) != null) {
+      scanInputFile(astWalker, inputFile, onFileCompleted);
+    }
+
+    profileVisitors(astWalker);
+  }
+
+  private void scanInputFile(AstWalker astWalker, InputFile inputFile, @Nullable Consumer<SourceFile> onFileCompleted) {
+    var file = new File(inputFile.uri().getPath());
+    checkCancel();
+    context.setInputFile(inputFile, filesMetric);
+    var sourceFile = (SourceFile) context.peekSourceCode();
+
+    long start = System.nanoTime();
+    long visitStart = start;
+    Exception parseException = null;
+    AstNode ast = null;
+    var parser = parser();
+    var profiler = context.getProfiler();
+    parser.setRuleProfiling(profiler != null && profiler.isRuleProfilingEnabled());
+    try {
+      try {
+        ast = parser.parse(inputFile.contents());
+      } catch (Exception e) {
+        parseException = handleParseException(file, e);
+      }
+      visitStart = System.nanoTime();
+      walkAndVisit(astWalker, ast, parseException);
+    } catch (Throwable e) {
+      throw new AnalysisException(UNABLE_TO_PARSE + file.getAbsolutePath(), e);
+    }
+
+    if (profiler != null) {
+      long end = System.nanoTime();
+      profiler.addFile(new AnalysisProfiler.FileProfile(file.getAbsolutePath(), end - start,
+        parser.getLexerTime(), parser.getParserTime(), parser.getAstCreatorTime(), end - visitStart,
+        parser.getTokenCount(), parseException == null ? astWalker.getVisitedNodes() : 0, parser.getRuleProfiles()));
+    }
+
+    if (onFileCompleted != null) {
+      completeFile(sourceFile, onFileCompleted);
+    }
+  }
+
+  /**
+   * Hand over a visited source file and release it: aggregate the measures of the file (including its children),
+   * call the consumer and add the file measures to the project. Finally the file is removed from the project and the
+   * index, with this no references to the heavy data (highlighting, CPD tokens, messages, ...) remain.
+   */
+  private void completeFile(SourceFile sourceFile, Consumer<SourceFile> onFileCompleted) {
+    if (metrics != null && metrics.length > 0) {
+      new SourceCodeTreeDecorator(sourceFile).decorateWith(metrics);
+    }
+
+    onFileCompleted.accept(sourceFile);
+
+    SourceProject project = context.getProject();
+    aggregate(project, sourceFile);
+    project.removeChild(sourceFile);
+    indexer.remove(sourceFile);
+  }
+
+  private void aggregate(SourceCode parent, SourceCode child) {
+    if (metrics != null) {
+      for (var metric : metrics) {
+        if (!metric.isCalculatedMetric() && metric.isThereAggregationFormula()) {
+          parent.add(metric, child);
+        }
+      }
+    }
+  }
+
+  /**
+   * Move the source files of a worker project into the project of this scanner and index them (including their
+   * children).
+   */
+  private void merge(SourceProject workerProject) {
+    SourceProject project = context.getProject();
+    // in streaming mode the file measures are already aggregated in the worker project
+    aggregate(project, workerProject);
+    if (!workerProject.hasChildren()) {
+      return;
+    }
+    for (var sourceCode : workerProject.getChildren()) {
+      project.addChild(sourceCode);
+      index(sourceCode);
+    }
+  }
+
+  private void index(SourceCode sourceCode) {
+    indexer.index(sourceCode);
+    if (sourceCode.hasChildren()) {
+      for (var child : sourceCode.getChildren()) {
+        index(child);
+      }
+    }
+  }
+
   private static Exception handleParseException(File file, Exception e) {
     checkInterrupted(e);
     if (e instanceof RecognitionException) {
@@ -175,6 +395,23 @@ public class AstScanner<G extends Grammar> {
     context.popTillSourceProject();
   }
 
+  private AstWalker createAstWalker() {
+    var astWalker = new AstWalker(visitors);
+    if (context.getProfiler() != null) {
+      astWalker.enableProfiling();
+    }
+    return astWalker;
+  }
+
+  private void profileVisitors(AstWalker astWalker) {
+    var profiler = context.getProfiler();
+    if (profiler != null) {
+      for (var visitorTime : astWalker.getVisitorTimes().entrySet()) {
+        profiler.addVisitor(visitorTime.getKey().getClass().getName(), visitorTime.getValue());
+      }
+    }
+  }
+
   private void initVisitors() {
     for (var visitor : visitors) {
       visitor.init();
@@ -219,6 +456,8 @@ public class AstScanner<G extends Grammar> {
   public static class Builder<G extends Grammar> {
 
     private Parser<G> baseParser;
+    private Supplier<Parser<G>> parserFactory;
+    private G grammar;
     private final List<SquidAstVisitor<G>> visitors = Lists.newArrayList();
     private final SquidAstVisitorContextImpl<G> context;
     private CommentAnalyser commentAnalyser;
@@ -233,6 +472,24 @@ public class AstScanner<G extends Grammar> {
     public Builder<G> setBaseParser(Parser<G> baseParser) {
       checkNotNull(baseParser, "baseParser cannot be null");
       this.baseParser = baseParser;
+      this.parserFactory = () -> baseParser;
+      this.grammar = baseParser.getGrammar();
+      return this;
+    }
+
+    /**
+     * Set a factory for the parser, the parser is created only if the scanner parses files itself.
+     *
+     * @param grammar grammar of the parsers created by the factory
+     * @param parserFactory creates the parser on first use
+     * @return this builder
+     */
+    public Builder<G> setBaseParserFactory(G grammar, Supplier<Parser<G>> parserFactory) {
+      checkNotNull(grammar, "grammar cannot be null");
+      checkNotNull(parserFactory, "parserFactory cannot be null");
+      this.baseParser = null;
+      this.parserFactory = parserFactory;
+      this.grammar = grammar;
       return this;
     }
 
@@ -264,7 +521,7 @@ public class AstScanner<G extends Grammar> {
     }
 
     public AstScanner<G> build() {
-      checkState(baseParser != null, "baseParser must be set");
+      checkState(parserFactory != null, "baseParser must be set");
       checkState(commentAnalyser != null, "commentAnalyser must be set");
       checkState(filesMetric != null, "filesMetric must be set");
       return new AstScanner<>(this);
@@ -28,6 +28,7 @@ import com.sonar.cxx.sslr.api.Grammar;
 import com.sonar.cxx.sslr.api.Token;
 import java.io.File;
 import java.util.List;
+import javax.annotation.CheckForNull;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.cxx.squidbridge.api.CheckMessage;
 import org.sonar.cxx.squidbridge.api.CodeCheck;
@@ -95,4 +96,14 @@ public abstract class SquidAstVisitorContext<G extends Grammar> {
 
   public abstract void log(CheckMessage message);
 
+  /**
+   * Profiler of the analysis, collects the time spent in the phases of the analysis.
+   *
+   * @return profiler or null if profiling is disabled
+   */
+  @CheckForNull
+  public AnalysisProfiler getProfiler() {
+    return null;
+  }
+
 }
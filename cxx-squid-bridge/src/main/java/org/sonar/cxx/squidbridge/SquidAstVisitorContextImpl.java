@@ -49,6 +49,7 @@ public class SquidAstVisitorContextImpl<G extends Grammar> extends SquidAstVisit
   private InputFile inputFile;
   private final SourceProject project;
   private CommentAnalyser commentAnalyser;
+  private AnalysisProfiler profiler;
 
   public SquidAstVisitorContextImpl(@Nullable SourceProject project) {
     if (project == null) {
@@ -67,6 +68,18 @@ public class SquidAstVisitorContextImpl<G extends Grammar> extends SquidAstVisit
     this.commentAnalyser = commentAnalyser;
   }
 
+  public void setProfiler(@Nullable AnalysisProfiler profiler) {
+    this.profiler = profiler;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public AnalysisProfiler getProfiler() {
+    return profiler;
+  }
+
   /**
    * {@inheritDoc}
    */
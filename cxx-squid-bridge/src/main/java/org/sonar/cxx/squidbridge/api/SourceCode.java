@@ -329,6 +329,20 @@ public abstract class SourceCode implements Measurable, Comparable<SourceCode> {
     return this;
   }
 
+  /**
+   * Remove a direct child from this SourceCode object.
+   *
+   * @param sourceCode object to remove
+   * @return true if sourceCode was a child of this SourceCode object
+   */
+  public boolean removeChild(SourceCode sourceCode) {
+    if (children == null || !children.remove(sourceCode)) {
+      return false;
+    }
+    sourceCode.setParent(null);
+    return true;
+  }
+
   /**
    * Search for a parent with the defined SourceCode class in the tree.
    *
@@ -30,26 +30,26 @@ import org.sonar.cxx.squidbridge.measures.MetricDef;
  */
 public class SourceCodeTreeDecorator {
 
-  private final SourceProject project;
+  private final SourceCode root;
 
   /**
-   * Create a new SourceCodeTreeDecorator with the given SourceProject as root.
+   * Create a new SourceCodeTreeDecorator with the given SourceCode as root.
    *
-   * @param project project node (root) of the SourceCode tree
+   * @param root root node of the SourceCode tree, typically the SourceProject
    *
    * @see SourceCode
    */
-  public SourceCodeTreeDecorator(SourceProject project) {
-    this.project = project;
+  public SourceCodeTreeDecorator(SourceCode root) {
+    this.root = root;
   }
 
   /**
-   * Add the given metric definition to all descendants of the SourceProject node in the SourceCode tree.
+   * Add the given metric definition to all descendants of the root node in the SourceCode tree.
    *
    * @param metrics metric definition to add
    */
   public void decorateWith(MetricDef... metrics) {
-    decorateWith(project, metrics);
+    decorateWith(root, metrics);
   }
 
   private static void decorateWith(SourceCode sourceCode, MetricDef... metrics) {
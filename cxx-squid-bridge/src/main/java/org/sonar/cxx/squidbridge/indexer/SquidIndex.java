@@ -69,4 +69,18 @@ public class SquidIndex implements SourceCodeIndexer, SourceCodeSearchEngine {
     sourceCode.setSourceCodeIndexer(this);
     index.put(sourceCode.getKey(), sourceCode);
   }
+
+  /**
+   * Remove a SourceCode object and all its descendants from the index.
+   *
+   * @param sourceCode sourceCode object to remove
+   */
+  public void remove(SourceCode sourceCode) {
+    index.remove(sourceCode.getKey(), sourceCode);
+    if (sourceCode.hasChildren()) {
+      for (var child : sourceCode.getChildren()) {
+        remove(child);
+      }
+    }
+  }
 }
@@ -22,11 +22,14 @@ package org.sonar.cxx;
 import com.sonar.cxx.sslr.api.AstNode;
 import com.sonar.cxx.sslr.api.Grammar;
 import java.util.Collection;
+import java.util.function.BiConsumer;
+import javax.annotation.Nullable;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.cxx.api.CxxMetric;
 import org.sonar.cxx.config.CxxSquidConfiguration;
 import org.sonar.cxx.parser.CxxGrammarImpl;
 import org.sonar.cxx.parser.CxxParser;
+import org.sonar.cxx.preprocessor.CxxPreprocessor;
 import org.sonar.cxx.squidbridge.AstScanner;
 import org.sonar.cxx.squidbridge.CommentAnalyser;
 import org.sonar.cxx.squidbridge.SourceCodeBuilderVisitor;
@@ -105,9 +108,24 @@ public final class CxxAstScanner {
    */
   @SafeVarargs
   public static AstScanner<Grammar> create(CxxSquidConfiguration squidConfig, SquidAstVisitor<Grammar>... visitors) {
+    return create(squidConfig, null, visitors);
+  }
+
+  /**
+   * Create scanner for language
+   *
+   * @param squidConfig the Squid configuration
+   * @param dependencyRecorder is called with the include files of each source file, {@code null} if not needed
+   * @param visitors visitors AST checks and visitors to use
+   * @return scanner for the given parameters
+   */
+  @SafeVarargs
+  public static AstScanner<Grammar> create(CxxSquidConfiguration squidConfig,
+    @Nullable BiConsumer<SourceFile, CxxPreprocessor.Dependencies> dependencyRecorder,
+    SquidAstVisitor<Grammar>... visitors) {
     var context = new SquidAstVisitorContextImpl<>(new SourceProject("cxx", null));
-    var parser = CxxParser.create(context, squidConfig);
-    var builder = AstScanner.<Grammar>builder(context).setBaseParser(parser);
+    var builder = AstScanner.<Grammar>builder(context)
+      .setBaseParserFactory(CxxParser.getGrammar(squidConfig), () -> CxxParser.create(context, squidConfig));
 
     /* Metrics */
     builder.withMetrics(CxxMetric.values());
@@ -188,7 +206,7 @@ public final class CxxAstScanner {
     builder.withSquidAstVisitor(new CxxFunctionSizeVisitor<>(squidConfig));
 
     // to emit a 'new file' event to the internals of the plugin
-    builder.withSquidAstVisitor(new CxxFileVisitor<>());
+    builder.withSquidAstVisitor(new CxxFileVisitor<>(dependencyRecorder));
 
     // log syntax errors
     builder.withSquidAstVisitor(new CxxParseErrorLoggerVisitor<>());
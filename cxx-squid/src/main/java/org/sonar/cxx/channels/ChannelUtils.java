@@ -43,6 +43,20 @@ public final class ChannelUtils {
     return Character.isLowerCase(c) || Character.isUpperCase(c) || (c == '_');
   }
 
+  /**
+   * ASCII identifier start character: [a-zA-Z_]
+   */
+  public static boolean isIdentifierStart(char ch) {
+    return (ch >= 'a' && ch <= 'z') || (ch >= 'A' && ch <= 'Z') || (ch == '_');
+  }
+
+  /**
+   * ASCII identifier character: [a-zA-Z_0-9]
+   */
+  public static boolean isIdentifierPart(char ch) {
+    return isIdentifierStart(ch) || (ch >= '0' && ch <= '9');
+  }
+
   /**
    * Handle line splicing. - lines terminated by a \ are spliced together with the next line - P2178R0 making trailing
    * whitespaces non-significant
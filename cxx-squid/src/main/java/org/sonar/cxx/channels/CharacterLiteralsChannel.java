@@ -55,13 +55,18 @@ public class CharacterLiteralsChannel extends Channel<Lexer> {
       .setLine(line)
       .setColumn(column)
       .setURI(output.getURI())
-      .setValueAndOriginalValue(sb.toString())
+      .setValueAndOriginalValue(output.internTokenValue(sb.toString()))
       .setType(CxxTokenType.CHARACTER)
       .build());
     sb.delete(0, sb.length());
     return true;
   }
 
+  @Override
+  public boolean isStartCharacter(char ch) {
+    return ch == '\'' || ch == 'u' || ch == 'U' || ch == 'L';
+  }
+
   private boolean read(CodeReader code) {
     index++;
     while (code.charAt(index) != ch) {
@@ -0,0 +1,175 @@
+/*
+ * C++ Community Plugin (cxx plugin)
+ * Copyright (C) 2010-2024 SonarOpenCommunity
+ * http://github.com/SonarOpenCommunity/sonar-cxx
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.cxx.channels;
+
+import static com.sonar.cxx.sslr.api.GenericTokenType.IDENTIFIER;
+import com.sonar.cxx.sslr.api.Token;
+import com.sonar.cxx.sslr.api.TokenType;
+import com.sonar.cxx.sslr.impl.Lexer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.annotation.CheckForNull;
+import org.sonar.cxx.sslr.channel.Channel;
+import org.sonar.cxx.sslr.channel.CodeReader;
+
+/**
+ * C++ Standard, Section 2.11 "Identifiers" and Section 2.12 "Keywords"
+ *
+ * Scans identifiers ([a-zA-Z_][a-zA-Z0-9_]*) by inspecting the characters directly. Keywords are found with a perfect
+ * hash over the keyword values: the hash is calculated while scanning and the characters are compared with the only
+ * candidate in place. A keyword token gets the keyword value as token value, so no string is created for keywords.
+ */
+public class IdentifierChannel extends Channel<Lexer> {
+
+  private static final int MAX_TABLE_SIZE = 1 << 16;
+
+  private final KeywordTable keywords;
+  private final StringBuilder sb = new StringBuilder(256);
+  private final Token.Builder tokenBuilder = Token.builder();
+
+  /**
+   * @param keywordSets case-sensitive keywords, in case of duplicate values the last one wins
+   */
+  public IdentifierChannel(TokenType[]... keywordSets) {
+    var values = new LinkedHashMap<String, TokenType>();
+    for (var keywordSet : keywordSets) {
+      for (var keyword : keywordSet) {
+        values.put(keyword.getValue(), keyword);
+      }
+    }
+    keywords = KeywordTable.create(values);
+  }
+
+  @Override
+  public boolean consume(CodeReader code, Lexer output) {
+    var ch = code.charAt(0);
+    if (!ChannelUtils.isIdentifierStart(ch)) {
+      return false;
+    }
+    int hash = ch;
+    int length = 1;
+    while (ChannelUtils.isIdentifierPart(ch = code.charAt(length))) {
+      hash = hash * keywords.seed + ch;
+      length++;
+    }
+
+    int line = code.getLinePosition();
+    int column = code.getColumnPosition();
+    var keyword = keywords.get(code, length, hash);
+    String value;
+    if (keyword != null) {
+      value = keyword.getValue();
+      code.skip(length);
+    } else {
+      for (var i = 0; i < length; i++) {
+        sb.append((char) code.pop());
+      }
+      value = output.internTokenValue(sb.toString());
+      sb.delete(0, sb.length());
+    }
+
+    output.addToken(tokenBuilder
+      .setLine(line)
+      .setColumn(column)
+      .setURI(output.getURI())
+      .setValueAndOriginalValue(value)
+      .setType(keyword != null ? keyword : IDENTIFIER)
+      .build());
+    return true;
+  }
+
+  @Override
+  public boolean isStartCharacter(char ch) {
+    return ChannelUtils.isIdentifierStart(ch);
+  }
+
+  /**
+   * Open addressing table without collisions: the multiplier (seed) of the hash function and the table size are
+   * searched until each keyword has its own slot.
+   */
+  private static final class KeywordTable {
+
+    private final int seed;
+    private final int mask;
+    private final TokenType[] types;
+    private final char[][] values;
+
+    private KeywordTable(int seed, int size) {
+      this.seed = seed;
+      this.mask = size - 1;
+      this.types = new TokenType[size];
+      this.values = new char[size][];
+    }
+
+    private static KeywordTable create(Map<String, TokenType> keywords) {
+      int size = Integer.highestOneBit(Math.max(1, keywords.size() * 2 - 1)) << 1;
+      for (; size <= MAX_TABLE_SIZE; size <<= 1) {
+        for (int seed = 31; seed < 31 + 2 * size; seed += 2) {
+          var table = new KeywordTable(seed, size);
+          if (table.putAll(keywords)) {
+            return table;
+          }
+        }
+      }
+      throw new IllegalArgumentException("IdentifierChannel: no perfect hash found for the keywords");
+    }
+
+    private boolean putAll(Map<String, TokenType> keywords) {
+      for (var keyword : keywords.entrySet()) {
+        var value = keyword.getKey().toCharArray();
+        if (value.length == 0) {
+          continue;
+        }
+        int hash = value[0];
+        for (int i = 1; i < value.length; i++) {
+          hash = hash * seed + value[i];
+        }
+        int slot = slot(hash);
+        if (types[slot] != null) {
+          return false;
+        }
+        types[slot] = keyword.getValue();
+        values[slot] = value;
+      }
+      return true;
+    }
+
+    @CheckForNull
+    private TokenType get(CodeReader code, int length, int hash) {
+      int slot = slot(hash);
+      var value = values[slot];
+      if (value == null || value.length != length) {
+        return null;
+      }
+      for (int i = 0; i < length; i++) {
+        if (code.charAt(i) != value[i]) {
+          return null;
+        }
+      }
+      return types[slot];
+    }
+
+    private int slot(int hash) {
+      return (hash ^ (hash >>> 16)) & mask;
+    }
+
+  }
+
+}
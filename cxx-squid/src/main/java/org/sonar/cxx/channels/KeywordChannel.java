@@ -91,4 +91,10 @@ public class KeywordChannel extends Channel<Lexer> {
     return false;
   }
 
+  @Override
+  public boolean isStartCharacter(char ch) {
+    // preprocessor keywords: #...
+    return ch == '#';
+  }
+
 }
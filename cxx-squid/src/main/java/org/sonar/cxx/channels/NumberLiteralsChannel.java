@@ -0,0 +1,188 @@
+/*
+ * C++ Community Plugin (cxx plugin)
+ * Copyright (C) 2010-2024 SonarOpenCommunity
+ * http://github.com/SonarOpenCommunity/sonar-cxx
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.cxx.channels;
+
+import com.sonar.cxx.sslr.api.Token;
+import com.sonar.cxx.sslr.impl.Lexer;
+import org.sonar.cxx.parser.CxxTokenType;
+import org.sonar.cxx.sslr.channel.Channel;
+import org.sonar.cxx.sslr.channel.CodeReader;
+
+/**
+ * C++ Standard, Section 2.14.2 "Integer literals" and Section 2.14.4 "Floating literals"
+ *
+ * Scans the literals by inspecting the characters directly, which is faster than matching a regular expression for
+ * each number. The accepted syntax is:
+ *
+ * <pre>
+ * ( "." DECDIGIT_SEQUENCE EXPONENT?
+ * | HEX_PREFIX HEXDIGIT_SEQUENCE? "."? HEXDIGIT_SEQUENCE? BINARY_EXPONENT?
+ * | BIN_PREFIX BINDIGIT_SEQUENCE
+ * | DECDIGIT_SEQUENCE "."? DECDIGIT_SEQUENCE? EXPONENT?
+ * ) UD_SUFFIX?
+ * </pre>
+ *
+ * A digit sequence can contain digit separators ('), the ud-suffix is an identifier and includes the integer suffixes
+ * (e.g. u, ll, i64, z) and the floating suffixes (e.g. f, l, f16, bf16).
+ */
+public class NumberLiteralsChannel extends Channel<Lexer> {
+
+  // character classes of the digit sequences
+  private static final int BIN = 2;
+  private static final int DEC = 10;
+  private static final int HEX = 16;
+  private static final int EXP = 0; // [0-9_]
+
+  private final StringBuilder sb = new StringBuilder(256);
+  private final Token.Builder tokenBuilder = Token.builder();
+
+  @Override
+  public boolean consume(CodeReader code, Lexer output) {
+    int end = readNumber(code);
+    if (end == 0) {
+      return false;
+    }
+    end = readUdSuffix(code, end);
+
+    int line = code.getLinePosition();
+    int column = code.getColumnPosition();
+    for (var i = 0; i < end; i++) {
+      sb.append((char) code.pop());
+    }
+    output.addToken(tokenBuilder
+      .setLine(line)
+      .setColumn(column)
+      .setURI(output.getURI())
+      .setValueAndOriginalValue(output.internTokenValue(sb.toString()))
+      .setType(CxxTokenType.NUMBER)
+      .build());
+    sb.delete(0, sb.length());
+    return true;
+  }
+
+  @Override
+  public boolean isStartCharacter(char ch) {
+    return isDigit(ch, DEC) || ch == '.';
+  }
+
+  /**
+   * @return length of the number without ud-suffix, 0 if there is no number
+   */
+  private static int readNumber(CodeReader code) {
+    var ch = code.charAt(0);
+    if (ch == '.') {
+      int end = readSequence(code, 1, DEC);
+      return end > 1 ? readExponent(code, end, 'e', EXP) : 0;
+    }
+    if (ch == '0') {
+      var prefix = code.charAt(1);
+      if (prefix == 'x' || prefix == 'X') {
+        int end = readSequence(code, 2, HEX);
+        if (code.charAt(end) == '.') {
+          end++;
+        }
+        end = readSequence(code, end, HEX);
+        return readExponent(code, end, 'p', DEC);
+      }
+      if (prefix == 'b' || prefix == 'B') {
+        int end = readSequence(code, 2, BIN);
+        if (end > 2) {
+          return end;
+        }
+      }
+    }
+    int end = readSequence(code, 0, DEC);
+    if (end == 0) {
+      return 0;
+    }
+    if (code.charAt(end) == '.') {
+      end++;
+    }
+    end = readSequence(code, end, DEC);
+    return readExponent(code, end, 'e', EXP);
+  }
+
+  /**
+   * Digit sequence: DIGIT ("'"? DIGIT)*
+   *
+   * @return index after the sequence, start if there is no sequence
+   */
+  private static int readSequence(CodeReader code, int start, int digits) {
+    int index = start;
+    if (!isDigit(code.charAt(index), digits)) {
+      return start;
+    }
+    index++;
+    while (true) {
+      var ch = code.charAt(index);
+      if (isDigit(ch, digits)) {
+        index++;
+      } else if (ch == '\'' && isDigit(code.charAt(index + 1), digits)) {
+        index += 2;
+      } else {
+        return index;
+      }
+    }
+  }
+
+  /**
+   * Exponent: [eE] [+-]? [0-9_] sequence, binary exponent: [pP] [+-]? DECDIGIT_SEQUENCE
+   *
+   * @return index after the exponent, start if there is no complete exponent
+   */
+  private static int readExponent(CodeReader code, int start, char marker, int digits) {
+    var ch = code.charAt(start);
+    if (ch != marker && ch != Character.toUpperCase(marker)) {
+      return start;
+    }
+    int index = start + 1;
+    ch = code.charAt(index);
+    if (ch == '+' || ch == '-') {
+      index++;
+    }
+    int end = readSequence(code, index, digits);
+    return end > index ? end : start;
+  }
+
+  private static int readUdSuffix(CodeReader code, int start) {
+    int index = start;
+    if (ChannelUtils.isIdentifierStart(code.charAt(index))) {
+      index++;
+      while (ChannelUtils.isIdentifierPart(code.charAt(index))) {
+        index++;
+      }
+    }
+    return index;
+  }
+
+  private static boolean isDigit(char ch, int digits) {
+    switch (digits) {
+      case BIN:
+        return ch == '0' || ch == '1';
+      case DEC:
+        return ch >= '0' && ch <= '9';
+      case HEX:
+        return (ch >= '0' && ch <= '9') || (ch >= 'a' && ch <= 'f') || (ch >= 'A' && ch <= 'F');
+      default:
+        return (ch >= '0' && ch <= '9') || ch == '_';
+    }
+  }
+
+}
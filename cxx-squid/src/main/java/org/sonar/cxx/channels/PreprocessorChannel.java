@@ -42,18 +42,22 @@ public class PreprocessorChannel extends Channel<Lexer> {
   private final StringBuilder sb = new StringBuilder(256);
   private final StringBuilder dummy = new StringBuilder(256);
   private final Matcher matcher;
+  private final String startCharacters;
 
   public PreprocessorChannel(TokenType[]... keywordSets) {
     var regexp = new StringBuilder(256);
     regexp.append("#");
+    var start = new StringBuilder("#");
     for (var keywords : keywordSets) {
       for (var keyword : keywords) {
         regexp.append("|");
         regexp.append(keyword.getValue());
         regexp.append("\\s++");
+        start.append(keyword.getValue().charAt(0));
       }
     }
     matcher = Pattern.compile(regexp.toString()).matcher("");
+    startCharacters = start.toString();
   }
 
   @Override
@@ -131,4 +135,9 @@ public class PreprocessorChannel extends Channel<Lexer> {
     }
   }
 
+  @Override
+  public boolean isStartCharacter(char ch) {
+    return startCharacters.indexOf(ch) >= 0;
+  }
+
 }
@@ -105,4 +105,9 @@ public class RightAngleBracketsChannel extends Channel<Lexer> {
     return consumed;
   }
 
+  @Override
+  public boolean isStartCharacter(char ch) {
+    return ch == '<' || ch == '>' || ch == '(' || ch == ')' || ch == ';';
+  }
+
 }
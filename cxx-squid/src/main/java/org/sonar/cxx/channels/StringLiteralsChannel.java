@@ -46,13 +46,18 @@ public class StringLiteralsChannel extends Channel<Lexer> {
       .setLine(line)
       .setColumn(column)
       .setURI(output.getURI())
-      .setValueAndOriginalValue(csb.toString())
+      .setValueAndOriginalValue(output.internTokenValue(csb.toString()))
       .setType(CxxTokenType.STRING)
       .build());
     csb.delete(0, csb.length());
     return true;
   }
 
+  @Override
+  public boolean isStartCharacter(char ch) {
+    return ch == '"' || ch == 'u' || ch == 'U' || ch == 'L' || ch == 'R';
+  }
+
   public boolean read(CodeReader code, StringBuilder sb) {
     index = 0;
     readStringPrefix(code);
@@ -21,23 +21,21 @@ package org.sonar.cxx.parser;
 
 import com.sonar.cxx.sslr.api.Preprocessor;
 import com.sonar.cxx.sslr.impl.Lexer;
+import com.sonar.cxx.sslr.impl.TokenValuePool;
 import com.sonar.cxx.sslr.impl.channel.BlackHoleChannel;
 import com.sonar.cxx.sslr.impl.channel.BomCharacterChannel;
-import com.sonar.cxx.sslr.impl.channel.IdentifierAndKeywordChannel;
 import com.sonar.cxx.sslr.impl.channel.PunctuatorChannel;
-import static com.sonar.cxx.sslr.impl.channel.RegexpChannelBuilder.and;
-import static com.sonar.cxx.sslr.impl.channel.RegexpChannelBuilder.g;
-import static com.sonar.cxx.sslr.impl.channel.RegexpChannelBuilder.o2n;
-import static com.sonar.cxx.sslr.impl.channel.RegexpChannelBuilder.opt;
-import static com.sonar.cxx.sslr.impl.channel.RegexpChannelBuilder.or;
-import static com.sonar.cxx.sslr.impl.channel.RegexpChannelBuilder.regexp;
+import com.sonar.cxx.sslr.impl.channel.RegexpChannel;
 import com.sonar.cxx.sslr.impl.channel.UnknownCharacterChannel;
 import java.nio.charset.Charset;
 import java.util.HashSet;
 import java.util.Set;
+import javax.annotation.Nullable;
 import org.sonar.cxx.channels.BackslashChannel;
 import org.sonar.cxx.channels.CharacterLiteralsChannel;
+import org.sonar.cxx.channels.IdentifierChannel;
 import org.sonar.cxx.channels.MultiLineCommentChannel;
+import org.sonar.cxx.channels.NumberLiteralsChannel;
 import org.sonar.cxx.channels.PreprocessorChannel;
 import org.sonar.cxx.channels.RightAngleBracketsChannel;
 import org.sonar.cxx.channels.SingleLineCommentChannel;
@@ -46,19 +44,6 @@ import org.sonar.cxx.preprocessor.PPSpecialIdentifier;
 
 public final class CxxLexerPool {
 
-  private static final String HEX_PREFIX = "0[xX]";
-  private static final String BIN_PREFIX = "0[bB]";
-  private static final String EXPONENT = "[Ee][+-]?+[0-9_]([']?+[0-9_]++)*+";
-  private static final String BINARY_EXPONENT = "[pP][+-]?+\\d([']?+\\d++)*+"; // since C++17
-  // INTEGER_SUFFIX = "(((U|u)(i64|LL|ll|L|l)?)|((i64|LL|ll|L|l)(u|U)?)|((z|Z)(u|U)))"
-  // FLOAT_SUFFIX = "(f|l|F|L|f16|f32|f64|f128|bf16|F16|F32|F64|F128|BF16)"
-  // ud-suffix: identifier (including INTEGER_SUFFIX, FLOAT_SUFFIX)
-  private static final String UD_SUFFIX = "[_a-zA-Z]\\w*+";
-  private static final String DECDIGIT_SEQUENCE = "\\d([']?+\\d++)*+";
-  private static final String HEXDIGIT_SEQUENCE = "[0-9a-fA-F]([']?+[0-9a-fA-F]++)*+";
-  private static final String BINDIGIT_SEQUENCE = "[01]([']?+[01]++)*+";
-  private static final String POINT = "\\.";
-
   private Lexer.Builder builder;
   private final Set<Lexer> available = new HashSet<>();
   private final Set<Lexer> inUse = new HashSet<>();
@@ -71,6 +56,14 @@ public final class CxxLexerPool {
   }
 
   public static CxxLexerPool create(Charset charset, Preprocessor... preprocessors) {
+    return create(charset, null, preprocessors);
+  }
+
+  /**
+   * @param tokenValuePool lexers sharing a pool share equal token values, null to disable pooling
+   */
+  public static CxxLexerPool create(Charset charset, @Nullable TokenValuePool tokenValuePool,
+                                    Preprocessor... preprocessors) {
     var lexer = new CxxLexerPool();
 
     //
@@ -79,7 +72,8 @@ public final class CxxLexerPool {
     lexer.builder = Lexer.builder()
       .withCharset(charset)
       .withFailIfNoChannelToConsumeOneCharacter(true)
-      .withChannel(new BlackHoleChannel("\\s++"))
+      .withTokenValuePool(tokenValuePool)
+      .withChannel(new BlackHoleChannel("\\s++", BlackHoleChannel.WHITESPACE_CHARACTERS))
       // C++ Standard, Section 2.8 "Comments"
       .withChannel(new SingleLineCommentChannel())
       .withChannel(new MultiLineCommentChannel())
@@ -95,25 +89,12 @@ public final class CxxLexerPool {
       .withChannel(new StringLiteralsChannel())
       // C++ Standard, Section 2.14.2 "Integer literals"
       // C++ Standard, Section 2.14.4 "Floating literals"
-      .withChannel(
-        regexp(CxxTokenType.NUMBER,
-          and(
-            or(
-              g(POINT, DECDIGIT_SEQUENCE, opt(g(EXPONENT))),
-              g(HEX_PREFIX, opt(g(HEXDIGIT_SEQUENCE)), opt(POINT), opt(g(HEXDIGIT_SEQUENCE)), opt(
-                g(BINARY_EXPONENT))),
-              g(BIN_PREFIX, BINDIGIT_SEQUENCE),
-              g(DECDIGIT_SEQUENCE, opt(POINT), opt(g(DECDIGIT_SEQUENCE)), opt(g(EXPONENT)))
-            ),
-            opt(g(UD_SUFFIX))
-          )
-        )
-      )
+      .withChannel(new NumberLiteralsChannel())
       // C++ Standard, Section 2.14.7 "Pointer literals"
-      .withChannel(regexp(CxxTokenType.NUMBER, CxxKeyword.NULLPTR.getValue() + "\\b"))
+      .withChannel(new RegexpChannel(CxxTokenType.NUMBER, CxxKeyword.NULLPTR.getValue() + "\\b", "n"))
       // C++ Standard, Section 2.12 "Keywords"
       // C++ Standard, Section 2.11 "Identifiers"
-      .withChannel(new IdentifierAndKeywordChannel(and("[a-zA-Z_]", o2n("\\w")), true, CxxKeyword.values()))
+      .withChannel(new IdentifierChannel(CxxKeyword.values()))
       // C++ Standard, Section 2.13 "Operators and punctuators"
       .withChannel(new RightAngleBracketsChannel())
       .withChannel(new PunctuatorChannel(CxxPunctuator.values()))
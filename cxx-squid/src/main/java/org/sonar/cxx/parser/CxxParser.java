@@ -21,7 +21,12 @@ package org.sonar.cxx.parser;
 
 import com.sonar.cxx.sslr.api.Grammar;
 import com.sonar.cxx.sslr.impl.Parser;
+import com.sonar.cxx.sslr.impl.TokenValuePool;
 import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import javax.annotation.CheckForNull;
 import org.sonar.cxx.config.CxxSquidConfiguration;
 import org.sonar.cxx.preprocessor.CxxPreprocessor;
 import org.sonar.cxx.preprocessor.JoinStringsPreprocessor;
@@ -31,13 +36,80 @@ import org.sonar.cxx.squidbridge.api.SourceProject;
 
 public final class CxxParser {
 
-  private static WeakReference<CxxPreprocessor> currentPreprocessorInstance;
+  // one preprocessor per context: several parsers (workers) can be in use at the same time
+  private static final Map<SquidAstVisitorContext<?>, WeakReference<CxxPreprocessor>> preprocessorInstances
+    = Collections.synchronizedMap(new WeakHashMap<>());
+
+  // preprocessor of the last created parser, see finishedParsing()
+  private static volatile WeakReference<CxxPreprocessor> currentPreprocessorInstance = new WeakReference<>(null);
+
+  // one token value pool per analysis: all workers of an analysis share the same configuration
+  private static final Map<CxxSquidConfiguration, TokenValuePool> tokenValuePools
+    = Collections.synchronizedMap(new WeakHashMap<>());
+
+  // one grammar per analysis: the grammar is compiled only once and the instructions are shared by all workers
+  private static final Map<CxxSquidConfiguration, Grammar> grammars
+    = Collections.synchronizedMap(new WeakHashMap<>());
 
   private CxxParser() {
   }
 
+  /**
+   * Finish the translation unit of the preprocessor of the last created parser.
+   *
+   * @deprecated not thread-safe if several parsers are in use, use {@link #finishedParsing(SquidAstVisitorContext)}
+   */
+  @Deprecated
   public static void finishedParsing() {
-    currentPreprocessorInstance.get().finishedPreprocessing();
+    var cxxpp = currentPreprocessorInstance.get();
+    if (cxxpp != null) {
+      cxxpp.finishedPreprocessing();
+    }
+  }
+
+  /**
+   * Finish the translation unit of the preprocessor assigned to the context.
+   *
+   * @param context context the parser was created with
+   * @return include files and searches the translation unit depends on, empty if no parser was created with the
+   * context
+   */
+  public static CxxPreprocessor.Dependencies finishedParsing(SquidAstVisitorContext<?> context) {
+    var cxxpp = preprocessor(context);
+    if (cxxpp == null) {
+      return new CxxPreprocessor.Dependencies(Collections.emptySet(), Collections.emptySet());
+    }
+    return cxxpp.finishedPreprocessing();
+  }
+
+  /**
+   * Finish the analysis of the preprocessor assigned to the context: adds its statistics to the final report.
+   *
+   * Does nothing if no parser was created with the context.
+   *
+   * @param context context the parser was created with
+   */
+  public static void finishedAnalysis(SquidAstVisitorContext<?> context) {
+    var cxxpp = preprocessor(context);
+    if (cxxpp != null) {
+      cxxpp.finishedAnalysis();
+    }
+  }
+
+  @CheckForNull
+  private static CxxPreprocessor preprocessor(SquidAstVisitorContext<?> context) {
+    var reference = preprocessorInstances.get(context);
+    return reference != null ? reference.get() : null;
+  }
+
+  /**
+   * Grammar of the parsers created with the configuration, the compiled grammar is shared by all these parsers.
+   *
+   * @param squidConfig the Squid configuration
+   * @return grammar for the configuration
+   */
+  public static Grammar getGrammar(CxxSquidConfiguration squidConfig) {
+    return grammars.computeIfAbsent(squidConfig, CxxGrammarImpl::create);
   }
 
   public static Parser<Grammar> create() {
@@ -50,10 +122,13 @@ public final class CxxParser {
   }
 
   public static Parser<Grammar> create(SquidAstVisitorContext<Grammar> context, CxxSquidConfiguration squidConfig) {
-    var cxxpp = new CxxPreprocessor(context, squidConfig);
+    var tokenValuePool = tokenValuePools.computeIfAbsent(squidConfig, k -> new TokenValuePool());
+    var cxxpp = new CxxPreprocessor(context, squidConfig, tokenValuePool);
+    preprocessorInstances.put(context, new WeakReference<>(cxxpp));
     currentPreprocessorInstance = new WeakReference<>(cxxpp);
-    return Parser.builder(CxxGrammarImpl.create(squidConfig))
-      .withLexer(CxxLexerPool.create(squidConfig.getCharset(), cxxpp, new JoinStringsPreprocessor()).getLexer())
+    return Parser.builder(getGrammar(squidConfig))
+      .withLexer(CxxLexerPool.create(squidConfig.getCharset(), tokenValuePool,
+                                     cxxpp, new JoinStringsPreprocessor()).getLexer())
       .build();
   }
 
@@ -26,25 +26,31 @@ import com.sonar.cxx.sslr.api.Preprocessor;
 import com.sonar.cxx.sslr.api.PreprocessorAction;
 import com.sonar.cxx.sslr.api.Token;
 import com.sonar.cxx.sslr.api.Trivia;
+import com.sonar.cxx.sslr.impl.Lexer;
 import com.sonar.cxx.sslr.impl.Parser;
+import com.sonar.cxx.sslr.impl.TokenValuePool;
 import com.sonar.cxx.sslr.impl.token.TokenUtils;
 import java.io.File;
 import java.nio.charset.Charset;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sonar.cxx.config.CxxSquidConfiguration;
 import org.sonar.cxx.parser.CxxKeyword;
 import org.sonar.cxx.parser.CxxLexerPool;
 import org.sonar.cxx.parser.CxxTokenType;
+import org.sonar.cxx.squidbridge.AnalysisProfiler;
 import org.sonar.cxx.squidbridge.SquidAstVisitorContext;
 
 /**
@@ -88,33 +94,62 @@ public class CxxPreprocessor extends Preprocessor {
     + " The preprocessor searches for include files in the with "
     + "'sonar.cxx.includeDirectories' defined directories and order.";
 
+  // number of parsed directive lines kept per preprocessor instance
+  private static final int DIRECTIVE_CACHE_SIZE = 4096;
+
+  // sum of all preprocessor instances (workers), see finishedAnalysis
   private static int missingFileCounter = 0;
 
   private final SquidAstVisitorContext<Grammar> context;
   private final CxxSquidConfiguration squidConfig;
+  private final TokenValuePool tokenValuePool;
 
   private MacroContainer<String, PPMacro> unitMacros = null;
   private MacroContainer<String, PPMacro> globalMacros = null;
   private List<String> globalIncludeDirectories = null;
+  private Set<Path> globalIncludedFiles = Collections.emptySet();
+  private Set<IncludeLookup> globalIncludeLookups = Collections.emptySet();
 
   private File currentContextFile;
+  private int missingFiles = 0;
 
   private final Parser<Grammar> lineParser;
+  private final Lexer directiveLexer;
   private final PPExpression constantExpression;
-  private CxxLexerPool lineLexerwithPP = null;
+  private Lexer lineLexer = null;
   private PPReplace replace = null;
   private PPInclude include = null;
 
-  private final Map<Path, Boolean> fileExists = new HashMap<>();
+  private final Map<String, AstNode> directiveCache = new LinkedHashMap<>(256, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, AstNode> eldest) {
+      return size() > DIRECTIVE_CACHE_SIZE;
+    }
+  };
+  private final PPHeaderCache headerCache;
+  private final PPIncludeIndex includeIndex;
 
   public CxxPreprocessor(SquidAstVisitorContext<Grammar> context) {
     this(context, new CxxSquidConfiguration());
   }
 
   public CxxPreprocessor(SquidAstVisitorContext<Grammar> context, CxxSquidConfiguration squidConfig) {
+    this(context, squidConfig, null);
+  }
+
+  /**
+   * @param tokenValuePool the lexers of the preprocessor share equal token values with the pool (e.g. with the lexer
+   * of the parser), null to disable pooling
+   */
+  public CxxPreprocessor(SquidAstVisitorContext<Grammar> context, CxxSquidConfiguration squidConfig,
+                         @Nullable TokenValuePool tokenValuePool) {
     this.context = context;
     this.squidConfig = squidConfig;
-    lineParser = PPParser.create(squidConfig.getCharset());
+    this.tokenValuePool = tokenValuePool;
+    lineParser = PPParser.create(squidConfig.getCharset(), tokenValuePool);
+    directiveLexer = PPLexer.create(squidConfig.getCharset(), tokenValuePool);
+    includeIndex = PPIncludeIndex.of(squidConfig);
+    headerCache = PPHeaderCache.of(squidConfig);
     constantExpression = new PPExpression(this);
 
     addPredefinedMacros();
@@ -139,21 +174,24 @@ public class CxxPreprocessor extends Preprocessor {
       currentContextFile = context.getFile();
 
       include = new PPInclude(this, currentContextFile.toPath());
-      unitMacros = new MacroContainer<>();
       String path = currentContextFile.getAbsolutePath();
 
       if (globalMacros != null) {
-        // reuse already parsed project macros
-        unitMacros.putAll(globalMacros);
+        // reuse already parsed project macros: unit macros are a layer on top of them (copy-on-write)
+        unitMacros = new MacroContainer<>(globalMacros);
       } else {
+        unitMacros = new MacroContainer<>();
         // on project level do this only once for all units
-        lineLexerwithPP = CxxLexerPool.create(this);
+        lineLexer = CxxLexerPool.create(Charset.defaultCharset(), tokenValuePool).getLexer();
         replace = new PPReplace(this); // TODO: try to remove dependecies inside PPReplace, lexer, unitMacros
         addGlobalIncludeDirectories();
         addGlobalMacros();
         addGlobalForcedIncludes();
-        globalMacros = new MacroContainer<>();
-        globalMacros.putAll(unitMacros);
+        globalIncludedFiles = new HashSet<>(include().getIncludedFiles());
+        globalIncludeLookups = new LinkedHashSet<>(include().getIncludeLookups());
+        // the project macros are never changed again
+        globalMacros = unitMacros;
+        unitMacros = new MacroContainer<>(globalMacros);
 
         if (LOG.isDebugEnabled()) {
           LOG.debug("global include directories: {}", include().getStandardIncludeDirs());
@@ -198,7 +236,7 @@ public class CxxPreprocessor extends Preprocessor {
     if (CxxTokenType.PREPROCESSOR.equals(type)) {
       return handlePreprocessorDirective(token);
     } else if (include().state().skipTokens() && !GenericTokenType.EOF.equals(type)) {
-      return oneConsumedToken(token);
+      return skippedTokens(tokens);
     } else if (GenericTokenType.IDENTIFIER.equals(type) || (type instanceof CxxKeyword)) {
       PPMacro macro = getMacro(token.getValue());
       if (macro != null) {
@@ -230,12 +268,18 @@ public class CxxPreprocessor extends Preprocessor {
     return lineAst;
   }
 
-  List<Token> tokenizeMacro(PPMacro macro, String macroExpression) {
+  /**
+   * Expand the (lexed) expansion of a macro, the macro itself is not expanded again.
+   *
+   * @param macro macro to expand
+   * @param expansion tokens of the expansion, ending with EOF
+   */
+  List<Token> tokenizeMacro(PPMacro macro, List<Token> expansion) {
     // C++ standard 16.3.4/2 Macro Replacement - Rescanning and further replacement
     List<Token> tokens = null;
     unitMacros.pushDisable(macro.identifier);
     try {
-      tokens = tokenize(macroExpression);
+      tokens = tokenize(expansion);
     } finally {
       unitMacros.popDisable();
     }
@@ -243,27 +287,110 @@ public class CxxPreprocessor extends Preprocessor {
   }
 
   List<Token> tokenize(String expression) {
+    return tokenize(lex(expression));
+  }
+
+  private List<Token> tokenize(List<Token> tokens) {
     // C++ standard 16.3.4/2 Macro Replacement - Rescanning and further replacement
-    List<Token> tokens = null;
-    var lexer = lineLexerwithPP.borrowLexer();
-    try {
-      // macros can be nested, so the expansion of macros can be called recursively.
-      // Each level needs its own lexer (use a lexer pool).
-      tokens = TokenUtils.removeLastTokenIfEof(lexer.lex(expression));
-    } finally {
-      lineLexerwithPP.returnLexer(lexer);
+    // macros can be nested, so the expansion of macros can be called recursively.
+    return TokenUtils.removeLastTokenIfEof(preprocess(tokens));
+  }
+
+  /**
+   * Lex a text (e.g. the replacement list of a function-like macro after parameter substitution) without preprocessing.
+   */
+  List<Token> lex(String text) {
+    return lineLexer.lex(text);
+  }
+
+  /**
+   * Preprocess a list of tokens in the same way as the lexer does with its preprocessors.
+   */
+  private List<Token> preprocess(List<Token> tokens) {
+    var result = new ArrayList<Token>(tokens.size());
+    var trivia = new ArrayList<Trivia>();
+    int i = 0;
+    while (i < tokens.size()) {
+      var action = process(tokens.subList(i, tokens.size()));
+      trivia.addAll(action.getTriviaToInject());
+
+      for (int j = 0; j < action.getNumberOfConsumedTokens(); j++) {
+        trivia.addAll(tokens.get(i).getTrivia());
+        i++;
+      }
+
+      for (var tokenToInject : action.getTokensToInject()) {
+        addToken(result, trivia, tokenToInject);
+      }
+
+      if (action.getNumberOfConsumedTokens() == 0) {
+        var token = tokens.get(i);
+        i++;
+        trivia.addAll(token.getTrivia());
+        addToken(result, trivia, token);
+      }
+    }
+    return result;
+  }
+
+  private static void addToken(List<Token> result, List<Trivia> trivia, Token token) {
+    if (trivia.isEmpty() && !token.hasTrivia()) {
+      result.add(token);
+    } else {
+      result.add(Token.builder(token).setTrivia(trivia).build());
+      trivia.clear();
     }
-    return tokens;
   }
 
   @CheckForNull
   PPMacro getMacro(String macroName) {
+    PPMacro macro = unitMacros.get(macroName);
+    include.macroRead(macroName, macro);
+    return macro;
+  }
+
+  /**
+   * Search a macro without recording the access in the summaries of the currently read include files.
+   */
+  @CheckForNull
+  PPMacro peekMacro(String macroName) {
     return unitMacros.get(macroName);
   }
 
+  void defineMacro(String macroName, PPMacro macro) {
+    unitMacros.put(macroName, macro);
+    include.macroChanged(macroName, macro);
+  }
+
+  void undefineMacro(String macroName) {
+    unitMacros.remove(macroName);
+    include.macroChanged(macroName, null);
+  }
+
+  PPHeaderCache headerCache() {
+    return headerCache;
+  }
+
+  @CheckForNull
+  AnalysisProfiler profiler() {
+    return context.getProfiler();
+  }
+
+  PPIncludeIndex includeIndex() {
+    return includeIndex;
+  }
+
   @SuppressWarnings({"java:S1541", "java:S1142"})
   private PreprocessorAction handlePreprocessorDirective(Token token) {
-    AstNode lineAst = lineParser(token.getValue());
+    var action = include().state().skipTokens() ? handleInactiveDirective(token) : null;
+    if (action == null) {
+      action = handleSimpleDirective(token);
+    }
+    if (action != null) {
+      return action;
+    }
+
+    AstNode lineAst = parseDirective(token.getValue());
     if (lineAst == null) {
       return oneConsumedToken(token);
     }
@@ -298,6 +425,170 @@ public class CxxPreprocessor extends Preprocessor {
     }
   }
 
+  /**
+   * Fast path for the most frequent directives without line parser: #endif, #else, #ifdef, #ifndef and #undef with
+   * a single identifier, #include with a quoted file name and object-like #define. Comments are already removed from
+   * the directive line.
+   *
+   * @return result of the directive or null if the line has to be handled by the line parser
+   */
+  @CheckForNull
+  private PreprocessorAction handleSimpleDirective(Token token) {
+    String line = token.getValue();
+    if (line.isEmpty() || line.charAt(0) != '#') {
+      return null;
+    }
+
+    int keywordStart = skipBlanks(line, 1);
+    int keywordEnd = keywordEnd(line, keywordStart);
+    String keyword = line.substring(keywordStart, keywordEnd);
+    int argumentStart = skipBlanks(line, keywordEnd);
+    String argument;
+    switch (keyword) {
+      case "endif":
+        return argumentStart == line.length() ? handleEndifLine(token) : null;
+      case "else":
+        return argumentStart == line.length() ? handleElseLine(token) : null;
+      case "ifdef":
+      case "ifndef":
+        argument = singleIdentifier(line, keywordEnd, argumentStart);
+        return argument != null ? handleIfdefLine("ifdef".equals(keyword), argument, token) : null;
+      case "undef":
+        argument = singleIdentifier(line, keywordEnd, argumentStart);
+        return argument != null ? handleUndefLine(argument, token) : null;
+      case "include":
+        argument = quotedFileName(line, argumentStart);
+        return argument != null ? handleIncludeLine(argument, token) : null;
+      case "define":
+        return isObjectLikeDefinition(line, keywordEnd, argumentStart) ? handleDefineLine(token) : null;
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * @return the identifier if it is the only argument of the directive, otherwise null
+   */
+  @CheckForNull
+  private static String singleIdentifier(String line, int keywordEnd, int argumentStart) {
+    int end = identifierEnd(line, keywordEnd, argumentStart);
+    return end > argumentStart && skipBlanks(line, end) == line.length() ? line.substring(argumentStart, end) : null;
+  }
+
+  /**
+   * @return the file name of {@code "file"} if it is the only argument of the directive, otherwise null
+   */
+  @CheckForNull
+  private static String quotedFileName(String line, int argumentStart) {
+    if (argumentStart == line.length() || line.charAt(argumentStart) != '"') {
+      return null;
+    }
+    int end = line.indexOf('"', argumentStart + 1);
+    if (end <= argumentStart + 1 || skipBlanks(line, end + 1) != line.length()) {
+      return null;
+    }
+    String fileName = line.substring(argumentStart + 1, end);
+    // escape sequences and line breaks are handled by the lexer of the line parser
+    return fileName.indexOf('\\') < 0 && fileName.indexOf('\n') < 0 ? fileName : null;
+  }
+
+  /**
+   * A macro name which is not followed by an opening parenthesis is an object-like macro.
+   */
+  private static boolean isObjectLikeDefinition(String line, int keywordEnd, int argumentStart) {
+    int end = identifierEnd(line, keywordEnd, argumentStart);
+    return end > argumentStart && (end == line.length() || line.charAt(end) != '(');
+  }
+
+  /**
+   * @return end of the identifier starting at argumentStart, argumentStart if there is no identifier separated from the
+   * keyword
+   */
+  private static int identifierEnd(String line, int keywordEnd, int argumentStart) {
+    if (argumentStart == keywordEnd || argumentStart == line.length()
+          || Character.isDigit(line.charAt(argumentStart))) {
+      return argumentStart;
+    }
+    int i = argumentStart;
+    while (i < line.length() && isIdentifierPart(line.charAt(i))) {
+      i++;
+    }
+    return i;
+  }
+
+  /**
+   * Directives inside of inactive conditional blocks have no effect, only the nesting of the blocks has to be tracked.
+   * Therefore only the keyword is read, the line is not parsed.
+   *
+   * @return result of the directive or null if the line has to be handled like in an active block
+   */
+  @CheckForNull
+  private PreprocessorAction handleInactiveDirective(Token token) {
+    String line = token.getValue();
+    if (line.isEmpty() || line.charAt(0) != '#') {
+      return null;
+    }
+
+    int keywordStart = skipBlanks(line, 1);
+    switch (line.substring(keywordStart, keywordEnd(line, keywordStart))) {
+      case "if":
+      case "ifdef":
+      case "ifndef":
+        include().state().changeNestingDepth(+1);
+        return oneConsumedToken(token);
+      case "elif":
+      case "elifdef":
+      case "elifndef":
+        // on the level of the inactive block the condition has to be evaluated
+        return include().state().isInsideNestedBlock() ? oneConsumedToken(token) : null;
+      case "else":
+      case "endif":
+        return null;
+      default:
+        // #define, #include, #undef, #pragma, ...
+        return oneConsumedToken(token);
+    }
+  }
+
+  private static int keywordEnd(String line, int index) {
+    int i = index;
+    while (i < line.length() && line.charAt(i) >= 'a' && line.charAt(i) <= 'z') {
+      i++;
+    }
+    return i;
+  }
+
+  private static int skipBlanks(String line, int index) {
+    int i = index;
+    while (i < line.length() && Character.isWhitespace(line.charAt(i))) {
+      i++;
+    }
+    return i;
+  }
+
+  private static boolean isIdentifierPart(char c) {
+    return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+  }
+
+  /**
+   * Parse a directive line. Identical lines are frequent (e.g. in different include files), so the results are cached.
+   *
+   * The line is parsed as a string: the positions of the AST tokens are relative to the directive (line 1, column 0
+   * is its start, the URI is the one of the line lexer), so identical lines in different files get identical ASTs.
+   * Diagnostics and tokens created from the AST are located with the directive token.
+   */
+  @CheckForNull
+  private AstNode parseDirective(String line) {
+    AstNode lineAst = directiveCache.get(line);
+    if (lineAst == null) {
+      lineAst = lineParser(line);
+      if (lineAst != null) {
+        directiveCache.put(line, lineAst);
+      }
+    }
+    return lineAst;
+  }
+
   public static void finalReport() {
     if (missingFileCounter != 0) {
       LOG.warn(MISSING_INCLUDE_MSG, missingFileCounter);
@@ -308,8 +599,15 @@ public class CxxPreprocessor extends Preprocessor {
     missingFileCounter = 0;
   }
 
-  private static void addMissingFiles(int number) {
-    missingFileCounter += number;
+  /**
+   * Finish the analysis: adds the statistics of this instance to the final report.
+   *
+   * Each worker has its own preprocessor, the statistics of the workers are merged by the thread that finishes the
+   * analysis.
+   */
+  public void finishedAnalysis() {
+    missingFileCounter += missingFiles;
+    missingFiles = 0;
   }
 
   private static String getIdentifierName(AstNode node) {
@@ -318,32 +616,47 @@ public class CxxPreprocessor extends Preprocessor {
       .orElse("");
   }
 
-  public void finishedPreprocessing() {
+  /**
+   * Finish the current translation unit.
+   *
+   * @return include files and searches the translation unit depends on (including the global forced includes)
+   */
+  public Dependencies finishedPreprocessing() {
     // From 16.3.5 "Scope of macro definitions":
     // A macro definition lasts (independent of block structure) until a corresponding #undef directive is encountered
     // or (if none is encountered) until the end of the translation unit.
 
-    addMissingFiles(include.getMissingFilesCounter());
+    missingFiles += include.getMissingFilesCounter();
+    var includedFiles = new HashSet<>(globalIncludedFiles);
+    includedFiles.addAll(include.getIncludedFiles());
+    var includeLookups = new LinkedHashSet<>(globalIncludeLookups);
+    includeLookups.addAll(include.getIncludeLookups());
 
     unitMacros = null;
     include = null;
     currentContextFile = null;
+
+    return new Dependencies(includedFiles, includeLookups);
   }
 
   /**
    * Tests whether a file exists.
    *
-   * Uses a cache to speed up slow access times in the file system.
+   * Uses the include directory index shared by all preprocessors to speed up slow access times in the file system.
    *
    * @param fileName the path to the file to test
    * @return {@code true} if the file exists; {@code false} if the file does not exist or its existence cannot be
    * determined.
    */
   public boolean exists(Path fileName) {
-    return fileExists.computeIfAbsent(fileName, Files::isRegularFile);
+    return includeIndex.exists(fileName);
   }
 
   private void addPredefinedMacros() {
+    if (!squidConfig.getLevelValues(CxxSquidConfiguration.PREDEFINED_MACROS, CxxSquidConfiguration.DEFINES).isEmpty()) {
+      // configuration is shared between several preprocessors (workers): add the values only once
+      return;
+    }
     for (var macro : PPPredefinedMacros.predefinedMacroValues()) {
       squidConfig.add(CxxSquidConfiguration.PREDEFINED_MACROS, CxxSquidConfiguration.DEFINES, macro);
     }
@@ -462,13 +775,15 @@ public class CxxPreprocessor extends Preprocessor {
   }
 
   private PreprocessorAction handleIfdefLine(AstNode ast, Token token) {
+    return handleIfdefLine(ast.getToken().getType().equals(PPKeyword.IFDEF), getIdentifierName(ast), token);
+  }
+
+  private PreprocessorAction handleIfdefLine(boolean ifdef, String identifier, Token token) {
     if (include().state().skipTokens()) {
       include().state().changeNestingDepth(+1);
     } else {
-      PPMacro macro = getMacro(getIdentifierName(ast));
-      var tokType = ast.getToken().getType();
-      boolean result = (tokType.equals(PPKeyword.IFDEF) && macro != null)
-        || (tokType.equals(PPKeyword.IFNDEF) && macro == null);
+      PPMacro macro = getMacro(identifier);
+      boolean result = ifdef == (macro != null);
       include().state().setConditionValue(result);
       include().state().setSkipTokens(!result);
     }
@@ -539,21 +854,45 @@ public class CxxPreprocessor extends Preprocessor {
     return oneConsumedToken(token);
   }
 
+  @CheckForNull
+  private PreprocessorAction handleDefineLine(Token token) {
+    if (include().state().skipTokens()) {
+      return oneConsumedToken(token);
+    }
+    PPMacro macro = PPMacro.createObjectLike(directiveLexer.lex(token.getValue()));
+    if (macro == null) {
+      return null;
+    }
+    defineMacro(macro.identifier, macro);
+    return oneConsumedToken(token);
+  }
+
   private PreprocessorAction handleDefineLine(AstNode ast, Token token) {
     if (!include().state().skipTokens()) {
       // Here we have a define directive. Parse it and store the macro in a dictionary.
       PPMacro macro = PPMacro.create(ast);
-      unitMacros.put(macro.identifier, macro);
+      defineMacro(macro.identifier, macro);
     }
 
     return oneConsumedToken(token);
   }
 
   private PreprocessorAction handleUndefLine(AstNode ast, Token token) {
+    return handleUndefLine(ast.getFirstDescendant(GenericTokenType.IDENTIFIER).getTokenValue(), token);
+  }
+
+  private PreprocessorAction handleUndefLine(String macroName, Token token) {
+    if (!include().state().skipTokens()) {
+      undefineMacro(macroName);
+    }
+    return oneConsumedToken(token);
+  }
+
+  private PreprocessorAction handleIncludeLine(String quotedFileName, Token token) {
     if (!include().state().skipTokens()) {
-      String macroName = ast.getFirstDescendant(GenericTokenType.IDENTIFIER).getTokenValue();
-      unitMacros.remove(macroName);
+      include().handleFile(include().searchFile(quotedFileName, true), token);
     }
+
     return oneConsumedToken(token);
   }
 
@@ -573,7 +912,7 @@ public class CxxPreprocessor extends Preprocessor {
       }
 
       // forward to parser: ...  import ...
-      var result = TokenList.transformToCxx(ast.getTokens(), token);
+      var result = TokenList.transformToCxx(lineLexer, ast.getTokens(), token);
       return new PreprocessorAction(1, Collections.singletonList(Trivia.createPreprocessingToken(token)), result);
     }
     return oneConsumedToken(token);
@@ -582,7 +921,7 @@ public class CxxPreprocessor extends Preprocessor {
   private PreprocessorAction handleModuleLine(AstNode ast, Token token) {
     if (!include().state().skipTokens()) {
       // forward to parser: ...  module ...
-      var result = TokenList.transformToCxx(ast.getTokens(), token);
+      var result = TokenList.transformToCxx(lineLexer, ast.getTokens(), token);
       return new PreprocessorAction(1, Collections.singletonList(Trivia.createPreprocessingToken(token)), result);
     }
     return oneConsumedToken(token);
@@ -610,9 +949,7 @@ public class CxxPreprocessor extends Preprocessor {
       }
     } else {
       consumedTokens = 1;
-      result = replace.replaceObjectLikeMacro(
-        macro, TokenUtils.merge(PPConcatenation.concatenate(macro.replacementList))
-      );
+      result = replace.replaceObjectLikeMacro(macro, macro.getObjectLikeExpansion(lineLexer));
     }
 
     if (consumedTokens > 0) {
@@ -662,6 +999,31 @@ public class CxxPreprocessor extends Preprocessor {
     return consumedTokens;
   }
 
+  /**
+   * Consume the tokens of an inactive conditional block up to the next directive with one action. Each token becomes a
+   * skipped text trivia of its own, like with {@link #oneConsumedToken(Token)}.
+   *
+   * The lexer adds the injected trivia before the trivia (comments) of the consumed tokens: a token with trivia ends
+   * the run, so that the order of the trivia is the same as with one action per token.
+   */
+  private static PreprocessorAction skippedTokens(List<Token> tokens) {
+    var first = tokens.get(0);
+    if (first.hasTrivia()) {
+      return oneConsumedToken(first);
+    }
+    var trivia = new ArrayList<Trivia>();
+    trivia.add(Trivia.createSkippedText(first));
+    while (trivia.size() < tokens.size()) {
+      var token = tokens.get(trivia.size());
+      var type = token.getType();
+      if (CxxTokenType.PREPROCESSOR.equals(type) || GenericTokenType.EOF.equals(type) || token.hasTrivia()) {
+        break;
+      }
+      trivia.add(Trivia.createSkippedText(token));
+    }
+    return new PreprocessorAction(trivia.size(), trivia, Collections.emptyList());
+  }
+
   private static PreprocessorAction oneConsumedToken(Token token) {
     return new PreprocessorAction(
       1,
@@ -670,4 +1032,14 @@ public class CxxPreprocessor extends Preprocessor {
     );
   }
 
+  /**
+   * Include files of a translation unit: the include files read and all searches for include files.
+   *
+   * @param includedFiles absolute paths of the read include files
+   * @param includeLookups searches for include files, also those without result
+   */
+  public static record Dependencies(Set<Path> includedFiles, Set<IncludeLookup> includeLookups) {
+
+  }
+
 }
@@ -22,8 +22,9 @@ package org.sonar.cxx.preprocessor;
 import com.sonar.cxx.sslr.api.Preprocessor;
 import com.sonar.cxx.sslr.impl.Lexer;
 import com.sonar.cxx.sslr.impl.channel.BlackHoleChannel;
+import com.sonar.cxx.sslr.impl.channel.CommentRegexpChannel;
 import static com.sonar.cxx.sslr.impl.channel.RegexpChannelBuilder.ANY_CHAR;
-import static com.sonar.cxx.sslr.impl.channel.RegexpChannelBuilder.commentRegexp;
+import static com.sonar.cxx.sslr.impl.channel.RegexpChannelBuilder.and;
 import org.sonar.cxx.channels.PreprocessorChannel;
 import org.sonar.cxx.config.CxxSquidConfiguration;
 
@@ -44,9 +45,9 @@ final class IncludeFileLexer {
     var builder = Lexer.builder()
       .withCharset(squidConfig.getCharset())
       .withFailIfNoChannelToConsumeOneCharacter(true)
-      .withChannel(new BlackHoleChannel("\\s++"))
+      .withChannel(new BlackHoleChannel("\\s++", BlackHoleChannel.WHITESPACE_CHARACTERS))
       .withChannel(new PreprocessorChannel())
-      .withChannel(commentRegexp("/\\*", ANY_CHAR + "*?", "\\*/"))
+      .withChannel(new CommentRegexpChannel(and("/\\*", ANY_CHAR + "*?", "\\*/"), "/"))
       .withChannel(new BlackHoleChannel(".*+"));
 
     for (var preprocessor : preprocessors) {
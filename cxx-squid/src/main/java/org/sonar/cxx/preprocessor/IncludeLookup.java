@@ -0,0 +1,82 @@
+/*
+ * C++ Community Plugin (cxx plugin)
+ * Copyright (C) 2010-2024 SonarOpenCommunity
+ * http://github.com/SonarOpenCommunity/sonar-cxx
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.cxx.preprocessor;
+
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Objects;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+
+/**
+ * Search of an include file done by the preprocessor: the include file name, the directories searched in this order
+ * and the result, null if the file was not found.
+ *
+ * The results of a translation unit depend on all searches, also on those which did not find a file: a search can
+ * find another file later on (a new file in an earlier directory) or find a file at all.
+ *
+ * @param fileName include file name (relative or absolute)
+ * @param searchDirs directories searched in this order, empty for absolute names
+ * @param result include file found or null if not found
+ */
+public record IncludeLookup(String fileName, List<Path> searchDirs, @Nullable Path result) {
+
+  public IncludeLookup {
+    searchDirs = List.copyOf(searchDirs);
+  }
+
+  /**
+   * Tests whether the search finds the same include file in the file system as before.
+   *
+   * @return {@code true} if the result is unchanged
+   */
+  public boolean isUpToDate() {
+    return Objects.equals(search(fileName, searchDirs), result);
+  }
+
+  /**
+   * Search an include file in the file system, the same way as the preprocessor does.
+   *
+   * @param fileName include file name (relative or absolute)
+   * @param searchDirs directories to search in this order
+   * @return include file found or null if not found
+   */
+  @CheckForNull
+  public static Path search(String fileName, List<Path> searchDirs) {
+    try {
+      var path = Path.of(fileName);
+      if (path.isAbsolute()) {
+        return Files.isRegularFile(path) ? path.normalize() : null;
+      }
+      for (var dir : searchDirs) {
+        var file = dir.resolve(path);
+        if (Files.isRegularFile(file)) {
+          return file.normalize().toAbsolutePath();
+        }
+      }
+    } catch (InvalidPathException e) {
+      // the preprocessor cannot find such a file either
+    }
+    return null;
+  }
+
+}
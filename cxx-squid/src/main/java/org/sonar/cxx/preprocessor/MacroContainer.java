@@ -22,14 +22,18 @@ package org.sonar.cxx.preprocessor;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.ObjectInputFilter;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.util.ArrayDeque;
 import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
 
 /**
  * Container for preprocessor macros: - the container stores all existing macros (put) - the container allows quick
@@ -37,11 +41,38 @@ import javax.annotation.CheckForNull;
  *
  * For recursively existing macros: - the container allows to deactivate macros temporarily in the search
  * (pushDisable/popDisable)
+ *
+ * A container can be layered on top of a parent container (copy-on-write): creating the layer is O(1), changes are
+ * stored in the layer only. The parent must not be changed as long as layers on top of it exist.
  */
 public class MacroContainer<K, V> {
 
+  private static final ObjectInputFilter FILTER = ObjectInputFilter.Config.createFilter(
+    "org.sonar.cxx.preprocessor.*;java.lang.*;java.util.*;!*"
+  );
+
+  @Nullable
+  private MacroContainer<K, V> parent;
   private Map<K, V> values = new HashMap<>();
-  private Deque<K> disabled = new ArrayDeque<>();
+  // keys of the parent removed in this layer
+  private final Set<K> removed = new HashSet<>();
+
+  // stack of disabled keys (order of pushDisable) and number of times a key is disabled (fast search)
+  private final Deque<K> disabled = new ArrayDeque<>();
+  private final Map<K, Integer> disabledCount = new HashMap<>();
+
+  public MacroContainer() {
+    this.parent = null;
+  }
+
+  /**
+   * Create a new layer on top of a parent container.
+   *
+   * @param parent container with the initial values, must not be changed afterwards
+   */
+  public MacroContainer(MacroContainer<K, V> parent) {
+    this.parent = parent;
+  }
 
   /**
    * get value for key.
@@ -50,8 +81,8 @@ public class MacroContainer<K, V> {
    */
   @CheckForNull
   public V get(K key) {
-    V v = values.get(key);
-    if ((v != null) && (disabled.isEmpty() || !disabled.contains(key))) {
+    V v = lookup(key);
+    if ((v != null) && (disabledCount.isEmpty() || !disabledCount.containsKey(key))) {
       return v;
     }
 
@@ -63,7 +94,11 @@ public class MacroContainer<K, V> {
    * mapping for the key, the old value is replaced by the specified new value.
    */
   public V put(K key, V value) {
-    return values.put(key, value);
+    V old = values.put(key, value);
+    if (old == null && parent != null) {
+      old = removed.remove(key) ? null : parent.lookup(key);
+    }
+    return old;
   }
 
   /**
@@ -71,8 +106,12 @@ public class MacroContainer<K, V> {
    * that of calling put(k, v)} on this container once for each mapping in the specified other container.
    */
   public void putAll(MacroContainer<K, V> m) {
-    values.putAll(m.values);
-    disabled.addAll(m.disabled);
+    for (var entry : m.asMap().entrySet()) {
+      put(entry.getKey(), entry.getValue());
+    }
+    for (var key : m.disabled) {
+      pushDisable(key);
+    }
   }
 
   /**
@@ -81,15 +120,28 @@ public class MacroContainer<K, V> {
    * @return the previous value associated with key, or null if there was no mapping for key}.
    */
   public V remove(K key) {
-    return values.remove(key);
+    V old = values.remove(key);
+    if (parent != null && !removed.contains(key)) {
+      V inherited = parent.lookup(key);
+      if (inherited != null) {
+        removed.add(key);
+        if (old == null) {
+          old = inherited;
+        }
+      }
+    }
+    return old;
   }
 
   /**
    * clear container (values & disabled).
    */
   public void clear() {
+    parent = null;
     values.clear();
+    removed.clear();
     disabled.clear();
+    disabledCount.clear();
   }
 
   /**
@@ -99,6 +151,7 @@ public class MacroContainer<K, V> {
    */
   public void pushDisable(K key) {
     disabled.push(key);
+    disabledCount.merge(key, 1, Integer::sum);
   }
 
   /**
@@ -107,7 +160,8 @@ public class MacroContainer<K, V> {
    * Hint: pushDisable/popDisable calls must be symmetric. popDisable does not do any additional checking.
    */
   public void popDisable() {
-    disabled.pop();
+    K key = disabled.pop();
+    disabledCount.computeIfPresent(key, (k, count) -> count > 1 ? count - 1 : null);
   }
 
   /**
@@ -118,22 +172,33 @@ public class MacroContainer<K, V> {
    */
   public void writeToFile(String fileName) throws IOException {
     try (FileOutputStream fos = new FileOutputStream(fileName); ObjectOutputStream oos = new ObjectOutputStream(fos)) {
-      oos.writeObject(values);
+      oos.writeObject(asMap());
       oos.writeObject(disabled);
     }
   }
 
   /**
-   * Reads the MacroContainer from a file.
+   * Reads the MacroContainer from a file. Only objects of the JDK and of the preprocessor are deserialized.
    *
    * @param fileName The system-dependent filename.
    * @throws java.io.IOException file cannot be opened, or cannot be read for any other reason
    * @throws java.lang.ClassNotFoundException class of a serialized object cannot be found
    */
+  @SuppressWarnings("unchecked")
   public void readFromFile(String fileName) throws IOException, ClassNotFoundException {
+    Map<K, V> newValues;
+    Deque<K> newDisabled;
     try (FileInputStream fis = new FileInputStream(fileName); ObjectInputStream ois = new ObjectInputStream(fis)) {
-      values = (Map) ois.readObject();
-      disabled = (Deque) ois.readObject();
+      ois.setObjectInputFilter(FILTER);
+      newValues = (Map<K, V>) ois.readObject();
+      newDisabled = (Deque<K>) ois.readObject();
+    }
+
+    clear();
+    values = newValues;
+    for (var key : newDisabled) {
+      disabled.addLast(key);
+      disabledCount.merge(key, 1, Integer::sum);
     }
   }
 
@@ -142,9 +207,31 @@ public class MacroContainer<K, V> {
    */
   @Override
   public String toString() {
-    return values.values().stream()
+    return asMap().values().stream()
       .map(Object::toString)
       .collect(Collectors.joining(", ", "[", "]"));
   }
 
+  /**
+   * Search the value of a key in this layer and the parent layers (ignoring disabled keys).
+   */
+  @CheckForNull
+  private V lookup(K key) {
+    V v = values.get(key);
+    if (v == null && parent != null && (removed.isEmpty() || !removed.contains(key))) {
+      v = parent.lookup(key);
+    }
+    return v;
+  }
+
+  /**
+   * Returns all mappings of this layer and the parent layers.
+   */
+  private HashMap<K, V> asMap() {
+    var result = parent != null ? parent.asMap() : new HashMap<K, V>();
+    result.keySet().removeAll(removed);
+    result.putAll(values);
+    return result;
+  }
+
 }
@@ -29,7 +29,9 @@ import java.math.BigInteger;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Deque;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.slf4j.Logger;
@@ -102,17 +104,41 @@ import org.sonar.cxx.parser.CxxTokenType;
  *   logical-or-expression
  *   logical-or-expression ? expression : assignment-expression
  * }</pre>
+ *
+ * Expressions are compiled once into a tree of nodes; macros are looked up each time the tree is evaluated. Values are
+ * calculated with 64 bit arithmetic and only if a value does not fit, the expression is evaluated again with
+ * BigInteger.
  */
 final class PPExpression {
 
   private static final Logger LOG = LoggerFactory.getLogger(PPExpression.class);
 
   private static final BigInteger UINT64_MAX = new BigInteger("FFFFFFFFFFFFFFFF", 16);
+  private static final int COMPILED_CACHE_SIZE = 4096;
+
+  private static final Node ZERO = new Constant(BigInteger.ZERO);
+  private static final Node ONE = new Constant(BigInteger.ONE);
+  private static final Overflow OVERFLOW = new Overflow();
 
   private final Parser<Grammar> parser;
   private final CxxPreprocessor pp;
   private final Deque<String> macroEvaluationStack;
 
+  // compiled expressions of conditional directives (the ASTs of the directives are cached by the preprocessor)
+  private final Map<AstNode, Node> compiledDirectives = new LinkedHashMap<>(256, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<AstNode, Node> eldest) {
+      return size() > COMPILED_CACHE_SIZE;
+    }
+  };
+  // compiled expressions of macro replacement lists
+  private final Map<String, Node> compiledTexts = new LinkedHashMap<>(256, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, Node> eldest) {
+      return size() > COMPILED_CACHE_SIZE;
+    }
+  };
+
   PPExpression(CxxPreprocessor preprocessor) {
     parser = PPParser.create(PPGrammarImpl.constantExpression, preprocessor.getCharset());
 
@@ -121,18 +147,20 @@ final class PPExpression {
   }
 
   boolean evaluate(String constantExpression) {
-    return evalToBoolean(constantExpression, null);
+    var node = compile(constantExpression, null);
+    return node != null && evalToBoolean(node);
   }
 
   boolean evaluate(AstNode constantExpression) {
-    return evalToBoolean(constantExpression);
+    var node = compiledDirectives.get(constantExpression);
+    if (node == null) {
+      node = compile(constantExpression);
+      compiledDirectives.put(constantExpression, node);
+    }
+    return evalToBoolean(node);
   }
 
   // ///////////////// Primitives //////////////////////
-  private static BigInteger evalBool(String boolValue) {
-    return booleanToBigInteger("true".equalsIgnoreCase(boolValue));
-  }
-
   private static BigInteger evalNumber(String intValue) {
     // the if expressions aren't allowed to contain floats
     BigInteger number;
@@ -164,98 +192,77 @@ final class PPExpression {
     return sibling;
   }
 
-  private BigInteger evalToInt(String constExpr, @Nullable AstNode exprAst) {
-    AstNode constExprAst;
+  private static BigInteger booleanToBigInteger(boolean value) {
+    return value ? BigInteger.ONE : BigInteger.ZERO;
+  }
+
+  private boolean evalToBoolean(Node node) {
     try {
-      constExprAst = parser.parse(constExpr);
-    } catch (com.sonar.cxx.sslr.api.RecognitionException e) {
-      if (exprAst != null) {
-        LOG.warn("preprocessor error evaluating expression '{}' for token '{}', assuming 0",
-          constExpr, exprAst.getToken(), e);
-      } else {
-        LOG.warn("preprocessor error evaluating expression '{}', assuming 0", constExpr, e);
-      }
-      return BigInteger.ZERO;
+      return node.evalLong(this) != 0;
+    } catch (Overflow e) {
+      // a value does not fit into 64 bits: evaluate again with arbitrary precision
+      return node.evalBig(this).signum() != 0;
     }
+  }
 
-    return evalToInt(constExprAst);
+  // ///////////////// compilation //////////////////////
+  /**
+   * Returns the compiled expression of a text (e.g. the replacement list of a macro). Each distinct text is parsed
+   * and compiled only once.
+   *
+   * @return compiled expression or null if the text is not a valid expression
+   */
+  @CheckForNull
+  private Node compile(String constExpr, @Nullable AstNode exprAst) {
+    var node = compiledTexts.get(constExpr);
+    if (node == null) {
+      AstNode constExprAst;
+      try {
+        constExprAst = parser.parse(constExpr);
+      } catch (com.sonar.cxx.sslr.api.RecognitionException e) {
+        if (exprAst != null) {
+          LOG.warn("preprocessor error evaluating expression '{}' for token '{}', assuming 0",
+            constExpr, exprAst.getToken(), e);
+        } else {
+          LOG.warn("preprocessor error evaluating expression '{}', assuming 0", constExpr, e);
+        }
+        return null;
+      }
+      node = compile(constExprAst);
+      compiledTexts.put(constExpr, node);
+    }
+    return node;
   }
 
-  private BigInteger evalToInt(AstNode exprAst) {
+  private Node compile(AstNode exprAst) {
     switch (exprAst.getNumberOfChildren()) {
       case 0:
-        return evalLeaf(exprAst);
+        return compileLeaf(exprAst);
       case 1:
-        return evalOneChildAst(exprAst);
+        // booleans and 'pass-through's
+        if (exprAst.getType().equals(PPGrammarImpl.bool)) {
+          return "true".equalsIgnoreCase(exprAst.getTokenValue()) ? ONE : ZERO;
+        }
+        return compile(exprAst.getFirstChild());
       default:
-        return evalComplexAst(exprAst);
+        return compileComplexAst(exprAst);
     }
   }
 
-  private boolean evalToBoolean(AstNode exprAst) {
-    return !BigInteger.ZERO.equals(evalToInt(exprAst));
-  }
-
-  private boolean evalToBoolean(String constExpr, @Nullable AstNode exprAst) {
-    return !BigInteger.ZERO.equals(evalToInt(constExpr, exprAst));
-  }
-
-  private static BigInteger booleanToBigInteger(boolean value) {
-    return value ? BigInteger.ONE : BigInteger.ZERO;
-  }
-
-  private BigInteger evalLeaf(AstNode exprAst) {
-    // Evaluation of leafs
-    //
-    BigInteger result = BigInteger.ZERO;
+  private static Node compileLeaf(AstNode exprAst) {
     var type = exprAst.getType();
-
     if (CxxTokenType.NUMBER.equals(type)) {
-      result = evalNumber(exprAst.getTokenValue());
+      return new Constant(evalNumber(exprAst.getTokenValue()));
     } else if (CxxTokenType.CHARACTER.equals(type)) {
-      result = evalCharacter(exprAst.getTokenValue());
+      return new Constant(evalCharacter(exprAst.getTokenValue()));
     } else if (GenericTokenType.IDENTIFIER.equals(type)) {
-
-      String id = exprAst.getTokenValue();
-      if (!macroEvaluationStack.contains(id)) {
-        PPMacro macro = pp.getMacro(id);
-        if (macro != null) {
-          if (macro.replacementList.size() == 1 && macro.replacementList.get(0).getValue().equals(macro.identifier)) {
-            // special case, self-referencing macro, e.g. __has_include=__has_include
-            result = BigInteger.ONE;
-          } else {
-            macroEvaluationStack.push(id);
-            result = evalToInt(TokenUtils.merge(macro.replacementList), exprAst);
-            macroEvaluationStack.pop();
-          }
-        }
-      } else {
-        if (LOG.isDebugEnabled()) {
-          LOG.debug("preprocessor: self-referential macro '{}' detected;"
-            + " assume true; evaluation stack = ['{} <- {}']",
-            id, id, String.join(" <- ", macroEvaluationStack));
-        }
-        result = BigInteger.ONE;
-      }
-    } else {
-      throw new EvaluationException("Unknown expression type '" + type + "'");
+      return new Identifier(exprAst.getTokenValue(), exprAst);
     }
-
-    return result;
-  }
-
-  private BigInteger evalOneChildAst(AstNode exprAst) {
-    // Evaluation of booleans and 'pass-through's
-    //
-    var nodeType = exprAst.getType();
-    if (nodeType.equals(PPGrammarImpl.bool)) {
-      return evalBool(exprAst.getTokenValue());
-    }
-    return evalToInt(exprAst.getFirstChild());
+    throw new EvaluationException("Unknown expression type '" + type + "'");
   }
 
   @SuppressWarnings({"java:S131", "java:S1541", "java:S1142"})
-  private BigInteger evalComplexAst(AstNode exprAst) {
+  private Node compileComplexAst(AstNode exprAst) {
 
     // More complex expressions with more than one child
     //
@@ -263,338 +270,619 @@ final class PPExpression {
     if (type instanceof PPGrammarImpl astNodeType) {
       switch (astNodeType) {
         case unaryExpression:
-          return evalUnaryExpression(exprAst);
+          return compileUnaryExpression(exprAst);
         case conditionalExpression:
-          return evalConditionalExpression(exprAst);
+          return compileConditionalExpression(exprAst);
         case logicalOrExpression:
-          return evalLogicalOrExpression(exprAst);
+          return new LogicalExpression(false, compileOperands(exprAst));
         case logicalAndExpression:
-          return evalLogicalAndExpression(exprAst);
+          return new LogicalExpression(true, compileOperands(exprAst));
         case inclusiveOrExpression:
-          return evalInclusiveOrExpression(exprAst);
+          return compileBitwiseExpression(exprAst, PPPunctuator.BW_OR);
         case exclusiveOrExpression:
-          return evalExclusiveOrExpression(exprAst);
+          return compileBitwiseExpression(exprAst, PPPunctuator.BW_XOR);
         case andExpression:
-          return evalAndExpression(exprAst);
+          return compileBitwiseExpression(exprAst, PPPunctuator.BW_AND);
         case equalityExpression:
-          return evalEqualityExpression(exprAst);
+          return compileEqualityExpression(exprAst);
         case relationalExpression:
-          return evalRelationalExpression(exprAst);
         case shiftExpression:
-          return evalShiftExpression(exprAst);
         case additiveExpression:
-          return evalAdditiveExpression(exprAst);
         case multiplicativeExpression:
-          return evalMultiplicativeExpression(exprAst);
+          return compileBinaryExpression(exprAst);
         case primaryExpression:
-          return evalPrimaryExpression(exprAst);
+          // case "( expression )"
+          return compile(exprAst.getFirstChild().getNextSibling());
         case definedExpression:
-          return evalDefinedExpression(exprAst);
+          return compileDefinedExpression(exprAst);
         case functionlikeMacro:
-          return evalFunctionlikeMacro(exprAst);
+          return compileFunctionlikeMacro(exprAst);
         case hasIncludeExpression:
-          return evalHasIncludeExpression(exprAst);
+          return new HasIncludeExpression(exprAst);
       }
     }
 
     LOG.error("preprocessor: unknown expression type '{}' for token '{}', assuming 0", type, exprAst.getToken());
-    return BigInteger.ZERO;
+    return ZERO;
   }
 
-  // ////////////// logical expressions ///////////////////////////
-  private BigInteger evalLogicalOrExpression(AstNode exprAst) {
+  private Node[] compileOperands(AstNode exprAst) {
+    var operands = new ArrayList<Node>();
     var operand = exprAst.getFirstChild();
-    boolean result = evalToBoolean(operand);
-
-    while (!result && ((operand = getNextOperand(operand)) != null)) {
-      result = evalToBoolean(operand);
-    }
-
-    return booleanToBigInteger(result);
+    do {
+      operands.add(compile(operand));
+    } while ((operand = getNextOperand(operand)) != null);
+    return operands.toArray(Node[]::new);
   }
 
-  private BigInteger evalLogicalAndExpression(AstNode exprAst) {
+  private Node compileBitwiseExpression(AstNode exprAst, PPPunctuator operator) {
     var operand = exprAst.getFirstChild();
-    boolean result = evalToBoolean(operand);
+    Node result = compile(operand);
 
-    while (result && ((operand = getNextOperand(operand)) != null)) {
-      result = evalToBoolean(operand);
-    }
-
-    return booleanToBigInteger(result);
-  }
-
-  private static BigInteger evalEqualityExpression(BigInteger lhs, PPPunctuator type, BigInteger rhs) {
-    boolean result;
-    switch (type) {
-      case EQ:
-        result = lhs.compareTo(rhs) == 0;
-        break;
-      case NOT_EQ:
-        result = lhs.compareTo(rhs) != 0;
-        break;
-      default:
-        throw new EvaluationException("Unknown equality operator '" + type + "'");
+    while ((operand = getNextOperand(operand)) != null) {
+      result = new BinaryExpression(operator, result, compile(operand));
     }
 
-    return booleanToBigInteger(result);
+    return result;
   }
 
-  private BigInteger evalEqualityExpression(AstNode exprAst) {
+  private Node compileEqualityExpression(AstNode exprAst) {
     var lhs = exprAst.getFirstChild();
     var next = lhs.getNextSibling();
     var rhs = next.getNextSibling();
 
-    BigInteger result = evalEqualityExpression(evalToInt(lhs),
-      (PPPunctuator) next.getType(),
-      evalToInt(rhs));
+    Node result = new BinaryExpression((PPPunctuator) next.getType(), compile(lhs), compile(rhs));
 
     while ((next = rhs.getNextSibling()) != null) {
       rhs = next.getNextSibling();
-      result = evalEqualityExpression(result,
-        (PPPunctuator) next.getType(),
-        booleanToBigInteger(evalToBoolean(rhs)));
+      // the result is compared with the boolean value (!!) of the next operand
+      Node operand = new UnaryExpression(PPPunctuator.NOT, new UnaryExpression(PPPunctuator.NOT, compile(rhs)));
+      result = new BinaryExpression((PPPunctuator) next.getType(), result, operand);
+    }
+
+    return result;
+  }
+
+  private Node compileBinaryExpression(AstNode exprAst) {
+    var rhs = exprAst.getFirstChild();
+    Node result = compile(rhs);
+    AstNode operator;
+
+    while ((operator = rhs.getNextSibling()) != null) {
+      rhs = operator.getNextSibling();
+      result = new BinaryExpression((PPPunctuator) operator.getType(), result, compile(rhs));
     }
 
     return result;
   }
 
-  private static BigInteger evalRelationalExpression(BigInteger lhs, PPPunctuator type, BigInteger rhs) {
-    boolean result;
-    switch (type) {
-      case LT:
-        result = lhs.compareTo(rhs) < 0;
-        break;
-      case GT:
-        result = lhs.compareTo(rhs) > 0;
-        break;
-      case LT_EQ:
-        result = lhs.compareTo(rhs) <= 0;
-        break;
-      case GT_EQ:
-        result = lhs.compareTo(rhs) >= 0;
-        break;
+  private Node compileUnaryExpression(AstNode exprAst) {
+    // only 'unary-next cast-expression' production is allowed in #if-context
+
+    var operator = exprAst.getFirstChild();
+    var operand = operator.getNextSibling();
+    var type = operator.getFirstChild().getType();
+
+    switch ((PPPunctuator) type) {
+      case PLUS:
+      case MINUS:
+      case NOT:
+      case BW_NOT:
+        return new UnaryExpression((PPPunctuator) type, compile(operand));
       default:
-        throw new EvaluationException("Unknown relational operator '" + type + "'");
+        throw new EvaluationException("Unknown unary operator  '" + type + "'");
     }
-    return booleanToBigInteger(result);
   }
 
-  private BigInteger evalRelationalExpression(AstNode exprAst) {
-    var lhs = exprAst.getFirstChild();
-    var next = lhs.getNextSibling();
-    var rhs = next.getNextSibling();
+  private Node compileConditionalExpression(AstNode exprAst) {
+    var decisionOperand = exprAst.getFirstChild();
+    var operator = decisionOperand.getNextSibling();
+    if (exprAst.getNumberOfChildren() == 5) {
+      var trueCaseOperand = operator.getNextSibling();
+      operator = trueCaseOperand.getNextSibling();
+      var falseCaseOperand = operator.getNextSibling();
+      return new ConditionalExpression(compile(decisionOperand), compile(trueCaseOperand), compile(falseCaseOperand));
+    } else {
+      operator = operator.getNextSibling();
+      var falseCaseOperand = operator.getNextSibling();
+      return new ConditionalExpression(compile(decisionOperand), null, compile(falseCaseOperand));
+    }
+  }
 
-    BigInteger result = evalRelationalExpression(evalToInt(lhs),
-      (PPPunctuator) next.getType(),
-      evalToInt(rhs));
+  private static Node compileDefinedExpression(AstNode exprAst) {
+    var child = exprAst.getFirstChild();
 
-    while ((next = rhs.getNextSibling()) != null) {
-      rhs = next.getNextSibling();
-      result = evalRelationalExpression(result,
-        (PPPunctuator) next.getType(),
-        evalToInt(rhs));
+    if (exprAst.getNumberOfChildren() != 2) {
+      child = child.getNextSibling();
     }
 
-    return result;
+    return new DefinedExpression(child.getNextSibling().getTokenValue());
   }
 
-  // ///////////////// bitwise expressions ///////////////////////
-  private BigInteger evalAndExpression(AstNode exprAst) {
-    var operand = exprAst.getFirstChild();
-    BigInteger result = evalToInt(operand);
+  private static Node compileFunctionlikeMacro(AstNode exprAst) {
+    String macroName = exprAst.getFirstChild().getTokenValue();
+    List<Token> tokens = exprAst.getTokens();
+    return new FunctionlikeMacro(macroName, tokens.subList(1, tokens.size()), exprAst);
+  }
+
+  // ///////////////// macros //////////////////////
+  /**
+   * Returns the compiled replacement list of an object-like macro. The macro is read each time the expression is
+   * evaluated: its definition can change between evaluations.
+   */
+  private Node expandMacro(String id, AstNode exprAst) {
+    if (macroEvaluationStack.contains(id)) {
+      if (LOG.isDebugEnabled()) {
+        LOG.debug("preprocessor: self-referential macro '{}' detected;"
+          + " assume true; evaluation stack = ['{} <- {}']",
+          id, id, String.join(" <- ", macroEvaluationStack));
+      }
+      return ONE;
+    }
 
-    while ((operand = getNextOperand(operand)) != null) {
-      result = result.and(evalToInt(operand));
+    PPMacro macro = pp.getMacro(id);
+    if (macro == null) {
+      return ZERO;
     }
+    if (macro.replacementList.size() == 1 && macro.replacementList.get(0).getValue().equals(macro.identifier)) {
+      // special case, self-referencing macro, e.g. __has_include=__has_include
+      return ONE;
+    }
+    var node = compile(macro.getReplacementText(), exprAst);
+    return node != null ? node : ZERO;
+  }
 
-    return result;
+  private Node expandFunctionlikeMacro(String macroName, List<Token> restTokens, AstNode exprAst) {
+    String value = "";
+
+    PPMacro macro = pp.getMacro(macroName);
+    if (macro != null) {
+      var expansion = new ArrayList<Token>();
+      pp.replace().replaceFunctionLikeMacro(macro, restTokens, expansion); // todo, remove replace()
+      value = TokenUtils.merge(expansion);
+    }
+
+    if ("".equals(value)) {
+      LOG.error("preprocessor: undefined function-like macro '{}' assuming 0", macroName);
+      return ZERO;
+    }
+
+    var node = compile(value, exprAst);
+    return node != null ? node : ZERO;
   }
 
-  private BigInteger evalInclusiveOrExpression(AstNode exprAst) {
-    var operand = exprAst.getFirstChild();
-    BigInteger result = evalToInt(operand);
+  // ///////////////// 64 bit arithmetic //////////////////////
+  // Cases with a result that does not fit into a long, or with a special handling by BigInteger, throw OVERFLOW.
+  private static long add(long lhs, long rhs) {
+    long result = lhs + rhs;
+    if (((lhs ^ result) & (rhs ^ result)) < 0) {
+      throw OVERFLOW;
+    }
+    return result;
+  }
 
-    while ((operand = getNextOperand(operand)) != null) {
-      result = result.or(evalToInt(operand));
+  private static long subtract(long lhs, long rhs) {
+    long result = lhs - rhs;
+    if (((lhs ^ rhs) & (lhs ^ result)) < 0) {
+      throw OVERFLOW;
     }
+    return result;
+  }
 
+  private static long multiply(long lhs, long rhs) {
+    long result = lhs * rhs;
+    if (Math.multiplyHigh(lhs, rhs) != (result >> 63)) {
+      throw OVERFLOW;
+    }
     return result;
   }
 
-  private BigInteger evalExclusiveOrExpression(AstNode exprAst) {
-    var operand = exprAst.getFirstChild();
-    BigInteger result = evalToInt(operand);
+  private static long divide(long lhs, long rhs) {
+    if (rhs == 0 || (lhs == Long.MIN_VALUE && rhs == -1)) {
+      throw OVERFLOW;
+    }
+    return lhs / rhs;
+  }
 
-    while ((operand = getNextOperand(operand)) != null) {
-      result = result.xor(evalToInt(operand));
+  private static long mod(long lhs, long rhs) {
+    if (rhs <= 0) {
+      throw OVERFLOW;
     }
+    return Math.floorMod(lhs, rhs);
+  }
 
+  private static long negate(long value) {
+    if (value == Long.MIN_VALUE) {
+      throw OVERFLOW;
+    }
+    return -value;
+  }
+
+  private static long not(long value) {
+    // the result is an unsigned 64 bit value
+    long result = ~value;
+    if (result < 0) {
+      throw OVERFLOW;
+    }
     return result;
   }
 
-  // ///////////////// other ... ///////////////////
-  @SuppressWarnings({"java:S1142"})
-  private BigInteger evalUnaryExpression(AstNode exprAst) {
-    // only 'unary-next cast-expression' production is allowed in #if-context
+  private static long shiftLeft(long value, int n) {
+    // the result is an unsigned 64 bit value
+    if (n < 0 || value < 0) {
+      throw OVERFLOW;
+    }
+    if (n >= 64) {
+      return 0;
+    }
+    long result = value << n;
+    if (result < 0) {
+      throw OVERFLOW;
+    }
+    return result;
+  }
 
-    var operator = exprAst.getFirstChild();
-    var operand = operator.getNextSibling();
-    var type = operator.getFirstChild().getType();
+  private static long shiftRight(long value, int n) {
+    if (n < 0) {
+      throw OVERFLOW;
+    }
+    if (n >= 64) {
+      return value < 0 ? -1 : 0;
+    }
+    return value >> n;
+  }
 
-    switch ((PPPunctuator) type) {
-      case PLUS:
-        return evalToInt(operand);
-      case MINUS:
-        return evalToInt(operand).negate();
-      case NOT:
-        return evalToBoolean(operand) ? BigInteger.ZERO : BigInteger.ONE;
-      case BW_NOT:
-        // need more information (signed/unsigned, data type length) to invert bits in all cases correct
-        return evalToInt(operand).not().and(UINT64_MAX);
-      default:
-        throw new EvaluationException("Unknown unary operator  '" + type + "'");
+  private static long booleanToLong(boolean value) {
+    return value ? 1 : 0;
+  }
+
+  /**
+   * Node of a compiled expression. Expressions are evaluated with 64 bit arithmetic first (evalLong). If a value does
+   * not fit into a long, OVERFLOW is thrown and the expression is evaluated with arbitrary precision (evalBig).
+   */
+  private abstract static class Node {
+
+    abstract long evalLong(PPExpression expr);
+
+    abstract BigInteger evalBig(PPExpression expr);
+  }
+
+  private static final class Overflow extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    Overflow() {
+      super(null, null, false, false);
     }
   }
 
-  private BigInteger evalShiftExpression(AstNode exprAst) {
-    var rhs = exprAst.getFirstChild();
-    BigInteger result = evalToInt(rhs);
-    AstNode operator;
+  private static final class Constant extends Node {
 
-    while ((operator = rhs.getNextSibling()) != null) {
-      var type = operator.getType();
-      rhs = operator.getNextSibling();
+    private final BigInteger value;
+    private final boolean isLong;
 
-      switch ((PPPunctuator) type) {
-        case BW_LSHIFT:
-          result = result.shiftLeft(evalToInt(rhs).intValue()).and(UINT64_MAX);
-          break;
-        case BW_RSHIFT:
-          result = result.shiftRight(evalToInt(rhs).intValue());
-          break;
-        default:
-          throw new EvaluationException("Unknown shift operator '" + type + "'");
+    Constant(BigInteger value) {
+      this.value = value;
+      isLong = value.bitLength() < 64;
+    }
+
+    @Override
+    long evalLong(PPExpression expr) {
+      if (!isLong) {
+        throw OVERFLOW;
       }
+      return value.longValue();
     }
 
-    return result;
+    @Override
+    BigInteger evalBig(PPExpression expr) {
+      return value;
+    }
   }
 
-  private BigInteger evalAdditiveExpression(AstNode exprAst) {
-    var rhs = exprAst.getFirstChild();
-    BigInteger result = evalToInt(rhs);
-    AstNode operator;
+  private static final class Identifier extends Node {
 
-    while ((operator = rhs.getNextSibling()) != null) {
-      var type = operator.getType();
-      rhs = operator.getNextSibling();
+    private final String name;
+    private final AstNode exprAst;
 
-      switch ((PPPunctuator) type) {
-        case PLUS:
-          result = result.add(evalToInt(rhs));
-          break;
+    Identifier(String name, AstNode exprAst) {
+      this.name = name;
+      this.exprAst = exprAst;
+    }
+
+    @Override
+    long evalLong(PPExpression expr) {
+      var node = expr.expandMacro(name, exprAst);
+      if (node instanceof Constant) {
+        return node.evalLong(expr);
+      }
+      expr.macroEvaluationStack.push(name);
+      try {
+        return node.evalLong(expr);
+      } finally {
+        expr.macroEvaluationStack.pop();
+      }
+    }
+
+    @Override
+    BigInteger evalBig(PPExpression expr) {
+      var node = expr.expandMacro(name, exprAst);
+      if (node instanceof Constant) {
+        return node.evalBig(expr);
+      }
+      expr.macroEvaluationStack.push(name);
+      try {
+        return node.evalBig(expr);
+      } finally {
+        expr.macroEvaluationStack.pop();
+      }
+    }
+  }
+
+  private static final class DefinedExpression extends Node {
+
+    private final String macroName;
+
+    DefinedExpression(String macroName) {
+      this.macroName = macroName;
+    }
+
+    @Override
+    long evalLong(PPExpression expr) {
+      return booleanToLong(expr.pp.getMacro(macroName) != null);
+    }
+
+    @Override
+    BigInteger evalBig(PPExpression expr) {
+      return booleanToBigInteger(expr.pp.getMacro(macroName) != null);
+    }
+  }
+
+  private static final class FunctionlikeMacro extends Node {
+
+    private final String macroName;
+    private final List<Token> restTokens;
+    private final AstNode exprAst;
+
+    FunctionlikeMacro(String macroName, List<Token> restTokens, AstNode exprAst) {
+      this.macroName = macroName;
+      this.restTokens = restTokens;
+      this.exprAst = exprAst;
+    }
+
+    @Override
+    long evalLong(PPExpression expr) {
+      return expr.expandFunctionlikeMacro(macroName, restTokens, exprAst).evalLong(expr);
+    }
+
+    @Override
+    BigInteger evalBig(PPExpression expr) {
+      return expr.expandFunctionlikeMacro(macroName, restTokens, exprAst).evalBig(expr);
+    }
+  }
+
+  private static final class HasIncludeExpression extends Node {
+
+    private final AstNode exprAst;
+
+    HasIncludeExpression(AstNode exprAst) {
+      this.exprAst = exprAst;
+    }
+
+    @Override
+    long evalLong(PPExpression expr) {
+      return booleanToLong(expr.pp.include().searchFile(exprAst) != null); // todo remove include()
+    }
+
+    @Override
+    BigInteger evalBig(PPExpression expr) {
+      return booleanToBigInteger(expr.pp.include().searchFile(exprAst) != null);
+    }
+  }
+
+  private static final class UnaryExpression extends Node {
+
+    private final PPPunctuator operator;
+    private final Node operand;
+
+    UnaryExpression(PPPunctuator operator, Node operand) {
+      this.operator = operator;
+      this.operand = operand;
+    }
+
+    @Override
+    long evalLong(PPExpression expr) {
+      long value = operand.evalLong(expr);
+      switch (operator) {
         case MINUS:
-          result = result.subtract(evalToInt(rhs));
-          break;
+          return negate(value);
+        case NOT:
+          return booleanToLong(value == 0);
+        case BW_NOT:
+          return not(value);
         default:
-          throw new EvaluationException("Unknown additive operator '" + type + "'");
+          return value;
       }
     }
 
-    return result;
+    @Override
+    BigInteger evalBig(PPExpression expr) {
+      BigInteger value = operand.evalBig(expr);
+      switch (operator) {
+        case MINUS:
+          return value.negate();
+        case NOT:
+          return booleanToBigInteger(value.signum() == 0);
+        case BW_NOT:
+          // need more information (signed/unsigned, data type length) to invert bits in all cases correct
+          return value.not().and(UINT64_MAX);
+        default:
+          return value;
+      }
+    }
   }
 
-  private BigInteger evalMultiplicativeExpression(AstNode exprAst) {
-    var rhs = exprAst.getFirstChild();
-    BigInteger result = evalToInt(rhs);
-    AstNode operator;
+  private static final class BinaryExpression extends Node {
 
-    while ((operator = rhs.getNextSibling()) != null) {
-      var type = operator.getType();
-      rhs = operator.getNextSibling();
+    private final PPPunctuator operator;
+    private final Node lhs;
+    private final Node rhs;
+
+    BinaryExpression(PPPunctuator operator, Node lhs, Node rhs) {
+      this.operator = operator;
+      this.lhs = lhs;
+      this.rhs = rhs;
+    }
 
-      switch ((PPPunctuator) type) {
+    @SuppressWarnings({"java:S1142"})
+    @Override
+    long evalLong(PPExpression expr) {
+      long left = lhs.evalLong(expr);
+      long right = rhs.evalLong(expr);
+      switch (operator) {
+        case PLUS:
+          return add(left, right);
+        case MINUS:
+          return subtract(left, right);
         case MUL:
-          result = result.multiply(evalToInt(rhs));
-          break;
+          return multiply(left, right);
         case DIV:
-          result = result.divide(evalToInt(rhs));
-          break;
+          return divide(left, right);
         case MODULO:
-          result = result.mod(evalToInt(rhs));
-          break;
+          return mod(left, right);
+        case BW_LSHIFT:
+          return shiftLeft(left, (int) right);
+        case BW_RSHIFT:
+          return shiftRight(left, (int) right);
+        case BW_AND:
+          return left & right;
+        case BW_OR:
+          return left | right;
+        case BW_XOR:
+          return left ^ right;
+        case EQ:
+          return booleanToLong(left == right);
+        case NOT_EQ:
+          return booleanToLong(left != right);
+        case LT:
+          return booleanToLong(left < right);
+        case GT:
+          return booleanToLong(left > right);
+        case LT_EQ:
+          return booleanToLong(left <= right);
+        case GT_EQ:
+          return booleanToLong(left >= right);
         default:
-          throw new EvaluationException("Unknown multiplicative operator '" + type + "'");
+          throw new EvaluationException("Unknown binary operator '" + operator + "'");
       }
     }
 
-    return result;
-  }
-
-  private BigInteger evalConditionalExpression(AstNode exprAst) {
-    if (exprAst.getNumberOfChildren() == 5) {
-      var decisionOperand = exprAst.getFirstChild();
-      var operator = decisionOperand.getNextSibling();
-      var trueCaseOperand = operator.getNextSibling();
-      operator = trueCaseOperand.getNextSibling();
-      var falseCaseOperand = operator.getNextSibling();
-      return evalToBoolean(decisionOperand) ? evalToInt(trueCaseOperand) : evalToInt(falseCaseOperand);
-    } else {
-      var decisionOperand = exprAst.getFirstChild();
-      var operator = decisionOperand.getNextSibling();
-      operator = operator.getNextSibling();
-      var falseCaseOperand = operator.getNextSibling();
-      BigInteger decision = evalToInt(decisionOperand);
-      return decision.compareTo(BigInteger.ZERO) != 0 ? decision : evalToInt(falseCaseOperand);
+    @SuppressWarnings({"java:S1142"})
+    @Override
+    BigInteger evalBig(PPExpression expr) {
+      BigInteger left = lhs.evalBig(expr);
+      BigInteger right = rhs.evalBig(expr);
+      switch (operator) {
+        case PLUS:
+          return left.add(right);
+        case MINUS:
+          return left.subtract(right);
+        case MUL:
+          return left.multiply(right);
+        case DIV:
+          return left.divide(right);
+        case MODULO:
+          return left.mod(right);
+        case BW_LSHIFT:
+          return left.shiftLeft(right.intValue()).and(UINT64_MAX);
+        case BW_RSHIFT:
+          return left.shiftRight(right.intValue());
+        case BW_AND:
+          return left.and(right);
+        case BW_OR:
+          return left.or(right);
+        case BW_XOR:
+          return left.xor(right);
+        case EQ:
+          return booleanToBigInteger(left.compareTo(right) == 0);
+        case NOT_EQ:
+          return booleanToBigInteger(left.compareTo(right) != 0);
+        case LT:
+          return booleanToBigInteger(left.compareTo(right) < 0);
+        case GT:
+          return booleanToBigInteger(left.compareTo(right) > 0);
+        case LT_EQ:
+          return booleanToBigInteger(left.compareTo(right) <= 0);
+        case GT_EQ:
+          return booleanToBigInteger(left.compareTo(right) >= 0);
+        default:
+          throw new EvaluationException("Unknown binary operator '" + operator + "'");
+      }
     }
   }
 
-  private BigInteger evalPrimaryExpression(AstNode exprAst) {
-    // case "( expression )"
-    var caseNode = exprAst.getFirstChild();
-    return evalToInt(caseNode.getNextSibling());
-  }
+  private static final class LogicalExpression extends Node {
 
-  private BigInteger evalDefinedExpression(AstNode exprAst) {
-    var child = exprAst.getFirstChild();
+    private final boolean and;
+    private final Node[] operands;
 
-    if (exprAst.getNumberOfChildren() != 2) {
-      child = child.getNextSibling();
+    LogicalExpression(boolean and, Node[] operands) {
+      this.and = and;
+      this.operands = operands;
     }
 
-    String macroName = child.getNextSibling().getTokenValue();
-    PPMacro macro = pp.getMacro(macroName);
-    if (macro != null) {
-      return BigInteger.ONE;
+    @Override
+    long evalLong(PPExpression expr) {
+      // short-circuit evaluation: && stops at the first false operand, || at the first true operand
+      for (var operand : operands) {
+        if ((operand.evalLong(expr) != 0) != and) {
+          return booleanToLong(!and);
+        }
+      }
+      return booleanToLong(and);
     }
 
-    return BigInteger.ZERO;
+    @Override
+    BigInteger evalBig(PPExpression expr) {
+      for (var operand : operands) {
+        if ((operand.evalBig(expr).signum() != 0) != and) {
+          return booleanToBigInteger(!and);
+        }
+      }
+      return booleanToBigInteger(and);
+    }
   }
 
-  private BigInteger evalFunctionlikeMacro(AstNode exprAst) {
-    String macroName = exprAst.getFirstChild().getTokenValue();
-    List<Token> tokens = exprAst.getTokens();
-    List<Token> restTokens = tokens.subList(1, tokens.size());
-    String value = "";
+  private static final class ConditionalExpression extends Node {
 
-    PPMacro macro = pp.getMacro(macroName);
-    if (macro != null) {
-      var expansion = new ArrayList<Token>();
-      pp.replace().replaceFunctionLikeMacro(macro, restTokens, expansion); // todo, remove replace()
-      value = TokenUtils.merge(expansion);
-    }
+    private final Node decision;
+    @Nullable
+    private final Node trueCase; // null: "decision ?: false-case", the decision is the result if not 0
+    private final Node falseCase;
 
-    if ("".equals(value)) {
-      LOG.error("preprocessor: undefined function-like macro '{}' assuming 0", macroName);
-      return BigInteger.ZERO;
+    ConditionalExpression(Node decision, @Nullable Node trueCase, Node falseCase) {
+      this.decision = decision;
+      this.trueCase = trueCase;
+      this.falseCase = falseCase;
     }
 
-    return evalToInt(value, exprAst);
-  }
+    @Override
+    long evalLong(PPExpression expr) {
+      long value = decision.evalLong(expr);
+      if (value == 0) {
+        return falseCase.evalLong(expr);
+      }
+      return trueCase != null ? trueCase.evalLong(expr) : value;
+    }
 
-  private BigInteger evalHasIncludeExpression(AstNode exprAst) {
-    return pp.include().searchFile(exprAst) != null ? BigInteger.ONE : BigInteger.ZERO; // todo remove include()
+    @Override
+    BigInteger evalBig(PPExpression expr) {
+      BigInteger value = decision.evalBig(expr);
+      if (value.signum() == 0) {
+        return falseCase.evalBig(expr);
+      }
+      return trueCase != null ? trueCase.evalBig(expr) : value;
+    }
   }
 
 }
@@ -0,0 +1,243 @@
+/*
+ * C++ Community Plugin (cxx plugin)
+ * Copyright (C) 2010-2024 SonarOpenCommunity
+ * http://github.com/SonarOpenCommunity/sonar-cxx
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.cxx.preprocessor;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.cxx.config.CxxSquidConfiguration;
+
+/**
+ * Cache with the effects of include files, shared by all preprocessors (workers) of an analysis.
+ *
+ * Include files are only scanned to collect macros. The result of scanning an include file depends only on the
+ * macros tested inside (#if, #ifdef, defined, ...) and on the include files already read by the translation unit. A
+ * {@link Summary} records these inputs together with the effects (#define, #undef, nested includes). If the inputs
+ * are the same for a later translation unit, the effects are replayed instead of reading and lexing the file again.
+ *
+ * The cache is thread-safe. A summary is only changed by its {@link Recorder} and never after it was added to the
+ * cache, the lists of variants are replaced instead of changed.
+ */
+final class PPHeaderCache {
+
+  // number of different input states (variants) stored per include file
+  private static final int MAX_VARIANTS = 8;
+
+  // one cache per analysis: all workers of an analysis share the same configuration
+  private static final Map<CxxSquidConfiguration, PPHeaderCache> instances
+    = Collections.synchronizedMap(new WeakHashMap<>());
+
+  // variants of the summaries, newest first
+  private final Map<Key, List<Summary>> summaries = new ConcurrentHashMap<>();
+
+  private final AtomicInteger hits = new AtomicInteger();
+  private final AtomicInteger misses = new AtomicInteger();
+
+  static PPHeaderCache of(CxxSquidConfiguration squidConfig) {
+    return instances.computeIfAbsent(squidConfig, k -> new PPHeaderCache());
+  }
+
+  /**
+   * Search a summary of an include file which is valid for the current state of the translation unit.
+   *
+   * @param key include file and search paths
+   * @param macros current macros of the translation unit (without recording the access)
+   * @param analysedFiles include files already read by the translation unit
+   * @return summary to replay or null if the file has to be read
+   */
+  @CheckForNull
+  Summary get(Key key, Function<String, PPMacro> macros, Predicate<Path> analysedFiles) {
+    var variants = summaries.get(key);
+    if (variants != null) {
+      for (var summary : variants) {
+        if (summary.isValid(macros, analysedFiles)) {
+          hits.incrementAndGet();
+          return summary;
+        }
+      }
+    }
+    misses.incrementAndGet();
+    return null;
+  }
+
+  void put(Key key, Summary summary) {
+    summaries.merge(key, List.of(summary), (List<Summary> variants, List<Summary> added) -> {
+      var result = new ArrayList<Summary>(MAX_VARIANTS);
+      result.add(summary);
+      result.addAll(variants.subList(0, Math.min(variants.size(), MAX_VARIANTS - 1)));
+      return Collections.unmodifiableList(result);
+    });
+  }
+
+  int getHits() {
+    return hits.get();
+  }
+
+  int getMisses() {
+    return misses.get();
+  }
+
+  /**
+   * The result of scanning an include file depends on the search paths: the standard include directories and the
+   * directories of the currently opened include files (quoted form).
+   */
+  static record Key(Path file, List<Path> includeDirs, List<Path> includerDirs) {
+
+  }
+
+  /**
+   * Inputs and effects of scanning an include file (including its nested include files).
+   */
+  static final class Summary {
+
+    // macros read before they were changed by the include file itself, null if the macro was undefined
+    private final Map<String, PPMacro> conditions = new HashMap<>();
+    // include files that have been read before and therefore were skipped
+    private final Set<Path> skippedFiles = new HashSet<>();
+    // include files read (in this order): must not have been read before
+    private final List<Path> includedFiles = new ArrayList<>();
+    // #define (macro != null) and #undef (macro == null) in the order of appearance
+    private final List<Operation> operations = new ArrayList<>();
+    // searches for include files (including the nested include files)
+    private final Set<IncludeLookup> lookups = new LinkedHashSet<>();
+    private int missingFiles = 0;
+
+    Map<String, PPMacro> getConditions() {
+      return conditions;
+    }
+
+    Set<Path> getSkippedFiles() {
+      return skippedFiles;
+    }
+
+    List<Path> getIncludedFiles() {
+      return includedFiles;
+    }
+
+    List<Operation> getOperations() {
+      return operations;
+    }
+
+    Set<IncludeLookup> getLookups() {
+      return lookups;
+    }
+
+    int getMissingFiles() {
+      return missingFiles;
+    }
+
+    private boolean isValid(Function<String, PPMacro> macros, Predicate<Path> analysedFiles) {
+      for (var condition : conditions.entrySet()) {
+        if (!PPMacro.isSameDefinition(macros.apply(condition.getKey()), condition.getValue())) {
+          return false;
+        }
+      }
+      for (var file : skippedFiles) {
+        if (!analysedFiles.test(file)) {
+          return false;
+        }
+      }
+      for (var file : includedFiles) {
+        if (analysedFiles.test(file)) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  static record Operation(String identifier, @Nullable PPMacro macro) {
+
+  }
+
+  /**
+   * Records the summary of an include file while it is scanned.
+   */
+  static final class Recorder {
+
+    private final Summary summary = new Summary();
+    private final Set<String> changedMacros = new HashSet<>();
+    private final Set<Path> readFiles = new HashSet<>();
+    private boolean valid = true;
+
+    Recorder(Path file) {
+      readFiles.add(file);
+    }
+
+    void macroRead(String identifier, @Nullable PPMacro macro) {
+      if (!changedMacros.contains(identifier)) {
+        summary.conditions.putIfAbsent(identifier, macro);
+      }
+    }
+
+    void macroChanged(String identifier, @Nullable PPMacro macro) {
+      changedMacros.add(identifier);
+      summary.operations.add(new Operation(identifier, macro));
+    }
+
+    void fileIncluded(Path file) {
+      readFiles.add(file);
+      summary.includedFiles.add(file);
+    }
+
+    void fileSkipped(Path file) {
+      if (!readFiles.contains(file)) {
+        summary.skippedFiles.add(file);
+      }
+    }
+
+    void fileMissing(int count) {
+      summary.missingFiles += count;
+    }
+
+    void lookupDone(IncludeLookup lookup) {
+      summary.lookups.add(lookup);
+    }
+
+    /**
+     * The include file could not be read completely: the summary must not be used.
+     */
+    void invalidate() {
+      valid = false;
+    }
+
+    boolean isValid() {
+      return valid;
+    }
+
+    Summary getSummary() {
+      return summary;
+    }
+  }
+
+}
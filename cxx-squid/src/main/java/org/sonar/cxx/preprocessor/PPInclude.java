@@ -26,20 +26,22 @@ import com.sonar.cxx.sslr.impl.token.TokenUtils;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.nio.charset.Charset;
-import java.nio.file.Files;
-import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import org.apache.commons.io.ByteOrderMark;
 import org.apache.commons.io.input.BOMInputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.sonar.cxx.squidbridge.AnalysisProfiler;
 
 /**
  * Includes other source file into current source file at the line immediately after the directive.  <code>
@@ -54,10 +56,17 @@ public class PPInclude {
   private final CxxPreprocessor pp;
   private final Lexer fileLexer;
   private final Set<Path> analysedFiles = new HashSet<>();
+  // all searches for include files, also those without result
+  private final Set<IncludeLookup> lookups = new LinkedHashSet<>();
   private final List<Path> standardIncludeDirs = new ArrayList<>();
   private final PPState state;
+  // summaries of the include files currently read, innermost first
+  private final ArrayDeque<PPHeaderCache.Recorder> recorders = new ArrayDeque<>();
 
   private int missingFileCounter = 0;
+  private int includeDepth = 0;
+  // id of standardIncludeDirs in the include index (lazy)
+  private int includeDirListId = -1;
 
   public PPInclude(CxxPreprocessor pp, @Nonnull Path contextFile) {
     this.pp = pp;
@@ -79,22 +88,10 @@ public class PPInclude {
    */
   public void setStandardIncludeDirs(List<String> includeDirs, String baseDir) {
     for (var dir : includeDirs) {
-      var path = Path.of(dir);
-      try {
-        if (!path.isAbsolute()) {
-          path = Path.of(baseDir).resolve(path);
-        }
-        path = path.toRealPath(); // IOException if the path does not exist
-
-        if (Files.isDirectory(path)) {
-          if (!standardIncludeDirs.contains(path)) {
-            standardIncludeDirs.add(path);
-          }
-        } else {
-          LOG.warn("preprocessor: invalid include file directory '{}'", path);
-        }
-      } catch (IOException | InvalidPathException e) {
-        LOG.error(LOGMSG, e.getMessage(), path, e);
+      var path = pp.includeIndex().getIncludeDirectory(dir, baseDir);
+      if (path != null && !standardIncludeDirs.contains(path)) {
+        standardIncludeDirs.add(path);
+        includeDirListId = -1;
       }
     }
   }
@@ -111,25 +108,134 @@ public class PPInclude {
    * @param token current token
    */
   public void handleFile(AstNode ast, Token token) {
-    Path fileName = searchFile(ast);
+    handleFile(searchFile(ast), token);
+  }
+
+  /**
+   * Process an include file which was already searched.
+   *
+   * @param fileName result of the search, null if the file was not found
+   * @param token current token
+   */
+  public void handleFile(@Nullable Path fileName, Token token) {
     if (fileName == null) {
       missingFileCounter++;
+      recorders.forEach(r -> r.fileMissing(1));
       String rootFilePath = state().getFileUnderAnalysisPath();
       LOG.debug("[{}:{}]: preprocessor cannot find include file '{}'",
         rootFilePath, token.getLine(), token.getValue());
     } else if (analysedFiles.add(fileName)) {
+      recorders.forEach(r -> r.fileIncluded(fileName));
       state().pushFileState(fileName);
+      long start = System.nanoTime();
+      includeDepth++;
       try {
-        LOG.debug("process include file '{}'", fileName);
-        fileLexer.lex(getSourceCode(fileName, pp.getCharset()));
-      } catch (IOException e) {
-        LOG.error(LOGMSG, e.getMessage(), fileName, e);
+        var key = headerCacheKey(fileName);
+        var summary = pp.headerCache().get(key, pp::peekMacro, analysedFiles::contains);
+        if (summary != null) {
+          LOG.debug("replay include file '{}'", fileName);
+          replay(summary);
+        } else {
+          LOG.debug("process include file '{}'", fileName);
+          processFile(key, fileName);
+        }
       } finally {
+        includeDepth--;
         state().popFileState();
+        // nested includes are part of the time of the outermost include
+        var profiler = pp.profiler();
+        if (includeDepth == 0 && profiler != null) {
+          profiler.addPhase(AnalysisProfiler.PREPROCESSOR_INCLUDES, System.nanoTime() - start);
+        }
       }
+    } else {
+      recorders.forEach(r -> r.fileSkipped(fileName));
+    }
+  }
+
+  /**
+   * Record that a macro was read. Macros read by an include file are the inputs of its summary.
+   *
+   * @param identifier name of the macro
+   * @param macro current definition of the macro, null if undefined
+   */
+  void macroRead(String identifier, @Nullable PPMacro macro) {
+    if (!recorders.isEmpty()) {
+      recorders.forEach(r -> r.macroRead(identifier, macro));
+    }
+  }
+
+  /**
+   * Record that a macro was defined or undefined. These are the effects of an include file.
+   *
+   * @param identifier name of the macro
+   * @param macro new definition of the macro, null for #undef
+   */
+  void macroChanged(String identifier, @Nullable PPMacro macro) {
+    if (!recorders.isEmpty()) {
+      recorders.forEach(r -> r.macroChanged(identifier, macro));
+    }
+  }
+
+  private void processFile(PPHeaderCache.Key key, Path fileName) {
+    var recorder = new PPHeaderCache.Recorder(fileName);
+    recorders.push(recorder);
+    try {
+      fileLexer.lex(getSourceCode(fileName, pp.getCharset()));
+    } catch (IOException e) {
+      recorders.forEach(PPHeaderCache.Recorder::invalidate);
+      LOG.error(LOGMSG, e.getMessage(), fileName, e);
+    } finally {
+      recorders.pop();
+    }
+    if (recorder.isValid()) {
+      pp.headerCache().put(key, recorder.getSummary());
     }
   }
 
+  /**
+   * Apply the effects of an include file without reading it. Summaries of enclosing include files take over the inputs
+   * and effects.
+   */
+  private void replay(PPHeaderCache.Summary summary) {
+    for (var condition : summary.getConditions().entrySet()) {
+      macroRead(condition.getKey(), condition.getValue());
+    }
+    for (var file : summary.getSkippedFiles()) {
+      recorders.forEach(r -> r.fileSkipped(file));
+    }
+    for (var file : summary.getIncludedFiles()) {
+      analysedFiles.add(file);
+      recorders.forEach(r -> r.fileIncluded(file));
+    }
+    for (var lookup : summary.getLookups()) {
+      lookupDone(lookup);
+    }
+    for (var operation : summary.getOperations()) {
+      if (operation.macro() != null) {
+        pp.defineMacro(operation.identifier(), operation.macro());
+      } else {
+        pp.undefineMacro(operation.identifier());
+      }
+    }
+    missingFileCounter += summary.getMissingFiles();
+    recorders.forEach(r -> r.fileMissing(summary.getMissingFiles()));
+  }
+
+  /**
+   * The result of searching the nested include files depends on the include file, the standard include directories and
+   * the directories of the currently opened include files.
+   */
+  private PPHeaderCache.Key headerCacheKey(Path fileName) {
+    var includerDirs = new ArrayList<Path>();
+    for (var include : state().getStack()) {
+      if (!include.getFile().equals(state().getContextFile())) {
+        includerDirs.add(include.getFile().getParent());
+      }
+    }
+    return new PPHeaderCache.Key(fileName, List.copyOf(standardIncludeDirs), includerDirs);
+  }
+
   /**
    * Searches for a header and returns the file containing the contents of the header (from AST).
    *
@@ -187,26 +293,30 @@ public class PPInclude {
    */
   @CheckForNull
   public Path searchFile(String fileName, boolean quoted) {
-    Path result = null;
     var path = Path.of(fileName);
-
     if (path.isAbsolute()) {
-      if (exists(path)) {
-        result = path;
-      }
-    } else {
-      if (quoted) {
-        result = searchQuoted(path);
-      }
-      if (result == null) {
-        result = searchBracketed(path);
-      }
+      Path result = exists(path) ? path.normalize() : null;
+      lookupDone(new IncludeLookup(fileName, List.of(), result));
+      return result;
     }
 
-    if (result != null) {
-      result = result.normalize().toAbsolutePath();
+    List<Path> quotedDirs = quoted ? quotedSearchDirs() : List.of();
+    if (includeDirListId < 0) {
+      includeDirListId = pp.includeIndex().getIncludeDirListId(standardIncludeDirs);
     }
+    var lookup = new PPIncludeIndex.Lookup(fileName, quoted, quotedDirs, includeDirListId);
+    Path result = pp.includeIndex().search(lookup, () -> {
+      Path found = searchQuoted(quotedDirs, path);
+      if (found == null) {
+        found = searchBracketed(path);
+      }
+      return found != null ? found.normalize().toAbsolutePath() : null;
+    });
 
+    var searchDirs = new ArrayList<Path>(quotedDirs.size() + standardIncludeDirs.size());
+    searchDirs.addAll(quotedDirs);
+    searchDirs.addAll(standardIncludeDirs);
+    lookupDone(new IncludeLookup(fileName, searchDirs, result));
     return result;
   }
 
@@ -240,6 +350,25 @@ public class PPInclude {
     return missingFileCounter;
   }
 
+  /**
+   * Returns the searches for include files done so far for the current translation unit, including the searches
+   * without result and the searches of replayed include files.
+   *
+   * @return searches in the order of appearance
+   */
+  public Set<IncludeLookup> getIncludeLookups() {
+    return Collections.unmodifiableSet(lookups);
+  }
+
+  /**
+   * Returns the include files read so far for the current translation unit.
+   *
+   * @return absolute paths of the read include files
+   */
+  public Set<Path> getIncludedFiles() {
+    return Collections.unmodifiableSet(analysedFiles);
+  }
+
   /**
    * (1) Search bracketed filename.
    *
@@ -269,24 +398,29 @@ public class PPInclude {
    * of any grandparent include files. 3. Fallback to use standard include directories of bracketed form (1).
    */
   @CheckForNull
-  private Path searchQuoted(Path fileName) {
-    var parent = state().getFileUnderAnalysis().getParent();
-    String cwd = parent != null ? parent.toString() : ".";
-    var path = Path.of(cwd).resolve(fileName);
-    if (exists(path)) {
-      return path;
+  private Path searchQuoted(List<Path> quotedDirs, Path fileName) {
+    for (var dir : quotedDirs) {
+      var path = dir.resolve(fileName);
+      if (exists(path)) {
+        return path;
+      }
     }
+    return null;
+  }
 
+  /**
+   * Directories searched for the quoted form (2) before the standard include directories.
+   */
+  private List<Path> quotedSearchDirs() {
+    var dirs = new ArrayList<Path>();
+    var parent = state().getFileUnderAnalysis().getParent();
+    dirs.add(parent != null ? parent : Path.of("."));
     for (var include : state().getStack()) {
       if (!include.getFile().equals(state().getContextFile())) {
-        path = include.getFile().getParent().resolve(fileName);
-        if (exists(path)) {
-          return path;
-        }
+        dirs.add(include.getFile().getParent());
       }
     }
-
-    return null;
+    return dirs;
   }
 
   /**
@@ -343,6 +477,11 @@ public class PPInclude {
     return searchFile(astNode);
   }
 
+  private void lookupDone(IncludeLookup lookup) {
+    lookups.add(lookup);
+    recorders.forEach(r -> r.lookupDone(lookup));
+  }
+
   /**
    * Tests whether a file exists.
    *
@@ -351,7 +490,7 @@ public class PPInclude {
    * determined.
    */
   private boolean exists(Path fileName) {
-    return pp.exists(fileName);
+    return pp.includeIndex().exists(fileName);
   }
 
 }
@@ -0,0 +1,176 @@
+/*
+ * C++ Community Plugin (cxx plugin)
+ * Copyright (C) 2010-2024 SonarOpenCommunity
+ * http://github.com/SonarOpenCommunity/sonar-cxx
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.cxx.preprocessor;
+
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.NotDirectoryException;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import javax.annotation.CheckForNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.cxx.config.CxxSquidConfiguration;
+
+/**
+ * Index of the include directories, shared by all preprocessors (workers) of an analysis.
+ *
+ * Most probes of an include file fail: with many include directories, a file is searched in most of them in vain. The
+ * index lists each directory only once and answers the probes from these listings. The results of complete searches
+ * (positive and negative) are cached as well, so after warm-up an #include is resolved without any file system access.
+ *
+ * The listings store lower case names and a found name is confirmed once by the file system. This way the index works
+ * for case-sensitive and case-insensitive file systems.
+ */
+final class PPIncludeIndex {
+
+  private static final Logger LOG = LoggerFactory.getLogger(PPIncludeIndex.class);
+
+  // one index per analysis: all workers of an analysis share the same configuration
+  private static final Map<CxxSquidConfiguration, PPIncludeIndex> instances
+    = Collections.synchronizedMap(new WeakHashMap<>());
+
+  // configured include directories: real path or empty if the directory does not exist
+  private final Map<Directory, Optional<Path>> directories = new ConcurrentHashMap<>();
+  // lower case names of the directory entries, empty if the directory cannot be listed (probe file system)
+  private final Map<Path, Optional<Set<String>>> listings = new ConcurrentHashMap<>();
+  // ids of the lists of standard include directories
+  private final Map<List<Path>, Integer> includeDirLists = new ConcurrentHashMap<>();
+  private final AtomicInteger nextIncludeDirListId = new AtomicInteger();
+  // results of complete searches, empty if the include file was not found
+  private final Map<Lookup, Optional<Path>> lookups = new ConcurrentHashMap<>();
+
+  static PPIncludeIndex of(CxxSquidConfiguration squidConfig) {
+    return instances.computeIfAbsent(squidConfig, k -> new PPIncludeIndex());
+  }
+
+  /**
+   * Returns the real path of a configured include directory.
+   *
+   * @param dir include directory
+   * @param baseDir in case the directory is relative, it is made absolute to baseDir
+   * @return real path or null if the path is not an existing directory
+   */
+  @CheckForNull
+  Path getIncludeDirectory(String dir, String baseDir) {
+    return directories.computeIfAbsent(new Directory(dir, baseDir), PPIncludeIndex::toRealDirectory).orElse(null);
+  }
+
+  /**
+   * Returns an id for a list of standard include directories. Equal lists get the same id.
+   */
+  int getIncludeDirListId(List<Path> includeDirs) {
+    return includeDirLists.computeIfAbsent(List.copyOf(includeDirs), k -> nextIncludeDirListId.getAndIncrement());
+  }
+
+  /**
+   * Search an include file with the cached result of a previous search with the same parameters.
+   *
+   * @param lookup parameters of the search
+   * @param search search to execute if the result is not cached yet
+   * @return include file or null if not found
+   */
+  @CheckForNull
+  Path search(Lookup lookup, Supplier<Path> search) {
+    var result = lookups.get(lookup);
+    if (result == null) {
+      result = Optional.ofNullable(search.get());
+      lookups.putIfAbsent(lookup, result);
+    }
+    return result.orElse(null);
+  }
+
+  /**
+   * Tests whether a file exists.
+   *
+   * @param file the path to the file to test
+   * @return {@code true} if the file exists; {@code false} if the file does not exist or its existence cannot be
+   * determined.
+   */
+  boolean exists(Path file) {
+    var dir = file.getParent();
+    var name = file.getFileName();
+    if (dir != null && name != null) {
+      var entries = listings.computeIfAbsent(dir, PPIncludeIndex::list);
+      if (entries.isPresent() && !entries.get().contains(name.toString().toLowerCase(Locale.ROOT))) {
+        return false;
+      }
+    }
+    return Files.isRegularFile(file);
+  }
+
+  private static Optional<Path> toRealDirectory(Directory directory) {
+    var path = Path.of(directory.dir());
+    try {
+      if (!path.isAbsolute()) {
+        path = Path.of(directory.baseDir()).resolve(path);
+      }
+      path = path.toRealPath(); // IOException if the path does not exist
+
+      if (Files.isDirectory(path)) {
+        return Optional.of(path);
+      }
+      LOG.warn("preprocessor: invalid include file directory '{}'", path);
+    } catch (IOException | InvalidPathException e) {
+      LOG.error("preprocessor: {} '{}'", e.getMessage(), path, e);
+    }
+    return Optional.empty();
+  }
+
+  private static Optional<Set<String>> list(Path dir) {
+    var entries = new HashSet<String>();
+    try (var stream = Files.newDirectoryStream(dir)) {
+      for (var entry : stream) {
+        entries.add(entry.getFileName().toString().toLowerCase(Locale.ROOT));
+      }
+    } catch (NoSuchFileException | NotDirectoryException e) {
+      entries.clear(); // nothing can be found in a missing directory
+    } catch (IOException | DirectoryIteratorException | SecurityException e) {
+      return Optional.empty(); // e.g. no read permission: fall back to probe the file system
+    }
+    return Optional.of(entries);
+  }
+
+  private static record Directory(String dir, String baseDir) {
+
+  }
+
+  /**
+   * Parameters of a search: the include file name, the form of the #include, the directories searched for the quoted
+   * form and the id of the list of standard include directories.
+   */
+  static record Lookup(String fileName, boolean quoted, List<Path> quotedDirs, int includeDirListId) {
+
+  }
+
+}
@@ -22,10 +22,13 @@ package org.sonar.cxx.preprocessor;
 import com.sonar.cxx.sslr.api.AstNode;
 import com.sonar.cxx.sslr.api.GenericTokenType;
 import com.sonar.cxx.sslr.api.Token;
+import com.sonar.cxx.sslr.impl.Lexer;
+import com.sonar.cxx.sslr.impl.token.TokenUtils;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
+import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 
 /**
@@ -44,6 +47,12 @@ final class PPMacro {
   public final boolean isVariadic; // (3, 4) => parameters, ...
   public final List<Token> replacementList;
 
+  // C++ tokens of the replacement list of an object-like macro with applied ## operators, ends with EOF (lazy):
+  // macros are shared by the preprocessors of several threads (header cache), volatile publishes the immutable list
+  private volatile List<Token> objectLikeExpansion = null;
+  // text of the replacement list (lazy)
+  private String replacementText = null;
+
   private PPMacro(String identifier,
                   @Nullable List<Token> parameterList,
                   @Nullable List<Token> replacementList,
@@ -54,6 +63,9 @@ final class PPMacro {
     this.isVariadic = isVariadic;
   }
 
+  /**
+   * Create a macro from the AST of a #define line.
+   */
   static PPMacro create(AstNode defineLineAst) {
     var root = defineLineAst.getFirstChild();
 
@@ -100,7 +112,27 @@ final class PPMacro {
   }
 
   /**
-   * Create a macro from a string (#define ...)
+   * Create an object-like macro from the tokens of a #define line without the line parser (fast path for the most
+   * frequent macro definitions).
+   *
+   * @param tokens tokens of the line from {@link PPLexer}, starting with #define and ending with EOF
+   * @return the macro or null if the line has to be handled by the line parser (e.g. a function-like macro)
+   */
+  @CheckForNull
+  static PPMacro createObjectLike(List<Token> tokens) {
+    int size = tokens.size();
+    if (size < 3
+          || !PPKeyword.DEFINE.equals(tokens.get(0).getType())
+          || !GenericTokenType.IDENTIFIER.equals(tokens.get(1).getType())
+          || !GenericTokenType.EOF.equals(tokens.get(size - 1).getType())
+          || "(".equals(tokens.get(2).getValue())) {
+      return null;
+    }
+    return new PPMacro(tokens.get(1).getValue(), null, tokens.subList(2, size - 1), false);
+  }
+
+  /**
+   * Create a macro from a string (#define ...), only used by unit tests: creates a line parser for each call.
    */
   static PPMacro create(String source) {
     if (!source.startsWith("#define")) {
@@ -121,6 +153,38 @@ final class PPMacro {
     return false;
   }
 
+  /**
+   * Returns the replacement list of an object-like macro with applied ## operators as (immutable) C++ tokens, the list
+   * ends with EOF. The positions are the positions in the merged replacement list. The list is lexed only on the first
+   * expansion of the macro.
+   *
+   * @param lexer C++ lexer without preprocessors of the calling thread
+   * @return the expansion or null for a function-like macro
+   */
+  @CheckForNull
+  List<Token> getObjectLikeExpansion(Lexer lexer) {
+    if (isFunctionLikeMacro() || replacementList == null) {
+      return null;
+    }
+    var result = objectLikeExpansion;
+    if (result == null) {
+      // several threads may lex the same macro at the same time, the results are equal
+      result = List.copyOf(lexer.lex(TokenUtils.merge(PPConcatenation.concatenate(replacementList))));
+      objectLikeExpansion = result;
+    }
+    return result;
+  }
+
+  /**
+   * Returns the text of the replacement list. The text is created only once per macro.
+   */
+  String getReplacementText() {
+    if (replacementText == null) {
+      replacementText = TokenUtils.merge(replacementList);
+    }
+    return replacementText;
+  }
+
   boolean isFunctionLikeMacro() {
     return parameterList != null;
   }
@@ -146,6 +210,23 @@ final class PPMacro {
     return -1;
   }
 
+  /**
+   * Two macros have the same definition if name, parameters and replacement list are identical (C++ standard 15.6/2).
+   * Two undefined macros (null) are also considered as the same.
+   */
+  static boolean isSameDefinition(@Nullable PPMacro a, @Nullable PPMacro b) {
+    if (a == b) {
+      return true;
+    }
+    if (a == null || b == null) {
+      return false;
+    }
+    return a.identifier.equals(b.identifier)
+             && a.isVariadic == b.isVariadic
+             && isSameTokenValues(a.parameterList, b.parameterList)
+             && isSameTokenValues(a.replacementList, b.replacementList);
+  }
+
   @Override
   public String toString() {
     StringBuilder ab = new StringBuilder(64);
@@ -167,6 +248,21 @@ final class PPMacro {
     return ab.toString();
   }
 
+  private static boolean isSameTokenValues(@Nullable List<Token> a, @Nullable List<Token> b) {
+    if (a == null || b == null) {
+      return a == b;
+    }
+    if (a.size() != b.size()) {
+      return false;
+    }
+    for (int i = 0; i < a.size(); i++) {
+      if (!a.get(i).getValue().equals(b.get(i).getValue())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   private static String getIdentifier(AstNode root) {
     var token = root.getFirstDescendant(GenericTokenType.IDENTIFIER);
     return token.getTokenValue();
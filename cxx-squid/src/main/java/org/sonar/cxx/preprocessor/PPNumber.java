@@ -23,6 +23,7 @@ import java.math.BigInteger;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import org.sonar.api.internal.apachecommons.lang3.StringUtils;
 
 /**
@@ -30,7 +31,7 @@ import org.sonar.api.internal.apachecommons.lang3.StringUtils;
  */
 final class PPNumber {
 
-  private static final HashMap<String, BigInteger> numberCache = new HashMap<>();
+  private static final Map<String, BigInteger> numberCache = new ConcurrentHashMap<>();
   private static final Map<String, Integer> namedUniversalCharacter = createNamedUniversalCharacter();
 
   private PPNumber() {
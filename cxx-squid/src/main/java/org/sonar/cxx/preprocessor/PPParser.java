@@ -22,26 +22,38 @@ package org.sonar.cxx.preprocessor;
 import com.sonar.cxx.sslr.api.AstNode;
 import com.sonar.cxx.sslr.api.Grammar;
 import com.sonar.cxx.sslr.impl.Parser;
+import com.sonar.cxx.sslr.impl.TokenValuePool;
 import java.nio.charset.Charset;
+import javax.annotation.Nullable;
 import org.sonar.cxx.sslr.grammar.GrammarRuleKey;
 
 final class PPParser {
 
+  // the grammar does not depend on the configuration: it is compiled only once and shared by all preprocessors, the
+  // parsers of other root rules (e.g. constantExpression) use entry points into the same instructions
+  private static final Grammar GRAMMAR = PPGrammarImpl.create();
+
   private PPParser() {
   }
 
   static Parser<Grammar> create(Charset charset) {
-    return Parser.builder(PPGrammarImpl.create())
-      .withLexer(PPLexer.create(charset))
+    return create(charset, null);
+  }
+
+  /**
+   * @param tokenValuePool the lexer of the parser shares equal token values with the pool, null to disable pooling
+   */
+  static Parser<Grammar> create(Charset charset, @Nullable TokenValuePool tokenValuePool) {
+    return Parser.builder(GRAMMAR)
+      .withLexer(PPLexer.create(charset, tokenValuePool))
       .build();
   }
 
   static Parser<Grammar> create(GrammarRuleKey rootRuleKey, Charset charset) {
-    var grammar = PPGrammarImpl.create();
-    Parser<Grammar> parser = Parser.builder(grammar)
+    Parser<Grammar> parser = Parser.builder(GRAMMAR)
       .withLexer(PPLexer.create(charset))
       .build();
-    parser.setRootRule(grammar.rule(rootRuleKey));
+    parser.setRootRule(GRAMMAR.rule(rootRuleKey));
     return parser;
   }
 
@@ -45,9 +45,12 @@ class PPReplace {
    *
    * Object-like macros replace every occurrence of defined identifier with replacement-list. Version (1) of the #define
    * directive behaves exactly like that.
+   *
+   * @param macro macro to replace
+   * @param expansion lexed replacement list of the macro, ending with EOF
    */
-  List<Token> replaceObjectLikeMacro(PPMacro macro, String macroExpression) {
-    List<Token> tokens = pp.tokenizeMacro(macro, macroExpression);
+  List<Token> replaceObjectLikeMacro(PPMacro macro, List<Token> expansion) {
+    List<Token> tokens = pp.tokenizeMacro(macro, expansion);
 
     // make sure that all expanded Tokens are marked as generated it will prevent
     // them from being involved into NCLOC / complexity / highlighting
@@ -80,7 +83,7 @@ class PPReplace {
       }
       List<Token> replTokens = replaceParams(macro, arguments);
       replTokens = PPConcatenation.concatenate(replTokens);
-      expansion.addAll(replaceObjectLikeMacro(macro, TokenUtils.merge(replTokens)));
+      expansion.addAll(replaceObjectLikeMacro(macro, pp.lex(TokenUtils.merge(replTokens))));
     }
 
     return tokensConsumedMatchingArgs;
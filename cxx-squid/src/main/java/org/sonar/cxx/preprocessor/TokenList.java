@@ -23,12 +23,9 @@ import com.sonar.cxx.sslr.api.Token;
 import com.sonar.cxx.sslr.impl.Lexer;
 import java.util.ArrayList;
 import java.util.List;
-import org.sonar.cxx.parser.CxxLexerPool;
 
 final class TokenList {
 
-  private static Lexer lexer = null;
-
   private TokenList() {
 
   }
@@ -51,14 +48,12 @@ final class TokenList {
 
   /**
    * Map preprocessor tokens to corresponding cxx tokens.
+   *
+   * @param lexer CXX lexer to determine the token types, the token values are shared with its token value pool
    */
-  static List<Token> transformToCxx(List<Token> ppTokens, Token newPos) {
+  static List<Token> transformToCxx(Lexer lexer, List<Token> ppTokens, Token newPos) {
     List<Token> result = new ArrayList<>(ppTokens.size());
 
-    if (lexer == null) { // lazy initialization
-      lexer = CxxLexerPool.create().getLexer();
-    }
-
     for (var ppToken : ppTokens) {
       String value = ppToken.getValue();
       if (!"EOF".equals(value) && !value.isBlank()) {
@@ -69,8 +64,8 @@ final class TokenList {
         var cxxToken = Token.builder()
           .setLine(newPos.getLine() + ppToken.getLine() - 1)
           .setColumn(newPos.getColumn() + ppToken.getColumn())
-          .setURI(ppToken.getURI())
-          .setValueAndOriginalValue(ppToken.getValue())
+          .setURI(newPos.getURI())
+          .setValueAndOriginalValue(lexer.internTokenValue(value))
           .setType(cxxTokens.get(0).getType())
           .build();
 
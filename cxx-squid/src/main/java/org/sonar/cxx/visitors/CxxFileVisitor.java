@@ -21,15 +21,40 @@ package org.sonar.cxx.visitors;
 
 import com.sonar.cxx.sslr.api.AstNode;
 import com.sonar.cxx.sslr.api.Grammar;
+import java.util.function.BiConsumer;
 import javax.annotation.Nullable;
 import org.sonar.cxx.parser.CxxParser;
+import org.sonar.cxx.preprocessor.CxxPreprocessor;
 import org.sonar.cxx.squidbridge.SquidAstVisitor;
+import org.sonar.cxx.squidbridge.api.SourceFile;
 
 public class CxxFileVisitor<GRAMMAR extends Grammar> extends SquidAstVisitor<GRAMMAR> {
 
+  @Nullable
+  private final BiConsumer<SourceFile, CxxPreprocessor.Dependencies> dependencyRecorder;
+
+  public CxxFileVisitor() {
+    this(null);
+  }
+
+  /**
+   * @param dependencyRecorder is called with the include files of each source file, {@code null} if not needed
+   */
+  public CxxFileVisitor(@Nullable BiConsumer<SourceFile, CxxPreprocessor.Dependencies> dependencyRecorder) {
+    this.dependencyRecorder = dependencyRecorder;
+  }
+
   @Override
   public void visitFile(@Nullable AstNode node) {
-    CxxParser.finishedParsing();
+    var dependencies = CxxParser.finishedParsing(getContext());
+    if (dependencyRecorder != null && getContext().peekSourceCode() instanceof SourceFile sourceFile) {
+      dependencyRecorder.accept(sourceFile, dependencies);
+    }
+  }
+
+  @Override
+  public void destroy() {
+    CxxParser.finishedAnalysis(getContext());
   }
 
 }
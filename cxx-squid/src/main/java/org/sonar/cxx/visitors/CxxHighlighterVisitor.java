@@ -82,8 +82,10 @@ public class CxxHighlighterVisitor extends SquidAstVisitor<Grammar> implements A
   }
 
   private static Optional<Trivia> getTriviaWithConcatenatedLiterals(Token stringToken) {
+    // concatenated literals are at least two, skipped text with one token is e.g. a token of an inactive block
     return stringToken.getTrivia().stream()
-      .filter(t -> t.isSkippedText() && CxxTokenType.STRING.equals(t.getToken().getType())).findFirst();
+      .filter(t -> t.isSkippedText() && t.getTokens().size() > 1 && CxxTokenType.STRING.equals(t.getToken().getType()))
+      .findFirst();
   }
 
   private TokenLocation highlight(@Nullable TokenLocation last, TokenLocation current, String typeOfText) {
@@ -37,21 +37,32 @@ public class CxxParseErrorLoggerVisitor<GRAMMAR extends Grammar> extends SquidAs
     + " Root cause are typically missing includes, "
     + "missing macros or compiler specific extensions.";
   private static final Logger LOG = LoggerFactory.getLogger(CxxParseErrorLoggerVisitor.class);
-  private static int errors = 0;
+
+  // sum of all visitor instances (workers), the visitors are destroyed by the thread that finishes the analysis
+  private static int totalErrors = 0;
+
+  private int errors = 0;
 
   public static void finalReport() {
-    if (errors != 0) {
-      LOG.warn(SYNTAX_ERROR_MSG, errors);
+    if (totalErrors != 0) {
+      LOG.warn(SYNTAX_ERROR_MSG, totalErrors);
     }
   }
 
   public static void resetReport() {
-    errors = 0;
+    totalErrors = 0;
   }
 
   @Override
   public void init() {
     subscribeTo(CxxGrammarImpl.recoveredDeclaration);
+    errors = 0;
+  }
+
+  @Override
+  public void destroy() {
+    totalErrors += errors;
+    errors = 0;
   }
 
   @Override
@@ -19,17 +19,26 @@
  */
 package org.sonar.cxx;
 
+import com.sonar.cxx.sslr.api.Grammar;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 import static org.assertj.core.api.Assertions.*;
 import org.assertj.core.api.SoftAssertions;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
+import static org.mockito.Mockito.mock;
 import org.sonar.cxx.api.CxxMetric;
 import org.sonar.cxx.config.CxxSquidConfiguration;
+import org.sonar.cxx.parser.CxxParser;
+import org.sonar.cxx.squidbridge.AnalysisProfiler;
+import org.sonar.cxx.squidbridge.AstScanner;
+import org.sonar.cxx.squidbridge.CommentAnalyser;
+import org.sonar.cxx.squidbridge.SquidAstVisitorContextImpl;
 import org.sonar.cxx.squidbridge.api.SourceFile;
 import org.sonar.cxx.squidbridge.api.SourceProject;
 import org.sonar.cxx.squidbridge.indexer.QueryByType;
@@ -51,6 +60,90 @@ class CxxAstScannerTest {
     assertThat(project.getInt(CxxMetric.FILES)).isEqualTo(2);
   }
 
+  @Test
+  void streaming() throws IOException {
+    var tester = CxxFileTesterHelper.create("src/test/resources/metrics/namespace.cc", ".", "");
+
+    var scanner = CxxAstScanner.create(new CxxSquidConfiguration());
+    var files = new ArrayList<SourceFile>();
+    scanner.scanInputFiles(List.of(tester.asInputFile()), files::add);
+
+    assertThat(files).hasSize(1);
+    var file = files.get(0);
+    assertThat(file.getInt(CxxMetric.CLASSES)).isEqualTo(3);
+    assertThat(file.getInt(CxxMetric.FUNCTIONS)).isEqualTo(6);
+    assertThat(file.getData(CxxMetric.HIGHLIGTHING_DATA)).isNotNull();
+
+    // files are released after the callback, only the project measures remain
+    assertThat(scanner.getIndex().search(new QueryByType(SourceFile.class))).isEmpty();
+    var project = (SourceProject) scanner.getIndex().search(new QueryByType(SourceProject.class)).iterator().next();
+    assertThat(project.getInt(CxxMetric.FILES)).isEqualTo(1);
+    assertThat(project.getInt(CxxMetric.FUNCTIONS)).isEqualTo(6);
+  }
+
+  @Test
+  void parallelWithoutMainParser() throws IOException {
+    var first = CxxFileTesterHelper.create("src/test/resources/metrics/classes.cc", ".", "");
+    var second = CxxFileTesterHelper.create("src/test/resources/metrics/functions.cc", ".", "");
+
+    var squidConfig = new CxxSquidConfiguration();
+    var context = new SquidAstVisitorContextImpl<Grammar>(new SourceProject("cxx", null));
+    var parsers = new AtomicInteger();
+    var scanner = AstScanner.<Grammar>builder(context)
+      .setBaseParserFactory(CxxParser.getGrammar(squidConfig), () -> {
+        parsers.incrementAndGet();
+        return CxxParser.create(context, squidConfig);
+      })
+      .setCommentAnalyser(mock(CommentAnalyser.class))
+      .setFilesMetric(CxxMetric.FILES)
+      .withMetrics(CxxMetric.values())
+      .build();
+    scanner.scanInputFiles(List.of(first.asInputFile(), second.asInputFile()), 2,
+                           () -> CxxAstScanner.create(squidConfig));
+
+    // only the workers parse
+    assertThat(parsers).hasValue(0);
+    var project = (SourceProject) scanner.getIndex().search(new QueryByType(SourceProject.class)).iterator().next();
+    assertThat(project.getInt(CxxMetric.FILES)).isEqualTo(2);
+  }
+
+  @Test
+  void profiler() throws IOException {
+    var first = CxxFileTesterHelper.create("src/test/resources/metrics/classes.cc", ".", "");
+    var second = CxxFileTesterHelper.create("src/test/resources/metrics/functions.cc", ".", "");
+
+    var squidConfig = new CxxSquidConfiguration();
+    var profiler = new AnalysisProfiler(false);
+    var scanner = CxxAstScanner.create(squidConfig);
+    scanner.setProfiler(profiler);
+    scanner.scanInputFiles(List.of(first.asInputFile(), second.asInputFile()), 2,
+                           () -> CxxAstScanner.create(squidConfig));
+
+    // the workers add their values to the profiler of the scanner
+    assertThat(profiler.toJson())
+      .contains("\"files\": 2")
+      .contains("\"lexer\"")
+      .contains("classes.cc")
+      .contains("functions.cc")
+      .contains("\"grammarRules\": [\n  ]")
+      .doesNotContain("astCreator");
+  }
+
+  @Test
+  void ruleProfiler() throws IOException {
+    var tester = CxxFileTesterHelper.create("src/test/resources/metrics/classes.cc", ".", "");
+
+    var profiler = new AnalysisProfiler(true);
+    var scanner = CxxAstScanner.create(new CxxSquidConfiguration());
+    scanner.setProfiler(profiler);
+    scanner.scanInputFiles(List.of(tester.asInputFile()), file -> {});
+
+    assertThat(profiler.toJson())
+      .contains("\"files\": 1")
+      .contains("\"grammarRules\": [\n    {\"rule\": ")
+      .contains("\"rules\": [{\"rule\": ");
+  }
+
   @Test
   void comments() throws IOException {
     var tester = CxxFileTesterHelper.create("src/test/resources/metrics/comments.cc", ".", "");
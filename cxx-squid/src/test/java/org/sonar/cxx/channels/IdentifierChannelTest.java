@@ -0,0 +1,123 @@
+/*
+ * C++ Community Plugin (cxx plugin)
+ * Copyright (C) 2010-2024 SonarOpenCommunity
+ * http://github.com/SonarOpenCommunity/sonar-cxx
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.cxx.channels;
+
+import static com.sonar.cxx.sslr.api.GenericTokenType.IDENTIFIER;
+import com.sonar.cxx.sslr.api.Token;
+import com.sonar.cxx.sslr.impl.Lexer;
+import static org.assertj.core.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import org.sonar.cxx.parser.CxxKeyword;
+import org.sonar.cxx.sslr.channel.CodeReader;
+
+class IdentifierChannelTest {
+
+  private final IdentifierChannel channel = new IdentifierChannel(CxxKeyword.values());
+
+  @Test
+  void identifiers() {
+    assertThat(consume("abc def").getValue()).isEqualTo("abc");
+    assertThat(consume("_x1+1").getValue()).isEqualTo("_x1");
+    assertThat(consume("A_B_0").getValue()).isEqualTo("A_B_0");
+    assertThat(consume("abc").getType()).isEqualTo(IDENTIFIER);
+  }
+
+  @Test
+  void noIdentifier() {
+    assertThat(consume("1a")).isNull();
+    assertThat(consume("+a")).isNull();
+    assertThat(consume("$a")).isNull();
+    assertThat(consume("\\u00E9a")).isNull();
+    assertThat(consume("éa")).isNull();
+  }
+
+  @Test
+  void dollarSign() {
+    // '$' is not part of an identifier, it is consumed as unknown character
+    assertThat(consume("a$b").getValue()).isEqualTo("a");
+    assertThat(consume("a1$").getValue()).isEqualTo("a1");
+  }
+
+  @Test
+  void universalCharacterNames() {
+    // universal character names and characters outside of the basic character set end the identifier
+    assertThat(consume("a\\u00E9b").getValue()).isEqualTo("a");
+    assertThat(consume("a\\U0001F600").getValue()).isEqualTo("a");
+    assertThat(consume("aéb").getValue()).isEqualTo("a");
+  }
+
+  @Test
+  void keywords() {
+    var token = consume("class A");
+    assertThat(token.getType()).isEqualTo(CxxKeyword.CLASS);
+    // the token reuses the value of the keyword
+    assertThat(token.getValue()).isSameAs(CxxKeyword.CLASS.getValue());
+
+    for (var keyword : CxxKeyword.values()) {
+      assertThat(consume(keyword.getValue()).getType()).isEqualTo(keyword);
+    }
+  }
+
+  @Test
+  void keywordsAreCaseSensitive() {
+    assertThat(consume("Class").getType()).isEqualTo(IDENTIFIER);
+    assertThat(consume("CLASS").getType()).isEqualTo(IDENTIFIER);
+  }
+
+  @Test
+  void keywordPrefixAndExtension() {
+    assertThat(consume("classes").getType()).isEqualTo(IDENTIFIER);
+    assertThat(consume("clas").getType()).isEqualTo(IDENTIFIER);
+    assertThat(consume("class_").getType()).isEqualTo(IDENTIFIER);
+    assertThat(consume("nullptr1").getType()).isEqualTo(IDENTIFIER);
+  }
+
+  @Test
+  void withoutKeywords() {
+    var lexer = Lexer.builder().build();
+    assertThat(new IdentifierChannel().consume(new CodeReader("class"), lexer)).isTrue();
+    assertThat(lexer.getTokens().get(0).getType()).isEqualTo(IDENTIFIER);
+  }
+
+  @Test
+  void position() {
+    var lexer = Lexer.builder().build();
+    var code = new CodeReader("\n\n  name;");
+    code.pop();
+    code.pop();
+    code.pop();
+    code.pop();
+    assertThat(channel.consume(code, lexer)).isTrue();
+    assertThat(code.peek()).isEqualTo(';');
+
+    var token = lexer.getTokens().get(0);
+    assertThat(token.getLine()).isEqualTo(3);
+    assertThat(token.getColumn()).isEqualTo(2);
+  }
+
+  private Token consume(String source) {
+    var lexer = Lexer.builder().build();
+    if (!channel.consume(new CodeReader(source), lexer)) {
+      return null;
+    }
+    return lexer.getTokens().get(0);
+  }
+
+}
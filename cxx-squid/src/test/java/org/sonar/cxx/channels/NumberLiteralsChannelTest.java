@@ -0,0 +1,150 @@
+/*
+ * C++ Community Plugin (cxx plugin)
+ * Copyright (C) 2010-2024 SonarOpenCommunity
+ * http://github.com/SonarOpenCommunity/sonar-cxx
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.cxx.channels;
+
+import com.sonar.cxx.sslr.impl.Lexer;
+import static org.assertj.core.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import org.sonar.cxx.parser.CxxTokenType;
+import org.sonar.cxx.sslr.channel.CodeReader;
+
+class NumberLiteralsChannelTest {
+
+  private final NumberLiteralsChannel channel = new NumberLiteralsChannel();
+
+  @Test
+  void integerLiterals() {
+    assertThat(consume("0")).isEqualTo("0");
+    assertThat(consume("123;")).isEqualTo("123");
+    assertThat(consume("0x1F+1")).isEqualTo("0x1F");
+    assertThat(consume("0XaB")).isEqualTo("0XaB");
+    assertThat(consume("0b101")).isEqualTo("0b101");
+    assertThat(consume("0B1")).isEqualTo("0B1");
+  }
+
+  @Test
+  void hexPrefixWithoutDigits() {
+    assertThat(consume("0x")).isEqualTo("0x");
+    assertThat(consume("0X;")).isEqualTo("0X");
+    assertThat(consume("0x.")).isEqualTo("0x.");
+    // the rest is the ud-suffix
+    assertThat(consume("0xg")).isEqualTo("0xg");
+  }
+
+  @Test
+  void binaryPrefixWithoutBinaryDigits() {
+    // decimal 0 with ud-suffix
+    assertThat(consume("0b2")).isEqualTo("0b2");
+    assertThat(consume("0b")).isEqualTo("0b");
+    assertThat(consume("0b12")).isEqualTo("0b1");
+  }
+
+  @Test
+  void floatingLiterals() {
+    assertThat(consume("1.5")).isEqualTo("1.5");
+    assertThat(consume("1.")).isEqualTo("1.");
+    assertThat(consume(".5")).isEqualTo(".5");
+    assertThat(consume("1e10")).isEqualTo("1e10");
+    assertThat(consume("1.5E-3")).isEqualTo("1.5E-3");
+    assertThat(consume(".5e+3")).isEqualTo(".5e+3");
+    assertThat(consume("1.e5")).isEqualTo("1.e5");
+  }
+
+  @Test
+  void exponentWithoutDigits() {
+    // the exponent is incomplete: 'e' is the ud-suffix
+    assertThat(consume("1e+")).isEqualTo("1e");
+    assertThat(consume("1e-;")).isEqualTo("1e");
+    assertThat(consume("1.5e")).isEqualTo("1.5e");
+    assertThat(consume(".5E+x")).isEqualTo(".5E");
+  }
+
+  @Test
+  void digitSeparators() {
+    assertThat(consume("1'000'000")).isEqualTo("1'000'000");
+    assertThat(consume("0x12'ab")).isEqualTo("0x12'ab");
+    assertThat(consume("0b1'0'1")).isEqualTo("0b1'0'1");
+    assertThat(consume("1'000.5'5e1'0")).isEqualTo("1'000.5'5e1'0");
+  }
+
+  @Test
+  void trailingDigitSeparator() {
+    // a separator must be followed by a digit
+    assertThat(consume("1'")).isEqualTo("1");
+    assertThat(consume("1'000'")).isEqualTo("1'000");
+    assertThat(consume("1''0")).isEqualTo("1");
+    assertThat(consume("0b1'2")).isEqualTo("0b1");
+  }
+
+  @Test
+  void hexFloatingLiterals() {
+    assertThat(consume("0x1p-3")).isEqualTo("0x1p-3");
+    assertThat(consume("0x1.8p+3")).isEqualTo("0x1.8p+3");
+    assertThat(consume("0x.8p3")).isEqualTo("0x.8p3");
+    assertThat(consume("0X1P3")).isEqualTo("0X1P3");
+    assertThat(consume("0xAp1'0")).isEqualTo("0xAp1'0");
+    // the binary exponent is incomplete: 'p' is the ud-suffix
+    assertThat(consume("0x1p")).isEqualTo("0x1p");
+    assertThat(consume("0x1p-")).isEqualTo("0x1p");
+  }
+
+  @Test
+  void userDefinedSuffixes() {
+    assertThat(consume("123ull")).isEqualTo("123ull");
+    assertThat(consume("42i64")).isEqualTo("42i64");
+    assertThat(consume("1'0z")).isEqualTo("1'0z");
+    assertThat(consume("1.0f16")).isEqualTo("1.0f16");
+    assertThat(consume("1.0bf16")).isEqualTo("1.0bf16");
+    assertThat(consume("0x1p-3f")).isEqualTo("0x1p-3f");
+    assertThat(consume("12_km")).isEqualTo("12_km");
+    assertThat(consume("1.5_deg+1")).isEqualTo("1.5_deg");
+    assertThat(consume("0b1_b")).isEqualTo("0b1_b");
+  }
+
+  @Test
+  void noNumber() {
+    assertThat(consume(".")).isNull();
+    assertThat(consume(".e1")).isNull();
+    assertThat(consume("x1")).isNull();
+    assertThat(consume("'1'")).isNull();
+  }
+
+  @Test
+  void token() {
+    var lexer = Lexer.builder().build();
+    var code = new CodeReader("0x1p-3f;");
+    assertThat(channel.consume(code, lexer)).isTrue();
+    assertThat(code.peek()).isEqualTo(';');
+
+    var token = lexer.getTokens().get(0);
+    assertThat(token.getType()).isEqualTo(CxxTokenType.NUMBER);
+    assertThat(token.getLine()).isEqualTo(1);
+    assertThat(token.getColumn()).isZero();
+  }
+
+  private String consume(String source) {
+    var lexer = Lexer.builder().build();
+    if (!channel.consume(new CodeReader(source), lexer)) {
+      return null;
+    }
+    return lexer.getTokens().get(0).getValue();
+  }
+
+}
@@ -740,7 +740,10 @@ class CxxLexerTest {
       LiteralValuesBuilder.builder("a1").tokenValue("a1").tokenType(GenericTokenType.IDENTIFIER).build(),
       LiteralValuesBuilder.builder("A1").tokenValue("A1").tokenType(GenericTokenType.IDENTIFIER).build(),
       LiteralValuesBuilder.builder("A_a_A_1").tokenValue("A_a_A_1").tokenType(GenericTokenType.IDENTIFIER).build(),
-      LiteralValuesBuilder.builder("truetype").tokenValue("truetype").tokenType(GenericTokenType.IDENTIFIER).build() //identifier: containing boolean constant
+      LiteralValuesBuilder.builder("truetype").tokenValue("truetype").tokenType(GenericTokenType.IDENTIFIER).build(), //identifier: containing boolean constant
+      LiteralValuesBuilder.builder("retur").tokenValue("retur").tokenType(GenericTokenType.IDENTIFIER).build(), // prefix of keyword
+      LiteralValuesBuilder.builder("_return").tokenValue("_return").tokenType(GenericTokenType.IDENTIFIER).build(),
+      LiteralValuesBuilder.builder("_").tokenValue("_").tokenType(GenericTokenType.IDENTIFIER).build()
     ));
 
     values.forEach((LiteralValuesBuilder value)
@@ -749,6 +752,16 @@ class CxxLexerTest {
     );
   }
 
+  @Test
+  void allKeywords() {
+    for (var keyword : CxxKeyword.values()) {
+      if (keyword != CxxKeyword.NULLPTR) { // pointer literal
+        assertThat(lexer.lex(keyword.getValue())).as("Keyword %s", keyword.getValue()).anySatisfy(token
+          -> assertThat(token).isValue(keyword.getValue()).hasType(keyword));
+      }
+    }
+  }
+
   @Test
   void blankLines() {
     var softly = new SoftAssertions();
@@ -19,12 +19,15 @@
  */
 package org.sonar.cxx.lexer;
 
+import com.sonar.cxx.sslr.api.AstNode;
 import com.sonar.cxx.sslr.api.GenericTokenType;
 import com.sonar.cxx.sslr.api.Grammar;
 import com.sonar.cxx.sslr.api.Token;
 import com.sonar.cxx.sslr.impl.Lexer;
+import com.sonar.cxx.sslr.impl.TokenValuePool;
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.Charset;
 import java.nio.file.Path;
 import java.util.Collections;
 import java.util.List;
@@ -33,11 +36,14 @@ import static org.assertj.core.api.Assertions.assertThat;
 import org.assertj.core.api.SoftAssertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
+import org.slf4j.event.Level;
+import org.sonar.api.testfixtures.log.LogTesterJUnit5;
 import org.sonar.cxx.config.CxxSquidConfiguration;
 import static org.sonar.cxx.lexer.LexerAssert.assertThat;
 import org.sonar.cxx.parser.CxxKeyword;
@@ -51,6 +57,9 @@ import org.sonar.cxx.squidbridge.SquidAstVisitorContext;
 
 class CxxLexerWithPreprocessingTest {
 
+  @RegisterExtension
+  private final LogTesterJUnit5 logTester = new LogTesterJUnit5();
+
   private Lexer lexer;
   private SquidAstVisitorContext<Grammar> context;
 
@@ -634,6 +643,98 @@ class CxxLexerWithPreprocessingTest {
     softly.assertAll();
   }
 
+  @Test
+  void quotedIncludesAreWorking() throws IOException {
+    context = mock(SquidAstVisitorContext.class);
+    var file = new File("/home/joe/file.cc");
+    when(context.getFile()).thenReturn(file);
+    var pp = spy(new CxxPreprocessor(context, new CxxSquidConfiguration()));
+    var include = spy(new PPInclude(pp, file.toPath()));
+    when(include.searchFile(anyString(), eq(true))).thenReturn(Path.of("file.h"));
+    doReturn("#define A B\n").when(include).getSourceCode(any(), any());
+    when(pp.include()).thenReturn(include);
+
+    lexer = CxxLexerPool.create(pp, new JoinStringsPreprocessor()).getLexer();
+    List<Token> tokens = lexer.lex("""
+                                   #  include   "file.h" // comment
+                                   A
+                                   """);
+    assertThat(tokens).extracting(Token::getValue).containsExactly("B", "EOF");
+    // quoted file names are handled without the line parser
+    verify(include).searchFile("file.h", true);
+    verify(include, never()).searchFile(any(AstNode.class));
+  }
+
+  @Test
+  void cachedDirectivesAreLocatedInTheirFile() throws IOException {
+    logTester.setLevel(Level.DEBUG);
+    context = mock(SquidAstVisitorContext.class);
+    var file = new File("/home/joe/file.cc");
+    when(context.getFile()).thenReturn(file);
+    var pp = spy(new CxxPreprocessor(context, new CxxSquidConfiguration()));
+    var include = spy(new PPInclude(pp, file.toPath()));
+    when(include.searchFile(anyString(), eq(true)))
+      .thenAnswer(i -> Path.of("/home/joe", i.getArgument(0, String.class)));
+    doReturn(null).when(include).searchFile("missing.h", false);
+    // the same directive lines in both files, the second file uses the cached lines
+    doReturn("#include <missing.h>\n").when(include).getSourceCode(eq(Path.of("/home/joe/a.h")), any());
+    doReturn("\n\n#include <missing.h>\n").when(include).getSourceCode(eq(Path.of("/home/joe/b.h")), any());
+    when(pp.include()).thenReturn(include);
+
+    lexer = CxxLexerPool.create(pp, new JoinStringsPreprocessor()).getLexer();
+    List<Token> tokens = lexer.lex("""
+                                   #include "a.h"
+                                   import foo;
+                                   #include "b.h"
+
+                                   import foo;
+                                   """);
+
+    assertThat(tokens).extracting(Token::getValue).containsExactly("import", "foo", ";", "import", "foo", ";", "EOF");
+    assertThat(tokens).extracting(Token::getLine).containsExactly(2, 2, 2, 5, 5, 5, 6);
+    assertThat(logTester.logs(Level.DEBUG))
+      .contains("[" + Path.of("/home/joe/a.h").toAbsolutePath() + ":1]: preprocessor cannot find include file "
+                  + "'#include <missing.h>'")
+      .contains("[" + Path.of("/home/joe/b.h").toAbsolutePath() + ":3]: preprocessor cannot find include file "
+                  + "'#include <missing.h>'");
+  }
+
+  @Test
+  void objectLikeMacroDefinitions() {
+    List<Token> tokens = lexer.lex("""
+                                   #define A 1
+                                   #  define  B A + 2 // comment
+                                   #define EMPTY
+                                   #define F(x) x
+                                   #define G (3)
+                                   #define H_ 4 ## 5
+                                   B EMPTY F(6) G H_
+                                   """);
+
+    assertThat(tokens).extracting(Token::getValue)
+      .containsExactly("1", "+", "2", "6", "(", "3", ")", "45", "EOF");
+  }
+
+  @Test
+  void tokenValuesOfMacroExpansionsArePooled() {
+    var pool = new TokenValuePool();
+    var pp = new CxxPreprocessor(context, new CxxSquidConfiguration(), pool);
+    var pooledLexer = CxxLexerPool.create(Charset.defaultCharset(), pool, pp, new JoinStringsPreprocessor())
+      .getLexer();
+    String value = pool.intern(new String("value"));
+
+    List<Token> tokens = pooledLexer.lex("""
+                                         #define A value
+                                         #define F(x) x + value
+                                         import value;
+                                         A F(value) value
+                                         """);
+
+    // object-like and function-like expansion, macro argument, import line and source share one instance
+    assertThat(tokens).filteredOn(token -> "value".equals(token.getValue())).hasSize(5)
+      .allSatisfy(token -> assertThat(token.getValue()).isSameAs(value));
+  }
+
   @Test
   void macroReplacementInIncludesIsWorking() {
     List<Token> tokens = lexer.lex("""
@@ -678,6 +779,85 @@ class CxxLexerWithPreprocessingTest {
     softly.assertAll();
   }
 
+  @Test
+  void conditionalCompilationSimpleDirectives() {
+    List<Token> tokens = lexer.lex("""
+                                   #define LALA
+                                   #  ifndef  LALA // comment
+                                     111
+                                   #else /* comment */
+                                     #ifdef LALA
+                                       222
+                                     #endif
+                                   #endif
+                                   #undef LALA
+                                   #ifdef LALA
+                                     333
+                                   #  endif
+                                   #define LALA
+                                   #if defined(LALA)
+                                     444
+                                   #endif
+                                   """);
+
+    assertThat(tokens).extracting(Token::getValue).containsExactly("222", "444", "EOF");
+  }
+
+  @Test
+  void expandingRedefinedNestedMacros() {
+    List<Token> tokens = lexer.lex("""
+                                   #define A B
+                                   #define B 1
+                                   A
+                                   #undef B
+                                   #define B 2
+                                   A
+                                   """);
+
+    assertThat(tokens).extracting(Token::getValue).containsExactly("1", "2", "EOF");
+  }
+
+  @Test
+  void conditionalCompilationInactiveBlocks() {
+    List<Token> tokens = lexer.lex("""
+                                   #if 0
+                                     int a; int b;
+                                     #if this is (not parsable
+                                       111
+                                     #elif 1
+                                       222
+                                     #else
+                                       333
+                                     #endif
+                                     #define DEAD 1
+                                     #include "missing.h"
+                                   #elif 1
+                                     444 DEAD
+                                   #else
+                                     555
+                                   #endif
+                                   """);
+
+    assertThat(tokens).extracting(Token::getValue).containsExactly("444", "DEAD", "EOF");
+  }
+
+  @Test
+  void conditionalCompilationInactiveTokensAreSkippedOneByOne() {
+    List<Token> tokens = lexer.lex("""
+                                   #if 0
+                                   "inactive" /* comment */ + 1;
+                                   #endif
+                                   x
+                                   """);
+
+    assertThat(tokens).extracting(Token::getValue).containsExactly("x", "EOF");
+    // one skipped text trivia per token, the comment keeps its position
+    assertThat(tokens.get(0).getTrivia())
+      .extracting(trivia -> trivia.isComment() ? "comment"
+                            : trivia.getTokens().size() + ":" + trivia.getToken().getValue())
+      .containsExactly("1:#if 0", "1:\"inactive\"", "1:+", "comment", "1:1", "1:;", "1:#endif");
+  }
+
   // Proper separation of parameterized macros and macros expand to a string enclosed
   // in parentheses
   @Test
@@ -167,6 +167,16 @@ class CxxParserTest {
     verify(root, erroneousSources, map);
   }
 
+  @SuppressWarnings("unchecked")
+  @Test
+  void testFinishedParsingWithoutParser() {
+    SquidAstVisitorContext<Grammar> unknown = mock(SquidAstVisitorContext.class);
+    var dependencies = CxxParser.finishedParsing(unknown);
+    assertThat(dependencies.includedFiles()).isEmpty();
+    assertThat(dependencies.includeLookups()).isEmpty();
+    CxxParser.finishedAnalysis(unknown);
+  }
+
   private List<File> listFiles(String[] dirs, String[] extensions) {
     var files = new ArrayList<File>();
     for (var dir : dirs) {
@@ -197,7 +207,7 @@ class CxxParserTest {
     AstNode root = null;
     try {
       root = parser.parse(file);
-      CxxParser.finishedParsing();
+      CxxParser.finishedParsing(context);
     } catch (Exception e) {
       throw new IllegalStateException(file.toString(), e);
     }
@@ -0,0 +1,69 @@
+/*
+ * C++ Community Plugin (cxx plugin)
+ * Copyright (C) 2010-2024 SonarOpenCommunity
+ * http://github.com/SonarOpenCommunity/sonar-cxx
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.cxx.preprocessor;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import static org.assertj.core.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class IncludeLookupTest {
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void searchInOrder() throws IOException {
+    var dir1 = Files.createDirectories(tempDir.resolve("dir1"));
+    var dir2 = Files.createDirectories(tempDir.resolve("dir2"));
+    var dirs = List.of(dir1, dir2);
+    assertThat(IncludeLookup.search("a.h", dirs)).isNull();
+
+    var file2 = Files.createFile(dir2.resolve("a.h"));
+    assertThat(IncludeLookup.search("a.h", dirs)).isEqualTo(file2);
+
+    var file1 = Files.createFile(dir1.resolve("a.h"));
+    assertThat(IncludeLookup.search("a.h", dirs)).isEqualTo(file1);
+    assertThat(IncludeLookup.search(file2.toString(), List.of())).isEqualTo(file2);
+  }
+
+  @Test
+  void upToDate() throws IOException {
+    var dir1 = Files.createDirectories(tempDir.resolve("dir1"));
+    var dir2 = Files.createDirectories(tempDir.resolve("dir2"));
+    var file2 = Files.createFile(dir2.resolve("a.h"));
+    var found = new IncludeLookup("a.h", List.of(dir1, dir2), file2);
+    var missing = new IncludeLookup("b.h", List.of(dir1, dir2), null);
+    assertThat(found.isUpToDate()).isTrue();
+    assertThat(missing.isUpToDate()).isTrue();
+
+    // a file in an earlier directory hides the file found before
+    Files.createFile(dir1.resolve("a.h"));
+    assertThat(found.isUpToDate()).isFalse();
+
+    // a missing file can be found now
+    Files.createFile(dir2.resolve("b.h"));
+    assertThat(missing.isUpToDate()).isFalse();
+  }
+
+}
@@ -19,8 +19,14 @@
  */
 package org.sonar.cxx.preprocessor;
 
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectOutputStream;
 import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
 import static org.assertj.core.api.Assertions.*;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -75,6 +81,42 @@ class MacroContainerTest {
     assertThat(mc.get("k")).isEqualTo("v");
   }
 
+  @Test
+  void disableNested() {
+    mc.put("k", "v");
+    mc.pushDisable("k");
+    mc.pushDisable("k");
+    mc.popDisable();
+    assertThat(mc.get("k")).isNull();
+    mc.popDisable();
+    assertThat(mc.get("k")).isEqualTo("v");
+  }
+
+  @Test
+  void layer() {
+    mc.put("k1", "v1");
+    mc.put("k2", "v2");
+    var layer = new MacroContainer<>(mc);
+
+    assertThat(layer.get("k1")).isEqualTo("v1");
+    assertThat(layer.put("k1", "x1")).isEqualTo("v1");
+    assertThat(layer.remove("k2")).isEqualTo("v2");
+    layer.put("k3", "x3");
+
+    assertThat(layer.get("k1")).isEqualTo("x1");
+    assertThat(layer.get("k2")).isNull();
+    assertThat(layer.get("k3")).isEqualTo("x3");
+    assertThat(layer).hasToString("[x1, x3]");
+
+    // parent is unchanged
+    assertThat(mc.get("k1")).isEqualTo("v1");
+    assertThat(mc.get("k2")).isEqualTo("v2");
+    assertThat(mc.get("k3")).isNull();
+
+    assertThat(layer.put("k2", "x2")).isNull();
+    assertThat(layer.get("k2")).isEqualTo("x2");
+  }
+
   @Test
   void persistentStorage(@TempDir Path tempDir) throws IOException, ClassNotFoundException {
     Path fileName = tempDir.resolve("container.test");
@@ -88,6 +130,19 @@ class MacroContainerTest {
 
     assertThat(mc.get("key1")).isEqualTo("value1");
     assertThat(mc.get("key2")).isNull();
+    mc.popDisable();
+    assertThat(mc.get("key2")).isEqualTo("value3");
+  }
+
+  @Test
+  void persistentStorageRejectsOtherClasses(@TempDir Path tempDir) throws IOException {
+    Path fileName = tempDir.resolve("container.test");
+    try (var oos = new ObjectOutputStream(new FileOutputStream(fileName.toFile()))) {
+      oos.writeObject(new HashMap<String, File>(Map.of("key1", new File("value1"))));
+    }
+
+    assertThatThrownBy(() -> mc.readFromFile(fileName.toString()))
+      .isInstanceOf(InvalidClassException.class);
   }
 
 }
@@ -406,6 +406,34 @@ class PPExpressionTest {
     assertThat(evaluate("defined(LALA)")).isFalse();
   }
 
+  @Test
+  void valuesExceedingLong() {
+    var softly = new SoftAssertions();
+    softly.assertThat(evaluate("0xFFFFFFFFFFFFFFFF == 18446744073709551615")).isTrue();
+    softly.assertThat(evaluate("~0 == 0xFFFFFFFFFFFFFFFF")).isTrue();
+    softly.assertThat(evaluate("~0 > 0")).isTrue();
+    softly.assertThat(evaluate("(1 << 63) > 0")).isTrue();
+    softly.assertThat(evaluate("(1 << 64) == 0")).isTrue();
+    softly.assertThat(evaluate("9223372036854775807 + 1 > 9223372036854775807")).isTrue();
+    softly.assertThat(evaluate("-9223372036854775807 - 2 < -9223372036854775807")).isTrue();
+    softly.assertThat(evaluate("4294967296 * 4294967296 == 0")).isFalse();
+    softly.assertThat(evaluate("-1 >> 70 == -1")).isTrue();
+    softly.assertThat(evaluate("-7 % 3 == 2")).isTrue();
+    softly.assertAll();
+  }
+
+  @Test
+  void compiledExpressionReadsMacros() {
+    doReturn(PPMacro.create("#define X 3")).when(pp).getMacro("X");
+    assertThat(evaluate("defined(X) && X >= 3")).isTrue();
+
+    doReturn(PPMacro.create("#define X 2")).when(pp).getMacro("X");
+    assertThat(evaluate("defined(X) && X >= 3")).isFalse();
+
+    doReturn(null).when(pp).getMacro("X");
+    assertThat(evaluate("defined(X) && X >= 3")).isFalse();
+  }
+
   @Test
   void throwOnInvalidExpressions() {
     EvaluationException thrown = catchThrowableOfType(EvaluationException.class, () -> {
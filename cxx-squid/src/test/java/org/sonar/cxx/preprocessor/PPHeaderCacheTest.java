@@ -0,0 +1,169 @@
+/*
+ * C++ Community Plugin (cxx plugin)
+ * Copyright (C) 2010-2024 SonarOpenCommunity
+ * http://github.com/SonarOpenCommunity/sonar-cxx
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.cxx.preprocessor;
+
+import com.sonar.cxx.sslr.api.Grammar;
+import com.sonar.cxx.sslr.api.Token;
+import com.sonar.cxx.sslr.impl.Lexer;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import static org.assertj.core.api.Assertions.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import org.sonar.cxx.config.CxxSquidConfiguration;
+import org.sonar.cxx.parser.CxxLexerPool;
+import org.sonar.cxx.squidbridge.SquidAstVisitorContext;
+
+class PPHeaderCacheTest {
+
+  @TempDir
+  Path tempDir;
+
+  private CxxSquidConfiguration squidConfig;
+  private SquidAstVisitorContext<Grammar> context;
+  private CxxPreprocessor pp;
+  private Lexer lexer;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    Files.writeString(tempDir.resolve("h.h"), """
+      #ifdef FEATURE
+      #define VALUE 1
+      #else
+      #define VALUE 2
+      #endif
+      #include "n.h"
+      """);
+    Files.writeString(tempDir.resolve("n.h"), "#define NESTED 3\n");
+
+    squidConfig = new CxxSquidConfiguration();
+    context = mock(SquidAstVisitorContext.class);
+    pp = new CxxPreprocessor(context, squidConfig);
+    lexer = CxxLexerPool.create(pp).getLexer();
+  }
+
+  @Test
+  void sharedPerConfiguration() {
+    assertThat(PPHeaderCache.of(squidConfig)).isSameAs(pp.headerCache());
+    assertThat(PPHeaderCache.of(new CxxSquidConfiguration())).isNotSameAs(pp.headerCache());
+
+    // another preprocessor (worker) of the analysis replays the include files read by the first one
+    assertThat(lex("a.cpp", "#include \"h.h\"\nVALUE NESTED")).isEqualTo("2 3");
+    SquidAstVisitorContext<Grammar> workerContext = mock(SquidAstVisitorContext.class);
+    var workerLexer = CxxLexerPool.create(new CxxPreprocessor(workerContext, squidConfig)).getLexer();
+    assertThat(lex(workerContext, workerLexer, "b.cpp", "#include \"h.h\"\nVALUE NESTED")).isEqualTo("2 3");
+    assertThat(pp.headerCache().getHits()).isEqualTo(1);
+    assertThat(pp.headerCache().getMisses()).isEqualTo(2);
+  }
+
+  @Test
+  void concurrentWorkers() throws Exception {
+    var threads = 4;
+    var executor = Executors.newFixedThreadPool(threads);
+    try {
+      var tasks = new ArrayList<Callable<List<String>>>();
+      for (var i = 0; i < threads; i++) {
+        var worker = i;
+        tasks.add(() -> {
+          SquidAstVisitorContext<Grammar> workerContext = mock(SquidAstVisitorContext.class);
+          var workerLexer = CxxLexerPool.create(new CxxPreprocessor(workerContext, squidConfig)).getLexer();
+          var results = new ArrayList<String>();
+          for (var unit = 0; unit < 20; unit++) {
+            var feature = unit % 2 == 0 ? "" : "#define FEATURE\n";
+            results.add(lex(workerContext, workerLexer, "u" + worker + "_" + unit + ".cpp",
+                            feature + "#include \"h.h\"\nVALUE NESTED"));
+          }
+          return results;
+        });
+      }
+      for (var future : executor.invokeAll(tasks)) {
+        var results = future.get();
+        for (var unit = 0; unit < results.size(); unit++) {
+          assertThat(results.get(unit)).isEqualTo(unit % 2 == 0 ? "2 3" : "1 3");
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    var cache = PPHeaderCache.of(squidConfig);
+    assertThat(cache.getHits() + cache.getMisses()).isGreaterThanOrEqualTo(threads * 20);
+    assertThat(cache.getHits()).isPositive();
+  }
+
+  @Test
+  void replayIncludeFiles() {
+    assertThat(lex("a.cpp", "#include \"h.h\"\nVALUE NESTED")).isEqualTo("2 3");
+    assertThat(pp.headerCache().getHits()).isZero();
+    assertThat(pp.headerCache().getMisses()).isEqualTo(2);
+
+    // same input state: replay h.h (including the nested n.h)
+    assertThat(lex("b.cpp", "#include \"h.h\"\nVALUE NESTED")).isEqualTo("2 3");
+    assertThat(pp.include().getIncludedFiles()).containsOnly(
+      tempDir.resolve("h.h").toAbsolutePath(), tempDir.resolve("n.h").toAbsolutePath()
+    );
+    assertThat(pp.headerCache().getHits()).isEqualTo(1);
+    assertThat(pp.headerCache().getMisses()).isEqualTo(2);
+
+    // h.h tests FEATURE: read again, n.h can be replayed
+    assertThat(lex("c.cpp", "#define FEATURE\n#include \"h.h\"\nVALUE NESTED")).isEqualTo("1 3");
+    assertThat(pp.headerCache().getHits()).isEqualTo(2);
+    assertThat(pp.headerCache().getMisses()).isEqualTo(3);
+
+    // both variants of h.h are cached
+    assertThat(lex("d.cpp", "#define FEATURE\n#include \"h.h\"\nVALUE NESTED")).isEqualTo("1 3");
+    assertThat(lex("e.cpp", "#include \"h.h\"\nVALUE NESTED")).isEqualTo("2 3");
+    assertThat(pp.headerCache().getHits()).isEqualTo(4);
+    assertThat(pp.headerCache().getMisses()).isEqualTo(3);
+  }
+
+  @Test
+  void alreadyIncludedFiles() {
+    assertThat(lex("a.cpp", "#include \"h.h\"\nVALUE NESTED")).isEqualTo("2 3");
+
+    // n.h was already read: the summary of h.h is not valid
+    assertThat(lex("b.cpp", "#include \"n.h\"\n#undef NESTED\n#include \"h.h\"\nVALUE NESTED")).isEqualTo("2 NESTED");
+    assertThat(pp.headerCache().getHits()).isEqualTo(1); // n.h
+    assertThat(pp.headerCache().getMisses()).isEqualTo(3);
+  }
+
+  private String lex(String fileName, String source) {
+    return lex(context, lexer, fileName, source);
+  }
+
+  private String lex(SquidAstVisitorContext<Grammar> context, Lexer lexer, String fileName, String source) {
+    File file = tempDir.resolve(fileName).toFile();
+    when(context.getFile()).thenReturn(file);
+    List<Token> tokens = lexer.lex(source);
+    return tokens.subList(0, tokens.size() - 1).stream()
+      .map(Token::getValue)
+      .collect(Collectors.joining(" "));
+  }
+
+}
@@ -0,0 +1,103 @@
+/*
+ * C++ Community Plugin (cxx plugin)
+ * Copyright (C) 2010-2024 SonarOpenCommunity
+ * http://github.com/SonarOpenCommunity/sonar-cxx
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.cxx.preprocessor;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.assertj.core.api.Assertions.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.sonar.cxx.config.CxxSquidConfiguration;
+
+class PPIncludeIndexTest {
+
+  @TempDir
+  Path tempDir;
+
+  private PPIncludeIndex index;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    Files.createDirectories(tempDir.resolve("inc/sub"));
+    Files.createFile(tempDir.resolve("inc/a.h"));
+    Files.createFile(tempDir.resolve("inc/sub/b.h"));
+    index = PPIncludeIndex.of(new CxxSquidConfiguration());
+  }
+
+  @Test
+  void sharedPerConfiguration() {
+    var squidConfig = new CxxSquidConfiguration();
+    assertThat(PPIncludeIndex.of(squidConfig)).isSameAs(PPIncludeIndex.of(squidConfig));
+    assertThat(PPIncludeIndex.of(squidConfig)).isNotSameAs(index);
+  }
+
+  @Test
+  void exists() {
+    var dir = tempDir.resolve("inc");
+    assertThat(index.exists(dir.resolve("a.h"))).isTrue();
+    assertThat(index.exists(dir.resolve("sub/b.h"))).isTrue();
+    assertThat(index.exists(dir.resolve("b.h"))).isFalse();
+    assertThat(index.exists(dir.resolve("sub"))).isFalse(); // directory
+    assertThat(index.exists(dir.resolve("missing/a.h"))).isFalse();
+    assertThat(index.exists(dir.resolve("sub/../a.h"))).isTrue();
+  }
+
+  @Test
+  void includeDirectories() throws IOException {
+    var baseDir = tempDir.toString();
+    assertThat(index.getIncludeDirectory("inc", baseDir)).isEqualTo(tempDir.resolve("inc").toRealPath());
+    assertThat(index.getIncludeDirectory("inc/a.h", baseDir)).isNull();
+    assertThat(index.getIncludeDirectory("missing", baseDir)).isNull();
+  }
+
+  @Test
+  void includeDirListIds() {
+    var dirs1 = List.of(tempDir.resolve("inc"), tempDir.resolve("inc/sub"));
+    var dirs2 = List.of(tempDir.resolve("inc/sub"), tempDir.resolve("inc"));
+    int id = index.getIncludeDirListId(dirs1);
+    assertThat(index.getIncludeDirListId(List.copyOf(dirs1))).isEqualTo(id);
+    assertThat(index.getIncludeDirListId(dirs2)).isNotEqualTo(id);
+  }
+
+  @Test
+  void cachedSearches() {
+    var searches = new AtomicInteger();
+    var found = tempDir.resolve("inc/a.h");
+    var positive = new PPIncludeIndex.Lookup("a.h", false, List.of(), 0);
+    var negative = new PPIncludeIndex.Lookup("x.h", true, List.of(tempDir), 0);
+
+    for (int i = 0; i < 2; i++) {
+      assertThat(index.search(positive, () -> {
+        searches.incrementAndGet();
+        return found;
+      })).isEqualTo(found);
+      assertThat(index.search(negative, () -> {
+        searches.incrementAndGet();
+        return null;
+      })).isNull();
+    }
+    assertThat(searches).hasValue(2);
+  }
+
+}
@@ -35,6 +35,15 @@ class PPParserTest {
     assertThat(result.getRootRule().getName()).isEqualTo("preprocessorLine");
   }
 
+  @Test
+  void testSharedGrammar() {
+    Parser<Grammar> lineParser = PPParser.create(Charset.defaultCharset());
+    Parser<Grammar> expressionParser = PPParser.create(PPGrammarImpl.constantExpression, Charset.defaultCharset());
+    assertThat(expressionParser.getGrammar()).isSameAs(lineParser.getGrammar());
+    assertThat(expressionParser.getRootRule().getName()).isEqualTo("constantExpression");
+    assertThat(expressionParser.parse("1 + 2").getFirstDescendant(PPGrammarImpl.additiveExpression)).isNotNull();
+  }
+
   //@Test
   void testParse() {
     Parser<Grammar> result = PPParser.create(Charset.defaultCharset());
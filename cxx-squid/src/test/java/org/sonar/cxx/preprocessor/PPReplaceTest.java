@@ -30,6 +30,7 @@ import org.junit.jupiter.api.Test;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.when;
+import org.sonar.cxx.parser.CxxLexerPool;
 import org.sonar.cxx.squidbridge.SquidAstVisitorContext;
 
 class PPReplaceTest {
@@ -50,8 +51,9 @@ class PPReplaceTest {
 
   @Test
   void testReplaceObjectLikeMacro() {
-    PPMacro macro = pp.parseMacroDefinition("#define DUMMY"); // only necessary to call replaceObjectLikeMacro
-    List<Token> result = replace.replaceObjectLikeMacro(macro, "__LINE__");
+    PPMacro macro = pp.parseMacroDefinition("#define DUMMY __LINE__");
+    List<Token> result = replace.replaceObjectLikeMacro(macro,
+                                                       macro.getObjectLikeExpansion(CxxLexerPool.create().getLexer()));
     assertThat(result)
       .hasSize(1)
       .matches(t -> "1".equals(t.get(0).getValue()));
@@ -22,12 +22,17 @@ package org.sonar.cxx.preprocessor;
 import static com.sonar.cxx.sslr.api.GenericTokenType.IDENTIFIER;
 import com.sonar.cxx.sslr.api.Token;
 import com.sonar.cxx.sslr.impl.Lexer;
+import com.sonar.cxx.sslr.impl.TokenValuePool;
 import com.sonar.cxx.sslr.impl.token.TokenUtils;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.Charset;
 import java.util.List;
 import static org.assertj.core.api.Assertions.assertThat;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.sonar.cxx.parser.CxxKeyword;
+import org.sonar.cxx.parser.CxxLexerPool;
 import org.sonar.cxx.parser.CxxPunctuator;
 
 class TokenListTest {
@@ -55,11 +60,34 @@ class TokenListTest {
   void testTransformToCxx() {
     List<Token> ppTokens = lexer.lex("break ;"); // CxxKeyword CxxPunctuator
     Token newPos = TokenUtils.tokenBuilder(IDENTIFIER, "NewPos", 10, 20);
-    List<Token> result = TokenList.transformToCxx(ppTokens, newPos);
+    List<Token> result = TokenList.transformToCxx(CxxLexerPool.create().getLexer(), ppTokens, newPos);
     assertThat(result)
       .hasSize(2) // no WS and EOF
       .matches(t -> CxxKeyword.BREAK.equals(t.get(0).getType()))
       .matches(t -> CxxPunctuator.SEMICOLON.equals(t.get(1).getType()));
   }
 
+  @Test
+  void testTransformToCxxPosition() throws URISyntaxException {
+    List<Token> ppTokens = lexer.lex("import foo;");
+    Token newPos = Token.builder(TokenUtils.tokenBuilder(IDENTIFIER, "NewPos", 10, 20))
+      .setURI(new URI("file:///home/joe/file.h"))
+      .build();
+    List<Token> result = TokenList.transformToCxx(CxxLexerPool.create().getLexer(), ppTokens, newPos);
+    // the tokens are located in the file of newPos
+    assertThat(result).extracting(Token::getURI).containsOnly(newPos.getURI());
+    assertThat(result).extracting(Token::getLine).containsOnly(10);
+    assertThat(result).extracting(Token::getColumn).containsExactly(20, 27, 30);
+  }
+
+  @Test
+  void testTransformToCxxPoolsValues() {
+    var pool = new TokenValuePool();
+    var cxxLexer = CxxLexerPool.create(Charset.defaultCharset(), pool).getLexer();
+    List<Token> ppTokens = lexer.lex("std");
+    Token newPos = TokenUtils.tokenBuilder(IDENTIFIER, "NewPos", 10, 20);
+    List<Token> result = TokenList.transformToCxx(cxxLexer, ppTokens, newPos);
+    assertThat(result.get(0).getValue()).isSameAs(pool.intern(new String("std")));
+  }
+
 }
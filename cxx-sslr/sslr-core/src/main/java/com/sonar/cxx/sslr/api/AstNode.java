@@ -24,6 +24,7 @@
 package com.sonar.cxx.sslr.api; // cxx: in use
 
 import com.sonar.cxx.sslr.impl.matcher.RuleDefinition;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -86,7 +87,7 @@ public class AstNode {
    */
   public void addChild(@Nullable AstNode child) {
     if (child != null) {
-      if (children.isEmpty()) {
+      if (children == Collections.<AstNode>emptyList()) {
         children = new ArrayList<>();
       }
       if (child.hasToBeSkippedFromAst()) {
@@ -101,12 +102,44 @@ public class AstNode {
     }
   }
 
+  /**
+   * Add children to this node, see {@link #addChild(AstNode)}.
+   *
+   * @param nodes AstNodes to add
+   */
+  public void addChildren(List<AstNode> nodes) {
+    if (!nodes.isEmpty() && children.isEmpty()) {
+      children = new ArrayList<>(nodes.size());
+    }
+    for (int i = 0; i < nodes.size(); i++) {
+      addChild(nodes.get(i));
+    }
+  }
+
   private void addChildToList(AstNode child) {
     children.add(child);
     child.childIndex = children.size() - 1;
     child.parent = this;
   }
 
+  /**
+   * Links all descendants of this node to the node containing them (parent and sibling index). Only required if
+   * nodes have been added to several nodes, e.g. by a parser reusing nodes after backtracking.
+   */
+  public void linkDescendants() {
+    var nodes = new ArrayDeque<AstNode>();
+    nodes.push(this);
+    while (!nodes.isEmpty()) {
+      var node = nodes.pop();
+      for (int i = 0; i < node.children.size(); i++) {
+        var child = node.children.get(i);
+        child.childIndex = i;
+        child.parent = node;
+        nodes.push(child);
+      }
+    }
+  }
+
   /**
    * Check if this node has children.
    *
@@ -142,12 +175,11 @@ public class AstNode {
    * @since 1.17
    */
   public AstNode getNextAstNode() {
-    var nextSibling = getNextSibling();
-    if (nextSibling != null) {
-      return nextSibling;
-    }
-    if (parent != null) {
-      return parent.getNextAstNode();
+    for (var node = this; node != null; node = node.parent) {
+      var nextSibling = node.getNextSibling();
+      if (nextSibling != null) {
+        return nextSibling;
+      }
     }
     return null;
   }
@@ -161,12 +193,11 @@ public class AstNode {
    * @since 1.17
    */
   public AstNode getPreviousAstNode() {
-    var previousSibling = getPreviousSibling();
-    if (previousSibling != null) {
-      return previousSibling;
-    }
-    if (parent != null) {
-      return parent.getPreviousAstNode();
+    for (var node = this; node != null; node = node.parent) {
+      var previousSibling = node.getPreviousSibling();
+      if (previousSibling != null) {
+        return previousSibling;
+      }
     }
     return null;
   }
@@ -391,14 +422,17 @@ public class AstNode {
    * @since 1.17
    */
   public AstNode getFirstDescendant(AstNodeType... nodeTypes) {
-    for (var child : children) {
-      if (child.is(nodeTypes)) {
-        return child;
-      }
-      var node = child.getFirstDescendant(nodeTypes);
-      if (node != null) {
+    if (!hasChildren()) {
+      return null;
+    }
+    var nodes = new ArrayDeque<AstNode>();
+    pushChildren(nodes, this);
+    while (!nodes.isEmpty()) {
+      var node = nodes.pop();
+      if (node.is(nodeTypes)) {
         return node;
       }
+      pushChildren(nodes, node);
     }
     return null;
   }
@@ -458,23 +492,27 @@ public class AstNode {
   public List<AstNode> getDescendants(AstNodeType... nodeTypes) {
     List<AstNode> result = new ArrayList<>();
     if (hasChildren()) {
-      for (var child : children) {
-        child.getDescendants(result, nodeTypes);
+      var nodes = new ArrayDeque<AstNode>();
+      pushChildren(nodes, this);
+      while (!nodes.isEmpty()) {
+        var node = nodes.pop();
+        for (var nodeType : nodeTypes) {
+          if (node.is(nodeType)) {
+            result.add(node);
+          }
+        }
+        pushChildren(nodes, node);
       }
     }
     return result;
   }
 
-  private void getDescendants(List<AstNode> result, AstNodeType... nodeTypes) {
-    for (var nodeType : nodeTypes) {
-      if (is(nodeType)) {
-        result.add(this);
-      }
-    }
-    if (hasChildren()) {
-      for (var child : children) {
-        child.getDescendants(result, nodeTypes);
-      }
+  /**
+   * Pushes the children of a node in reverse order, so that they are popped in document order.
+   */
+  private static void pushChildren(ArrayDeque<AstNode> nodes, AstNode node) {
+    for (int i = node.children.size() - 1; i >= 0; i--) {
+      nodes.push(node.children.get(i));
     }
   }
 
@@ -586,13 +624,14 @@ public class AstNode {
    * @since 1.17
    */
   public AstNode getFirstAncestor(AstNodeType nodeType) {
-    if (parent == null) {
-      return null;
-    } else if (parent.is(nodeType)) {
-      return parent;
-    } else {
-      return parent.getFirstAncestor(nodeType);
+    var result = parent;
+    while (result != null) {
+      if (result.is(nodeType)) {
+        return result;
+      }
+      result = result.parent;
     }
+    return null;
   }
 
   /**
@@ -640,20 +679,19 @@ public class AstNode {
    */
   public List<Token> getTokens() {
     List<Token> tokens = new ArrayList<>();
-    getTokens(tokens);
-    return tokens;
-  }
-
-  private void getTokens(List<Token> tokens) {
-    if (!hasChildren()) {
-      if (token != null) {
-        tokens.add(token);
-      }
-    } else {
-      for (int i = 0; i < children.size(); i++) {
-        children.get(i).getTokens(tokens);
+    var nodes = new ArrayDeque<AstNode>();
+    nodes.push(this);
+    while (!nodes.isEmpty()) {
+      var node = nodes.pop();
+      if (!node.hasChildren()) {
+        if (node.token != null) {
+          tokens.add(node.token);
+        }
+      } else {
+        pushChildren(nodes, node);
       }
     }
+    return tokens;
   }
 
   /**
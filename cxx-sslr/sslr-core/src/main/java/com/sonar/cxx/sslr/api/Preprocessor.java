@@ -113,6 +113,13 @@ public abstract class Preprocessor {
    * list parameter is immutable.
    * </p>
    *
+   * <p>
+   * The tokens list parameter is only valid during this call: the lexer reuses it for the following calls, so it
+   * always shows the tokens remaining at the time of the access, and it fails with an IllegalStateException once the
+   * preprocessor has seen all tokens. A preprocessor must therefore not keep a reference to the list (or to a sub list
+   * of it) after returning, but copy the tokens it needs later.
+   * </p>
+   *
    * @param tokens
    * An unmodifiable list of the remaining tokens.
    * @return
@@ -35,6 +35,9 @@ import javax.annotation.Nullable;
  * Tokens are string of character like an identifier, a literal, an integer, ... which are produced by the lexer to feed
  * the parser. By definition, comments and preprocessing directives should not be seen by the parser that's why such
  * Trivia, when they exist, are attached to the next token.
+ *
+ * Tokens are the most frequent objects of an analysis, so the layout is kept compact: equal value and original value
+ * share one string and the rarely used copy book information is stored in an optional side object.
  */
 public final class Token {
 
@@ -46,22 +49,19 @@ public final class Token {
   private final URI uri;
   private final boolean generatedCode;
   private final List<Trivia> trivia;
-  private final boolean copyBook;
-  private final int copyBookOriginalLine;
-  private final String copyBookOriginalFileName;
+  @Nullable
+  private final CopyBook copyBook;
 
   private Token(Builder builder) {
     this.type = builder.type;
     this.value = builder.value;
-    this.originalValue = builder.originalValue;
+    this.originalValue = builder.value.equals(builder.originalValue) ? builder.value : builder.originalValue;
     this.line = builder.line;
     this.column = builder.column;
     this.uri = builder.uri;
     this.generatedCode = builder.generatedCode;
     this.trivia = builder.trivia.isEmpty() ? Collections.emptyList() : new ArrayList<>(builder.trivia);
     this.copyBook = builder.copyBook;
-    this.copyBookOriginalLine = builder.copyBookOriginalLine;
-    this.copyBookOriginalFileName = builder.copyBookOriginalFileName;
   }
 
   /**
@@ -120,7 +120,7 @@ public final class Token {
   }
 
   public boolean isCopyBook() {
-    return copyBook;
+    return copyBook != null;
   }
 
   /**
@@ -152,11 +152,11 @@ public final class Token {
   }
 
   public int getCopyBookOriginalLine() {
-    return copyBookOriginalLine;
+    return copyBook != null ? copyBook.originalLine() : -1;
   }
 
   public String getCopyBookOriginalFileName() {
-    return copyBookOriginalFileName;
+    return copyBook != null ? copyBook.originalFileName() : "";
   }
 
   /**
@@ -206,9 +206,7 @@ public final class Token {
     private int column = -1;
     private List<Trivia> trivia = Collections.emptyList();
     private boolean generatedCode = false;
-    private boolean copyBook = false;
-    private int copyBookOriginalLine = -1;
-    private String copyBookOriginalFileName = "";
+    private CopyBook copyBook = null;
 
     private Builder() {
     }
@@ -223,8 +221,6 @@ public final class Token {
       trivia = token.trivia;
       generatedCode = token.generatedCode;
       copyBook = token.copyBook;
-      copyBookOriginalLine = token.copyBookOriginalLine;
-      copyBookOriginalFileName = token.copyBookOriginalFileName;
     }
 
     /**
@@ -353,9 +349,7 @@ public final class Token {
      * @since 1.17
      */
     public Builder notCopyBook() {
-      this.copyBook = false;
-      this.copyBookOriginalLine = -1;
-      this.copyBookOriginalFileName = "";
+      this.copyBook = null;
       return this;
     }
 
@@ -369,9 +363,7 @@ public final class Token {
     public Builder setCopyBook(@Nonnull String copyBookOriginalFileName, int copyBookOriginalLine) {
       Objects.requireNonNull(copyBookOriginalFileName, "copyBookOriginalFileName cannot be null");
 
-      this.copyBook = true;
-      this.copyBookOriginalFileName = copyBookOriginalFileName;
-      this.copyBookOriginalLine = copyBookOriginalLine;
+      this.copyBook = new CopyBook(copyBookOriginalFileName, copyBookOriginalLine);
       return this;
     }
 
@@ -396,4 +388,11 @@ public final class Token {
     }
   }
 
+  /**
+   * Original filename and line number of a copy book token.
+   */
+  private static record CopyBook(String originalFileName, int originalLine) {
+
+  }
+
 }
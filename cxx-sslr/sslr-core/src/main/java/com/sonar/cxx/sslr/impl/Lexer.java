@@ -30,19 +30,20 @@ import com.sonar.cxx.sslr.api.Trivia;
 import java.io.File;
 import java.io.InputStreamReader;
 import java.io.Reader;
-import java.io.StringReader;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.nio.charset.Charset;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Objects;
+import java.util.RandomAccess;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import org.sonar.cxx.sslr.channel.Channel;
 import org.sonar.cxx.sslr.channel.ChannelDispatcher;
 import org.sonar.cxx.sslr.channel.CodeReader;
@@ -55,15 +56,17 @@ public final class Lexer {
   private final CodeReaderConfiguration configuration;
   private final ChannelDispatcher<Lexer> channelDispatcher;
   private final Preprocessor[] preprocessors;
+  private final TokenValuePool tokenValuePool;
 
   private URI uri;
-  private final List<Trivia> trivia = new LinkedList<>();
+  private final List<Trivia> trivia = new ArrayList<>();
   private List<Token> tokens = new ArrayList<>();
 
   private Lexer(Builder builder) {
     this.charset = builder.charset;
     this.preprocessors = builder.preprocessors.toArray(Preprocessor[]::new);
     this.configuration = builder.configuration;
+    this.tokenValuePool = builder.tokenValuePool;
     this.channelDispatcher = builder.getChannelDispatcher();
 
     try {
@@ -110,17 +113,20 @@ public final class Lexer {
     Objects.requireNonNull(sourceCode, "sourceCode cannot be null");
 
     try {
-      return lex(new StringReader(sourceCode));
+      return lex(new CodeReader(sourceCode, configuration));
     } catch (Exception e) {
       throw new LexerException("Unable to lex string source code \"" + sourceCode + "\"", e);
     }
   }
 
   private List<Token> lex(Reader reader) {
+    return lex(new CodeReader(reader, configuration));
+  }
+
+  private List<Token> lex(CodeReader code) {
     tokens = new ArrayList<>();
 
     initPreprocessors();
-    var code = new CodeReader(reader, configuration);
     try {
       channelDispatcher.consume(code, this);
 
@@ -141,26 +147,45 @@ public final class Lexer {
     }
   }
 
+  /**
+   * Each preprocessor reads the tokens of the previous stage and writes its tokens into a new list. The token lists of
+   * the stages are swapped instead of copied: the input list of a stage is reused for the output of the next but one
+   * stage.
+   */
   private void preprocess() {
+    List<Token> spare = null;
     for (var preprocessor : preprocessors) {
-      preprocess(preprocessor);
+      var input = tokens;
+      if (spare != null) {
+        spare.clear();
+        tokens = spare;
+      } else {
+        tokens = new ArrayList<>(input.size());
+      }
+      preprocess(preprocessor, input);
+      spare = input;
     }
   }
 
-  private void preprocess(Preprocessor preprocessor) {
-    var remainingTokens = Collections.unmodifiableList(new ArrayList<>(tokens));
-    tokens.clear();
+  private void preprocess(Preprocessor preprocessor, List<Token> input) {
+    var remainingTokens = new RemainingTokens(input);
+    try {
+      process(preprocessor, remainingTokens, input);
+    } finally {
+      remainingTokens.close();
+    }
+  }
 
-    int i = 0;
-    while (i < remainingTokens.size()) {
-      var action = preprocessor.process(remainingTokens.subList(i, remainingTokens.size()));
+  private void process(Preprocessor preprocessor, RemainingTokens remainingTokens, List<Token> input) {
+    while (remainingTokens.offset < input.size()) {
+      var action = preprocessor.process(remainingTokens);
       Objects.requireNonNull(action, "A preprocessor cannot return a null PreprocessorAction");
 
       addTrivia(action.getTriviaToInject());
 
       for (int j = 0; j < action.getNumberOfConsumedTokens(); j++) {
-        var removedToken = remainingTokens.get(i);
-        i++;
+        var removedToken = input.get(remainingTokens.offset);
+        remainingTokens.offset++;
         addTrivia(removedToken.getTrivia());
       }
 
@@ -169,8 +194,8 @@ public final class Lexer {
       }
 
       if (action.getNumberOfConsumedTokens() == 0) {
-        var removedToken = remainingTokens.get(i);
-        i++;
+        var removedToken = input.get(remainingTokens.offset);
+        remainingTokens.offset++;
         addTrivia(removedToken.getTrivia());
         addToken(removedToken);
       }
@@ -215,6 +240,17 @@ public final class Lexer {
     }
   }
 
+  /**
+   * Returns the pooled instance of a token value. Channels creating token values should use this method, so equal
+   * values share one instance.
+   *
+   * @param value token value
+   * @return a string equal to value
+   */
+  public String internTokenValue(String value) {
+    return tokenValuePool != null ? tokenValuePool.intern(value) : value;
+  }
+
   public List<Token> getTokens() {
     return Collections.unmodifiableList(tokens);
   }
@@ -227,6 +263,42 @@ public final class Lexer {
     return new Builder();
   }
 
+  /**
+   * Read-only view of the not yet processed tokens of a preprocessor stage. The view is reused for all calls of a stage
+   * (no sub list per token), so a preprocessor must not keep it after returning its action. The token list of a stage
+   * is reused by a later stage, therefore the view is closed at the end of its stage and fails instead of returning
+   * the tokens of another stage.
+   */
+  private static final class RemainingTokens extends AbstractList<Token> implements RandomAccess {
+
+    private final List<Token> tokens;
+    private int offset = 0;
+    private boolean closed = false;
+
+    private RemainingTokens(List<Token> tokens) {
+      this.tokens = tokens;
+    }
+
+    @Override
+    public Token get(int index) {
+      Objects.checkIndex(index, size());
+      return tokens.get(offset + index);
+    }
+
+    @Override
+    public int size() {
+      if (closed) {
+        throw new IllegalStateException("The tokens of a preprocessor stage cannot be used after the stage");
+      }
+      return tokens.size() - offset;
+    }
+
+    private void close() {
+      closed = true;
+    }
+
+  }
+
   public static final class Builder {
 
     private Charset charset = Charset.defaultCharset();
@@ -234,6 +306,7 @@ public final class Lexer {
     private final CodeReaderConfiguration configuration = new CodeReaderConfiguration();
     private final List<Channel<Lexer>> channels = new ArrayList<>();
     private boolean failIfNoChannelToConsumeOneCharacter = false;
+    private TokenValuePool tokenValuePool = null;
 
     private Builder() {
     }
@@ -262,6 +335,15 @@ public final class Lexer {
       return this;
     }
 
+    /**
+     * Share equal token values created by the channels, see {@link Lexer#internTokenValue(String)}. The default is
+     * null (no pooling).
+     */
+    public Builder withTokenValuePool(@Nullable TokenValuePool tokenValuePool) {
+      this.tokenValuePool = tokenValuePool;
+      return this;
+    }
+
     private ChannelDispatcher<Lexer> getChannelDispatcher() {
       var builder = ChannelDispatcher.builder()
         .addChannels(channels.toArray(Channel[]::new));
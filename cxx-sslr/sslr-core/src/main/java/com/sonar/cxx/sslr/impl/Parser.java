@@ -30,10 +30,18 @@ import com.sonar.cxx.sslr.api.Rule;
 import com.sonar.cxx.sslr.api.Token;
 import com.sonar.cxx.sslr.impl.matcher.RuleDefinition;
 import java.io.File;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 import org.sonar.cxx.sslr.internal.matchers.LexerfulAstCreator;
+import org.sonar.cxx.sslr.internal.matchers.ParseNode;
+import org.sonar.cxx.sslr.internal.vm.CompilableGrammarRule;
+import org.sonar.cxx.sslr.internal.vm.CompiledGrammar;
+import org.sonar.cxx.sslr.internal.vm.ErrorLocatingHandler;
 import org.sonar.cxx.sslr.internal.vm.Machine;
 import org.sonar.cxx.sslr.internal.vm.MutableGrammarCompiler;
+import org.sonar.cxx.sslr.internal.vm.RuleProfilingHandler;
 import org.sonar.cxx.sslr.parser.ParserAdapter;
 
 /**
@@ -44,10 +52,26 @@ import org.sonar.cxx.sslr.parser.ParserAdapter;
  */
 public class Parser<G extends Grammar> {
 
+  // grammars compiled from their root rule, shared by all parsers of a grammar (e.g. the workers of an analysis)
+  private static final Map<Grammar, CompiledGrammar> compiledGrammars
+    = Collections.synchronizedMap(new WeakHashMap<>());
+
   private RuleDefinition rootRule;
+  private CompiledGrammar compiledGrammar;
   private final Lexer lexer;
   private final G grammar;
 
+  // duration of the phases of the last parse in nanoseconds
+  private long lexerTime;
+  private long parserTime;
+  private long astCreatorTime;
+  private int tokenCount;
+
+  private int memoCapacity = Machine.DEFAULT_MEMO_CAPACITY;
+  private boolean ruleProfiling = false;
+  private boolean createAstWhileParsing = true;
+  private List<RuleProfile> ruleProfiles = Collections.emptyList();
+
   /**
    * @since 1.16
    */
@@ -63,27 +87,180 @@ public class Parser<G extends Grammar> {
   }
 
   public AstNode parse(File file) {
+    resetTimes();
+    long start = System.nanoTime();
     try {
       lexer.lex(file);
     } catch (LexerException e) {
       throw new RecognitionException(e);
+    } finally {
+      lexerTime = System.nanoTime() - start;
     }
-    return parse(lexer.getTokens());
+    return parseTokens(lexer.getTokens());
   }
 
   public AstNode parse(String source) {
+    resetTimes();
+    long start = System.nanoTime();
     try {
       lexer.lex(source);
     } catch (LexerException e) {
       throw new RecognitionException(e);
+    } finally {
+      lexerTime = System.nanoTime() - start;
     }
-    return parse(lexer.getTokens());
+    return parseTokens(lexer.getTokens());
   }
 
   public AstNode parse(List<Token> tokens) {
-    // TODO can be compiled only once
-    var g = MutableGrammarCompiler.compile(rootRule);
-    return LexerfulAstCreator.create(Machine.parse(tokens, g), tokens);
+    resetTimes();
+    return parseTokens(tokens);
+  }
+
+  /**
+   * Duration of lexing (including preprocessing) of the last parse.
+   *
+   * @return duration in nanoseconds
+   */
+  public long getLexerTime() {
+    return lexerTime;
+  }
+
+  /**
+   * Duration of parsing the tokens of the last parse.
+   *
+   * @return duration in nanoseconds
+   */
+  public long getParserTime() {
+    return parserTime;
+  }
+
+  /**
+   * Duration of creating the AST of the last parse. 0 if the AST is created while parsing, see
+   * {@link #setCreateAstWhileParsing(boolean)}.
+   *
+   * @return duration in nanoseconds
+   */
+  public long getAstCreatorTime() {
+    return astCreatorTime;
+  }
+
+  /**
+   * Number of tokens of the last parse.
+   *
+   * @return number of tokens
+   */
+  public int getTokenCount() {
+    return tokenCount;
+  }
+
+  /**
+   * Limit the memory used for memoization of rule results. A smaller capacity saves memory, but rules that have been
+   * evicted from the memo table are parsed again.
+   *
+   * @param memoCapacity maximum number of memoized rule results per parse
+   */
+  public void setMemoCapacity(int memoCapacity) {
+    this.memoCapacity = memoCapacity;
+  }
+
+  /**
+   * Enable or disable the profiling of the grammar rules. Profiling slows down the parser and is disabled by default.
+   *
+   * @param ruleProfiling true to collect the values returned by {@link #getRuleProfiles()}
+   */
+  public void setRuleProfiling(boolean ruleProfiling) {
+    this.ruleProfiling = ruleProfiling;
+  }
+
+  /**
+   * Create the AST while parsing (default) or afterwards from the parse tree. Creating the AST while parsing saves
+   * creating the parse tree, the AST creation is then part of the parser time.
+   *
+   * @param createAstWhileParsing false to create the AST from the parse tree
+   */
+  public void setCreateAstWhileParsing(boolean createAstWhileParsing) {
+    this.createAstWhileParsing = createAstWhileParsing;
+  }
+
+  /**
+   * Measured values of the grammar rules of the last parse, rules causing most re-parsing first. The list is empty if
+   * rule profiling is disabled.
+   *
+   * @return measured values per rule
+   */
+  public List<RuleProfile> getRuleProfiles() {
+    return ruleProfiles;
+  }
+
+  private AstNode parseTokens(List<Token> tokens) {
+    tokenCount = tokens.size();
+    long start = System.nanoTime();
+    ParseNode parseNode;
+    RuleProfilingHandler profilingHandler = null;
+    try {
+      var g = getCompiledGrammar();
+      ErrorLocatingHandler handler;
+      if (ruleProfiling) {
+        profilingHandler = new RuleProfilingHandler();
+        handler = profilingHandler;
+      } else {
+        handler = new ErrorLocatingHandler();
+      }
+      if (createAstWhileParsing) {
+        return Machine.parseToAst(tokens, g, handler, memoCapacity);
+      }
+      parseNode = Machine.parse(tokens, g, handler, memoCapacity);
+    } finally {
+      parserTime = System.nanoTime() - start;
+      if (profilingHandler != null) {
+        ruleProfiles = profilingHandler.getRuleProfiles();
+      }
+    }
+    start = System.nanoTime();
+    try {
+      return LexerfulAstCreator.create(parseNode, tokens);
+    } finally {
+      astCreatorTime = System.nanoTime() - start;
+    }
+  }
+
+  // @VisibleForTesting
+  CompiledGrammar getCompiledGrammar() {
+    var result = compiledGrammar;
+    if (result == null || !result.isUpToDate()) {
+      result = compile();
+      compiledGrammar = result;
+    }
+    return result;
+  }
+
+  /**
+   * The grammar is compiled only once from its root rule, the root rule of the parser is an entry point into these
+   * instructions. Only a root rule that is not part of the grammar (e.g. in unit tests) is compiled separately.
+   */
+  private CompiledGrammar compile() {
+    if (grammar.getRootRule() instanceof CompilableGrammarRule grammarRootRule
+      && grammarRootRule.getExpression() != null) {
+      var shared = compiledGrammars.get(grammar);
+      if (shared == null || !shared.isUpToDate()) {
+        shared = MutableGrammarCompiler.compile(grammarRootRule);
+        compiledGrammars.put(grammar, shared);
+      }
+      var result = shared.withRootRule(rootRule.getRuleKey());
+      if (result != null && result.getMatcher(rootRule.getRuleKey()) == rootRule) {
+        return result;
+      }
+    }
+    return MutableGrammarCompiler.compile(rootRule);
+  }
+
+  private void resetTimes() {
+    lexerTime = 0;
+    parserTime = 0;
+    astCreatorTime = 0;
+    tokenCount = 0;
+    ruleProfiles = Collections.emptyList();
   }
 
   public G getGrammar() {
@@ -96,6 +273,7 @@ public class Parser<G extends Grammar> {
 
   public void setRootRule(Rule rootRule) {
     this.rootRule = (RuleDefinition) rootRule;
+    compiledGrammar = null;
   }
 
   public static <G extends Grammar> Builder<G> builder(G grammar) {
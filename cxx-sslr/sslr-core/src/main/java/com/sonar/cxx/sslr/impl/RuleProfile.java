@@ -0,0 +1,60 @@
+/*
+ * C++ Community Plugin (cxx plugin)
+ * Copyright (C) 2022-2024 SonarOpenCommunity
+ * http://github.com/SonarOpenCommunity/sonar-cxx
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.cxx.sslr.impl;
+
+import java.util.Comparator;
+
+/**
+ * Measured values of a grammar rule, see {@link Parser#setRuleProfiling(boolean)}.
+ *
+ * A rule which fails after having consumed tokens causes re-parsing: the tokens are parsed again by the next
+ * alternative. {@link #backtrackedTokens()} sums up the tokens thrown away this way and is the best indicator for the
+ * rules (grammar alternatives) that are thrashing.
+ *
+ * @param rule name of the rule
+ * @param invocations number of times the rule was executed (memo hits not included)
+ * @param matches number of successful executions
+ * @param backtracks number of failed executions
+ * @param memoHits number of times the result of the rule was taken from the memo table
+ * @param backtrackedTokens number of tokens consumed by failed executions
+ * @param time time spent in the rule (including sub-rules) in nanoseconds
+ */
+public record RuleProfile(String rule, long invocations, long matches, long backtracks, long memoHits,
+  long backtrackedTokens, long time) {
+
+  /**
+   * Order by re-parsing caused by the rule, most first.
+   */
+  public static final Comparator<RuleProfile> BY_BACKTRACKED_TOKENS = Comparator
+    .comparingLong(RuleProfile::backtrackedTokens)
+    .thenComparingLong(RuleProfile::backtracks)
+    .thenComparingLong(RuleProfile::time)
+    .reversed();
+
+  /**
+   * Sum of the values of two profiles of the same rule.
+   */
+  public RuleProfile add(RuleProfile other) {
+    return new RuleProfile(rule, invocations + other.invocations, matches + other.matches,
+      backtracks + other.backtracks, memoHits + other.memoHits, backtrackedTokens + other.backtrackedTokens,
+      time + other.time);
+  }
+
+}
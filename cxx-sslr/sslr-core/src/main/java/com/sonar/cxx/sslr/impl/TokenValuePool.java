@@ -0,0 +1,91 @@
+/*
+ * C++ Community Plugin (cxx plugin)
+ * Copyright (C) 2022-2024 SonarOpenCommunity
+ * http://github.com/SonarOpenCommunity/sonar-cxx
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.cxx.sslr.impl;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread-safe pool of token values.
+ *
+ * Identifiers and numbers such as {@code std}, {@code size_t} or {@code 0} occur millions of times in large
+ * translation units. Lexers sharing a pool return the same string instance for equal token values, so only one copy
+ * of each value stays on the heap for the duration of a run (e.g. one analysis).
+ *
+ * Only short values are pooled and the pool stops growing after a maximum number of values, long and rare values
+ * (e.g. string literals) are returned unchanged.
+ */
+public final class TokenValuePool {
+
+  public static final int DEFAULT_MAX_VALUE_LENGTH = 64;
+  public static final int DEFAULT_MAX_SIZE = 1 << 20;
+
+  private final Map<String, String> values = new ConcurrentHashMap<>();
+  private final AtomicInteger size = new AtomicInteger();
+  private final int maxValueLength;
+  private final int maxSize;
+
+  public TokenValuePool() {
+    this(DEFAULT_MAX_VALUE_LENGTH, DEFAULT_MAX_SIZE);
+  }
+
+  /**
+   * @param maxValueLength longer values are not pooled
+   * @param maxSize maximum number of values in the pool
+   */
+  public TokenValuePool(int maxValueLength, int maxSize) {
+    this.maxValueLength = maxValueLength;
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * Returns the pooled instance of a token value.
+   *
+   * @param value token value
+   * @return a string equal to value, the pooled instance if the value is pooled
+   */
+  public String intern(String value) {
+    if (value.length() > maxValueLength) {
+      return value;
+    }
+    var pooled = values.get(value);
+    if (pooled != null) {
+      return pooled;
+    }
+    if (size.get() >= maxSize) {
+      return value;
+    }
+    pooled = values.putIfAbsent(value, value);
+    if (pooled != null) {
+      return pooled;
+    }
+    size.incrementAndGet();
+    return value;
+  }
+
+  /**
+   * @return number of pooled values
+   */
+  public int size() {
+    return size.get();
+  }
+
+}
@@ -36,10 +36,17 @@ import java.util.Map;
 
 public final class AstWalker {
 
+  private static final AstVisitor[] NO_VISITORS = new AstVisitor[0];
+  private static final int INITIAL_DEPTH = 64;
+
   private final Map<AstNodeType, AstVisitor[]> visitorsByNodeType = new IdentityHashMap<>();
   private final List<AstVisitor> visitors = new ArrayList<>();
   private AstAndTokenVisitor[] astAndTokenVisitors = new AstAndTokenVisitor[0];
   private Token lastVisitedToken = null;
+  private int visitedNodes = 0;
+
+  // cumulative time per visitor in nanoseconds, null if profiling is disabled
+  private Map<AstVisitor, long[]> visitorTimes = null;
 
   public AstWalker(AstVisitor... visitors) {
     this(Arrays.asList(visitors));
@@ -63,9 +70,54 @@ public final class AstWalker {
       tokenVisitorsList.add(astAndTokenVisitor);
       astAndTokenVisitors = tokenVisitorsList.toArray(AstAndTokenVisitor[]::new);
     }
+    if (visitorTimes != null) {
+      visitorTimes.putIfAbsent(visitor, new long[1]);
+    }
+  }
+
+  /**
+   * Measure the time spent in the visitors (visitFile, visitNode, visitToken, leaveNode and leaveFile). Measuring
+   * slows down the walk, so it is disabled by default.
+   */
+  public void enableProfiling() {
+    if (visitorTimes == null) {
+      visitorTimes = new IdentityHashMap<>();
+      for (var visitor : visitors) {
+        visitorTimes.put(visitor, new long[1]);
+      }
+    }
+  }
+
+  /**
+   * Cumulative time spent in the visitors over all walks since profiling was enabled.
+   *
+   * @return time in nanoseconds per visitor, empty if profiling is disabled
+   */
+  public Map<AstVisitor, Long> getVisitorTimes() {
+    var result = new IdentityHashMap<AstVisitor, Long>();
+    if (visitorTimes != null) {
+      for (var entry : visitorTimes.entrySet()) {
+        result.put(entry.getKey(), entry.getValue()[0]);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Number of AST nodes visited by the last walk.
+   *
+   * @return number of nodes
+   */
+  public int getVisitedNodes() {
+    return visitedNodes;
   }
 
   public void walkAndVisit(AstNode ast) {
+    visitedNodes = 0;
+    if (visitorTimes != null) {
+      profiledWalkAndVisit(ast);
+      return;
+    }
     for (var visitor : visitors) {
       visitor.visitFile(ast);
     }
@@ -75,23 +127,62 @@ public final class AstWalker {
     }
   }
 
+  /**
+   * Visits the node and its descendants depth-first. Level i of the arrays holds the node at depth i of the current
+   * path, its visitors and the index of its next child.
+   */
   private void visit(AstNode ast) {
+    var nodes = new AstNode[INITIAL_DEPTH];
+    var nodeVisitors = new AstVisitor[INITIAL_DEPTH][];
+    var nextChildren = new int[INITIAL_DEPTH];
+    nodes[0] = ast;
+    nodeVisitors[0] = enter(ast);
+    int depth = 1;
+    while (depth > 0) {
+      int top = depth - 1;
+      var children = nodes[top].getChildren();
+      if (nextChildren[top] < children.size()) {
+        var child = children.get(nextChildren[top]++);
+        if (depth == nodes.length) {
+          nodes = Arrays.copyOf(nodes, depth * 2);
+          nodeVisitors = Arrays.copyOf(nodeVisitors, depth * 2);
+          nextChildren = Arrays.copyOf(nextChildren, depth * 2);
+        }
+        nodes[depth] = child;
+        nodeVisitors[depth] = enter(child);
+        nextChildren[depth] = 0;
+        depth++;
+      } else {
+        leave(nodes[top], nodeVisitors[top]);
+        depth--;
+      }
+    }
+  }
+
+  private AstVisitor[] enter(AstNode ast) {
+    visitedNodes++;
     var nodeVisitors = getNodeVisitors(ast);
-    visitNode(ast, nodeVisitors);
-    visitToken(ast);
-    visitChildren(ast);
-    leaveNode(ast, nodeVisitors);
+    if (visitorTimes == null) {
+      visitNode(ast, nodeVisitors);
+      visitToken(ast);
+    } else {
+      profiledVisitNode(ast, nodeVisitors);
+      profiledVisitToken(ast);
+    }
+    return nodeVisitors;
   }
 
-  private static void leaveNode(AstNode ast, AstVisitor[] nodeVisitors) {
-    for (int i = nodeVisitors.length - 1; i >= 0; i--) {
-      nodeVisitors[i].leaveNode(ast);
+  private void leave(AstNode ast, AstVisitor[] nodeVisitors) {
+    if (visitorTimes == null) {
+      leaveNode(ast, nodeVisitors);
+    } else {
+      profiledLeaveNode(ast, nodeVisitors);
     }
   }
 
-  private void visitChildren(AstNode ast) {
-    for (var child : ast.getChildren()) {
-      visit(child);
+  private static void leaveNode(AstNode ast, AstVisitor[] nodeVisitors) {
+    for (int i = nodeVisitors.length - 1; i >= 0; i--) {
+      nodeVisitors[i].leaveNode(ast);
     }
   }
 
@@ -110,12 +201,55 @@ public final class AstWalker {
     }
   }
 
+  private void profiledWalkAndVisit(AstNode ast) {
+    for (var visitor : visitors) {
+      long start = System.nanoTime();
+      visitor.visitFile(ast);
+      addTime(visitor, start);
+    }
+    visit(ast);
+    for (int i = visitors.size() - 1; i >= 0; i--) {
+      var visitor = visitors.get(i);
+      long start = System.nanoTime();
+      visitor.leaveFile(ast);
+      addTime(visitor, start);
+    }
+  }
+
+  private void profiledVisitNode(AstNode ast, AstVisitor[] nodeVisitors) {
+    for (var nodeVisitor : nodeVisitors) {
+      long start = System.nanoTime();
+      nodeVisitor.visitNode(ast);
+      addTime(nodeVisitor, start);
+    }
+  }
+
+  private void profiledVisitToken(AstNode ast) {
+    if (ast.getToken() != null && lastVisitedToken != ast.getToken()) {
+      lastVisitedToken = ast.getToken();
+      for (var astAndTokenVisitor : astAndTokenVisitors) {
+        long start = System.nanoTime();
+        astAndTokenVisitor.visitToken(lastVisitedToken);
+        addTime(astAndTokenVisitor, start);
+      }
+    }
+  }
+
+  private void profiledLeaveNode(AstNode ast, AstVisitor[] nodeVisitors) {
+    for (int i = nodeVisitors.length - 1; i >= 0; i--) {
+      long start = System.nanoTime();
+      nodeVisitors[i].leaveNode(ast);
+      addTime(nodeVisitors[i], start);
+    }
+  }
+
+  private void addTime(AstVisitor visitor, long start) {
+    visitorTimes.get(visitor)[0] += System.nanoTime() - start;
+  }
+
   private AstVisitor[] getNodeVisitors(AstNode ast) {
     var nodeVisitors = visitorsByNodeType.get(ast.getType());
-    if (nodeVisitors == null) {
-      nodeVisitors = new AstVisitor[0];
-    }
-    return nodeVisitors;
+    return nodeVisitors == null ? NO_VISITORS : nodeVisitors;
   }
 
   private void putAstVisitors(AstNodeType type, List<AstVisitor> visitors) {
@@ -31,6 +31,7 @@ import com.sonar.cxx.sslr.impl.Lexer;
 import java.io.IOException;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import javax.annotation.Nullable;
 
 /**
  * Allows to skip characters, which match given regular expression.
@@ -42,13 +43,29 @@ import java.util.regex.Pattern;
  */
 public class BlackHoleChannel extends Channel<Lexer> {
 
+  /**
+   * Characters matched by "\s": start characters of the channel removing whitespace characters.
+   */
+  public static final String WHITESPACE_CHARACTERS = " \t\n\u000B\f\r";
+
   private final Matcher matcher;
+  private final String startCharacters;
 
   /**
    * @throws java.util.regex.PatternSyntaxException if the expression's syntax is invalid
    */
   public BlackHoleChannel(String regexp) {
+    this(regexp, null);
+  }
+
+  /**
+   * @param regexp regular expression of the characters to skip
+   * @param startCharacters characters a match can start with, null if unknown
+   * @throws java.util.regex.PatternSyntaxException if the expression's syntax is invalid
+   */
+  public BlackHoleChannel(String regexp, @Nullable String startCharacters) {
     matcher = Pattern.compile(regexp).matcher("");
+    this.startCharacters = startCharacters;
   }
 
   @Override
@@ -56,6 +73,11 @@ public class BlackHoleChannel extends Channel<Lexer> {
     return code.popTo(matcher, EmptyAppendable.INSTANCE) != -1;
   }
 
+  @Override
+  public boolean isStartCharacter(char ch) {
+    return startCharacters == null || startCharacters.indexOf(ch) >= 0;
+  }
+
   private static class EmptyAppendable implements Appendable {
 
     private static final Appendable INSTANCE = new EmptyAppendable();
@@ -30,6 +30,7 @@ import com.sonar.cxx.sslr.impl.Lexer;
 import com.sonar.cxx.sslr.impl.LexerException;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import javax.annotation.Nullable;
 import org.sonar.cxx.sslr.channel.Channel;
 import org.sonar.cxx.sslr.channel.CodeReader;
 
@@ -43,11 +44,21 @@ public class CommentRegexpChannel extends Channel<Lexer> {
   private final StringBuilder tmpBuilder = new StringBuilder();
   private final Matcher matcher;
   private final String regexp;
+  private final String startCharacters;
   private final Token.Builder tokenBuilder = Token.builder();
 
   public CommentRegexpChannel(String regexp) {
+    this(regexp, null);
+  }
+
+  /**
+   * @param regexp regular expression of the comments
+   * @param startCharacters characters a comment can start with, null if unknown
+   */
+  public CommentRegexpChannel(String regexp, @Nullable String startCharacters) {
     matcher = Pattern.compile(regexp).matcher("");
     this.regexp = regexp;
+    this.startCharacters = startCharacters;
   }
 
   @Override
@@ -80,4 +91,9 @@ public class CommentRegexpChannel extends Channel<Lexer> {
         e);
     }
   }
+
+  @Override
+  public boolean isStartCharacter(char ch) {
+    return startCharacters == null || startCharacters.indexOf(ch) >= 0;
+  }
 }
@@ -27,81 +27,102 @@ import com.sonar.cxx.sslr.api.Token;
 import com.sonar.cxx.sslr.api.TokenType;
 import com.sonar.cxx.sslr.impl.Lexer;
 import java.util.Arrays;
-import java.util.Comparator;
 import org.sonar.cxx.sslr.channel.Channel;
 import org.sonar.cxx.sslr.channel.CodeReader;
 
+/**
+ * Channel for punctuators and operators.
+ *
+ * The punctuators are stored in a trie, which is walked character by character with {@link CodeReader#charAt(int)}.
+ * This finds the longest matching punctuator without allocations and without comparing the input with all punctuators.
+ */
 public class PunctuatorChannel extends Channel<Lexer> {
 
-  private final int lookahead;
-  private final TokenType[] sortedPunctuators;
-  private final char[][] sortedPunctuatorsChars;
+  private final Node root = new Node();
   private final Token.Builder tokenBuilder = Token.builder();
 
-  private static class PunctuatorComparator implements Comparator<TokenType> {
+  public PunctuatorChannel(TokenType... punctuators) {
+    for (var punctuator : punctuators) {
+      var node = root;
+      for (var ch : punctuator.getValue().toCharArray()) {
+        node = node.add(ch);
+      }
+      if (node.punctuator == null) { // in case of duplicates the first one wins
+        node.punctuator = punctuator;
+      }
+    }
+  }
 
-    @Override
-    public int compare(TokenType a, TokenType b) {
-      if (a.getValue().length() == b.getValue().length()) {
-        return 0;
+  @Override
+  public boolean consume(CodeReader code, Lexer lexer) {
+    TokenType punctuator = null;
+    int length = 0;
+
+    var node = root;
+    for (int i = 0; (node = node.get(code.charAt(i))) != null; i++) {
+      if (node.punctuator != null) {
+        punctuator = node.punctuator;
+        length = i + 1;
       }
-      return a.getValue().length() > b.getValue().length() ? -1 : 1;
     }
 
-  }
+    if (punctuator == null) {
+      return false;
+    }
 
-  public PunctuatorChannel(TokenType... punctuators) {
-    sortedPunctuators = punctuators;
-    Arrays.sort(sortedPunctuators, new PunctuatorComparator());
+    var token = tokenBuilder
+      .setType(punctuator)
+      .setValueAndOriginalValue(punctuator.getValue())
+      .setURI(lexer.getURI())
+      .setLine(code.getLinePosition())
+      .setColumn(code.getColumnPosition())
+      .build();
 
-    sortedPunctuatorsChars = new char[sortedPunctuators.length][];
+    lexer.addToken(token);
 
-    int maxLength = 0;
-    for (int i = 0; i < sortedPunctuators.length; i++) {
-      sortedPunctuatorsChars[i] = sortedPunctuators[i].getValue().toCharArray();
-      maxLength = Math.max(maxLength, sortedPunctuatorsChars[i].length);
+    /* Advance the CodeReader stream by the length of the punctuator */
+    for (int i = 0; i < length; i++) {
+      code.pop();
     }
-    this.lookahead = maxLength;
+
+    return true;
   }
 
   @Override
-  public boolean consume(CodeReader code, Lexer lexer) {
-    var next = code.peek(lookahead);
-    for (int i = 0; i < sortedPunctuators.length; i++) {
-      if (arraysEquals(next, sortedPunctuatorsChars[i])) {
-        var token = tokenBuilder
-          .setType(sortedPunctuators[i])
-          .setValueAndOriginalValue(sortedPunctuators[i].getValue())
-          .setURI(lexer.getURI())
-          .setLine(code.getLinePosition())
-          .setColumn(code.getColumnPosition())
-          .build();
-
-        lexer.addToken(token);
-
-        /* Advance the CodeReader stream by the length of the punctuator */
-        for (int j = 0; j < sortedPunctuatorsChars[i].length; j++) {
-          code.pop();
-        }
-
-        return true;
-      }
-    }
-
-    return false;
+  public boolean isStartCharacter(char ch) {
+    return root.get(ch) != null;
   }
 
   /**
-   * Expected that length of second array can be less than length of first.
+   * Trie node: the children are stored in small parallel arrays, punctuator is set if a punctuator ends here.
    */
-  private static boolean arraysEquals(char[] a, char[] a2) {
-    int length = a2.length;
-    for (int i = 0; i < length; i++) {
-      if (a[i] != a2[i]) {
-        return false;
+  private static final class Node {
+
+    private char[] chars = new char[0];
+    private Node[] children = new Node[0];
+    private TokenType punctuator;
+
+    private Node get(char ch) {
+      for (int i = 0; i < chars.length; i++) {
+        if (chars[i] == ch) {
+          return children[i];
+        }
       }
+      return null;
     }
-    return true;
+
+    private Node add(char ch) {
+      var child = get(ch);
+      if (child == null) {
+        child = new Node();
+        chars = Arrays.copyOf(chars, chars.length + 1);
+        chars[chars.length - 1] = ch;
+        children = Arrays.copyOf(children, children.length + 1);
+        children[children.length - 1] = child;
+      }
+      return child;
+    }
+
   }
 
 }
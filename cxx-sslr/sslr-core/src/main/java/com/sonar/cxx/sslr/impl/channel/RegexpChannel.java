@@ -29,6 +29,7 @@ import com.sonar.cxx.sslr.impl.Lexer;
 import com.sonar.cxx.sslr.impl.LexerException;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import javax.annotation.Nullable;
 import org.sonar.cxx.sslr.channel.Channel;
 import org.sonar.cxx.sslr.channel.CodeReader;
 
@@ -43,15 +44,27 @@ public class RegexpChannel extends Channel<Lexer> {
   private final TokenType type;
   private final Matcher matcher;
   private final String regexp;
+  private final String startCharacters;
   private final Token.Builder tokenBuilder = Token.builder();
 
   /**
    * @throws java.util.regex.PatternSyntaxException if the expression's syntax is invalid
    */
   public RegexpChannel(TokenType type, String regexp) {
+    this(type, regexp, null);
+  }
+
+  /**
+   * @param type type of the created tokens
+   * @param regexp regular expression of the tokens
+   * @param startCharacters characters a token can start with, null if unknown
+   * @throws java.util.regex.PatternSyntaxException if the expression's syntax is invalid
+   */
+  public RegexpChannel(TokenType type, String regexp, @Nullable String startCharacters) {
     matcher = Pattern.compile(regexp).matcher("");
     this.type = type;
     this.regexp = regexp;
+    this.startCharacters = startCharacters;
   }
 
   @Override
@@ -84,4 +97,9 @@ public class RegexpChannel extends Channel<Lexer> {
         e);
     }
   }
+
+  @Override
+  public boolean isStartCharacter(char ch) {
+    return startCharacters == null || startCharacters.indexOf(ch) >= 0;
+  }
 }
@@ -48,6 +48,7 @@ public class RuleDefinition implements Rule, AstNodeSkippingPolicy, GrammarRuleK
   private final GrammarRuleKey ruleKey;
   private final String name;
   private ParsingExpression expression;
+  private int version;
   private AstNodeType astNodeSkippingPolicy = NeverSkipFromAst.INSTANCE;
   private boolean memoize = false;
 
@@ -129,9 +130,17 @@ public class RuleDefinition implements Rule, AstNodeSkippingPolicy, GrammarRuleK
 
   @Override
   public void setExpression(ParsingExpression expression) {
+    if (this.expression != null) {
+      version++;
+    }
     this.expression = expression;
   }
 
+  @Override
+  public int getVersion() {
+    return version;
+  }
+
   @Override
   public Instruction[] compile(CompilationHandler compiler) {
     return compiler.compile(new RuleRefExpression(getRuleKey()));
@@ -36,4 +36,20 @@ public abstract class Channel<O> {
    * @return false if the Channel doesn't want to consume the character stream, true otherwise.
    */
   public abstract boolean consume(CodeReader code, O output);
+
+  /**
+   * Tests whether the channel can consume a character stream starting with the given character. The
+   * {@link ChannelDispatcher} calls a channel only for the start characters it accepts. A channel must therefore accept
+   * every character it can consume, and every character it observes to update an internal state.
+   *
+   * Channels declare their start characters explicitly by overriding this method. The default implementation accepts
+   * all characters: a channel without declaration is offered every character.
+   *
+   * @param ch
+   *          first character of the character stream
+   * @return false if the Channel never consumes a character stream starting with this character, true otherwise.
+   */
+  public boolean isStartCharacter(char ch) {
+    return true;
+  }
 }
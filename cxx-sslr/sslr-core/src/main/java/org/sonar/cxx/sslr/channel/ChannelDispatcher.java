@@ -23,6 +23,7 @@
  */
 package org.sonar.cxx.sslr.channel; // cxx: in use
 
+import java.lang.reflect.Array;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -30,11 +31,35 @@ public final class ChannelDispatcher<O> extends Channel<O> {
 
   private final boolean failIfNoChannelToConsumeOneCharacter;
 
+  // ASCII characters are dispatched with a table, all others are offered to all channels
+  private static final int DISPATCH_TABLE_SIZE = 128;
+
   private final Channel<O>[] channels;
+  // channels accepting a start character, in the order they were added
+  private final Channel<O>[][] dispatchTable;
 
   private ChannelDispatcher(Builder builder) {
-    this.channels = builder.channels.toArray(Channel[]::new);
+    this.channels = builder.channels.toArray(newArray(Channel.class, 0));
     this.failIfNoChannelToConsumeOneCharacter = builder.failIfNoChannelToConsumeOneCharacter;
+    this.dispatchTable = newArray(Channel[].class, DISPATCH_TABLE_SIZE);
+    var candidates = new ArrayList<Channel<O>>(channels.length);
+    for (int i = 0; i < DISPATCH_TABLE_SIZE; i++) {
+      candidates.clear();
+      for (var channel : channels) {
+        if (channel.isStartCharacter((char) i)) {
+          candidates.add(channel);
+        }
+      }
+      dispatchTable[i] = candidates.toArray(newArray(Channel.class, candidates.size()));
+    }
+  }
+
+  /**
+   * Creates an array with a generic component type, e.g. {@code Channel<O>[]}.
+   */
+  @SuppressWarnings("unchecked")
+  private static <T> T[] newArray(Class<?> componentType, int length) {
+    return (T[]) Array.newInstance(componentType, length);
   }
 
   @Override
@@ -42,7 +67,8 @@ public final class ChannelDispatcher<O> extends Channel<O> {
     int nextChar = code.peek();
     while (nextChar != -1) {
       var characterConsumed = false;
-      for (var channel : channels) {
+      var candidates = nextChar < DISPATCH_TABLE_SIZE ? dispatchTable[nextChar] : channels;
+      for (var channel : candidates) {
         if (channel.consume(code, output)) {
           characterConsumed = true;
           break;
@@ -62,7 +88,7 @@ public final class ChannelDispatcher<O> extends Channel<O> {
     return true;
   }
 
-  Channel[] getChannels() {
+  Channel<O>[] getChannels() {
     return channels;
   }
 
@@ -75,18 +101,18 @@ public final class ChannelDispatcher<O> extends Channel<O> {
 
   public static final class Builder {
 
-    private final List<Channel> channels = new ArrayList<>();
+    private final List<Channel<?>> channels = new ArrayList<>();
     private boolean failIfNoChannelToConsumeOneCharacter = false;
 
     private Builder() {
     }
 
-    public Builder addChannel(Channel channel) {
+    public Builder addChannel(Channel<?> channel) {
       channels.add(channel);
       return this;
     }
 
-    public Builder addChannels(Channel... c) {
+    public Builder addChannels(Channel<?>... c) {
       for (var channel : c) {
         addChannel(channel);
       }
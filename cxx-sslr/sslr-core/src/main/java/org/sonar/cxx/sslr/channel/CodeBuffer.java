@@ -23,10 +23,10 @@
  */
 package org.sonar.cxx.sslr.channel;
 
+import java.io.CharArrayReader;
 import java.io.FilterReader;
 import java.io.IOException;
 import java.io.Reader;
-import java.io.StringReader;
 
 /**
  * The CodeBuffer class provides all the basic features required to manipulate a source code character stream. Those
@@ -54,20 +54,39 @@ public class CodeBuffer implements CharSequence {
   private StringBuilder recordedCharacters = new StringBuilder();
 
   protected CodeBuffer(String code, CodeReaderConfiguration configuration) {
-    this(new StringReader(code), configuration);
+    this(code.toCharArray(), configuration);
+  }
+
+  /**
+   * Without filters the buffer works directly on the array (no copy): the array must not be changed while the buffer is
+   * in use.
+   */
+  protected CodeBuffer(char[] code, CodeReaderConfiguration configuration) {
+    lastChar = -1;
+    cursor = new Cursor();
+    tabWidth = configuration.getTabWidth();
+
+    if (configuration.getCodeReaderFilters().length == 0) {
+      buffer = code;
+    } else {
+      buffer = read(new CharArrayReader(code), configuration);
+    }
   }
 
   /**
    * Note that this constructor will read everything from reader and will close it.
    */
   protected CodeBuffer(Reader initialCodeReader, CodeReaderConfiguration configuration) {
+    lastChar = -1;
+    cursor = new Cursor();
+    tabWidth = configuration.getTabWidth();
+    buffer = read(initialCodeReader, configuration);
+  }
+
+  private static char[] read(Reader initialCodeReader, CodeReaderConfiguration configuration) {
 
     /* Make sure the reader passed-in gets closed when done. */
     try (var reader = initialCodeReader) {
-      lastChar = -1;
-      cursor = new Cursor();
-      tabWidth = configuration.getTabWidth();
-
       var filteredReader = reader;
 
       /* Setup the filters on the reader */
@@ -77,7 +96,7 @@ public class CodeBuffer implements CharSequence {
 
       /* Make sure to close the filtered reader when done (cascading through the lot) */
       try (var usedReader = filteredReader) {
-        buffer = read(usedReader);
+        return read(usedReader);
       }
 
     } catch (IOException e) {
@@ -92,7 +111,9 @@ public class CodeBuffer implements CharSequence {
     while ((n = reader.read(str)) > 0) {
       sb.append(str, 0, n);
     }
-    return sb.toString().toCharArray();
+    var result = new char[sb.length()];
+    sb.getChars(0, sb.length(), result, 0);
+    return result;
   }
 
   /**
@@ -71,6 +71,17 @@ public class CodeReader extends CodeBuffer {
     super(code, configuration);
   }
 
+  /**
+   * Creates a code reader with specific configuration parameters. Without filters the code reader works directly on the
+   * array (no copy), the array must not be changed while the code reader is in use.
+   *
+   * @param code the code itself
+   * @param configuration the configuration parameters
+   */
+  public CodeReader(char[] code, CodeReaderConfiguration configuration) {
+    super(code, configuration);
+  }
+
   /**
    * Read and consume the next character
    *
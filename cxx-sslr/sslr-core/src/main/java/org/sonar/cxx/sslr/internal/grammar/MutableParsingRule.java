@@ -48,6 +48,7 @@ public class MutableParsingRule implements CompilableGrammarRule, Matcher, Rule,
   private final GrammarRuleKey ruleKey;
   private final String name;
   private ParsingExpression expression;
+  private int version;
   private AstNodeSkippingPolicy astNodeSkippingPolicy = NeverSkipFromAst.INSTANCE;
 
   public MutableParsingRule(String name) {
@@ -95,9 +96,17 @@ public class MutableParsingRule implements CompilableGrammarRule, Matcher, Rule,
 
   @Override
   public void setExpression(ParsingExpression expression) {
+    if (this.expression != null) {
+      version++;
+    }
     this.expression = expression;
   }
 
+  @Override
+  public int getVersion() {
+    return version;
+  }
+
   @Override
   public void skip() {
     astNodeSkippingPolicy = AlwaysSkipFromAst.INSTANCE;
@@ -81,7 +81,9 @@ public final class AstCreator {
   }
 
   public static AstNode create(ParsingResult parsingResult, LocatedText input) {
-    var astNode = new AstCreator(input).visit(parsingResult.getParseTreeRoot());
+    var creator = new AstCreator(input);
+    var astNode = ParseTreeAstBuilder.build(parsingResult.getParseTreeRoot(),
+      node -> node.getMatcher() instanceof MutableParsingRule, creator::visitTerminal, AstCreator::visitNonTerminal);
     if (astNode == null) {
       throw new IllegalStateException("create ParsingResult: "
         + parsingResult.toString()
@@ -92,14 +94,6 @@ public final class AstCreator {
     return astNode;
   }
 
-  private AstNode visit(ParseNode node) {
-    if (node.getMatcher() instanceof MutableParsingRule) {
-      return visitNonTerminal(node);
-    } else {
-      return visitTerminal(node);
-    }
-  }
-
   @CheckForNull
   private AstNode visitTerminal(ParseNode node) {
     if (node.getMatcher() instanceof TriviaExpression ruleMatcher) {
@@ -156,20 +150,8 @@ public final class AstCreator {
     tokenBuilder.setValueAndOriginalValue(value);
   }
 
-  private AstNode visitNonTerminal(ParseNode node) {
+  private static AstNode visitNonTerminal(ParseNode node, List<AstNode> astNodes) {
     var ruleMatcher = (MutableParsingRule) node.getMatcher();
-    List<AstNode> astNodes = new ArrayList<>();
-    for (var child : node.getChildren()) {
-      var astNode = visit(child);
-      if (astNode != null) {
-        if (astNode.hasToBeSkippedFromAst()) {
-          astNodes.addAll(astNode.getChildren());
-        } else {
-          astNodes.add(astNode);
-        }
-      }
-    }
-
     Token token = null;
     for (var child : astNodes) {
       if (child.getToken() != null) {
@@ -26,9 +26,9 @@ package org.sonar.cxx.sslr.internal.matchers; // cxx: in use
 import com.sonar.cxx.sslr.api.AstNode;
 import com.sonar.cxx.sslr.api.Token;
 import com.sonar.cxx.sslr.impl.matcher.RuleDefinition;
-import java.util.ArrayList;
 import java.util.List;
 import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
 import org.sonar.cxx.sslr.internal.vm.lexerful.TokenTypeExpression;
 
 public final class LexerfulAstCreator {
@@ -40,7 +40,9 @@ public final class LexerfulAstCreator {
   }
 
   public static AstNode create(ParseNode node, List<Token> tokens) {
-    var astNode = new LexerfulAstCreator(tokens).visit(node);
+    var creator = new LexerfulAstCreator(tokens);
+    var astNode = ParseTreeAstBuilder.build(node, n -> n.getMatcher() instanceof RuleDefinition,
+      creator::visitTerminal, creator::visitNonTerminal);
     if (astNode == null) {
       throw new IllegalStateException("create ParseNode: "
         + node.toString()
@@ -52,51 +54,62 @@ public final class LexerfulAstCreator {
     return astNode;
   }
 
-  private AstNode visit(ParseNode node) {
-    if (node.getMatcher() instanceof RuleDefinition) {
-      return visitNonTerminal(node);
-    } else {
-      return visitTerminal(node);
-    }
+  private AstNode visitNonTerminal(ParseNode node, List<AstNode> astNodes) {
+    var token = node.getStartIndex() < tokens.size() ? tokens.get(node.getStartIndex()) : null;
+    return createNonTerminal((RuleDefinition) node.getMatcher(), token, astNodes, node.getStartIndex(),
+      node.getEndIndex());
   }
 
-  private AstNode visitNonTerminal(ParseNode node) {
-    List<AstNode> astNodes = new ArrayList<>();
-    for (var child : node.getChildren()) {
-      var astNode = visit(child);
-      if (astNode == null) {
-        // skip
-      } else if (astNode.hasToBeSkippedFromAst()) {
-        astNodes.addAll(astNode.getChildren());
-      } else {
-        astNodes.add(astNode);
-      }
-    }
-
-    var ruleMatcher = (RuleDefinition) node.getMatcher();
-
-    var token = node.getStartIndex() < tokens.size() ? tokens.get(node.getStartIndex()) : null;
-    var astNode = new AstNode(ruleMatcher, ruleMatcher.getName(), token);
-    for (var child : astNodes) {
-      astNode.addChild(child);
-    }
-    astNode.setFromIndex(node.getStartIndex());
-    astNode.setToIndex(node.getEndIndex());
+  @CheckForNull
+  private AstNode visitTerminal(ParseNode node) {
+    return createTerminal(node.getMatcher(), tokens.get(node.getStartIndex()), node.getStartIndex(),
+      node.getEndIndex());
+  }
 
+  /**
+   * Creates the AST node of a rule.
+   *
+   * @param token first token of the rule, null at the end of the input
+   * @param children AST nodes of the sub rules and tokens, see {@link #addChild(List, AstNode)}
+   */
+  public static AstNode createNonTerminal(RuleDefinition rule, @Nullable Token token, List<AstNode> children,
+    int startIndex, int endIndex) {
+    var astNode = new AstNode(rule, rule.getName(), token);
+    astNode.addChildren(children);
+    astNode.setFromIndex(startIndex);
+    astNode.setToIndex(endIndex);
     return astNode;
   }
 
+  /**
+   * Creates the AST node of a token.
+   *
+   * @return AST node or null if the token has to be skipped
+   */
   @CheckForNull
-  private AstNode visitTerminal(ParseNode node) {
-    var token = tokens.get(node.getStartIndex());
+  public static AstNode createTerminal(Matcher matcher, Token token, int startIndex, int endIndex) {
     // For compatibility with SSLR < 1.19, TokenType should be checked only for TokenTypeExpression:
-    if ((node.getMatcher() instanceof TokenTypeExpression) && token.getType().hasToBeSkippedFromAst(null)) {
+    if ((matcher instanceof TokenTypeExpression) && token.getType().hasToBeSkippedFromAst(null)) {
       return null;
     }
     var astNode = new AstNode(token);
-    astNode.setFromIndex(node.getStartIndex());
-    astNode.setToIndex(node.getEndIndex());
+    astNode.setFromIndex(startIndex);
+    astNode.setToIndex(endIndex);
     return astNode;
   }
 
+  /**
+   * Adds an AST node to the children of a rule: a node that has to be skipped from the AST is replaced by its
+   * children.
+   */
+  public static void addChild(List<AstNode> children, @Nullable AstNode astNode) {
+    if (astNode == null) {
+      // skip
+    } else if (astNode.hasToBeSkippedFromAst()) {
+      children.addAll(astNode.getChildren());
+    } else {
+      children.add(astNode);
+    }
+  }
+
 }
@@ -0,0 +1,93 @@
+/*
+ * C++ Community Plugin (cxx plugin)
+ * Copyright (C) 2022-2024 SonarOpenCommunity
+ * http://github.com/SonarOpenCommunity/sonar-cxx
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.cxx.sslr.internal.matchers;
+
+import com.sonar.cxx.sslr.api.AstNode;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import javax.annotation.CheckForNull;
+
+/**
+ * Creates the AST of a parse tree bottom-up, used by {@link AstCreator} and {@link LexerfulAstCreator}.
+ *
+ * The rules whose AST nodes are being created are kept on an explicit stack instead of the call stack, the depth of
+ * the parse tree is not limited by the thread stack size.
+ */
+final class ParseTreeAstBuilder {
+
+  private ParseTreeAstBuilder() {
+  }
+
+  /**
+   * @param root root of the parse tree
+   * @param isRule tests if a parse node is a rule, all other nodes are terminals
+   * @param terminal creates the AST node of a terminal, null if it is not part of the AST
+   * @param nonTerminal creates the AST node of a rule from the AST nodes of its children
+   * @return AST node of the root
+   */
+  @CheckForNull
+  static AstNode build(ParseNode root, Predicate<ParseNode> isRule, Function<ParseNode, AstNode> terminal,
+    BiFunction<ParseNode, List<AstNode>, AstNode> nonTerminal) {
+    if (!isRule.test(root)) {
+      return terminal.apply(root);
+    }
+    var frames = new ArrayDeque<Frame>();
+    frames.push(new Frame(root));
+    while (true) {
+      var frame = frames.peek();
+      var children = frame.node.getChildren();
+      if (frame.nextChild < children.size()) {
+        var child = children.get(frame.nextChild++);
+        if (isRule.test(child)) {
+          frames.push(new Frame(child));
+        } else {
+          LexerfulAstCreator.addChild(frame.astNodes, terminal.apply(child));
+        }
+      } else {
+        frames.pop();
+        var astNode = nonTerminal.apply(frame.node, frame.astNodes);
+        if (frames.isEmpty()) {
+          return astNode;
+        }
+        LexerfulAstCreator.addChild(frames.peek().astNodes, astNode);
+      }
+    }
+  }
+
+  /**
+   * Rule of the parse tree whose AST node is being created.
+   */
+  private static final class Frame {
+
+    private final ParseNode node;
+    private final List<AstNode> astNodes = new ArrayList<>();
+    private int nextChild = 0;
+
+    private Frame(ParseNode node) {
+      this.node = node;
+    }
+
+  }
+
+}
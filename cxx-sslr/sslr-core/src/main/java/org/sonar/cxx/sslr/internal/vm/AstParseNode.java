@@ -0,0 +1,61 @@
+/*
+ * C++ Community Plugin (cxx plugin)
+ * Copyright (C) 2022-2024 SonarOpenCommunity
+ * http://github.com/SonarOpenCommunity/sonar-cxx
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.cxx.sslr.internal.vm;
+
+import com.sonar.cxx.sslr.api.AstNode;
+import java.util.List;
+import org.sonar.cxx.sslr.internal.matchers.Matcher;
+import org.sonar.cxx.sslr.internal.matchers.ParseNode;
+
+/**
+ * Node of a rule if the machine creates the AST while parsing: instead of sub nodes it holds the AST node of the rule.
+ * Used to memoize the result of a rule.
+ */
+final class AstParseNode extends ParseNode {
+
+  private final AstNode astNode;
+  private final boolean skipped;
+
+  AstParseNode(int startIndex, int endIndex, Matcher matcher, AstNode astNode) {
+    super(startIndex, endIndex, matcher);
+    this.astNode = astNode;
+    // must be decided once, the first call unwraps the type of the AST node
+    this.skipped = astNode.hasToBeSkippedFromAst();
+  }
+
+  AstNode getAstNode() {
+    return astNode;
+  }
+
+  /**
+   * Adds the AST node to the AST nodes of a rule, or its children if it has to be skipped from the AST.
+   */
+  void addTo(List<AstNode> astNodes) {
+    if (skipped) {
+      var children = astNode.getChildren();
+      for (int i = 0; i < children.size(); i++) {
+        astNodes.add(children.get(i));
+      }
+    } else {
+      astNodes.add(astNode);
+    }
+  }
+
+}
@@ -38,4 +38,10 @@ public interface CompilableGrammarRule extends Matcher, Rule, ParsingExpression
 
   ParsingExpression getExpression();
 
+  /**
+   * Returns how often the expression of the rule was replaced after its definition (e.g. with {@code override} in unit
+   * tests).
+   */
+  int getVersion();
+
 }
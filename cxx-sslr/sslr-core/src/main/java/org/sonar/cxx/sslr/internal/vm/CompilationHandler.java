@@ -23,10 +23,22 @@
  */
 package org.sonar.cxx.sslr.internal.vm; // cxx: in use
 
+import javax.annotation.CheckForNull;
+
 public class CompilationHandler {
 
   public Instruction[] compile(ParsingExpression expression) {
     return expression.compile(this);
   }
 
+  /**
+   * Returns the FIRST set of an expression, used to skip alternatives of a {@link FirstOfExpression}.
+   *
+   * @return FIRST set or null if unknown (no alternatives are skipped)
+   */
+  @CheckForNull
+  public FirstSet firstSet(ParsingExpression expression) {
+    return null;
+  }
+
 }
@@ -24,24 +24,56 @@
 package org.sonar.cxx.sslr.internal.vm; // cxx: in use
 
 import java.util.Map;
+import javax.annotation.CheckForNull;
 import org.sonar.cxx.sslr.grammar.GrammarRuleKey;
 import org.sonar.cxx.sslr.internal.matchers.Matcher;
 
+/**
+ * Instructions of a compiled grammar and the entry point (root rule) to execute them.
+ *
+ * A compiled grammar is immutable and can be shared by several {@link Machine machines}, also of different threads.
+ * The instructions contain all rules reachable from the rule the grammar was compiled with, each of them can be used
+ * as entry point ({@link #withRootRule(GrammarRuleKey)}) without compiling the grammar again.
+ */
 public class CompiledGrammar {
 
   private final Map<GrammarRuleKey, CompilableGrammarRule> rules;
+  private final Map<GrammarRuleKey, Integer> offsets;
   private final Instruction[] instructions;
   private final GrammarRuleKey rootRuleKey;
   private final int rootRuleOffset;
 
+  // versions of the rules at the time of compilation, to detect modified rules
+  private final CompilableGrammarRule[] compiledRules;
+  private final int[] compiledVersions;
+
   public CompiledGrammar(Instruction[] instructions, Map<GrammarRuleKey, CompilableGrammarRule> rules,
-    GrammarRuleKey rootRuleKey, int rootRuleOffset) {
+    Map<GrammarRuleKey, Integer> offsets, GrammarRuleKey rootRuleKey) {
     this.instructions = instructions;
-    this.rules = rules;
+    this.rules = Map.copyOf(rules);
+    this.offsets = Map.copyOf(offsets);
     this.rootRuleKey = rootRuleKey;
-    this.rootRuleOffset = rootRuleOffset;
+    this.rootRuleOffset = this.offsets.get(rootRuleKey);
+    this.compiledRules = this.rules.values().toArray(CompilableGrammarRule[]::new);
+    this.compiledVersions = new int[compiledRules.length];
+    for (int i = 0; i < compiledRules.length; i++) {
+      compiledVersions[i] = compiledRules[i].getVersion();
+    }
   }
 
+  private CompiledGrammar(CompiledGrammar grammar, GrammarRuleKey rootRuleKey) {
+    this.instructions = grammar.instructions;
+    this.rules = grammar.rules;
+    this.offsets = grammar.offsets;
+    this.rootRuleKey = rootRuleKey;
+    this.rootRuleOffset = offsets.get(rootRuleKey);
+    this.compiledRules = grammar.compiledRules;
+    this.compiledVersions = grammar.compiledVersions;
+  }
+
+  /**
+   * Returns the instructions. The array is shared and must not be modified.
+   */
   public Instruction[] getInstructions() {
     return instructions;
   }
@@ -58,4 +90,36 @@ public class CompiledGrammar {
     return rootRuleOffset;
   }
 
+  /**
+   * Returns the same instructions with another entry point.
+   *
+   * @param ruleKey key of the new root rule
+   * @return compiled grammar starting with the rule or null if the rule is not part of the compiled grammar
+   */
+  @CheckForNull
+  public CompiledGrammar withRootRule(GrammarRuleKey ruleKey) {
+    if (ruleKey.equals(rootRuleKey)) {
+      return this;
+    }
+    if (!offsets.containsKey(ruleKey)) {
+      return null;
+    }
+    return new CompiledGrammar(this, ruleKey);
+  }
+
+  /**
+   * Tests if one of the compiled rules has been modified after compilation (e.g. with {@code override} in unit tests).
+   * Rules of other grammars have no influence.
+   *
+   * @return true if the instructions are still valid
+   */
+  public boolean isUpToDate() {
+    for (int i = 0; i < compiledRules.length; i++) {
+      if (compiledRules[i].getVersion() != compiledVersions[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
 }
@@ -0,0 +1,103 @@
+/*
+ * C++ Community Plugin (cxx plugin)
+ * Copyright (C) 2022-2024 SonarOpenCommunity
+ * http://github.com/SonarOpenCommunity/sonar-cxx
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.cxx.sslr.internal.vm;
+
+import com.sonar.cxx.sslr.api.Token;
+import com.sonar.cxx.sslr.api.TokenType;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Alternatives of a {@link FirstOfExpression} which can match a token, shared by the dispatch instructions of the
+ * alternatives.
+ *
+ * Each alternative is represented by a bit in a mask (there are at most {@link #MAX_ALTERNATIVES} alternatives).
+ * Alternatives which are not {@link FirstSet#isSkippable() skippable} are candidates for every token.
+ */
+final class DispatchTable {
+
+  static final int MAX_ALTERNATIVES = Long.SIZE;
+
+  private final Map<TokenType, Long> types = new HashMap<>();
+  private final Map<String, Long> values = new HashMap<>();
+  private final long always;
+  private final long reportsError;
+  private final int[] addresses;
+
+  /**
+   * @param alternatives FIRST sets of the alternatives
+   * @param addresses address of the dispatch instruction of each alternative, relative to the first one
+   */
+  DispatchTable(FirstSet[] alternatives, int[] addresses) {
+    long alwaysMask = 0;
+    long reportsErrorMask = 0;
+    for (int i = 0; i < alternatives.length; i++) {
+      var alternative = alternatives[i];
+      long bit = 1L << i;
+      if (!alternative.isSkippable()) {
+        alwaysMask |= bit;
+      } else {
+        for (var type : alternative.getTypes()) {
+          types.merge(type, bit, (a, b) -> a | b);
+        }
+        for (var value : alternative.getValues()) {
+          values.merge(value, bit, (a, b) -> a | b);
+        }
+      }
+      if (alternative.reportsError()) {
+        reportsErrorMask |= bit;
+      }
+    }
+    this.always = alwaysMask;
+    this.reportsError = reportsErrorMask;
+    this.addresses = addresses.clone();
+  }
+
+  /**
+   * Returns the mask of the alternatives which can match a token.
+   */
+  long candidates(Token token) {
+    long result = always;
+    var type = types.get(token.getType());
+    if (type != null) {
+      result |= type;
+    }
+    var value = values.get(token.getValue());
+    if (value != null) {
+      result |= value;
+    }
+    return result;
+  }
+
+  /**
+   * Returns the mask of the alternatives which report an error if they fail at the first token.
+   */
+  long reportsError() {
+    return reportsError;
+  }
+
+  /**
+   * Returns the offset from the dispatch instruction of alternative {@code from} to the one of alternative {@code to}.
+   */
+  int offset(int from, int to) {
+    return addresses[to] - addresses[from];
+  }
+
+}
@@ -25,6 +25,7 @@ package org.sonar.cxx.sslr.internal.vm; // cxx: in use
 
 import com.sonar.cxx.sslr.api.RecognitionException;
 import java.util.Arrays;
+import javax.annotation.CheckForNull;
 
 public class FirstOfExpression implements ParsingExpression {
 
@@ -34,6 +35,10 @@ public class FirstOfExpression implements ParsingExpression {
     this.subExpressions = subExpressions;
   }
 
+  ParsingExpression[] getSubExpressions() {
+    return subExpressions;
+  }
+
   /**
    * Compiles this expression into a sequence of instructions:
    * <pre>
@@ -49,6 +54,23 @@ public class FirstOfExpression implements ParsingExpression {
    * L3: subExpression[3]
    * E: ...
    * </pre>
+   *
+   * If the FIRST sets of the sub expressions are known, alternatives which cannot match the current token are
+   * skipped. Each alternative starts with a dispatch instruction, which continues with the next alternative able to
+   * match the current token (after its dispatch instruction) or fails if there is none:
+   * <pre>
+   * L0: Dispatch 0
+   * Choice L1
+   * subExpression[0]
+   * Commit E
+   * L1: Dispatch 1
+   * Choice L2
+   * subExpression[1]
+   * Commit E
+   * L2: Dispatch 2
+   * subExpression[2]
+   * E: ...
+   * </pre>
    */
   @Override
   public Instruction[] compile(CompilationHandler compiler) {
@@ -61,6 +83,10 @@ public class FirstOfExpression implements ParsingExpression {
       sub[i] = compiler.compile(subExpressions[i]);
       index += sub[i].length;
     }
+    var firstSets = firstSets(compiler);
+    if (firstSets != null) {
+      return compileWithDispatch(sub, index, firstSets);
+    }
     var result = new Instruction[index + (subExpressions.length - 1) * 2];
 
     index = 0;
@@ -76,6 +102,51 @@ public class FirstOfExpression implements ParsingExpression {
     return result;
   }
 
+  /**
+   * Returns the FIRST sets of the sub expressions, or null if no alternative can be skipped.
+   */
+  @CheckForNull
+  private FirstSet[] firstSets(CompilationHandler compiler) {
+    if (subExpressions.length < 2 || subExpressions.length > DispatchTable.MAX_ALTERNATIVES) {
+      return null;
+    }
+    var result = new FirstSet[subExpressions.length];
+    boolean skippable = false;
+    for (int i = 0; i < subExpressions.length; i++) {
+      result[i] = compiler.firstSet(subExpressions[i]);
+      if (result[i] == null) {
+        return null;
+      }
+      skippable |= result[i].isSkippable();
+    }
+    return skippable ? result : null;
+  }
+
+  private static Instruction[] compileWithDispatch(Instruction[][] sub, int length, FirstSet[] firstSets) {
+    var result = new Instruction[length + sub.length * 3 - 2];
+    var addresses = new int[sub.length];
+    int index = 0;
+    for (int i = 0; i < sub.length; i++) {
+      addresses[i] = index;
+      index += sub[i].length + (i < sub.length - 1 ? 3 : 1);
+    }
+    var table = new DispatchTable(firstSets, addresses);
+
+    index = 0;
+    for (int i = 0; i < sub.length - 1; i++) {
+      result[index++] = Instruction.dispatch(table, i);
+      result[index] = Instruction.choice(sub[i].length + 2);
+      System.arraycopy(sub[i], 0, result, index + 1, sub[i].length);
+      index += sub[i].length + 1;
+      result[index] = Instruction.commit(result.length - index);
+      index++;
+    }
+    result[index++] = Instruction.dispatch(table, sub.length - 1);
+    System.arraycopy(sub[sub.length - 1], 0, result, index, sub[sub.length - 1].length);
+
+    return result;
+  }
+
   @Override
   public String toString() {
     return "FirstOf" + Arrays.toString(subExpressions);
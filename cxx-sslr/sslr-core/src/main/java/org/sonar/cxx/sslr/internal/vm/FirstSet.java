@@ -0,0 +1,159 @@
+/*
+ * C++ Community Plugin (cxx plugin)
+ * Copyright (C) 2022-2024 SonarOpenCommunity
+ * http://github.com/SonarOpenCommunity/sonar-cxx
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.cxx.sslr.internal.vm;
+
+import com.sonar.cxx.sslr.api.TokenType;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Tokens a parsing expression can start with (FIRST set), computed at compile time for lexerful grammars.
+ *
+ * A token is described by its type or by its value. An expression which does not start with a token (e.g. a lexerless
+ * expression) is described by {@link #ANY}. An expression can only consume input if the current token is part of its
+ * FIRST set, a nullable expression can also match without consuming a token.
+ *
+ * Besides, the set tells whether the expression reports an error (backtracks a rule) if it is executed with a token
+ * that is not part of its FIRST set. If such an expression is skipped, the error is reported nevertheless so that
+ * the location of a parse error does not change.
+ */
+public final class FirstSet {
+
+  /**
+   * Any token, the expression cannot be skipped.
+   */
+  public static final FirstSet ANY = new FirstSet(Set.of(), Set.of(), true, false, true);
+  /**
+   * Matches without consuming a token (e.g. predicates).
+   */
+  public static final FirstSet EMPTY = new FirstSet(Set.of(), Set.of(), false, true, false);
+
+  private final Set<TokenType> types;
+  private final Set<String> values;
+  private final boolean any;
+  private final boolean nullable;
+  private final boolean reportsError;
+
+  private FirstSet(Set<TokenType> types, Set<String> values, boolean any, boolean nullable, boolean reportsError) {
+    this.types = types;
+    this.values = values;
+    this.any = any;
+    this.nullable = nullable;
+    this.reportsError = reportsError;
+  }
+
+  public static FirstSet ofTypes(Collection<TokenType> types) {
+    return new FirstSet(Set.copyOf(types), Set.of(), false, false, false);
+  }
+
+  public static FirstSet ofValue(String value) {
+    return new FirstSet(Set.of(), Set.of(value), false, false, false);
+  }
+
+  public Set<TokenType> getTypes() {
+    return Collections.unmodifiableSet(types);
+  }
+
+  public Set<String> getValues() {
+    return Collections.unmodifiableSet(values);
+  }
+
+  public boolean isAny() {
+    return any;
+  }
+
+  public boolean isNullable() {
+    return nullable;
+  }
+
+  public boolean reportsError() {
+    return reportsError;
+  }
+
+  /**
+   * An expression can be skipped if the current token is not part of its FIRST set.
+   */
+  public boolean isSkippable() {
+    return !any && !nullable;
+  }
+
+  /**
+   * FIRST set of a sequence of this expression followed by another one.
+   */
+  public FirstSet followedBy(FirstSet next) {
+    if (!nullable) {
+      return this;
+    }
+    return union(next, next.nullable, reportsError || next.reportsError);
+  }
+
+  /**
+   * FIRST set of an ordered choice of this expression and another one.
+   */
+  public FirstSet or(FirstSet other) {
+    // a nullable alternative matches, the following alternatives are not executed
+    return union(other, nullable || other.nullable, reportsError || (!nullable && other.reportsError));
+  }
+
+  /**
+   * FIRST set of an expression that matches also without consuming a token (e.g. optional).
+   */
+  public FirstSet asNullable() {
+    return nullable ? this : new FirstSet(types, values, any, true, reportsError);
+  }
+
+  /**
+   * FIRST set of a rule with this expression: a failing rule reports an error.
+   */
+  public FirstSet asRule() {
+    return nullable || reportsError ? this : new FirstSet(types, values, any, false, true);
+  }
+
+  private FirstSet union(FirstSet other, boolean unionNullable, boolean unionReportsError) {
+    if (any || other.any) {
+      return new FirstSet(Set.of(), Set.of(), true, unionNullable, unionReportsError);
+    }
+    return new FirstSet(union(types, other.types), union(values, other.values), false, unionNullable,
+      unionReportsError);
+  }
+
+  private static <T> Set<T> union(Set<T> a, Set<T> b) {
+    if (b.isEmpty() || a.containsAll(b)) {
+      return a;
+    }
+    if (a.isEmpty()) {
+      return b;
+    }
+    var result = new HashSet<T>(a);
+    result.addAll(b);
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    if (any) {
+      return "FirstSet[any]";
+    }
+    return "FirstSet" + types + values + (nullable ? "?" : "");
+  }
+
+}
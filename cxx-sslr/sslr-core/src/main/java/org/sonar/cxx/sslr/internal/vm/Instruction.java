@@ -89,6 +89,10 @@ public abstract class Instruction {
     return IGNORE_ERRORS;
   }
 
+  static Instruction dispatch(DispatchTable table, int alternative) {
+    return new DispatchInstruction(table, alternative);
+  }
+
   /**
    * Executes this instruction.
    */
@@ -207,6 +211,55 @@ public abstract class Instruction {
     }
   }
 
+  /**
+   * Instruction dedicated for alternatives of {@link FirstOfExpression}.
+   * Skips the alternatives which cannot match the current token: continues with the next alternative which can match
+   * it or fails if there is none.
+   */
+  public static final class DispatchInstruction extends Instruction {
+
+    private final DispatchTable table;
+    private final int alternative;
+
+    DispatchInstruction(DispatchTable table, int alternative) {
+      this.table = table;
+      this.alternative = alternative;
+    }
+
+    @Override
+    public void execute(Machine machine) {
+      if (machine.length() == 0) {
+        machine.jump(1);
+        return;
+      }
+      long candidates = table.candidates(machine.tokenAt(0)) >>> alternative;
+      if ((candidates & 1) != 0) {
+        machine.jump(1);
+        return;
+      }
+      int next = candidates == 0 ? DispatchTable.MAX_ALTERNATIVES
+                   : alternative + Long.numberOfTrailingZeros(candidates);
+      long skipped = -1L << alternative;
+      if (next < DispatchTable.MAX_ALTERNATIVES) {
+        skipped &= (1L << next) - 1;
+      }
+      if ((table.reportsError() & skipped) != 0) {
+        machine.backtrackSkipped();
+      }
+      if (candidates == 0) {
+        machine.backtrack();
+      } else {
+        // the dispatch instruction of the next candidate is skipped as well
+        machine.jump(table.offset(alternative, next) + 1);
+      }
+    }
+
+    @Override
+    public String toString() {
+      return "Dispatch " + alternative;
+    }
+  }
+
   public static final class IgnoreErrorsInstruction extends Instruction {
 
     @Override
@@ -273,7 +326,7 @@ public abstract class Instruction {
     @Override
     public void execute(Machine machine) {
       // add all nodes to parent
-      machine.peek().parent().subNodes().addAll(machine.peek().subNodes());
+      machine.peek().addNodesToParent();
 
       machine.pop();
       machine.jump(offset);
@@ -316,7 +369,7 @@ public abstract class Instruction {
         throw new GrammarException("The inner part of ZeroOrMore and OneOrMore must not allow empty matches");
       }
       // add all nodes to parent
-      machine.peek().parent().subNodes().addAll(machine.peek().subNodes());
+      machine.peek().addNodesToParent();
 
       machine.pop();
       machine.jump(offset);
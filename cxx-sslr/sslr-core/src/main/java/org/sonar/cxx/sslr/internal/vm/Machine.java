@@ -23,14 +23,17 @@
  */
 package org.sonar.cxx.sslr.internal.vm; // cxx: in use
 
+import com.sonar.cxx.sslr.api.AstNode;
 import com.sonar.cxx.sslr.api.RecognitionException;
 import com.sonar.cxx.sslr.api.Token;
-import java.util.Arrays;
+import com.sonar.cxx.sslr.impl.matcher.RuleDefinition;
 import java.util.List;
+import java.util.function.Function;
 import javax.annotation.Nullable;
 import org.sonar.cxx.sslr.grammar.GrammarException;
 import org.sonar.cxx.sslr.internal.matchers.ImmutableInputBuffer;
 import org.sonar.cxx.sslr.internal.matchers.InputBuffer;
+import org.sonar.cxx.sslr.internal.matchers.LexerfulAstCreator;
 import org.sonar.cxx.sslr.internal.matchers.Matcher;
 import org.sonar.cxx.sslr.internal.matchers.ParseNode;
 import org.sonar.cxx.sslr.internal.vm.lexerful.LexerfulParseErrorFormatter;
@@ -44,11 +47,13 @@ public class Machine implements CharSequence {
   private final int inputLength;
 
   private MachineStack stack;
+  // deepest frame used by the parse, see MachineContext
+  private MachineStack deepest;
   private int index;
   private int address;
   private boolean matched = true;
 
-  private final ParseNode[] memos;
+  private final MemoTable memos;
 
   // Number of instructions in grammar for Java is about 2000.
   private final int[] calls;
@@ -57,33 +62,39 @@ public class Machine implements CharSequence {
 
   private boolean ignoreErrors = false;
 
+  // create AST nodes instead of parse nodes, see LexerfulAstCreator
+  private final boolean createAst;
+  private AstNode astRoot;
+
+  /**
+   * Default maximum number of memoized rule results per parse, see {@link MemoTable}.
+   */
+  public static final int DEFAULT_MEMO_CAPACITY = 1 << 21;
+
   private static final MachineHandler NOP_HANDLER = (Machine machine) -> {
     // nop
   };
 
   public Machine(String input, Instruction[] instructions, MachineHandler handler) {
-    this(input.toCharArray(), null, instructions, handler);
+    this(input.toCharArray(), null, input.length(), instructions, handler, DEFAULT_MEMO_CAPACITY, false,
+      new MachineContext());
   }
 
-  private Machine(@Nullable char[] input, @Nullable Token[] tokens, Instruction[] instructions,
-    MachineHandler handler) {
+  /**
+   * @param tokens input tokens, the array can be longer than the input
+   */
+  private Machine(@Nullable char[] input, @Nullable Token[] tokens, int inputLength, Instruction[] instructions,
+    MachineHandler handler, int memoCapacity, boolean createAst, MachineContext context) {
     this.input = input;
     this.tokens = tokens;
-    if (input != null) {
-      this.inputLength = input.length;
-    } else if (tokens != null) {
-      this.inputLength = tokens.length;
-    } else {
-      this.inputLength = 0;
-    }
+    this.inputLength = inputLength;
+    this.createAst = createAst;
 
     this.handler = handler;
-    this.memos = new ParseNode[inputLength + 1];
-    this.stack = new MachineStack();
-    stack = stack.getOrCreateChild();
-    stack.setIndex(-1);
-    calls = new int[instructions.length];
-    Arrays.fill(calls, -1);
+    this.memos = context.memos(inputLength, memoCapacity);
+    this.stack = context.stack();
+    this.deepest = stack;
+    this.calls = context.calls(instructions.length);
   }
 
   // @VisibleForTesting
@@ -92,27 +103,74 @@ public class Machine implements CharSequence {
   }
 
   public static ParseNode parse(List<Token> tokens, CompiledGrammar grammar) {
-    var inputTokens = tokens.toArray(Token[]::new);
+    return parse(tokens, grammar, new ErrorLocatingHandler());
+  }
 
-    var errorLocatingHandler = new ErrorLocatingHandler();
-    var machine = new Machine(null, inputTokens, grammar.getInstructions(), errorLocatingHandler);
-    machine.execute(grammar.getMatcher(grammar.getRootRuleKey()),
-      grammar.getRootRuleOffset(), grammar.getInstructions());
+  /**
+   * Parse the tokens and report the execution to a handler, e.g. a {@link RuleProfilingHandler}.
+   */
+  public static ParseNode parse(List<Token> tokens, CompiledGrammar grammar,
+    ErrorLocatingHandler errorLocatingHandler) {
+    return parse(tokens, grammar, errorLocatingHandler, DEFAULT_MEMO_CAPACITY);
+  }
 
-    if (machine.matched) {
-      return machine.stack.subNodes().get(0);
-    } else {
-      if (tokens.isEmpty()) {
-        // Godin: weird situation - I expect that list of tokens contains at least EOF,
-        // but this is not the case in C Parser
-        throw new RecognitionException(1, "No tokens");
-      } else {
-        int errorIndex = errorLocatingHandler.getErrorIndex();
-        var errorMsg = new LexerfulParseErrorFormatter().format(tokens, errorIndex);
-        int errorLine = errorIndex < tokens.size() ? tokens.get(errorIndex).getLine() : tokens.get(tokens.size() - 1)
-          .getLine();
-        throw new RecognitionException(errorLine, errorMsg);
+  /**
+   * Parse the tokens and report the execution to a handler.
+   *
+   * @param memoCapacity maximum number of memoized rule results, limits the memory used for memoization
+   */
+  public static ParseNode parse(List<Token> tokens, CompiledGrammar grammar,
+    ErrorLocatingHandler errorLocatingHandler, int memoCapacity) {
+    return run(tokens, grammar, errorLocatingHandler, memoCapacity, false,
+      machine -> machine.stack.subNodes().get(0));
+  }
+
+  /**
+   * Parse the tokens and create the AST while parsing. The result is the same as creating the AST from the parse tree
+   * with {@link LexerfulAstCreator}, but without creating the parse tree.
+   *
+   * @param memoCapacity maximum number of memoized rule results, limits the memory used for memoization
+   */
+  public static AstNode parseToAst(List<Token> tokens, CompiledGrammar grammar,
+    ErrorLocatingHandler errorLocatingHandler, int memoCapacity) {
+    var astRoot = run(tokens, grammar, errorLocatingHandler, memoCapacity, true, machine -> machine.astRoot);
+    // memoized nodes have been added to several parents
+    astRoot.linkDescendants();
+    return astRoot;
+  }
+
+  /**
+   * Parse the tokens with the machine context of the current thread.
+   *
+   * @param result extracts the result from the machine, before the context is released
+   */
+  private static <T> T run(List<Token> tokens, CompiledGrammar grammar, ErrorLocatingHandler errorLocatingHandler,
+    int memoCapacity, boolean createAst, Function<Machine, T> result) {
+    var context = MachineContext.acquire();
+    var machine = new Machine(null, context.tokens(tokens), tokens.size(), grammar.getInstructions(),
+      errorLocatingHandler, memoCapacity, createAst, context);
+    boolean completed = false;
+    try {
+      machine.execute(grammar.getMatcher(grammar.getRootRuleKey()),
+        grammar.getRootRuleOffset(), grammar.getInstructions());
+      completed = true;
+      if (machine.matched) {
+        return result.apply(machine);
       }
+    } finally {
+      context.release(machine.inputLength, machine.deepest, completed);
+    }
+
+    if (tokens.isEmpty()) {
+      // Godin: weird situation - I expect that list of tokens contains at least EOF,
+      // but this is not the case in C Parser
+      throw new RecognitionException(1, "No tokens");
+    } else {
+      int errorIndex = errorLocatingHandler.getErrorIndex();
+      var errorMsg = new LexerfulParseErrorFormatter().format(tokens, errorIndex);
+      int errorLine = errorIndex < tokens.size() ? tokens.get(errorIndex).getLine() : tokens.get(tokens.size() - 1)
+        .getLine();
+      throw new RecognitionException(errorLine, errorMsg);
     }
   }
 
@@ -120,7 +178,8 @@ public class Machine implements CharSequence {
     var instructions = grammar.getInstructions();
 
     var errorLocatingHandler = new ErrorLocatingHandler();
-    var machine = new Machine(input, null, instructions, errorLocatingHandler);
+    var machine = new Machine(input, null, input.length, instructions, errorLocatingHandler, DEFAULT_MEMO_CAPACITY,
+      false, new MachineContext());
     machine.execute(grammar.getMatcher(grammar.getRootRuleKey()), grammar.getRootRuleOffset(), instructions);
 
     if (machine.matched) {
@@ -141,7 +200,11 @@ public class Machine implements CharSequence {
     // Place first rule on top of stack
     push(-1);
     stack.setMatcher(matcher);
+    handler.onCall(this);
     jump(offset);
+    // restored by popReturn, the calls array is reused
+    stack.setCalledAddress(address);
+    stack.setLeftRecursion(calls[address]);
 
     execute(instructions);
   }
@@ -157,7 +220,8 @@ public class Machine implements CharSequence {
 
   // @VisibleForTesting
   public static boolean execute(Instruction[] instructions, Token... input) {
-    var machine = new Machine(null, input, instructions, NOP_HANDLER);
+    var machine = new Machine(null, input, input.length, instructions, NOP_HANDLER, DEFAULT_MEMO_CAPACITY, false,
+      new MachineContext());
     while (machine.address != -1 && machine.address < instructions.length) {
       instructions[machine.address].execute(machine);
     }
@@ -184,21 +248,34 @@ public class Machine implements CharSequence {
 
   private void push(int address) {
     stack = stack.getOrCreateChild();
-    stack.subNodes().clear();
+    if (stack.depth() > deepest.depth()) {
+      deepest = stack;
+    }
+    stack.clearNodes();
     stack.setAddress(address);
     stack.setIndex(index);
     stack.setIgnoreErrors(ignoreErrors);
   }
 
   public void popReturn() {
+    popReturn(true);
+  }
+
+  private void popReturn(boolean matched) {
+    handler.onReturn(this, matched);
     calls[stack.calledAddress()] = stack.leftRecursion();
     stack = stack.parent();
   }
 
   public void pushReturn(int returnOffset, Matcher matcher, int callOffset) {
-    var memo = memos[index];
-    if (memo != null && memo.getMatcher() == matcher) {
-      stack.subNodes().add(memo);
+    var memo = memos.get(index, matcher);
+    if (memo != null) {
+      handler.onMemoHit(this, matcher);
+      if (createAst) {
+        ((AstParseNode) memo).addTo(stack.astNodes());
+      } else {
+        stack.subNodes().add(memo);
+      }
       index = memo.getEndIndex();
       address += returnOffset;
     } else {
@@ -213,6 +290,7 @@ public class Machine implements CharSequence {
       stack.setCalledAddress(address);
       stack.setLeftRecursion(calls[address]);
       calls[address] = index;
+      handler.onCall(this);
     }
   }
 
@@ -244,7 +322,7 @@ public class Machine implements CharSequence {
         handler.onBacktrack(this);
       }
 
-      popReturn();
+      popReturn(false);
     }
 
     if (stack.isEmpty()) {
@@ -260,17 +338,53 @@ public class Machine implements CharSequence {
     }
   }
 
+  /**
+   * Reports the failure of alternatives which are skipped instead of executed, as {@link #backtrack()} would do.
+   */
+  public void backtrackSkipped() {
+    if (!ignoreErrors) {
+      handler.onBacktrack(this);
+    }
+  }
+
   public void createNode() {
-    var node = new ParseNode(stack.index(), index, stack.subNodes(), stack.matcher());
-    stack.parent().subNodes().add(node);
+    ParseNode node;
+    if (createAst) {
+      node = createAstNode();
+      if (node.getEndIndex() == node.getStartIndex()) {
+        // the same AST node must not be added twice to the AST
+        return;
+      }
+    } else {
+      node = new ParseNode(stack.index(), index, stack.subNodes(), stack.matcher());
+      stack.parent().subNodes().add(node);
+    }
     if (stack.matcher() instanceof MemoParsingExpression && ((MemoParsingExpression) stack.matcher()).shouldMemoize()) {
-      memos[stack.index()] = node;
+      memos.put(node);
+    }
+  }
+
+  private AstParseNode createAstNode() {
+    int startIndex = stack.index();
+    var token = startIndex < inputLength ? tokens[startIndex] : null;
+    var astNode = LexerfulAstCreator.createNonTerminal((RuleDefinition) stack.matcher(), token, stack.astNodes(),
+      startIndex, index);
+    var node = new AstParseNode(startIndex, index, stack.matcher(), astNode);
+    node.addTo(stack.parent().astNodes());
+    if (stack.parent().isEmpty()) {
+      astRoot = astNode;
     }
+    return node;
   }
 
   public void createLeafNode(Matcher matcher, int offset) {
-    var node = new ParseNode(index, index + offset, matcher);
-    stack.subNodes().add(node);
+    if (createAst) {
+      LexerfulAstCreator.addChild(stack.astNodes(),
+        LexerfulAstCreator.createTerminal(matcher, tokens[index], index, index + offset));
+    } else {
+      var node = new ParseNode(index, index + offset, matcher);
+      stack.subNodes().add(node);
+    }
     index += offset;
   }
 
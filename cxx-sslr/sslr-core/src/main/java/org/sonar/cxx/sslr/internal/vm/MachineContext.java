@@ -0,0 +1,115 @@
+/*
+ * C++ Community Plugin (cxx plugin)
+ * Copyright (C) 2022-2024 SonarOpenCommunity
+ * http://github.com/SonarOpenCommunity/sonar-cxx
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.cxx.sslr.internal.vm;
+
+import com.sonar.cxx.sslr.api.Token;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * State of the parsing machine which is reused by the parses of a thread: the input tokens, the memo table, the
+ * calls of the rules and the stack frames.
+ *
+ * The preprocessor parses every directive on its own, so the machine runs very often on small inputs. The arrays grow
+ * on demand and are reused, only their used part is cleared after a parse. The calls array does not need to be
+ * cleared at all: every frame restores the entry it changed, so after a completed parse all entries are -1 again.
+ */
+final class MachineContext {
+
+  private static final ThreadLocal<MachineContext> CONTEXTS = ThreadLocal.withInitial(MachineContext::new);
+
+  private Token[] tokens = new Token[0];
+  private int[] calls = new int[0];
+  private final MemoTable memos = new MemoTable(0, 1);
+  private final MachineStack stack;
+
+  private boolean inUse = false;
+  private boolean callsRestored = true;
+
+  MachineContext() {
+    stack = new MachineStack().getOrCreateChild();
+    stack.setIndex(-1);
+  }
+
+  /**
+   * Context of the current thread, or a new context if a parse of the current thread is already running.
+   */
+  static MachineContext acquire() {
+    var context = CONTEXTS.get();
+    if (context.inUse) {
+      return new MachineContext();
+    }
+    context.inUse = true;
+    return context;
+  }
+
+  /**
+   * Releases the context after a parse.
+   *
+   * @param inputLength number of tokens of the parse
+   * @param deepest deepest frame used by the parse
+   * @param completed false, if the parse has been aborted by an exception
+   */
+  void release(int inputLength, MachineStack deepest, boolean completed) {
+    // do not keep the tokens and nodes of the parse alive
+    Arrays.fill(tokens, 0, Math.min(inputLength, tokens.length), null);
+    memos.clear();
+    for (var frame = deepest; frame != stack.parent(); frame = frame.parent()) {
+      frame.clearNodes();
+    }
+    callsRestored = completed;
+    inUse = false;
+  }
+
+  /**
+   * Copies the tokens into the reused array, the entries after the tokens are null.
+   */
+  Token[] tokens(List<Token> input) {
+    tokens = input.toArray(tokens);
+    return tokens;
+  }
+
+  /**
+   * Array of the calls of the rules, all entries are -1.
+   */
+  int[] calls(int length) {
+    if (calls.length < length) {
+      calls = new int[length];
+      Arrays.fill(calls, -1);
+    } else if (!callsRestored) {
+      Arrays.fill(calls, -1);
+    }
+    callsRestored = false;
+    return calls;
+  }
+
+  MemoTable memos(int inputLength, int capacity) {
+    memos.reset(inputLength, capacity);
+    return memos;
+  }
+
+  /**
+   * Empty stack.
+   */
+  MachineStack stack() {
+    return stack;
+  }
+
+}
@@ -23,8 +23,33 @@
  */
 package org.sonar.cxx.sslr.internal.vm;
 
+import org.sonar.cxx.sslr.internal.matchers.Matcher;
+
 public interface MachineHandler {
 
   void onBacktrack(Machine machine);
 
+  /**
+   * Called after a rule has been entered, the new frame is on top of the stack ({@link Machine#peek()}).
+   */
+  default void onCall(Machine machine) {
+    // nop
+  }
+
+  /**
+   * Called if the result of a rule has been taken from the memo table instead of parsing it again.
+   */
+  default void onMemoHit(Machine machine, Matcher matcher) {
+    // nop
+  }
+
+  /**
+   * Called before a rule is left, the frame of the rule is still on top of the stack ({@link Machine#peek()}).
+   *
+   * @param matched {@code true} if the rule matched, {@code false} if it is left by backtracking
+   */
+  default void onReturn(Machine machine, boolean matched) {
+    // nop
+  }
+
 }
@@ -23,6 +23,7 @@
  */
 package org.sonar.cxx.sslr.internal.vm;
 
+import com.sonar.cxx.sslr.api.AstNode;
 import org.sonar.cxx.sslr.internal.matchers.Matcher;
 import org.sonar.cxx.sslr.internal.matchers.ParseNode;
 
@@ -35,8 +36,10 @@ public class MachineStack {
 
   private final MachineStack parent;
   private MachineStack child;
+  private final int depth;
 
   private final List<ParseNode> subNodes;
+  private final List<AstNode> astNodes;
   private int address;
   private int index;
   private boolean ignoreErrors;
@@ -47,13 +50,17 @@ public class MachineStack {
 
   public MachineStack() {
     this.parent = null;
+    this.depth = 0;
     this.subNodes = Collections.emptyList();
+    this.astNodes = Collections.emptyList();
     this.index = -1;
   }
 
   private MachineStack(MachineStack parent) {
     this.parent = parent;
+    this.depth = parent.depth + 1;
     this.subNodes = new ArrayList<>();
+    this.astNodes = new ArrayList<>();
   }
 
   public MachineStack parent() {
@@ -67,6 +74,13 @@ public class MachineStack {
     return child;
   }
 
+  /**
+   * Number of frames below this frame.
+   */
+  public int depth() {
+    return depth;
+  }
+
   public boolean isReturn() {
     return matcher != null;
   }
@@ -130,4 +144,32 @@ public class MachineStack {
     return subNodes;
   }
 
+  /**
+   * AST nodes, if the machine creates the AST while parsing (instead of the parse nodes).
+   */
+  public List<AstNode> astNodes() {
+    return astNodes;
+  }
+
+  /**
+   * Adds the nodes of this frame to the nodes of the parent frame.
+   */
+  public void addNodesToParent() {
+    // indexed loops, addAll copies the list
+    for (int i = 0; i < subNodes.size(); i++) {
+      parent.subNodes.add(subNodes.get(i));
+    }
+    for (int i = 0; i < astNodes.size(); i++) {
+      parent.astNodes.add(astNodes.get(i));
+    }
+  }
+
+  /**
+   * Removes the nodes of this frame, frames are reused and should not keep the nodes of a finished parse alive.
+   */
+  public void clearNodes() {
+    subNodes.clear();
+    astNodes.clear();
+  }
+
 }
@@ -0,0 +1,116 @@
+/*
+ * C++ Community Plugin (cxx plugin)
+ * Copyright (C) 2022-2024 SonarOpenCommunity
+ * http://github.com/SonarOpenCommunity/sonar-cxx
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.cxx.sslr.internal.vm;
+
+import java.util.Arrays;
+import javax.annotation.CheckForNull;
+import org.sonar.cxx.sslr.internal.matchers.Matcher;
+import org.sonar.cxx.sslr.internal.matchers.ParseNode;
+
+/**
+ * Memo table of the parsing machine: results of memoizable rules by start index and rule.
+ *
+ * Several rules often start at the same token (e.g. the chain {@code expression}, {@code castExpression},
+ * {@code unaryExpression}, ... in C++). The table is set-associative: each index has a set of {@link #WAYS} entries,
+ * so these rules do not evict each other. The newest result is in front of the set, the oldest one is evicted.
+ *
+ * The memory is limited by the capacity (number of entries). If the input has more indices than the table has sets,
+ * distant indices share a set; the results of the index parsed last win.
+ *
+ * A table can be reused for several inputs, see {@link MachineContext}: {@link #reset(int, int)} keeps the array of
+ * entries if it is large enough.
+ */
+final class MemoTable {
+
+  static final int WAYS = 8;
+
+  private ParseNode[] entries = new ParseNode[0];
+  private int mask;
+
+  /**
+   * @param inputLength number of tokens or characters of the input
+   * @param capacity maximum number of entries
+   */
+  MemoTable(int inputLength, int capacity) {
+    reset(inputLength, capacity);
+  }
+
+  /**
+   * Prepares the empty table for another input.
+   *
+   * @param inputLength number of tokens or characters of the input
+   * @param capacity maximum number of entries
+   */
+  void reset(int inputLength, int capacity) {
+    int sets = Math.min(Integer.highestOneBit(Math.max(1, capacity / WAYS)), ceilingPowerOfTwo(inputLength + 1));
+    if (entries.length < sets * WAYS) {
+      entries = new ParseNode[sets * WAYS];
+    }
+    mask = sets - 1;
+  }
+
+  /**
+   * Removes all entries, the table does not keep the nodes of the last input alive.
+   */
+  void clear() {
+    Arrays.fill(entries, 0, capacity(), null);
+  }
+
+  @CheckForNull
+  ParseNode get(int index, Matcher matcher) {
+    int start = (index & mask) * WAYS;
+    int end = start + WAYS;
+    for (int i = start; i < end; i++) {
+      var node = entries[i];
+      if (node == null) {
+        // entries of a set are filled from the front
+        return null;
+      }
+      if (node.getMatcher() == matcher && node.getStartIndex() == index) {
+        return node;
+      }
+    }
+    return null;
+  }
+
+  void put(ParseNode node) {
+    int start = (node.getStartIndex() & mask) * WAYS;
+    int last = start + WAYS - 1;
+    for (int i = start; i < last; i++) {
+      var entry = entries[i];
+      if (entry == null || (entry.getMatcher() == node.getMatcher() && entry.getStartIndex() == node.getStartIndex())) {
+        last = i;
+        break;
+      }
+    }
+    // move the newer entries one position back, this overwrites the replaced or the oldest entry
+    System.arraycopy(entries, start, entries, start + 1, last - start);
+    entries[start] = node;
+  }
+
+  int capacity() {
+    return (mask + 1) * WAYS;
+  }
+
+  private static int ceilingPowerOfTwo(int value) {
+    return value <= 1 ? 1 : Integer.highestOneBit(value - 1) << 1;
+  }
+
+}
@@ -26,16 +26,23 @@ package org.sonar.cxx.sslr.internal.vm; // cxx: in use
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 import org.sonar.cxx.sslr.grammar.GrammarRuleKey;
+import org.sonar.cxx.sslr.internal.vm.lexerful.AdjacentExpression;
+import org.sonar.cxx.sslr.internal.vm.lexerful.TokenTypeExpression;
+import org.sonar.cxx.sslr.internal.vm.lexerful.TokenTypesExpression;
+import org.sonar.cxx.sslr.internal.vm.lexerful.TokenValueExpression;
+import org.sonar.cxx.sslr.internal.vm.lexerful.TokensBridgeExpression;
 
 public class MutableGrammarCompiler extends CompilationHandler {
 
   private final Queue<CompilableGrammarRule> compilationQueue = new ArrayDeque<>();
   private final Map<GrammarRuleKey, CompilableGrammarRule> matchers = new HashMap<>();
   private final Map<GrammarRuleKey, Integer> offsets = new HashMap<>();
+  private final Map<ParsingExpression, FirstSet> firstSets = new IdentityHashMap<>();
 
   public static CompiledGrammar compile(CompilableGrammarRule rule) {
     return new MutableGrammarCompiler().doCompile(rule);
@@ -68,7 +75,7 @@ public class MutableGrammarCompiler extends CompilationHandler {
       }
     }
 
-    return new CompiledGrammar(result, matchers, start.getRuleKey(), offsets.get(start.getRuleKey()));
+    return new CompiledGrammar(result, matchers, offsets, start.getRuleKey());
   }
 
   @Override
@@ -84,4 +91,62 @@ public class MutableGrammarCompiler extends CompilationHandler {
     }
   }
 
+  /**
+   * FIRST sets are computed for lexerful expressions, all other expressions can start with {@link FirstSet#ANY any}
+   * token.
+   */
+  @Override
+  public FirstSet firstSet(ParsingExpression expression) {
+    var result = firstSets.get(expression);
+    if (result == null) {
+      // a rule reached again (left recursion) cannot be skipped
+      firstSets.put(expression, FirstSet.ANY);
+      result = computeFirstSet(expression);
+      firstSets.put(expression, result);
+    }
+    return result;
+  }
+
+  private FirstSet computeFirstSet(ParsingExpression expression) {
+    if (expression instanceof CompilableGrammarRule rule) {
+      return rule.getExpression() != null ? firstSet(rule.getExpression()).asRule() : FirstSet.ANY;
+    } else if (expression instanceof SequenceExpression sequence) {
+      var result = FirstSet.EMPTY;
+      for (var subExpression : sequence.getSubExpressions()) {
+        if (!result.isNullable()) {
+          break;
+        }
+        result = result.followedBy(firstSet(subExpression));
+      }
+      return result;
+    } else if (expression instanceof FirstOfExpression firstOf) {
+      FirstSet result = null;
+      for (var subExpression : firstOf.getSubExpressions()) {
+        var firstSet = firstSet(subExpression);
+        result = result != null ? result.or(firstSet) : firstSet;
+      }
+      return result != null ? result : FirstSet.ANY;
+    } else if (expression instanceof OptionalExpression optional) {
+      return firstSet(optional.getSubExpression()).asNullable();
+    } else if (expression instanceof ZeroOrMoreExpression zeroOrMore) {
+      return firstSet(zeroOrMore.getSubExpression()).asNullable();
+    } else if (expression instanceof OneOrMoreExpression oneOrMore) {
+      return firstSet(oneOrMore.getSubExpression());
+    } else if (expression instanceof NextExpression next) {
+      // consumes nothing, but matches only if the sub expression matches
+      return firstSet(next.getSubExpression());
+    } else if (expression instanceof NextNotExpression || expression == AdjacentExpression.INSTANCE) {
+      return FirstSet.EMPTY;
+    } else if (expression instanceof TokenValueExpression token) {
+      return FirstSet.ofValue(token.getValue());
+    } else if (expression instanceof TokenTypeExpression token) {
+      return FirstSet.ofTypes(List.of(token.getType()));
+    } else if (expression instanceof TokenTypesExpression tokens) {
+      return FirstSet.ofTypes(tokens.getTypes());
+    } else if (expression instanceof TokensBridgeExpression bridge) {
+      return FirstSet.ofTypes(List.of(bridge.getFrom()));
+    }
+    return FirstSet.ANY;
+  }
+
 }
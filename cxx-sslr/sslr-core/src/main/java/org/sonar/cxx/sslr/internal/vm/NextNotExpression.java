@@ -31,6 +31,10 @@ public class NextNotExpression implements ParsingExpression {
     this.subExpression = subExpression;
   }
 
+  ParsingExpression getSubExpression() {
+    return subExpression;
+  }
+
   /**
    * Compiles this expression into a sequence of instructions:
    * <pre>
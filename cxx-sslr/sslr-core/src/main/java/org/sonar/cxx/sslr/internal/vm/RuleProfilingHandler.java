@@ -0,0 +1,128 @@
+/*
+ * C++ Community Plugin (cxx plugin)
+ * Copyright (C) 2022-2024 SonarOpenCommunity
+ * http://github.com/SonarOpenCommunity/sonar-cxx
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.cxx.sslr.internal.vm;
+
+import com.sonar.cxx.sslr.impl.RuleProfile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.CheckForNull;
+import org.sonar.cxx.sslr.internal.matchers.Matcher;
+
+/**
+ * Counts per grammar rule the invocations, matches, backtracks and memo hits and measures the time spent in the rule.
+ *
+ * Profiling is opt-in: the handler is used instead of the {@link ErrorLocatingHandler} only if requested, because
+ * measuring the time of each rule invocation slows down the parser noticeably.
+ */
+public class RuleProfilingHandler extends ErrorLocatingHandler {
+
+  private final Map<Matcher, Counters> rules = new IdentityHashMap<>();
+
+  // counters and start time of the active rule invocations, null for matchers which are not grammar rules
+  private Counters[] frames = new Counters[64];
+  private long[] startTimes = new long[64];
+  private int depth = 0;
+
+  @Override
+  public void onCall(Machine machine) {
+    if (depth == frames.length) {
+      frames = Arrays.copyOf(frames, depth * 2);
+      startTimes = Arrays.copyOf(startTimes, depth * 2);
+    }
+    var counters = counters(machine.peek().matcher());
+    if (counters != null) {
+      counters.invocations++;
+      counters.active++;
+      startTimes[depth] = System.nanoTime();
+    }
+    frames[depth++] = counters;
+  }
+
+  @Override
+  public void onMemoHit(Machine machine, Matcher matcher) {
+    var counters = counters(matcher);
+    if (counters != null) {
+      counters.memoHits++;
+    }
+  }
+
+  @Override
+  public void onReturn(Machine machine, boolean matched) {
+    if (depth == 0) {
+      return;
+    }
+    var counters = frames[--depth];
+    frames[depth] = null;
+    if (counters != null) {
+      if (matched) {
+        counters.matches++;
+      } else {
+        counters.backtracks++;
+        counters.backtrackedTokens += machine.getIndex() - machine.peek().index();
+      }
+      if (--counters.active == 0) {
+        // count the time of recursive invocations only once
+        counters.time += System.nanoTime() - startTimes[depth];
+      }
+    }
+  }
+
+  /**
+   * Returns the measured values of all invoked rules, rules causing most re-parsing first.
+   */
+  public List<RuleProfile> getRuleProfiles() {
+    var result = new ArrayList<RuleProfile>(rules.size());
+    for (var counters : rules.values()) {
+      result.add(new RuleProfile(counters.name, counters.invocations, counters.matches, counters.backtracks,
+        counters.memoHits, counters.backtrackedTokens, counters.time));
+    }
+    result.sort(RuleProfile.BY_BACKTRACKED_TOKENS);
+    return result;
+  }
+
+  @CheckForNull
+  private Counters counters(Matcher matcher) {
+    if (matcher instanceof CompilableGrammarRule rule) {
+      return rules.computeIfAbsent(matcher, k -> new Counters(rule.getRuleKey().toString()));
+    }
+    return null;
+  }
+
+  private static final class Counters {
+
+    private final String name;
+    private long invocations;
+    private long matches;
+    private long backtracks;
+    private long memoHits;
+    private long backtrackedTokens;
+    private long time;
+    private int active;
+
+    private Counters(String name) {
+      this.name = name;
+    }
+
+  }
+
+}
@@ -35,6 +35,10 @@ public class SequenceExpression implements ParsingExpression {
     this.subExpressions = subExpressions;
   }
 
+  ParsingExpression[] getSubExpressions() {
+    return subExpressions;
+  }
+
   /**
    * Compiles this expression into a sequence of instructions:
    * <pre>
@@ -36,6 +36,10 @@ public class TokenTypeExpression extends NativeExpression implements Matcher {
     this.type = type;
   }
 
+  public TokenType getType() {
+    return type;
+  }
+
   @Override
   public void execute(Machine machine) {
     if (machine.length() == 0 || type != machine.tokenAt(0).getType()) {
@@ -29,6 +29,7 @@ import org.sonar.cxx.sslr.internal.vm.Machine;
 import org.sonar.cxx.sslr.internal.vm.NativeExpression;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -41,6 +42,10 @@ public class TokenTypesExpression extends NativeExpression implements Matcher {
     this.types.addAll(Arrays.asList(types));
   }
 
+  public Set<TokenType> getTypes() {
+    return Collections.unmodifiableSet(types);
+  }
+
   @Override
   public void execute(Machine machine) {
     if (machine.length() == 0 || !types.contains(machine.tokenAt(0).getType())) {
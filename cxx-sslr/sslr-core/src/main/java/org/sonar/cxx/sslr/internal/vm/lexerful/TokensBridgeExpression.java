@@ -39,6 +39,10 @@ public class TokensBridgeExpression extends NativeExpression implements Matcher
     this.to = to;
   }
 
+  public TokenType getFrom() {
+    return from;
+  }
+
   @Override
   public void execute(Machine machine) {
     int length = machine.length();
@@ -23,6 +23,7 @@
  */
 package com.sonar.cxx.sslr.api;
 
+import java.util.List;
 import static org.assertj.core.api.Assertions.*;
 import org.junit.jupiter.api.Test;
 import static org.mockito.Mockito.mock;
@@ -190,4 +191,62 @@ class AstNodeTest {
     assertThat(node).hasToString("node_name");
   }
 
+  @Test
+  void testAddChildren() {
+    var a = mock(AstNodeType.class);
+    var parent = new AstNode(a, "parent", null);
+    var child1 = new AstNode(a, "child1", null);
+    var child2 = new AstNode(a, "child2", null);
+    parent.addChildren(List.of(child1, child2));
+
+    assertThat(parent.getChildren()).containsExactly(child1, child2);
+    assertThat(child1.getParent()).isSameAs(parent);
+    assertThat(child1.getNextSibling()).isSameAs(child2);
+  }
+
+  @Test
+  void testLinkDescendants() {
+    var a = mock(AstNodeType.class);
+    var root = new AstNode(a, "root", null);
+    var child = new AstNode(a, "child", null);
+    var grandChild = new AstNode(a, "grandChild", null);
+    child.addChild(grandChild);
+    root.addChild(child);
+
+    // grandChild is added to another node, e.g. by a parser reusing nodes
+    var other = new AstNode(a, "other", null);
+    other.addChild(new AstNode(a, "first", null));
+    other.addChild(grandChild);
+    assertThat(grandChild.getParent()).isSameAs(other);
+
+    root.linkDescendants();
+    assertThat(grandChild.getParent()).isSameAs(child);
+    assertThat(grandChild.getPreviousSibling()).isNull();
+    assertThat(child.getParent()).isSameAs(root);
+  }
+
+  @Test
+  void testDeeplyNestedNodes() {
+    var a = mock(AstNodeType.class);
+    var b = mock(AstNodeType.class);
+    var token = mock(Token.class);
+    var root = new AstNode(a, "root", null);
+    var node = root;
+    for (int i = 0; i < 100_000; i++) {
+      var child = new AstNode(a, "node", null);
+      node.addChild(child);
+      node = child;
+    }
+    var leaf = new AstNode(b, "leaf", token);
+    node.addChild(leaf);
+
+    // the traversals must not overflow the thread stack
+    assertThat(root.getDescendants(a)).hasSize(100_000);
+    assertThat(root.getFirstDescendant(b)).isSameAs(leaf);
+    assertThat(root.getTokens()).containsExactly(token);
+    assertThat(leaf.getFirstAncestor(b)).isNull();
+    assertThat(leaf.getNextAstNode()).isNull();
+    assertThat(leaf.getPreviousAstNode()).isNull();
+  }
+
 }
@@ -0,0 +1,67 @@
+/*
+ * C++ Community Plugin (cxx plugin)
+ * Copyright (C) 2022-2024 SonarOpenCommunity
+ * http://github.com/SonarOpenCommunity/sonar-cxx
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.cxx.sslr.api;
+
+import java.net.URI;
+import static org.assertj.core.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+class TokenTest {
+
+  private static final URI TEST_URI = URI.create("tests://unittest");
+
+  @Test
+  void equalValueAndOriginalValueShareOneString() {
+    var token = Token.builder()
+      .setType(GenericTokenType.IDENTIFIER)
+      .setValueAndOriginalValue("std", new String("std"))
+      .setURI(TEST_URI)
+      .setLine(1)
+      .setColumn(0)
+      .build();
+
+    assertThat(token.getOriginalValue()).isSameAs(token.getValue());
+  }
+
+  @Test
+  void copyBook() {
+    var builder = Token.builder()
+      .setType(GenericTokenType.IDENTIFIER)
+      .setValueAndOriginalValue("a")
+      .setURI(TEST_URI)
+      .setLine(1)
+      .setColumn(0);
+
+    var token = builder.build();
+    assertThat(token.isCopyBook()).isFalse();
+    assertThat(token.getCopyBookOriginalFileName()).isEmpty();
+    assertThat(token.getCopyBookOriginalLine()).isEqualTo(-1);
+
+    token = builder.setCopyBook("file.h", 3).build();
+    assertThat(token.isCopyBook()).isTrue();
+    assertThat(token.getCopyBookOriginalFileName()).isEqualTo("file.h");
+    assertThat(token.getCopyBookOriginalLine()).isEqualTo(3);
+
+    token = Token.builder(token).notCopyBook().build();
+    assertThat(token.isCopyBook()).isFalse();
+    assertThat(token.getCopyBookOriginalLine()).isEqualTo(-1);
+  }
+
+}
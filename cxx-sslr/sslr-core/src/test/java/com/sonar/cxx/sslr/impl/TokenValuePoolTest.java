@@ -0,0 +1,61 @@
+/*
+ * C++ Community Plugin (cxx plugin)
+ * Copyright (C) 2022-2024 SonarOpenCommunity
+ * http://github.com/SonarOpenCommunity/sonar-cxx
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.cxx.sslr.impl;
+
+import static org.assertj.core.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+class TokenValuePoolTest {
+
+  @Test
+  void equalValuesShareOneInstance() {
+    var pool = new TokenValuePool();
+    var first = new String("std");
+    var second = new String("std");
+
+    assertThat(pool.intern(first)).isSameAs(first);
+    assertThat(pool.intern(second)).isSameAs(first);
+    assertThat(pool.size()).isEqualTo(1);
+  }
+
+  @Test
+  void longValuesAreNotPooled() {
+    var pool = new TokenValuePool(3, 10);
+    var value = new String("size_t");
+
+    assertThat(pool.intern(value)).isSameAs(value);
+    assertThat(pool.intern(new String("size_t"))).isNotSameAs(value);
+    assertThat(pool.size()).isZero();
+  }
+
+  @Test
+  void poolStopsGrowingAtMaxSize() {
+    var pool = new TokenValuePool(10, 2);
+    var a = pool.intern(new String("a"));
+    pool.intern("b");
+    var c = new String("c");
+
+    assertThat(pool.intern(c)).isSameAs(c);
+    assertThat(pool.intern(new String("c"))).isNotSameAs(c);
+    assertThat(pool.intern(new String("a"))).isSameAs(a);
+    assertThat(pool.size()).isEqualTo(2);
+  }
+
+}
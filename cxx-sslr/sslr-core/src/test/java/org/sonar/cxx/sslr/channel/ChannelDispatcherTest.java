@@ -56,6 +56,43 @@ class ChannelDispatcherTest {
     assertThat(thrown).isExactlyInstanceOf(IllegalStateException.class);
   }
 
+  @Test
+  void shouldDispatchToChannelsAcceptingTheStartCharacter() {
+    var aChannel = new StartCharacterChannel('a');
+    var bChannel = new StartCharacterChannel('b');
+    var dispatcher = ChannelDispatcher.builder().addChannels(aChannel, bChannel, new SpaceDeletionChannel()).build();
+    var output = new StringBuilder();
+    dispatcher.consume(new CodeReader("abc\u00e4"), output);
+    assertThat(output).hasToString("[a][b]c\u00e4");
+    assertThat(aChannel.calls).isEqualTo(2); // 'a' and non-ASCII character
+    assertThat(bChannel.calls).isEqualTo(2); // 'b' and non-ASCII character
+  }
+
+  private static class StartCharacterChannel extends Channel<StringBuilder> {
+
+    private final char start;
+    private int calls = 0;
+
+    StartCharacterChannel(char start) {
+      this.start = start;
+    }
+
+    @Override
+    public boolean consume(CodeReader code, StringBuilder output) {
+      calls++;
+      if (code.peek() == start) {
+        output.append('[').append((char) code.pop()).append(']');
+        return true;
+      }
+      return false;
+    }
+
+    @Override
+    public boolean isStartCharacter(char ch) {
+      return ch == start;
+    }
+  }
+
   private static class SpaceDeletionChannel extends Channel<StringBuilder> {
 
     @Override
@@ -191,6 +191,27 @@ class CodeBufferTest {
     assertThat((char) code.pop()).isEqualTo('-');
   }
 
+  @Test
+  void testCharArrayIsUsedWithoutCopy() {
+    var chars = "pa".toCharArray();
+    var code = new CodeBuffer(chars, defaulConfiguration);
+    chars[1] = 'b'; // shared array: not allowed in production code, only to verify there is no copy
+    assertThat((char) code.pop()).isEqualTo('p');
+    assertThat((char) code.pop()).isEqualTo('b');
+    assertThat(code.pop()).isEqualTo(-1);
+  }
+
+  @Test
+  void testCharArrayWithCodeReaderFilter() {
+    var configuration = new CodeReaderConfiguration();
+    configuration.setCodeReaderFilters(new ReplaceNumbersFilter());
+    var code = new CodeBuffer("ab12".toCharArray(), configuration);
+    assertThat(code).hasSize(4);
+    assertThat(code.charAt(1)).isEqualTo('b');
+    assertThat(code.charAt(2)).isEqualTo('-');
+    assertThat(code.charAt(3)).isEqualTo('-');
+  }
+
   @Test
   void theLengthShouldBeTheSameThanTheStringLength() {
     var myCode = "myCode";
@@ -52,6 +52,14 @@ class RegexChannelTest {
     assertThat(output).hasToString("<literal>\">" + veryLongLiteral + "<\"</literal>");
   }
 
+  @Test
+  void shouldAcceptAllCharactersWithoutDeclaredStartCharacters() {
+    var channel = new MyLiteralChannel();
+    assertThat(channel.isStartCharacter('"')).isTrue();
+    assertThat(channel.isStartCharacter('a')).isTrue();
+    assertThat(channel.isStartCharacter(' ')).isTrue();
+  }
+
   private static class MyLiteralChannel extends RegexChannel<StringBuilder> {
 
     public MyLiteralChannel() {
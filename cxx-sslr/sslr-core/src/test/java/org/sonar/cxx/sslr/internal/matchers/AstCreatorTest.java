@@ -26,10 +26,12 @@ package org.sonar.cxx.sslr.internal.matchers;
 import com.sonar.cxx.sslr.api.AstNode;
 import com.sonar.cxx.sslr.api.AstNodeType;
 import com.sonar.cxx.sslr.api.GenericTokenType;
+import com.sonar.cxx.sslr.api.Token;
 import com.sonar.cxx.sslr.api.TokenType;
 import com.sonar.cxx.sslr.impl.ast.AstXmlPrinter;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import static org.assertj.core.api.Assertions.*;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
@@ -154,6 +156,25 @@ class AstCreatorTest {
     assertThat(astNode.getToken()).isNull();
   }
 
+  @Test
+  void shouldCreateDeeplyNestedTree() {
+    var input = "foo".toCharArray();
+    var ruleMatcher = new MutableParsingRule("rule");
+    var parseTreeRoot = new ParseNode(0, 3, Collections.<ParseNode>emptyList(), null);
+    for (int i = 0; i < 100_000; i++) {
+      parseTreeRoot = new ParseNode(0, 3, List.of(parseTreeRoot), ruleMatcher);
+    }
+
+    InputBuffer inputBuffer = new ImmutableInputBuffer(input);
+    var parsingResult = new ParsingResult(inputBuffer, true, parseTreeRoot, null);
+
+    // the parse tree must not overflow the thread stack
+    var astNode = AstCreator.create(parsingResult, new LocatedText(null, input));
+    assertThat(astNode.getDescendants(ruleMatcher)).hasSize(100_000 - 1);
+    assertThat(astNode.getTokens()).extracting(Token::getValue).containsExactly("foo");
+    assertThat(astNode.getToken()).isSameAs(astNode.getTokens().get(0));
+  }
+
   private static MutableParsingRule mockRuleMatcher(String name) {
     return when(mock(MutableParsingRule.class).getName()).thenReturn(name).getMock();
   }
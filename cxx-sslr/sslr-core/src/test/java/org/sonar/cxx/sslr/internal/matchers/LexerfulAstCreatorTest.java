@@ -0,0 +1,174 @@
+/*
+ * C++ Community Plugin (cxx plugin)
+ * Copyright (C) 2022-2024 SonarOpenCommunity
+ * http://github.com/SonarOpenCommunity/sonar-cxx
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.cxx.sslr.internal.matchers;
+
+import com.sonar.cxx.sslr.api.AstNode;
+import com.sonar.cxx.sslr.api.GenericTokenType;
+import com.sonar.cxx.sslr.api.Token;
+import com.sonar.cxx.sslr.api.TokenType;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.annotation.Nullable;
+import static org.assertj.core.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import org.sonar.cxx.sslr.grammar.GrammarRuleKey;
+import org.sonar.cxx.sslr.grammar.LexerfulGrammarBuilder;
+import org.sonar.cxx.sslr.internal.vm.CompilableGrammarRule;
+import org.sonar.cxx.sslr.internal.vm.CompiledGrammar;
+import org.sonar.cxx.sslr.internal.vm.ErrorLocatingHandler;
+import org.sonar.cxx.sslr.internal.vm.Machine;
+import org.sonar.cxx.sslr.internal.vm.MutableGrammarCompiler;
+
+class LexerfulAstCreatorTest {
+
+  private enum Keys implements GrammarRuleKey {
+    ROOT, M, Q, C, SKIPPED, EMPTY, NESTED
+  }
+
+  private enum TokenTypes implements TokenType {
+    WORD, HIDDEN;
+
+    @Override
+    public String getName() {
+      return name();
+    }
+
+    @Override
+    public String getValue() {
+      return name();
+    }
+
+    @Override
+    public boolean hasToBeSkippedFromAst(@Nullable AstNode node) {
+      return this == HIDDEN;
+    }
+  }
+
+  @Test
+  void shouldCreateSameAstWhileParsing() {
+    var grammar = grammar();
+    var tokens = tokens("c", "m", "y", "h", "s", "t");
+
+    var expected = LexerfulAstCreator.create(Machine.parse(tokens, grammar()), tokens);
+    var actual = Machine.parseToAst(tokens, grammar, new ErrorLocatingHandler(), Machine.DEFAULT_MEMO_CAPACITY);
+
+    assertThat(print(actual)).isEqualTo(print(expected))
+      .isEqualTo("ROOT[M[C[c] m] y s t EMPTY[] EOF]");
+    assertLinked(actual);
+  }
+
+  @Test
+  void shouldLinkReusedNodes() {
+    var tokens = tokens("c", "m", "y", "t");
+    var ast = Machine.parseToAst(tokens, grammar(), new ErrorLocatingHandler(), Machine.DEFAULT_MEMO_CAPACITY);
+
+    // node C is created by M, reused by Q (discarded) and then reused with M
+    var m = ast.getFirstChild(Keys.M);
+    assertThat(m.getFirstChild().getParent()).isSameAs(m);
+    assertLinked(ast);
+  }
+
+  @Test
+  void shouldCreateDeeplyNestedTree() {
+    var b = LexerfulGrammarBuilder.create();
+    b.rule(Keys.NESTED).is(b.firstOf(b.sequence("(", Keys.NESTED, ")"), "c"));
+    b.rule(Keys.ROOT).is(Keys.NESTED, GenericTokenType.EOF);
+    var grammar = MutableGrammarCompiler.compile((CompilableGrammarRule) b.build().rule(Keys.ROOT));
+    int depth = 20_000;
+    var values = new String[2 * depth + 1];
+    Arrays.fill(values, 0, depth, "(");
+    values[depth] = "c";
+    Arrays.fill(values, depth + 1, values.length, ")");
+    var tokens = tokens(values);
+
+    // the trees must not overflow the thread stack
+    var ast = LexerfulAstCreator.create(Machine.parse(tokens, grammar), tokens);
+    assertThat(ast.getDescendants(Keys.NESTED)).hasSize(depth + 1);
+    assertThat(ast.getTokens()).hasSize(tokens.size());
+    ast = Machine.parseToAst(tokens, grammar, new ErrorLocatingHandler(), Machine.DEFAULT_MEMO_CAPACITY);
+    assertThat(ast.getDescendants(Keys.NESTED)).hasSize(depth + 1);
+    assertThat(ast.getTokens()).hasSize(tokens.size());
+  }
+
+  /**
+   * Rules are memoized: the second alternative reuses C of the first one, the third one reuses M.
+   */
+  private static CompiledGrammar grammar() {
+    var b = LexerfulGrammarBuilder.create();
+    b.rule(Keys.C).is("c");
+    b.rule(Keys.M).is(Keys.C, "m");
+    b.rule(Keys.Q).is(Keys.C, "m");
+    b.rule(Keys.SKIPPED).is(b.optional(TokenTypes.HIDDEN), b.firstOf("s", "t"), b.optional(Keys.SKIPPED));
+    b.rule(Keys.SKIPPED).skip();
+    b.rule(Keys.EMPTY).is(b.optional("e"));
+    b.rule(Keys.ROOT).is(b.firstOf(b.sequence(Keys.M, "x"), b.sequence(Keys.Q, "x"), b.sequence(Keys.M, "y")),
+      b.optional(Keys.SKIPPED), Keys.EMPTY, GenericTokenType.EOF);
+    return MutableGrammarCompiler.compile(
+      (CompilableGrammarRule) b.buildWithMemoizationOfMatchesForAllRules().rule(Keys.ROOT));
+  }
+
+  private static String print(AstNode node) {
+    if (!node.hasChildren() && node.hasToken() && node.getType() instanceof TokenType) {
+      return node.getTokenValue();
+    }
+    var sb = new StringBuilder(node.getName()).append('[');
+    for (var child : node.getChildren()) {
+      if (child != node.getFirstChild()) {
+        sb.append(' ');
+      }
+      sb.append(print(child));
+    }
+    return sb.append(']').toString();
+  }
+
+  private static void assertLinked(AstNode node) {
+    var children = node.getChildren();
+    for (int i = 0; i < children.size(); i++) {
+      assertThat(children.get(i).getParent()).isSameAs(node);
+      assertThat(children.get(i).getNextSibling()).isSameAs(i + 1 < children.size() ? children.get(i + 1) : null);
+      assertLinked(children.get(i));
+    }
+  }
+
+  private static List<Token> tokens(String... values) {
+    var uri = URI.create("tests://unittest");
+    var result = new ArrayList<Token>();
+    for (var value : values) {
+      result.add(Token.builder()
+        .setType("h".equals(value) ? TokenTypes.HIDDEN : TokenTypes.WORD)
+        .setValueAndOriginalValue(value)
+        .setURI(uri)
+        .setLine(1)
+        .setColumn(result.size())
+        .build());
+    }
+    result.add(Token.builder()
+      .setType(GenericTokenType.EOF)
+      .setValueAndOriginalValue("EOF")
+      .setURI(uri)
+      .setLine(1)
+      .setColumn(result.size())
+      .build());
+    return result;
+  }
+
+}
@@ -0,0 +1,87 @@
+/*
+ * C++ Community Plugin (cxx plugin)
+ * Copyright (C) 2022-2024 SonarOpenCommunity
+ * http://github.com/SonarOpenCommunity/sonar-cxx
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.cxx.sslr.internal.vm;
+
+import com.sonar.cxx.sslr.api.GenericTokenType;
+import static org.assertj.core.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import org.sonar.cxx.sslr.grammar.GrammarRuleKey;
+import org.sonar.cxx.sslr.grammar.LexerfulGrammarBuilder;
+
+class CompiledGrammarTest {
+
+  private enum Keys implements GrammarRuleKey {
+    ROOT, A, B, UNUSED
+  }
+
+  private final LexerfulGrammarBuilder b = LexerfulGrammarBuilder.create();
+
+  CompiledGrammarTest() {
+    b.rule(Keys.A).is("a");
+    b.rule(Keys.B).is(Keys.A, "b");
+    b.rule(Keys.ROOT).is(Keys.B, GenericTokenType.EOF);
+    b.rule(Keys.UNUSED).is("c");
+  }
+
+  @Test
+  void shouldUseRulesAsEntryPoints() {
+    var grammar = b.build();
+    var compiled = MutableGrammarCompiler.compile((CompilableGrammarRule) grammar.rule(Keys.ROOT));
+
+    assertThat(compiled.withRootRule(Keys.ROOT)).isSameAs(compiled);
+    var entry = compiled.withRootRule(Keys.A);
+    assertThat(entry).isNotNull();
+    assertThat(entry.getInstructions()).isSameAs(compiled.getInstructions());
+    assertThat(entry.getRootRuleKey()).isSameAs(Keys.A);
+    assertThat(entry.getMatcher(Keys.A)).isSameAs(grammar.rule(Keys.A));
+    assertThat(entry.getRootRuleOffset()).isNotEqualTo(compiled.getRootRuleOffset());
+    assertThat(compiled.withRootRule(Keys.UNUSED)).isNull();
+  }
+
+  @Test
+  void shouldDetectModifiedRules() {
+    var grammar = b.build();
+    var compiled = MutableGrammarCompiler.compile((CompilableGrammarRule) grammar.rule(Keys.ROOT));
+    assertThat(compiled.isUpToDate()).isTrue();
+
+    grammar.rule(Keys.UNUSED).override("d");
+    assertThat(compiled.isUpToDate()).isTrue();
+
+    grammar.rule(Keys.A).override("c");
+    assertThat(compiled.isUpToDate()).isFalse();
+    assertThat(compiled.withRootRule(Keys.B).isUpToDate()).isFalse();
+
+    var recompiled = MutableGrammarCompiler.compile((CompilableGrammarRule) grammar.rule(Keys.ROOT));
+    assertThat(recompiled.isUpToDate()).isTrue();
+  }
+
+  @Test
+  void shouldIgnoreRulesOfOtherGrammars() {
+    var grammar = b.build();
+    var compiled = MutableGrammarCompiler.compile((CompilableGrammarRule) grammar.rule(Keys.ROOT));
+
+    var other = LexerfulGrammarBuilder.create();
+    other.rule(Keys.A).is("a");
+    other.rule(Keys.ROOT).is(Keys.A, GenericTokenType.EOF);
+    other.build().rule(Keys.A).override("c");
+    assertThat(compiled.isUpToDate()).isTrue();
+  }
+
+}
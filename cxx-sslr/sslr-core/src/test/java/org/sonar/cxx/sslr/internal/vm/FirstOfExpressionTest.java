@@ -23,11 +23,25 @@
  */
 package org.sonar.cxx.sslr.internal.vm;
 
+import com.sonar.cxx.sslr.api.GenericTokenType;
+import com.sonar.cxx.sslr.api.RecognitionException;
+import com.sonar.cxx.sslr.api.Token;
+import com.sonar.cxx.sslr.impl.RuleProfile;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
 import static org.assertj.core.api.Assertions.*;
 import org.junit.jupiter.api.Test;
+import org.sonar.cxx.sslr.grammar.GrammarRuleKey;
+import org.sonar.cxx.sslr.grammar.LexerfulGrammarBuilder;
+import org.sonar.cxx.sslr.internal.vm.lexerful.TokenValueExpression;
 
 class FirstOfExpressionTest {
 
+  private enum Keys implements GrammarRuleKey {
+    ROOT, A, B
+  }
+
   @Test
   void shouldCompile() {
     var expression = new FirstOfExpression(
@@ -49,4 +63,68 @@ class FirstOfExpressionTest {
       SubExpression.mockInstruction(6),});
   }
 
+  @Test
+  void shouldCompileWithDispatch() {
+    var a = new TokenValueExpression("a");
+    var b = new TokenValueExpression("b");
+    var instructions = new MutableGrammarCompiler().compile(new FirstOfExpression(a, b));
+    assertThat(instructions).hasSize(6);
+    assertThat(instructions[0]).isInstanceOf(Instruction.DispatchInstruction.class).hasToString("Dispatch 0");
+    assertThat(instructions[1]).isEqualTo(Instruction.choice(3));
+    assertThat(instructions[2]).isSameAs(a);
+    assertThat(instructions[3]).isEqualTo(Instruction.commit(3));
+    assertThat(instructions[4]).isInstanceOf(Instruction.DispatchInstruction.class).hasToString("Dispatch 1");
+    assertThat(instructions[5]).isSameAs(b);
+  }
+
+  @Test
+  void shouldSkipAlternatives() {
+    var b = LexerfulGrammarBuilder.create();
+    b.rule(Keys.A).is("a");
+    b.rule(Keys.B).is("b");
+    b.rule(Keys.ROOT).is(b.firstOf(Keys.A, Keys.B, "c"), GenericTokenType.EOF);
+    var grammar = MutableGrammarCompiler.compile((CompilableGrammarRule) b.build().rule(Keys.ROOT));
+
+    var handler = new RuleProfilingHandler();
+    Machine.parse(tokens("c"), grammar, handler);
+    assertThat(handler.getRuleProfiles()).extracting(RuleProfile::rule).containsOnly("ROOT");
+  }
+
+  @Test
+  void shouldReportErrorsOfSkippedAlternatives() {
+    var b = LexerfulGrammarBuilder.create();
+    b.rule(Keys.A).is("a");
+    b.rule(Keys.ROOT).is(b.firstOf(b.sequence("p", b.optional(b.firstOf(Keys.A, "q")), "r"), "x"),
+      GenericTokenType.EOF);
+    var grammar = MutableGrammarCompiler.compile((CompilableGrammarRule) b.build().rule(Keys.ROOT));
+
+    // rule A is skipped at "z", the error is located there as if A failed
+    var handler = new ErrorLocatingHandler();
+    var tokens = tokens("p", "z");
+    assertThatThrownBy(() -> Machine.parse(tokens, grammar, handler)).isInstanceOf(RecognitionException.class);
+    assertThat(handler.getErrorIndex()).isEqualTo(1);
+  }
+
+  private static List<Token> tokens(String... values) {
+    var uri = URI.create("tests://unittest");
+    var result = new ArrayList<Token>();
+    for (var value : values) {
+      result.add(Token.builder()
+        .setType(GenericTokenType.IDENTIFIER)
+        .setValueAndOriginalValue(value)
+        .setURI(uri)
+        .setLine(1)
+        .setColumn(result.size())
+        .build());
+    }
+    result.add(Token.builder()
+      .setType(GenericTokenType.EOF)
+      .setValueAndOriginalValue("EOF")
+      .setURI(uri)
+      .setLine(1)
+      .setColumn(result.size())
+      .build());
+    return result;
+  }
+
 }
@@ -0,0 +1,114 @@
+/*
+ * C++ Community Plugin (cxx plugin)
+ * Copyright (C) 2022-2024 SonarOpenCommunity
+ * http://github.com/SonarOpenCommunity/sonar-cxx
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.cxx.sslr.internal.vm;
+
+import com.sonar.cxx.sslr.api.GenericTokenType;
+import static org.assertj.core.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import org.sonar.cxx.sslr.grammar.GrammarRuleKey;
+import org.sonar.cxx.sslr.grammar.LexerfulGrammarBuilder;
+import org.sonar.cxx.sslr.grammar.LexerlessGrammarBuilder;
+
+class FirstSetTest {
+
+  private enum Keys implements GrammarRuleKey {
+    A, B, C, D
+  }
+
+  private final MutableGrammarCompiler compiler = new MutableGrammarCompiler();
+
+  @Test
+  void tokens() {
+    var b = LexerfulGrammarBuilder.create();
+    b.rule(Keys.A).is(b.firstOf("a", GenericTokenType.IDENTIFIER), b.optional("b"));
+    b.rule(Keys.B).is(b.optional("b"), b.firstOf(b.isOneOfThem(GenericTokenType.LITERAL, GenericTokenType.CONSTANT),
+      b.bridge(GenericTokenType.COMMENT, GenericTokenType.EOL)));
+    var grammar = b.build();
+
+    var a = compiler.firstSet((ParsingExpression) grammar.rule(Keys.A));
+    assertThat(a.getValues()).containsOnly("a");
+    assertThat(a.getTypes()).containsOnly(GenericTokenType.IDENTIFIER);
+    assertThat(a.isSkippable()).isTrue();
+    assertThat(a.reportsError()).isTrue();
+
+    var b1 = compiler.firstSet((ParsingExpression) grammar.rule(Keys.B));
+    assertThat(b1.getValues()).containsOnly("b");
+    assertThat(b1.getTypes()).containsOnly(GenericTokenType.LITERAL, GenericTokenType.CONSTANT,
+      GenericTokenType.COMMENT);
+    assertThat(b1.isSkippable()).isTrue();
+  }
+
+  @Test
+  void nullable() {
+    var b = LexerfulGrammarBuilder.create();
+    b.rule(Keys.A).is(b.zeroOrMore("a"));
+    b.rule(Keys.B).is(Keys.A, b.next("b"), "c");
+    b.rule(Keys.C).is(b.firstOf(Keys.A, "c"));
+    b.rule(Keys.D).is(b.nextNot("d"), "e");
+    var grammar = b.build();
+
+    var a = compiler.firstSet((ParsingExpression) grammar.rule(Keys.A));
+    assertThat(a.isNullable()).isTrue();
+    assertThat(a.isSkippable()).isFalse();
+    assertThat(a.reportsError()).isFalse();
+
+    var b1 = compiler.firstSet((ParsingExpression) grammar.rule(Keys.B));
+    assertThat(b1.getValues()).containsOnly("a", "b");
+    assertThat(b1.isNullable()).isFalse();
+    assertThat(b1.reportsError()).isTrue();
+
+    var c = compiler.firstSet((ParsingExpression) grammar.rule(Keys.C));
+    assertThat(c.getValues()).containsOnly("a", "c");
+    assertThat(c.isNullable()).isTrue();
+
+    var d = compiler.firstSet((ParsingExpression) grammar.rule(Keys.D));
+    assertThat(d.getValues()).containsOnly("e");
+    assertThat(d.isSkippable()).isTrue();
+  }
+
+  @Test
+  void any() {
+    var b = LexerfulGrammarBuilder.create();
+    b.rule(Keys.A).is(b.firstOf("a", b.anyToken()));
+    b.rule(Keys.B).is(b.optional("b"), Keys.B);
+    var grammar = b.build();
+
+    assertThat(compiler.firstSet((ParsingExpression) grammar.rule(Keys.A)).isAny()).isTrue();
+    // left recursion
+    assertThat(compiler.firstSet((ParsingExpression) grammar.rule(Keys.B)).isAny()).isTrue();
+  }
+
+  @Test
+  void lexerless() {
+    var b = LexerlessGrammarBuilder.create();
+    b.rule(Keys.A).is("a");
+    var grammar = b.build();
+
+    var a = compiler.firstSet((ParsingExpression) grammar.rule(Keys.A));
+    assertThat(a.isAny()).isTrue();
+    assertThat(a.isSkippable()).isFalse();
+  }
+
+  @Test
+  void unknownWithoutCompiler() {
+    assertThat(new CompilationHandler().firstSet(new FirstOfExpression())).isNull();
+  }
+
+}
@@ -0,0 +1,138 @@
+/*
+ * C++ Community Plugin (cxx plugin)
+ * Copyright (C) 2022-2024 SonarOpenCommunity
+ * http://github.com/SonarOpenCommunity/sonar-cxx
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.cxx.sslr.internal.vm;
+
+import com.sonar.cxx.sslr.api.GenericTokenType;
+import com.sonar.cxx.sslr.api.Token;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import static org.assertj.core.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import static org.mockito.Mockito.mock;
+import org.sonar.cxx.sslr.grammar.GrammarException;
+import org.sonar.cxx.sslr.grammar.GrammarRuleKey;
+import org.sonar.cxx.sslr.grammar.LexerfulGrammarBuilder;
+import org.sonar.cxx.sslr.internal.matchers.Matcher;
+import org.sonar.cxx.sslr.internal.matchers.ParseNode;
+
+class MachineContextTest {
+
+  private enum Keys implements GrammarRuleKey {
+    ROOT, A
+  }
+
+  @Test
+  void shouldBeReusedByThread() {
+    var context = MachineContext.acquire();
+    // nested parse
+    var nested = MachineContext.acquire();
+    assertThat(nested).isNotSameAs(context);
+    context.release(0, context.stack(), true);
+    assertThat(MachineContext.acquire()).isSameAs(context);
+    context.release(0, context.stack(), true);
+  }
+
+  @Test
+  void shouldReuseTokens() {
+    var context = new MachineContext();
+    var array = context.tokens(tokens("a", "b", "c"));
+    assertThat(array).hasSize(4);
+    context.release(4, context.stack(), true);
+    assertThat(array).containsOnlyNulls();
+
+    assertThat(context.tokens(tokens("a"))).isSameAs(array);
+    assertThat(array[1].getValue()).isEqualTo("EOF");
+    assertThat(array[2]).isNull();
+    assertThat(array[3]).isNull();
+    context.release(2, context.stack(), true);
+    assertThat(context.tokens(tokens("a", "b", "c", "d"))).isNotSameAs(array).hasSize(5);
+  }
+
+  @Test
+  void shouldRefillCallsOnlyAfterAbortedParse() {
+    var context = new MachineContext();
+    var calls = context.calls(3);
+    assertThat(calls).containsOnly(-1);
+    calls[1] = 5;
+    context.release(0, context.stack(), false);
+    assertThat(context.calls(2)).isSameAs(calls).containsOnly(-1);
+    calls[1] = 5;
+    context.release(0, context.stack(), true);
+    assertThat(context.calls(3)).isSameAs(calls).containsExactly(-1, 5, -1);
+    context.release(0, context.stack(), true);
+    assertThat(context.calls(4)).isNotSameAs(calls).containsOnly(-1);
+  }
+
+  @Test
+  void shouldClearNodesOfUsedFrames() {
+    var context = new MachineContext();
+    var frame = context.stack().getOrCreateChild().getOrCreateChild();
+    var matcher = mock(Matcher.class);
+    context.stack().subNodes().add(new ParseNode(0, 1, matcher));
+    frame.parent().subNodes().add(new ParseNode(0, 1, matcher));
+    frame.subNodes().add(new ParseNode(0, 1, matcher));
+    context.memos(10, Machine.DEFAULT_MEMO_CAPACITY).put(new ParseNode(0, 1, matcher));
+    context.release(1, frame, true);
+    assertThat(context.stack().subNodes()).isEmpty();
+    assertThat(frame.parent().subNodes()).isEmpty();
+    assertThat(frame.subNodes()).isEmpty();
+    assertThat(context.memos(10, Machine.DEFAULT_MEMO_CAPACITY).get(0, matcher)).isNull();
+  }
+
+  @Test
+  void shouldParseAfterAbortedParse() {
+    var b = LexerfulGrammarBuilder.create();
+    b.rule(Keys.A).is(b.firstOf("x", b.sequence(Keys.A, "a")));
+    b.rule(Keys.ROOT).is(Keys.A, GenericTokenType.EOF);
+    var grammar = MutableGrammarCompiler.compile((CompilableGrammarRule) b.build().rule(Keys.ROOT));
+
+    var tokens = tokens("y");
+    assertThatThrownBy(() -> Machine.parse(tokens, grammar))
+      .isInstanceOf(GrammarException.class)
+      .hasMessageContaining("Left recursion");
+    // the calls of the aborted parse have been reset
+    assertThat(Machine.parse(tokens("x"), grammar).getEndIndex()).isEqualTo(2);
+    assertThat(Machine.parse(tokens("x"), grammar).getEndIndex()).isEqualTo(2);
+  }
+
+  private static List<Token> tokens(String... values) {
+    var uri = URI.create("tests://unittest");
+    var result = new ArrayList<Token>();
+    for (var value : values) {
+      result.add(Token.builder()
+        .setType(GenericTokenType.IDENTIFIER)
+        .setValueAndOriginalValue(value)
+        .setURI(uri)
+        .setLine(1)
+        .setColumn(result.size())
+        .build());
+    }
+    result.add(Token.builder()
+      .setType(GenericTokenType.EOF)
+      .setValueAndOriginalValue("EOF")
+      .setURI(uri)
+      .setLine(1)
+      .setColumn(result.size())
+      .build());
+    return result;
+  }
+
+}
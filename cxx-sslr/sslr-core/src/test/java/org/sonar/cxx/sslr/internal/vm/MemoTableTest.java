@@ -0,0 +1,110 @@
+/*
+ * C++ Community Plugin (cxx plugin)
+ * Copyright (C) 2022-2024 SonarOpenCommunity
+ * http://github.com/SonarOpenCommunity/sonar-cxx
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.cxx.sslr.internal.vm;
+
+import static org.assertj.core.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import static org.mockito.Mockito.mock;
+import org.sonar.cxx.sslr.internal.matchers.Matcher;
+import org.sonar.cxx.sslr.internal.matchers.ParseNode;
+
+class MemoTableTest {
+
+  @Test
+  void shouldKeepSeveralRulesPerIndex() {
+    var table = new MemoTable(10, Machine.DEFAULT_MEMO_CAPACITY);
+    var matchers = new Matcher[MemoTable.WAYS];
+    var nodes = new ParseNode[MemoTable.WAYS];
+    for (int i = 0; i < matchers.length; i++) {
+      matchers[i] = mock(Matcher.class);
+      nodes[i] = new ParseNode(3, 5, matchers[i]);
+      table.put(nodes[i]);
+    }
+    for (int i = 0; i < matchers.length; i++) {
+      assertThat(table.get(3, matchers[i])).isSameAs(nodes[i]);
+    }
+    assertThat(table.get(4, matchers[0])).isNull();
+  }
+
+  @Test
+  void shouldEvictOldestEntry() {
+    var table = new MemoTable(10, Machine.DEFAULT_MEMO_CAPACITY);
+    var first = mock(Matcher.class);
+    table.put(new ParseNode(3, 5, first));
+    for (int i = 0; i < MemoTable.WAYS; i++) {
+      table.put(new ParseNode(3, 5, mock(Matcher.class)));
+    }
+    assertThat(table.get(3, first)).isNull();
+  }
+
+  @Test
+  void shouldReplaceEntryOfSameRule() {
+    var table = new MemoTable(10, Machine.DEFAULT_MEMO_CAPACITY);
+    var matcher = mock(Matcher.class);
+    var other = mock(Matcher.class);
+    var otherNode = new ParseNode(3, 4, other);
+    table.put(otherNode);
+    table.put(new ParseNode(3, 5, matcher));
+    var node = new ParseNode(3, 6, matcher);
+    table.put(node);
+    for (int i = 0; i < MemoTable.WAYS - 2; i++) {
+      table.put(new ParseNode(3, 5, mock(Matcher.class)));
+    }
+    assertThat(table.get(3, matcher)).isSameAs(node);
+    assertThat(table.get(3, other)).isSameAs(otherNode);
+  }
+
+  @Test
+  void shouldLimitCapacity() {
+    assertThat(new MemoTable(0, Machine.DEFAULT_MEMO_CAPACITY).capacity()).isEqualTo(MemoTable.WAYS);
+    assertThat(new MemoTable(100, Machine.DEFAULT_MEMO_CAPACITY).capacity()).isEqualTo(128 * MemoTable.WAYS);
+    assertThat(new MemoTable(100, 16 * MemoTable.WAYS).capacity()).isEqualTo(16 * MemoTable.WAYS);
+    assertThat(new MemoTable(100, 1).capacity()).isEqualTo(MemoTable.WAYS);
+
+    // distant indices share a set
+    var table = new MemoTable(100, 16 * MemoTable.WAYS);
+    var matcher = mock(Matcher.class);
+    var node = new ParseNode(20, 21, matcher);
+    table.put(node);
+    assertThat(table.get(20, matcher)).isSameAs(node);
+    assertThat(table.get(4, matcher)).isNull();
+  }
+
+  @Test
+  void shouldBeReusable() {
+    var table = new MemoTable(100, Machine.DEFAULT_MEMO_CAPACITY);
+    var matcher = mock(Matcher.class);
+    table.put(new ParseNode(20, 21, matcher));
+    table.clear();
+    assertThat(table.get(20, matcher)).isNull();
+
+    table.reset(10, Machine.DEFAULT_MEMO_CAPACITY);
+    assertThat(table.capacity()).isEqualTo(16 * MemoTable.WAYS);
+    var node = new ParseNode(5, 6, matcher);
+    table.put(node);
+    assertThat(table.get(5, matcher)).isSameAs(node);
+    table.clear();
+
+    table.reset(1000, Machine.DEFAULT_MEMO_CAPACITY);
+    assertThat(table.capacity()).isEqualTo(1024 * MemoTable.WAYS);
+    assertThat(table.get(5, matcher)).isNull();
+  }
+
+}
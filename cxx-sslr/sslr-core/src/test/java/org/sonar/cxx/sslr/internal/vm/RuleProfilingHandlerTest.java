@@ -0,0 +1,94 @@
+/*
+ * C++ Community Plugin (cxx plugin)
+ * Copyright (C) 2022-2024 SonarOpenCommunity
+ * http://github.com/SonarOpenCommunity/sonar-cxx
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.cxx.sslr.internal.vm;
+
+import com.sonar.cxx.sslr.api.GenericTokenType;
+import com.sonar.cxx.sslr.api.Token;
+import com.sonar.cxx.sslr.impl.RuleProfile;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import static org.assertj.core.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import org.sonar.cxx.sslr.grammar.GrammarRuleKey;
+import org.sonar.cxx.sslr.grammar.LexerfulGrammarBuilder;
+
+class RuleProfilingHandlerTest {
+
+  private enum Keys implements GrammarRuleKey {
+    ROOT, A, B
+  }
+
+  @Test
+  void shouldCountPerRule() {
+    var b = LexerfulGrammarBuilder.create();
+    b.rule(Keys.A).is("a");
+    b.rule(Keys.B).is(Keys.A, "b");
+    b.rule(Keys.ROOT).is(b.firstOf(b.sequence(Keys.B, "c"), b.sequence(Keys.A, "d")), GenericTokenType.EOF);
+    var grammar = MutableGrammarCompiler.compile((CompilableGrammarRule) b.buildWithMemoizationOfMatchesForAllRules().rule(Keys.ROOT));
+
+    var handler = new RuleProfilingHandler();
+    Machine.parse(tokens("a", "d"), grammar, handler);
+
+    // B consumes "a" and fails on "d", A is taken from the memo table by the second alternative
+    var profiles = handler.getRuleProfiles();
+    assertThat(profiles).extracting(RuleProfile::rule).containsExactlyInAnyOrder("ROOT", "A", "B");
+    assertThat(profiles.get(0).rule()).isEqualTo("B");
+    assertThat(counts(profiles, "B")).containsExactly(1L, 0L, 1L, 0L, 1L);
+    assertThat(counts(profiles, "A")).containsExactly(1L, 1L, 0L, 1L, 0L);
+    assertThat(counts(profiles, "ROOT")).containsExactly(1L, 1L, 0L, 0L, 0L);
+    assertThat(handler.getErrorIndex()).isEqualTo(1);
+  }
+
+  @Test
+  void shouldAddProfiles() {
+    var profile = new RuleProfile("A", 1, 2, 3, 4, 5, 6).add(new RuleProfile("A", 10, 20, 30, 40, 50, 60));
+    assertThat(profile).isEqualTo(new RuleProfile("A", 11, 22, 33, 44, 55, 66));
+  }
+
+  private static List<Long> counts(List<RuleProfile> profiles, String rule) {
+    var profile = profiles.stream().filter(p -> p.rule().equals(rule)).findFirst().orElseThrow();
+    return List.of(profile.invocations(), profile.matches(), profile.backtracks(), profile.memoHits(),
+      profile.backtrackedTokens());
+  }
+
+  private static List<Token> tokens(String... values) {
+    var uri = URI.create("tests://unittest");
+    var result = new ArrayList<Token>();
+    for (var value : values) {
+      result.add(Token.builder()
+        .setType(GenericTokenType.IDENTIFIER)
+        .setValueAndOriginalValue(value)
+        .setURI(uri)
+        .setLine(1)
+        .setColumn(result.size())
+        .build());
+    }
+    result.add(Token.builder()
+      .setType(GenericTokenType.EOF)
+      .setValueAndOriginalValue("EOF")
+      .setURI(uri)
+      .setLine(1)
+      .setColumn(result.size())
+      .build());
+    return result;
+  }
+
+}
@@ -0,0 +1,216 @@
+/*
+ * C++ Community Plugin (cxx plugin)
+ * Copyright (C) 2022-2024 SonarOpenCommunity
+ * http://github.com/SonarOpenCommunity/sonar-cxx
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.cxx.sslr.impl;
+
+import static com.sonar.cxx.sslr.api.GenericTokenType.EOF;
+import static com.sonar.cxx.sslr.api.GenericTokenType.IDENTIFIER;
+import com.sonar.cxx.sslr.api.Preprocessor;
+import com.sonar.cxx.sslr.api.PreprocessorAction;
+import com.sonar.cxx.sslr.api.Token;
+import com.sonar.cxx.sslr.api.Trivia;
+import com.sonar.cxx.sslr.impl.channel.BlackHoleChannel;
+import com.sonar.cxx.sslr.impl.channel.IdentifierAndKeywordChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import static org.assertj.core.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+class LexerTest {
+
+  @Test
+  void chainedPreprocessors() {
+    var recorder = new RecordingPreprocessor();
+    var lexer = lexer(new ExpandPreprocessor(), new JoinPreprocessor(), recorder);
+
+    var tokens = lexer.lex("a x drop b x");
+
+    assertThat(tokens).extracting(Token::getValue).containsExactly("a", "yz", "b", "yz", "EOF");
+    assertThat(tokens.get(2).getTrivia()).hasSize(1);
+    assertThat(tokens.get(2).getTrivia().get(0).getToken().getValue()).isEqualTo("drop");
+    // the last stage sees the tokens of the previous stage
+    assertThat(recorder.values).containsExactly("a", "yz", "b", "yz", "EOF");
+  }
+
+  @Test
+  void chainedPreprocessorsReuseTheLexer() {
+    var lexer = lexer(new ExpandPreprocessor(), new JoinPreprocessor(), new ExpandPreprocessor());
+
+    assertThat(lexer.lex("x a x")).extracting(Token::getValue).containsExactly("yz", "a", "yz", "EOF");
+    assertThat(lexer.lex("b")).extracting(Token::getValue).containsExactly("b", "EOF");
+    assertThat(lexer.lex("drop x")).extracting(Token::getValue).containsExactly("yz", "EOF");
+  }
+
+  @Test
+  void remainingTokensAreReadOnly() {
+    var lexer = lexer(new Preprocessor() {
+      @Override
+      public PreprocessorAction process(List<Token> tokens) {
+        assertThatThrownBy(() -> tokens.remove(0)).isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(() -> tokens.add(tokens.get(0))).isInstanceOf(UnsupportedOperationException.class);
+        return PreprocessorAction.NO_OPERATION;
+      }
+    });
+
+    assertThat(lexer.lex("a b")).extracting(Token::getValue).containsExactly("a", "b", "EOF");
+  }
+
+  @Test
+  void retainedRemainingTokensShowTheCurrentPosition() {
+    var retaining = new RetainingPreprocessor();
+    var lexer = lexer(new ExpandPreprocessor(), retaining, new JoinPreprocessor());
+
+    lexer.lex("a x b");
+
+    // during the stage the view of the first call moves on with the preprocessor
+    assertThat(retaining.firstValues).containsExactly("a", "y", "z", "b", "EOF");
+  }
+
+  @Test
+  void retainedRemainingTokensCannotBeUsedAfterTheStage() {
+    var retaining = new RetainingPreprocessor();
+    // the list of the retaining stage is reused for the output of the last stage
+    var lexer = lexer(new ExpandPreprocessor(), retaining, new JoinPreprocessor(), new ExpandPreprocessor());
+
+    lexer.lex("a x b");
+    var retained = retaining.first;
+    var subList = retaining.subList;
+
+    assertThatThrownBy(retained::size).isInstanceOf(IllegalStateException.class);
+    assertThatThrownBy(() -> retained.get(0)).isInstanceOf(IllegalStateException.class);
+    assertThatThrownBy(() -> subList.get(0)).isInstanceOf(IllegalStateException.class);
+
+    // also not with the tokens of the next file
+    lexer.lex("c");
+    assertThatThrownBy(() -> retained.get(0)).isInstanceOf(IllegalStateException.class);
+  }
+
+  @Test
+  void remainingTokensAreClosedIfPreprocessorFails() {
+    var retained = new ArrayList<List<Token>>();
+    var lexer = lexer(new Preprocessor() {
+      @Override
+      public PreprocessorAction process(List<Token> tokens) {
+        retained.add(tokens);
+        throw new IllegalArgumentException("failure");
+      }
+    });
+
+    assertThatThrownBy(() -> lexer.lex("a")).isInstanceOf(LexerException.class);
+    assertThatThrownBy(() -> retained.get(0).get(0)).isInstanceOf(IllegalStateException.class);
+  }
+
+  private static Lexer lexer(Preprocessor... preprocessors) {
+    var builder = Lexer.builder()
+      .withFailIfNoChannelToConsumeOneCharacter(true)
+      .withChannel(new BlackHoleChannel("\\s++"))
+      .withChannel(new IdentifierAndKeywordChannel("[a-z]++", true));
+    for (var preprocessor : preprocessors) {
+      builder.withPreprocessor(preprocessor);
+    }
+    return builder.build();
+  }
+
+  private static Token token(Token token, String value) {
+    return Token.builder(token).setValueAndOriginalValue(value).build();
+  }
+
+  /**
+   * Replaces "x" by "y" "z" and removes "drop".
+   */
+  private static class ExpandPreprocessor extends Preprocessor {
+
+    @Override
+    public PreprocessorAction process(List<Token> tokens) {
+      var token = tokens.get(0);
+      switch (token.getValue()) {
+        case "x":
+          return new PreprocessorAction(1, Collections.emptyList(), List.of(token(token, "y"), token(token, "z")));
+        case "drop":
+          return new PreprocessorAction(1, List.of(Trivia.createSkippedText(token)), Collections.emptyList());
+        default:
+          return PreprocessorAction.NO_OPERATION;
+      }
+    }
+
+  }
+
+  /**
+   * Replaces "y" "z" by "yz".
+   */
+  private static class JoinPreprocessor extends Preprocessor {
+
+    @Override
+    public PreprocessorAction process(List<Token> tokens) {
+      if (tokens.size() > 1 && "y".equals(tokens.get(0).getValue()) && "z".equals(tokens.get(1).getValue())) {
+        return new PreprocessorAction(2, Collections.emptyList(), List.of(token(tokens.get(0), "yz")));
+      }
+      return PreprocessorAction.NO_OPERATION;
+    }
+
+  }
+
+  private static class RecordingPreprocessor extends Preprocessor {
+
+    private final List<String> values = new ArrayList<>();
+
+    @Override
+    public void init() {
+      values.clear();
+    }
+
+    @Override
+    public PreprocessorAction process(List<Token> tokens) {
+      assertThat(tokens.get(tokens.size() - 1).getType()).isEqualTo(EOF);
+      values.add(tokens.get(0).getValue());
+      return PreprocessorAction.NO_OPERATION;
+    }
+
+  }
+
+  /**
+   * Keeps the tokens of the first call, which a preprocessor must not do.
+   */
+  private static class RetainingPreprocessor extends Preprocessor {
+
+    private List<Token> first;
+    private List<Token> subList;
+    private final List<String> firstValues = new ArrayList<>();
+
+    @Override
+    public void init() {
+      first = null;
+      firstValues.clear();
+    }
+
+    @Override
+    public PreprocessorAction process(List<Token> tokens) {
+      if (first == null) {
+        first = tokens;
+        subList = tokens.subList(0, 1);
+        assertThat(tokens.get(0).getType()).isEqualTo(IDENTIFIER);
+      }
+      firstValues.add(first.get(0).getValue());
+      return PreprocessorAction.NO_OPERATION;
+    }
+
+  }
+
+}
@@ -25,6 +25,9 @@ package com.sonar.cxx.sslr.impl;
 
 import static com.sonar.cxx.sslr.api.GenericTokenType.EOF;
 import com.sonar.cxx.sslr.api.RecognitionException;
+import com.sonar.cxx.sslr.test.minic.MiniCGrammar;
+import com.sonar.cxx.sslr.test.minic.MiniCLexer;
+import static com.sonar.cxx.sslr.test.minic.MiniCLexer.Keywords.INT;
 import static com.sonar.cxx.sslr.test.minic.MiniCParser.parseFile;
 import static com.sonar.cxx.sslr.test.minic.MiniCParser.parseString;
 import static org.assertj.core.api.Assertions.*;
@@ -48,6 +51,23 @@ class ParserTest {
     assertThat(thrown).isExactlyInstanceOf(RecognitionException.class);
   }
 
+  @Test
+  void compiledGrammarIsSharedUntilRuleIsOverridden() {
+    var grammar = MiniCGrammar.create();
+    var first = Parser.builder(grammar).withLexer(MiniCLexer.create()).build();
+    var second = Parser.builder(grammar).withLexer(MiniCLexer.create()).build();
+
+    var compiled = first.getCompiledGrammar();
+    assertThat(first.getCompiledGrammar()).isSameAs(compiled);
+    assertThat(second.getCompiledGrammar().getInstructions()).isSameAs(compiled.getInstructions());
+
+    grammar.rule(MiniCGrammar.BIN_TYPE).override(INT);
+    var recompiled = first.getCompiledGrammar();
+    assertThat(recompiled.getInstructions()).isNotSameAs(compiled.getInstructions());
+    assertThat(second.getCompiledGrammar().getInstructions()).isSameAs(recompiled.getInstructions());
+    assertThat(first.parse("int a;").getNumberOfChildren()).isEqualTo(2);
+  }
+
   @Test
   void parse() {
     var compilationUnit = parseString("");
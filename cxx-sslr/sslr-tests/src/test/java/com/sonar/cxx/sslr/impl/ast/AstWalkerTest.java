@@ -27,6 +27,8 @@ import com.sonar.cxx.sslr.api.*;
 import com.sonar.cxx.sslr.impl.MockTokenType;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import static org.assertj.core.api.Assertions.assertThat;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import static org.mockito.Mockito.*;
@@ -131,4 +133,52 @@ class AstWalkerTest {
     verify(visitor2).leaveFile(astNodeWithToken);
   }
 
+  @Test
+  void testVisitDeeplyNestedNodes() {
+    var root = new AstNode(animal, "root", null);
+    var node = root;
+    for (int i = 0; i < 100_000; i++) {
+      var child = new AstNode(animal, "node", null);
+      node.addChild(child);
+      node = child;
+    }
+    var leaf = new AstNode(tiger, "leaf", null);
+    node.addChild(leaf);
+
+    var events = new ArrayList<String>();
+    walker.addVisitor(new AstVisitor() {
+      @Override
+      public List<AstNodeType> getAstNodeTypesToVisit() {
+        return Arrays.asList(animal, tiger);
+      }
+
+      @Override
+      public void visitFile(AstNode ast) {
+        // nop
+      }
+
+      @Override
+      public void leaveFile(AstNode ast) {
+        // nop
+      }
+
+      @Override
+      public void visitNode(AstNode ast) {
+        events.add("visit " + ast.getName());
+      }
+
+      @Override
+      public void leaveNode(AstNode ast) {
+        events.add("leave " + ast.getName());
+      }
+    });
+    walker.walkAndVisit(root);
+
+    assertThat(walker.getVisitedNodes()).isEqualTo(100_002);
+    assertThat(events).hasSize(2 * 100_002);
+    assertThat(events.subList(100_000, 100_004))
+      .containsExactly("visit node", "visit leaf", "leave leaf", "leave node");
+    assertThat(events.get(events.size() - 1)).isEqualTo("leave root");
+  }
+
 }
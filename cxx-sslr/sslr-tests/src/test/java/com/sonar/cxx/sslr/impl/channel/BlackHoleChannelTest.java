@@ -24,6 +24,7 @@
 package com.sonar.cxx.sslr.impl.channel;
 
 import com.sonar.cxx.sslr.impl.Lexer;
+import static org.assertj.core.api.Assertions.*;
 import org.assertj.core.api.AssertionsForClassTypes;
 import org.junit.jupiter.api.Test;
 import org.sonar.cxx.sslr.channel.CodeReader;
@@ -49,4 +50,14 @@ class BlackHoleChannelTest {
     AssertionsForClassTypes.assertThat(channel).is(consume(reader, lexer));
     AssertionsForClassTypes.assertThat(reader).has(hasNextChar('1'));
   }
+
+  @Test
+  void testStartCharacters() {
+    assertThat(channel.isStartCharacter('g')).isTrue();
+
+    var whitespace = new BlackHoleChannel("\\s++", BlackHoleChannel.WHITESPACE_CHARACTERS);
+    assertThat(whitespace.isStartCharacter(' ')).isTrue();
+    assertThat(whitespace.isStartCharacter('\n')).isTrue();
+    assertThat(whitespace.isStartCharacter('g')).isFalse();
+  }
 }
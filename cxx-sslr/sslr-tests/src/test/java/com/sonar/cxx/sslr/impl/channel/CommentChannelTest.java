@@ -30,6 +30,7 @@ import com.sonar.cxx.sslr.impl.Lexer;
 import static com.sonar.cxx.sslr.test.lexer.LexerConditions.*;
 import java.net.URI;
 import java.net.URISyntaxException;
+import static org.assertj.core.api.Assertions.*;
 import org.assertj.core.api.AssertionsForClassTypes;
 import org.junit.jupiter.api.Test;
 import static org.sonar.cxx.sslr.test.channel.ChannelMatchers.*;
@@ -50,6 +51,16 @@ class CommentChannelTest {
     AssertionsForClassTypes.assertThat(lexer.getTokens()).has(hasOriginalComment("//My Comment"));
   }
 
+  @Test
+  void testStartCharacters() {
+    channel = new CommentRegexpChannel("//.*");
+    assertThat(channel.isStartCharacter('T')).isTrue();
+
+    channel = new CommentRegexpChannel("//.*", "/");
+    assertThat(channel.isStartCharacter('/')).isTrue();
+    assertThat(channel.isStartCharacter('T')).isFalse();
+  }
+
   private static Token tokenBuilder(TokenType type, String value) {
     try {
       return Token.builder()
@@ -58,13 +58,35 @@ class PunctuatorChannelTest {
     assertThat(channel.consume(new CodeReader("!"), lexer)).isFalse();
   }
 
+  @Test
+  void testConsumeLongestMatch() {
+    AssertionsForClassTypes.assertThat(channel).has(consume("...", lexer));
+    AssertionsForClassTypes.assertThat(lexer.getTokens()).has(hasToken("...", MyPunctuatorAndOperator.ELLIPSIS));
+
+    var code = new CodeReader("..");
+    assertThat(channel.consume(code, lexer)).isTrue();
+    AssertionsForClassTypes.assertThat(lexer.getTokens()).has(hasToken(".", MyPunctuatorAndOperator.DOT));
+    assertThat(code.peek()).isEqualTo('.');
+
+    assertThat(channel.consume(new CodeReader("!"), lexer)).isFalse();
+    assertThat(channel.consume(new CodeReader(""), lexer)).isFalse();
+  }
+
+  @Test
+  void testStartCharacters() {
+    assertThat(channel.isStartCharacter('*')).isTrue();
+    assertThat(channel.isStartCharacter('!')).isTrue();
+    assertThat(channel.isStartCharacter('a')).isFalse();
+  }
+
   @Test
   void testNotConsumeWord() {
     assertThat(channel.consume(new CodeReader("word"), lexer)).isFalse();
   }
 
   private enum MyPunctuatorAndOperator implements TokenType {
-    STAR("*"), COLON(","), EQUAL("="), EQUAL_OP("=="), MUL_ASSIGN("*="), NOT_EQUAL("!=");
+    STAR("*"), COLON(","), EQUAL("="), EQUAL_OP("=="), MUL_ASSIGN("*="), NOT_EQUAL("!="), DOT("."),
+    ELLIPSIS("...");
 
     private final String value;
 
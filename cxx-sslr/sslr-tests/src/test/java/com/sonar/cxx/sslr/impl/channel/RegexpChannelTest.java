@@ -51,4 +51,14 @@ class RegexpChannelTest {
     AssertionsForClassTypes.assertThat(channel).has(consume("56;", lexer));
     assertThat(lexer.getTokens().get(0).getColumn()).isZero();
   }
+
+  @Test
+  void testStartCharacters() {
+    channel = new RegexpChannel(GenericTokenType.CONSTANT, "[0-9]*");
+    assertThat(channel.isStartCharacter('a')).isTrue();
+
+    channel = new RegexpChannel(GenericTokenType.CONSTANT, "[0-9]*", "0123456789");
+    assertThat(channel.isStartCharacter('5')).isTrue();
+    assertThat(channel.isStartCharacter('a')).isFalse();
+  }
 }
@@ -0,0 +1,337 @@
+/*
+ * C++ Community Plugin (cxx plugin)
+ * Copyright (C) 2010-2024 SonarOpenCommunity
+ * http://github.com/SonarOpenCommunity/sonar-cxx
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.cxx;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.cxx.config.CxxSquidConfiguration;
+import org.sonar.cxx.preprocessor.CxxPreprocessor;
+import org.sonar.cxx.preprocessor.IncludeLookup;
+import org.sonar.cxx.squidbridge.api.SourceFile;
+
+/**
+ * On-disk cache with the analysis results of the source files of previous runs.
+ *
+ * There is one cache file per source file. An entry is only valid if the following hashes are unchanged:
+ * <ul>
+ * <li>the contents of the source file</li>
+ * <li>the configuration of the translation unit (project fingerprint, defines, include directories and forced
+ * includes)</li>
+ * <li>the contents of all include files the preprocessor read for the translation unit</li>
+ * <li>the results of all searches for include files, also of those which found no file: a new include file can be
+ * found now or hide the include file found before</li>
+ * </ul>
+ * Valid entries are replayed without lexing and parsing the source file.
+ *
+ * The cache can be used from several threads at the same time.
+ */
+public class CxxAnalysisCache {
+
+  private static final Logger LOG = LoggerFactory.getLogger(CxxAnalysisCache.class);
+
+  // increase if the format of the cache entries or the results of the analysis change
+  private static final String FORMAT_VERSION = "2";
+  private static final String FILE_SUFFIX = ".ser";
+  private static final ObjectInputFilter FILTER = ObjectInputFilter.Config.createFilter(
+    "org.sonar.plugins.cxx.*;org.sonar.cxx.api.*;java.lang.*;java.util.*;!*"
+  );
+
+  private final Path directory;
+  private final CxxSquidConfiguration squidConfig;
+  private final String fingerprint;
+
+  // hashes of the include files, they are read only once per run
+  private final Map<String, String> includeFileHashes = new ConcurrentHashMap<>();
+  // results of the checks of the include file searches, many translation units do the same searches
+  private final Map<IncludeLookup, Boolean> upToDateLookups = new ConcurrentHashMap<>();
+  // hashes of the source files without a valid entry: the contents are read only once, the entry is written later on
+  private final Map<String, String> sourceFileHashes = new ConcurrentHashMap<>();
+  // include files of the analyzed source files (key of the source file), recorded until the entry is written
+  private final Map<String, CxxPreprocessor.Dependencies> dependencies = new ConcurrentHashMap<>();
+
+  private final AtomicInteger hits = new AtomicInteger();
+  private final AtomicInteger misses = new AtomicInteger();
+
+  /**
+   * Create an analysis cache.
+   *
+   * @param directory directory to store the cache files, is created if it does not exist
+   * @param squidConfig configuration with the unit specific settings
+   * @param fingerprint settings of the project which have an influence on the results (active rules, metric
+   * thresholds, ...)
+   * @throws IOException directory cannot be created
+   */
+  public CxxAnalysisCache(Path directory, CxxSquidConfiguration squidConfig, String fingerprint) throws IOException {
+    this.directory = Files.createDirectories(directory);
+    this.squidConfig = squidConfig;
+    this.fingerprint = hash((FORMAT_VERSION + '\n' + fingerprint).getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Read the cached results of a source file.
+   *
+   * @param inputFile source file to read the results for
+   * @return results of the previous run or empty if there is no valid entry
+   */
+  public Optional<CxxFileResult> get(InputFile inputFile) {
+    var cacheFile = cacheFile(inputFile);
+    if (Files.isRegularFile(cacheFile)) {
+      try {
+        var entry = read(cacheFile);
+        var fileHash = hash(inputFile);
+        if (isValid(entry, inputFile, fileHash)) {
+          hits.incrementAndGet();
+          return Optional.of(entry.result);
+        }
+        sourceFileHashes.put(inputFile.uri().toString(), fileHash);
+      } catch (IOException | ClassNotFoundException | ClassCastException e) {
+        LOG.debug("Cannot read analysis cache entry '{}': {}", cacheFile, e.getMessage());
+      }
+    }
+    misses.incrementAndGet();
+    return Optional.empty();
+  }
+
+  /**
+   * Record the include files of an analyzed source file, they are needed to store its results.
+   *
+   * @param sourceFile analyzed source file
+   * @param includes include files the preprocessor read and searched for the source file
+   */
+  public void recordDependencies(SourceFile sourceFile, CxxPreprocessor.Dependencies includes) {
+    dependencies.put(sourceFile.getKey(), includes);
+  }
+
+  /**
+   * Store the results of an analyzed source file.
+   *
+   * @param inputFile analyzed source file
+   * @param sourceFile analyzed source file, its include files must be recorded before
+   * @param result results of the analysis
+   */
+  public void put(InputFile inputFile, SourceFile sourceFile, CxxFileResult result) {
+    var includes = dependencies.remove(sourceFile.getKey());
+    if (includes == null) {
+      // include files unknown: the result cannot be validated later on
+      return;
+    }
+    put(inputFile, includes.includedFiles(), includes.includeLookups(), result);
+  }
+
+  private void put(InputFile inputFile, Collection<Path> includedFiles, Collection<IncludeLookup> includeLookups,
+    CxxFileResult result) {
+    var cacheFile = cacheFile(inputFile);
+    try {
+      var fileHash = sourceFileHashes.remove(inputFile.uri().toString());
+      if (fileHash == null) {
+        fileHash = hash(inputFile);
+      }
+      var entry = new Entry(fileHash, unitHash(inputFile), new HashMap<>(), new ArrayList<>(includeLookups.size()),
+                            result);
+      for (var lookup : includeLookups) {
+        entry.includeLookups.add(new Lookup(lookup));
+      }
+      for (var includedFile : includedFiles) {
+        var hash = hash(includedFile);
+        if (hash == null) {
+          // include file cannot be read: the result cannot be validated later on
+          return;
+        }
+        entry.includedFiles.put(includedFile.toString(), hash);
+      }
+      write(cacheFile, entry);
+    } catch (IOException e) {
+      LOG.debug("Cannot write analysis cache entry '{}': {}", cacheFile, e.getMessage());
+    }
+  }
+
+  public int getHits() {
+    return hits.get();
+  }
+
+  public int getMisses() {
+    return misses.get();
+  }
+
+  /**
+   * Log the statistics of the current run.
+   */
+  public void report() {
+    LOG.info("Analysis cache: {} files replayed, {} files analyzed", hits.get(), misses.get());
+  }
+
+  private boolean isValid(Entry entry, InputFile inputFile, String fileHash) {
+    if (!entry.unitHash.equals(unitHash(inputFile)) || !entry.fileHash.equals(fileHash)) {
+      return false;
+    }
+    for (var includedFile : entry.includedFiles.entrySet()) {
+      if (!includedFile.getValue().equals(hash(Path.of(includedFile.getKey())))) {
+        return false;
+      }
+    }
+    for (var lookup : entry.includeLookups) {
+      if (!upToDateLookups.computeIfAbsent(lookup.toIncludeLookup(), IncludeLookup::isUpToDate)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private Path cacheFile(InputFile inputFile) {
+    return directory.resolve(hash(inputFile.uri().toString().getBytes(StandardCharsets.UTF_8)) + FILE_SUFFIX);
+  }
+
+  /**
+   * Hash of the configuration of a translation unit: project fingerprint and the values from the global and unit
+   * levels of the configuration.
+   */
+  private String unitHash(InputFile inputFile) {
+    var level = new File(inputFile.uri().getPath()).getAbsolutePath();
+    var sb = new StringBuilder(fingerprint);
+    for (var key : new String[]{CxxSquidConfiguration.DEFINES, CxxSquidConfiguration.INCLUDE_DIRECTORIES,
+      CxxSquidConfiguration.FORCE_INCLUDES}) {
+      sb.append('\n').append(key);
+      for (var value : squidConfig.getValues(level, key)) {
+        sb.append('\n').append(value);
+      }
+    }
+    return hash(sb.toString().getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static String hash(InputFile inputFile) throws IOException {
+    return hash(inputFile.contents().getBytes(StandardCharsets.UTF_8));
+  }
+
+  @CheckForNull
+  private String hash(Path includedFile) {
+    return includeFileHashes.computeIfAbsent(includedFile.toString(), (String key) -> {
+      try {
+        return hash(Files.readAllBytes(includedFile));
+      } catch (IOException e) {
+        return null;
+      }
+    });
+  }
+
+  private static String hash(byte[] bytes) {
+    try {
+      var digest = MessageDigest.getInstance("SHA-256");
+      var sb = new StringBuilder(64);
+      for (var b : digest.digest(bytes)) {
+        sb.append(String.format("%02x", b));
+      }
+      return sb.toString();
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static Entry read(Path cacheFile) throws IOException, ClassNotFoundException {
+    try (var ois = new ObjectInputStream(Files.newInputStream(cacheFile))) {
+      ois.setObjectInputFilter(FILTER);
+      return (Entry) ois.readObject();
+    }
+  }
+
+  private static void write(Path cacheFile, Entry entry) throws IOException {
+    // write to a temporary file first: a cache file is never read partially written
+    var tempFile = Files.createTempFile(cacheFile.getParent(), cacheFile.getFileName().toString(), ".tmp");
+    try {
+      try (var oos = new ObjectOutputStream(Files.newOutputStream(tempFile))) {
+        oos.writeObject(entry);
+      }
+      Files.move(tempFile, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(tempFile);
+    }
+  }
+
+  private static final class Entry implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String fileHash;
+    private final String unitHash;
+    private final HashMap<String, String> includedFiles;
+    private final ArrayList<Lookup> includeLookups;
+    private final CxxFileResult result;
+
+    private Entry(String fileHash, String unitHash, HashMap<String, String> includedFiles,
+      ArrayList<Lookup> includeLookups, CxxFileResult result) {
+      this.fileHash = fileHash;
+      this.unitHash = unitHash;
+      this.includedFiles = includedFiles;
+      this.includeLookups = includeLookups;
+      this.result = result;
+    }
+  }
+
+  /**
+   * Serializable form of an {@link IncludeLookup}.
+   */
+  private static final class Lookup implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String fileName;
+    private final ArrayList<String> searchDirs = new ArrayList<>();
+    @Nullable
+    private final String result;
+
+    private Lookup(IncludeLookup lookup) {
+      this.fileName = lookup.fileName();
+      for (var dir : lookup.searchDirs()) {
+        searchDirs.add(dir.toString());
+      }
+      this.result = lookup.result() != null ? lookup.result().toString() : null;
+    }
+
+    private IncludeLookup toIncludeLookup() {
+      var dirs = new ArrayList<Path>(searchDirs.size());
+      for (var dir : searchDirs) {
+        dirs.add(Path.of(dir));
+      }
+      return new IncludeLookup(fileName, dirs, result != null ? Path.of(result) : null);
+    }
+  }
+
+}
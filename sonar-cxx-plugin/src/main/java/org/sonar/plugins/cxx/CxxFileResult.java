@@ -0,0 +1,205 @@
+/*
+ * C++ Community Plugin (cxx plugin)
+ * Copyright (C) 2010-2024 SonarOpenCommunity
+ * http://github.com/SonarOpenCommunity/sonar-cxx
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.cxx;
+
+import com.sonar.cxx.sslr.api.Grammar;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Function;
+import javax.annotation.CheckForNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.cxx.api.CxxMetric;
+import org.sonar.cxx.checks.CheckList;
+import org.sonar.cxx.squidbridge.SquidAstVisitor;
+import org.sonar.cxx.squidbridge.api.SourceFile;
+import org.sonar.cxx.visitors.CxxCpdVisitor;
+import org.sonar.cxx.visitors.CxxHighlighterVisitor;
+import org.sonar.cxx.visitors.MultiLocatitionSquidCheck;
+
+/**
+ * Results of the analysis of one source file, independent of the squid source code tree.
+ *
+ * The results are either created from a {@link SourceFile} after a file is analyzed or read from the
+ * {@link CxxAnalysisCache}. In both cases the sensor saves them in the same way.
+ */
+public final class CxxFileResult implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+  private static final Logger LOG = LoggerFactory.getLogger(CxxFileResult.class);
+
+  private final EnumMap<CxxMetric, Integer> measures = new EnumMap<>(CxxMetric.class);
+  private final HashSet<Integer> noSonarTagLines = new HashSet<>();
+  private final ArrayList<Integer> linesOfCode = new ArrayList<>();
+  private final ArrayList<Integer> executableLines = new ArrayList<>();
+  private final ArrayList<Issue> issues = new ArrayList<>();
+  private final ArrayList<CpdToken> cpdTokens = new ArrayList<>();
+  private final ArrayList<Highlight> highlighting = new ArrayList<>();
+
+  private CxxFileResult() {
+  }
+
+  /**
+   * Extract the results from an analyzed source file.
+   *
+   * @param sourceFile analyzed source file with measures and messages
+   * @param ruleKeys resolves the rule key of a check, returns null for unknown checks
+   * @return results of the source file
+   */
+  @SuppressWarnings("unchecked")
+  public static CxxFileResult of(SourceFile sourceFile, Function<SquidAstVisitor<Grammar>, RuleKey> ruleKeys) {
+    var result = new CxxFileResult();
+
+    for (var metric : CxxMetric.values()) {
+      if (sourceFile.getData(metric) == null) {
+        result.measures.put(metric, sourceFile.getInt(metric));
+      }
+    }
+    result.noSonarTagLines.addAll(sourceFile.getNoSonarTagLines());
+    addAll(result.linesOfCode, (List<Integer>) sourceFile.getData(CxxMetric.NCLOC_DATA));
+    addAll(result.executableLines, (List<Integer>) sourceFile.getData(CxxMetric.EXECUTABLE_LINES_DATA));
+
+    if (sourceFile.hasCheckMessages()) {
+      for (var message : sourceFile.getCheckMessages()) {
+        var line = 1;
+        if (message.getLine() != null && message.getLine() > 0) {
+          line = message.getLine();
+        }
+
+        RuleKey ruleKey = ruleKeys.apply((SquidAstVisitor<Grammar>) message.getCheck());
+        if (ruleKey != null) {
+          var issue = new Issue(ruleKey.repository(), ruleKey.rule());
+          issue.locations.add(new Location(line, message.getText(Locale.ENGLISH)));
+          result.issues.add(issue);
+        } else {
+          LOG.debug("Unknown rule key: {}", message);
+        }
+      }
+    }
+
+    if (MultiLocatitionSquidCheck.hasMultiLocationCheckMessages(sourceFile)) {
+      for (var reportIssue : MultiLocatitionSquidCheck.getMultiLocationCheckMessages(sourceFile)) {
+        var issue = new Issue(CheckList.REPOSITORY_KEY, reportIssue.getRuleId());
+        for (var location : reportIssue.getLocations()) {
+          issue.locations.add(new Location(Integer.parseInt(location.getLine()), location.getInfo()));
+        }
+        result.issues.add(issue);
+      }
+      MultiLocatitionSquidCheck.eraseMultilineCheckMessages(sourceFile);
+    }
+
+    var tokens = (List<CxxCpdVisitor.CpdToken>) sourceFile.getData(CxxMetric.CPD_TOKENS_DATA);
+    if (tokens != null) {
+      for (var item : tokens) {
+        result.cpdTokens.add(new CpdToken(item.startLine, item.startCol, item.endLine, item.endCol, item.token));
+      }
+    }
+
+    var highlights = (List<CxxHighlighterVisitor.Highlight>) sourceFile.getData(CxxMetric.HIGHLIGTHING_DATA);
+    if (highlights != null) {
+      for (var item : highlights) {
+        result.highlighting.add(new Highlight(item.startLine, item.startLineOffset, item.endLine, item.endLineOffset,
+          item.typeOfText));
+      }
+    }
+
+    return result;
+  }
+
+  public int getInt(CxxMetric metric) {
+    return measures.getOrDefault(metric, 0);
+  }
+
+  public Set<Integer> getNoSonarTagLines() {
+    return noSonarTagLines;
+  }
+
+  public List<Integer> getLinesOfCode() {
+    return linesOfCode;
+  }
+
+  public List<Integer> getExecutableLines() {
+    return executableLines;
+  }
+
+  public List<Issue> getIssues() {
+    return issues;
+  }
+
+  public List<CpdToken> getCpdTokens() {
+    return cpdTokens;
+  }
+
+  public List<Highlight> getHighlighting() {
+    return highlighting;
+  }
+
+  private static <T> void addAll(List<T> target, @CheckForNull List<T> source) {
+    if (source != null) {
+      target.addAll(source);
+    }
+  }
+
+  /**
+   * Issue with a primary location (first location) and optional secondary locations.
+   */
+  public static final class Issue implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String repository;
+    private final String rule;
+    private final ArrayList<Location> locations = new ArrayList<>();
+
+    private Issue(String repository, String rule) {
+      this.repository = repository;
+      this.rule = rule;
+    }
+
+    public RuleKey getRuleKey() {
+      return RuleKey.of(repository, rule);
+    }
+
+    public List<Location> getLocations() {
+      return locations;
+    }
+  }
+
+  public static record Location(int line, String message) implements Serializable {
+
+  }
+
+  public static record CpdToken(int startLine, int startCol, int endLine, int endCol, String token)
+    implements Serializable {
+
+  }
+
+  public static record Highlight(int startLine, int startLineOffset, int endLine, int endLineOffset,
+    String typeOfText) implements Serializable {
+
+  }
+
+}
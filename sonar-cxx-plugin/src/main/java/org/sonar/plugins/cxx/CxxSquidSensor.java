@@ -23,17 +23,19 @@ import com.sonar.cxx.sslr.api.Grammar;
 import java.io.File;
 import java.io.IOException;
 import java.io.Serializable;
+import java.net.URISyntaxException;
 import java.nio.file.LinkOption;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
-import java.util.Locale;
 import java.util.Optional;
+import java.util.TreeMap;
+import java.util.function.BiConsumer;
 import java.util.regex.Pattern;
 import java.util.stream.StreamSupport;
+import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -61,15 +63,12 @@ import org.sonar.cxx.api.CxxMetric;
 import org.sonar.cxx.checks.CheckList;
 import org.sonar.cxx.config.CxxSquidConfiguration;
 import org.sonar.cxx.config.MsBuild;
+import org.sonar.cxx.preprocessor.CxxPreprocessor;
 import org.sonar.cxx.sensors.utils.CxxUtils;
+import org.sonar.cxx.squidbridge.AnalysisProfiler;
 import org.sonar.cxx.squidbridge.SquidAstVisitor;
-import org.sonar.cxx.squidbridge.api.SourceCode;
 import org.sonar.cxx.squidbridge.api.SourceFile;
-import org.sonar.cxx.squidbridge.indexer.QueryByType;
-import org.sonar.cxx.visitors.CxxCpdVisitor;
-import org.sonar.cxx.visitors.CxxHighlighterVisitor;
 import org.sonar.cxx.visitors.CxxPublicApiVisitor;
-import org.sonar.cxx.visitors.MultiLocatitionSquidCheck;
 
 /**
  * {@inheritDoc}
@@ -80,6 +79,10 @@ public class CxxSquidSensor implements ProjectSensor {
   public static final String DEFINES_KEY = "sonar.cxx.defines";
   public static final String INCLUDE_DIRECTORIES_KEY = "sonar.cxx.includeDirectories";
   public static final String ERROR_RECOVERY_KEY = "sonar.cxx.errorRecoveryEnabled";
+  public static final String THREADS_KEY = "sonar.cxx.threads";
+  public static final String CACHE_PATH_KEY = "sonar.cxx.cache.path";
+  public static final String PROFILE_REPORT_PATH_KEY = "sonar.cxx.profile.reportPath";
+  public static final String PROFILE_GRAMMAR_RULES_KEY = "sonar.cxx.profile.grammarRules";
   public static final String FORCE_INCLUDES_KEY = "sonar.cxx.forceIncludes";
   public static final String JSON_COMPILATION_DATABASE_KEY = "sonar.cxx.jsonCompilationDatabase";
   public static final String JSON_COMPILATION_DATABASE_ONLY_CONTAINED_FILES_KEY
@@ -94,10 +97,14 @@ public class CxxSquidSensor implements ProjectSensor {
   private static final Logger LOG = LoggerFactory.getLogger(CxxSquidSensor.class);
 
   private final FileLinesContextFactory fileLinesContextFactory;
+  private final CheckFactory checkFactory;
+  private final CustomCxxRulesDefinition[] customRulesDefinition;
   private final CxxChecks checks;
+  private final List<CxxChecks> workerChecks = new ArrayList<>();
   private final NoSonarFilter noSonarFilter;
 
   private SensorContext context;
+  private CxxAnalysisCache cache;
 
   /**
    * {@inheritDoc}
@@ -115,9 +122,9 @@ public class CxxSquidSensor implements ProjectSensor {
     CheckFactory checkFactory,
     NoSonarFilter noSonarFilter,
     @Nullable CustomCxxRulesDefinition[] customRulesDefinition) {
-    this.checks = CxxChecks.createCxxCheck(checkFactory)
-      .addChecks(CheckList.REPOSITORY_KEY, CheckList.getChecks())
-      .addCustomChecks(customRulesDefinition);
+    this.checkFactory = checkFactory;
+    this.customRulesDefinition = customRulesDefinition != null ? customRulesDefinition.clone() : null;
+    this.checks = createChecks();
     this.fileLinesContextFactory = fileLinesContextFactory;
     this.noSonarFilter = noSonarFilter;
   }
@@ -182,6 +189,51 @@ public class CxxSquidSensor implements ProjectSensor {
         .onQualifiers(Qualifiers.PROJECT)
         .type(PropertyType.BOOLEAN)
         .build(),
+      PropertyDefinition.builder(THREADS_KEY)
+        .defaultValue("1")
+        .name("Number of Threads")
+        .description("""
+          Number of threads used to parse and analyze the source files in parallel. Each thread uses its own \
+          preprocessor, parser and checks. With `0` the number of available processors is used (default is `1`).""")
+        .category(category)
+        .subCategory("(1) General")
+        .onQualifiers(Qualifiers.PROJECT)
+        .type(PropertyType.INTEGER)
+        .build(),
+      PropertyDefinition.builder(CACHE_PATH_KEY)
+        .name("Analysis Cache")
+        .description("""
+          Directory to store the analysis results of the source files between runs. Files whose content, \
+          configuration (macros, include directories, forced includes, rules and settings) and included headers are \
+          unchanged since the previous run are not parsed again, the stored results are used instead. The path may \
+          be either absolute or relative to the project base directory. Without a value no cache is used.""")
+        .category(category)
+        .subCategory("(1) General")
+        .onQualifiers(Qualifiers.PROJECT)
+        .build(),
+      PropertyDefinition.builder(PROFILE_REPORT_PATH_KEY)
+        .name("Analysis Profile Report")
+        .description("""
+          Path of a JSON file to write the time spent in the analysis phases (lexer, preprocessor includes, parser, \
+          AST creator, visitors), per visitor and for the slowest files. A summary is logged at the end of the \
+          analysis. The path may be either absolute or relative to the project base directory. Without a value no \
+          profile is created.""")
+        .category(category)
+        .subCategory("(1) General")
+        .onQualifiers(Qualifiers.PROJECT)
+        .build(),
+      PropertyDefinition.builder(PROFILE_GRAMMAR_RULES_KEY)
+        .defaultValue(Boolean.FALSE.toString())
+        .name("Analysis Profile of Grammar Rules")
+        .description("""
+          Add the invocations, matches, backtracks, memo hits and time of the grammar rules to the analysis profile \
+          report `sonar.cxx.profile.reportPath`. The rules causing most re-parsing (backtracked tokens) are listed \
+          first, in total and for each of the slowest files. Profiling the grammar rules slows down the parser.""")
+        .category(category)
+        .subCategory("(1) General")
+        .onQualifiers(Qualifiers.PROJECT)
+        .type(PropertyType.BOOLEAN)
+        .build(),
       PropertyDefinition.builder(MsBuild.REPORT_PATH_KEY)
         .name("(2.6) Path(s) to MSBuild Log(s)")
         .description("""
@@ -299,29 +351,185 @@ public class CxxSquidSensor implements ProjectSensor {
   @Override
   public void execute(SensorContext context) {
     this.context = context;
+    workerChecks.clear();
 
-    // add visitor only if corresponding rule is active
+    Optional<String> profileReportPath = context.config().get(PROFILE_REPORT_PATH_KEY).filter(s -> !s.isBlank());
+    AnalysisProfiler profiler = null;
+    if (profileReportPath.isPresent()) {
+      profiler = new AnalysisProfiler(context.config().getBoolean(PROFILE_GRAMMAR_RULES_KEY).orElse(Boolean.FALSE));
+    }
+
+    analyze(profiler);
+    if (profiler != null) {
+      writeProfileReport(profiler, profileReportPath.get().trim());
+      profiler.finalReport();
+    }
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName();
+  }
+
+  private void analyze(@Nullable AnalysisProfiler profiler) {
+    var squidConfig = createConfiguration();
+    cache = createCache(squidConfig);
+    // the include files of the source files are only needed to validate the cache entries
+    BiConsumer<SourceFile, CxxPreprocessor.Dependencies> dependencyRecorder
+      = cache != null ? cache::recordDependencies : null;
+    var scanner = CxxAstScanner.create(squidConfig, dependencyRecorder, activeChecks(checks));
+    scanner.setProfiler(profiler);
+
+    // results are saved file by file as soon as a file is analyzed, so they need not be kept until the end
+    Iterable<InputFile> inputFiles = getInputFiles(context, squidConfig);
+    if (cache != null) {
+      inputFiles = replayCachedFiles(inputFiles);
+    }
+    int threads = getThreads();
+    if (threads > 1) {
+      LOG.info("Parse and analyze source files with {} threads", threads);
+      // each worker needs its own instances of the checks
+      scanner.scanInputFiles(inputFiles, threads, () -> {
+        var worker = createChecks();
+        workerChecks.add(worker);
+        return CxxAstScanner.create(squidConfig, dependencyRecorder, activeChecks(worker));
+      }, this::save);
+    } else {
+      scanner.scanInputFiles(inputFiles, this::save);
+    }
+
+    if (cache != null) {
+      cache.report();
+      cache = null;
+    }
+  }
+
+  private CxxChecks createChecks() {
+    return CxxChecks.createCxxCheck(checkFactory)
+      .addChecks(CheckList.REPOSITORY_KEY, CheckList.getChecks())
+      .addCustomChecks(customRulesDefinition);
+  }
+
+  /**
+   * Add visitor only if corresponding rule is active.
+   */
+  private SquidAstVisitor<Grammar>[] activeChecks(CxxChecks cxxChecks) {
     var visitors = new ArrayList<SquidAstVisitor<Grammar>>();
-    for (var check : checks.all()) {
-      RuleKey key = checks.ruleKey(check);
+    for (var check : cxxChecks.all()) {
+      RuleKey key = cxxChecks.ruleKey(check);
       if ((key != null) && (context.activeRules().find(key) != null)) {
         visitors.add(check);
       }
     }
+    return visitors.toArray(SquidAstVisitor[]::new);
+  }
 
-    var squidConfig = createConfiguration();
-    var scanner = CxxAstScanner.create(squidConfig, visitors.toArray(SquidAstVisitor[]::new));
+  @CheckForNull
+  private RuleKey ruleKey(SquidAstVisitor<Grammar> check) {
+    RuleKey ruleKey = checks.ruleKey(check);
+    if (ruleKey == null) {
+      for (var worker : workerChecks) {
+        ruleKey = worker.ruleKey(check);
+        if (ruleKey != null) {
+          break;
+        }
+      }
+    }
+    return ruleKey;
+  }
 
-    Iterable<InputFile> inputFiles = getInputFiles(context, squidConfig);
-    scanner.scanInputFiles(inputFiles);
+  private void writeProfileReport(AnalysisProfiler profiler, String reportPath) {
+    Path path = context.fileSystem().baseDir().toPath().resolve(reportPath);
+    try {
+      profiler.writeReport(path);
+      LOG.info("Analysis profile written to '{}'", path);
+    } catch (IOException e) {
+      LOG.warn("Cannot write analysis profile '{}': {}", path, e.getMessage());
+    }
+  }
 
-    Collection<SourceCode> squidSourceFiles = scanner.getIndex().search(new QueryByType(SourceFile.class));
-    save(squidSourceFiles);
+  @CheckForNull
+  private CxxAnalysisCache createCache(CxxSquidConfiguration squidConfig) {
+    Optional<String> value = context.config().get(CACHE_PATH_KEY);
+    if (value.isEmpty() || value.get().isBlank()) {
+      return null;
+    }
+    Path path = context.fileSystem().baseDir().toPath().resolve(value.get().trim());
+    try {
+      return new CxxAnalysisCache(path, squidConfig, fingerprint());
+    } catch (IOException e) {
+      LOG.warn("Cannot use analysis cache '{}': {}", path, e.getMessage());
+      return null;
+    }
   }
 
-  @Override
-  public String toString() {
-    return getClass().getSimpleName();
+  /**
+   * Settings of the project which have an influence on the analysis results of all files.
+   */
+  private String fingerprint() {
+    var sb = new StringBuilder(1024);
+    sb.append(pluginVersion()).append('\n');
+    sb.append(context.fileSystem().encoding()).append('\n');
+    for (var key : new String[]{ERROR_RECOVERY_KEY, CPD_IGNORE_LITERALS_KEY, CPD_IGNORE_IDENTIFIERS_KEY,
+      FUNCTION_COMPLEXITY_THRESHOLD_KEY, FUNCTION_SIZE_THRESHOLD_KEY, CxxPublicApiVisitor.API_FILE_SUFFIXES_KEY}) {
+      sb.append(key).append('=').append(String.join(",", context.config().getStringArray(key))).append('\n');
+    }
+    var activeRules = new TreeMap<String, String>();
+    for (var check : checks.all()) {
+      RuleKey key = checks.ruleKey(check);
+      var activeRule = key != null ? context.activeRules().find(key) : null;
+      if (activeRule != null) {
+        activeRules.put(key.toString(), new TreeMap<>(activeRule.params()).toString());
+      }
+    }
+    sb.append(activeRules);
+    return sb.toString();
+  }
+
+  /**
+   * Version of the plugin: results of other versions must not be replayed. Development builds have no version in the
+   * manifest, in this case the modification time of the plugin (JAR file or class directory) is used.
+   */
+  private static String pluginVersion() {
+    var version = CxxSquidSensor.class.getPackage().getImplementationVersion();
+    if (version != null) {
+      return version;
+    }
+    try {
+      var codeSource = CxxSquidSensor.class.getProtectionDomain().getCodeSource();
+      if (codeSource != null) {
+        return "dev-" + new File(codeSource.getLocation().toURI()).lastModified();
+      }
+    } catch (URISyntaxException | IllegalArgumentException | SecurityException e) {
+      // no location available
+    }
+    return "dev";
+  }
+
+  /**
+   * Save the results of the files with a valid cache entry.
+   *
+   * @return files which have to be analyzed
+   */
+  private List<InputFile> replayCachedFiles(Iterable<InputFile> inputFiles) {
+    var result = new ArrayList<InputFile>();
+    for (var inputFile : inputFiles) {
+      var cached = cache.get(inputFile);
+      if (cached.isPresent()) {
+        save(inputFile, cached.get());
+      } else {
+        result.add(inputFile);
+      }
+    }
+    return result;
+  }
+
+  private int getThreads() {
+    int threads = context.config().getInt(THREADS_KEY).orElse(1);
+    if (threads == 0) {
+      threads = Runtime.getRuntime().availableProcessors();
+    }
+    return Math.max(threads, 1);
   }
 
   private String[] stripValue(String key, String regex) {
@@ -408,38 +616,50 @@ public class CxxSquidSensor implements ProjectSensor {
     return inputFiles;
   }
 
-  private void save(Collection<SourceCode> sourceCodeFiles) {
-    for (var sourceCodeFile : sourceCodeFiles) {
+  /**
+   * Save the results of an analyzed file. Called from the worker threads in case of parallel analysis: only the
+   * conversion of the source file (owned by the worker) runs in parallel, the file system, the sensor context and the
+   * cache are accessed by one thread at a time.
+   */
+  private void save(SourceFile sourceFile) {
+    var result = CxxFileResult.of(sourceFile, this::ruleKey);
+    synchronized (this) {
       try {
-        var sourceFile = (SourceFile) sourceCodeFile;
         InputFile inputFile = context.fileSystem().inputFile(
           context.fileSystem().predicates().hasPath(sourceFile.getKey())
         );
-        saveMeasures(inputFile, sourceFile);
-        saveViolations(inputFile, sourceFile);
-        saveFileLinesContext(inputFile, sourceFile);
-        saveCpdTokens(inputFile, sourceFile);
-        saveHighlighting(inputFile, sourceFile);
+        save(inputFile, result);
+        if (cache != null) {
+          cache.put(inputFile, sourceFile, result);
+        }
       } catch (IllegalStateException e) {
-        var msg = "Cannot save all measures for file '" + sourceCodeFile.getKey() + "'";
+        var msg = "Cannot save all measures for file '" + sourceFile.getKey() + "'";
         CxxUtils.validateRecovery(msg, e, context.config());
       }
     }
   }
 
-  private void saveMeasures(InputFile inputFile, SourceFile sourceFile) {
+  private void save(InputFile inputFile, CxxFileResult result) {
+    saveMeasures(inputFile, result);
+    saveViolations(inputFile, result);
+    saveFileLinesContext(inputFile, result);
+    saveCpdTokens(inputFile, result);
+    saveHighlighting(inputFile, result);
+  }
+
+  private void saveMeasures(InputFile inputFile, CxxFileResult result) {
 
     // NOSONAR
-    noSonarFilter.noSonarInFile(inputFile, sourceFile.getNoSonarTagLines());
+    noSonarFilter.noSonarInFile(inputFile, result.getNoSonarTagLines());
 
     // CORE METRICS
-    saveMetric(inputFile, CoreMetrics.NCLOC, sourceFile.getInt(CxxMetric.LINES_OF_CODE));
-    saveMetric(inputFile, CoreMetrics.STATEMENTS, sourceFile.getInt(CxxMetric.STATEMENTS));
-    saveMetric(inputFile, CoreMetrics.FUNCTIONS, sourceFile.getInt(CxxMetric.FUNCTIONS));
-    saveMetric(inputFile, CoreMetrics.CLASSES, sourceFile.getInt(CxxMetric.CLASSES));
-    saveMetric(inputFile, CoreMetrics.COMPLEXITY, sourceFile.getInt(CxxMetric.COMPLEXITY));
-    saveMetric(inputFile, CoreMetrics.COGNITIVE_COMPLEXITY, sourceFile.getInt(CxxMetric.COGNITIVE_COMPLEXITY));
-    saveMetric(inputFile, CoreMetrics.COMMENT_LINES, sourceFile.getInt(CxxMetric.COMMENT_LINES));
+    saveMetric(inputFile, CoreMetrics.NCLOC, result.getInt(CxxMetric.LINES_OF_CODE));
+    saveMetric(inputFile, CoreMetrics.STATEMENTS, result.getInt(CxxMetric.STATEMENTS));
+    saveMetric(inputFile, CoreMetrics.FUNCTIONS, result.getInt(CxxMetric.FUNCTIONS));
+    saveMetric(inputFile, CoreMetrics.CLASSES, result.getInt(CxxMetric.CLASSES));
+    saveMetric(inputFile, CoreMetrics.COMPLEXITY, result.getInt(CxxMetric.COMPLEXITY));
+    saveMetric(inputFile, CoreMetrics.COGNITIVE_COMPLEXITY, result.getInt(CxxMetric.COGNITIVE_COMPLEXITY));
+    saveMetric(inputFile, CoreMetrics.COMMENT_LINES, result.getInt(CxxMetric.COMMENT_LINES));
 
     // CUSTOM METRICS
     //
@@ -447,69 +667,43 @@ public class CxxSquidSensor implements ProjectSensor {
     // below metrics are calculated by means of DensityMeasureComputer
     //
     // 1. PUBLIC API
-    saveMetric(inputFile, CxxMetrics.PUBLIC_API, sourceFile.getInt(CxxMetric.PUBLIC_API));
-    saveMetric(inputFile, CxxMetrics.PUBLIC_UNDOCUMENTED_API, sourceFile.getInt(CxxMetric.PUBLIC_UNDOCUMENTED_API));
+    saveMetric(inputFile, CxxMetrics.PUBLIC_API, result.getInt(CxxMetric.PUBLIC_API));
+    saveMetric(inputFile, CxxMetrics.PUBLIC_UNDOCUMENTED_API, result.getInt(CxxMetric.PUBLIC_UNDOCUMENTED_API));
 
     // 2. FUNCTION COMPLEXITY
-    saveMetric(inputFile, CxxMetrics.COMPLEX_FUNCTIONS, sourceFile.getInt(CxxMetric.COMPLEX_FUNCTIONS));
-    saveMetric(inputFile, CxxMetrics.COMPLEX_FUNCTIONS_LOC, sourceFile.getInt(CxxMetric.COMPLEX_FUNCTIONS_LOC));
+    saveMetric(inputFile, CxxMetrics.COMPLEX_FUNCTIONS, result.getInt(CxxMetric.COMPLEX_FUNCTIONS));
+    saveMetric(inputFile, CxxMetrics.COMPLEX_FUNCTIONS_LOC, result.getInt(CxxMetric.COMPLEX_FUNCTIONS_LOC));
 
     // 3. FUNCTION SIZE
-    saveMetric(inputFile, CxxMetrics.LOC_IN_FUNCTIONS, sourceFile.getInt(CxxMetric.LOC_IN_FUNCTIONS));
-    saveMetric(inputFile, CxxMetrics.BIG_FUNCTIONS, sourceFile.getInt(CxxMetric.BIG_FUNCTIONS));
-    saveMetric(inputFile, CxxMetrics.BIG_FUNCTIONS_LOC, sourceFile.getInt(CxxMetric.BIG_FUNCTIONS_LOC));
+    saveMetric(inputFile, CxxMetrics.LOC_IN_FUNCTIONS, result.getInt(CxxMetric.LOC_IN_FUNCTIONS));
+    saveMetric(inputFile, CxxMetrics.BIG_FUNCTIONS, result.getInt(CxxMetric.BIG_FUNCTIONS));
+    saveMetric(inputFile, CxxMetrics.BIG_FUNCTIONS_LOC, result.getInt(CxxMetric.BIG_FUNCTIONS_LOC));
   }
 
-  private void saveViolations(InputFile inputFile, SourceFile sourceFile) {
-    if (sourceFile.hasCheckMessages()) {
-      for (var message : sourceFile.getCheckMessages()) {
-        var line = 1;
-        if (message.getLine() != null && message.getLine() > 0) {
-          line = message.getLine();
-        }
-
-        RuleKey ruleKey = checks.ruleKey((SquidAstVisitor<Grammar>) message.getCheck());
-        if (ruleKey != null) {
-          var newIssue = context.newIssue().forRule(RuleKey.of(ruleKey.repository(), ruleKey.rule()));
-          var location = newIssue.newLocation()
-            .on(inputFile)
-            .at(inputFile.selectLine(line))
-            .message(message.getText(Locale.ENGLISH));
-
-          newIssue.at(location);
-          newIssue.save();
+  private void saveViolations(InputFile inputFile, CxxFileResult result) {
+    for (var issue : result.getIssues()) {
+      var newIssue = context.newIssue().forRule(issue.getRuleKey());
+      var locationNr = 0;
+      for (var location : issue.getLocations()) {
+        final NewIssueLocation newIssueLocation = newIssue.newLocation()
+          .on(inputFile)
+          .at(inputFile.selectLine(location.line()))
+          .message(location.message());
+        if (locationNr == 0) {
+          newIssue.at(newIssueLocation);
         } else {
-          LOG.debug("Unknown rule key: {}", message);
-        }
-      }
-    }
-
-    if (MultiLocatitionSquidCheck.hasMultiLocationCheckMessages(sourceFile)) {
-      for (var issue : MultiLocatitionSquidCheck.getMultiLocationCheckMessages(sourceFile)) {
-        var newIssue = context.newIssue().forRule(RuleKey.of(CheckList.REPOSITORY_KEY, issue.getRuleId()));
-        var locationNr = 0;
-        for (var location : issue.getLocations()) {
-          final Integer line = Integer.valueOf(location.getLine());
-          final NewIssueLocation newIssueLocation = newIssue.newLocation().on(inputFile).at(inputFile.selectLine(line))
-            .message(location.getInfo());
-          if (locationNr == 0) {
-            newIssue.at(newIssueLocation);
-          } else {
-            newIssue.addLocation(newIssueLocation);
-          }
-          ++locationNr;
+          newIssue.addLocation(newIssueLocation);
         }
-        newIssue.save();
+        ++locationNr;
       }
-      MultiLocatitionSquidCheck.eraseMultilineCheckMessages(sourceFile);
+      newIssue.save();
     }
   }
 
-  private void saveFileLinesContext(InputFile inputFile, SourceFile sourceFile) {
+  private void saveFileLinesContext(InputFile inputFile, CxxFileResult result) {
     // measures for the lines of file
     var fileLinesContext = fileLinesContextFactory.createFor(inputFile);
-    List<Integer> linesOfCode = (List<Integer>) sourceFile.getData(CxxMetric.NCLOC_DATA);
-    linesOfCode.stream().sequential().distinct().forEach((Integer line) -> {
+    result.getLinesOfCode().stream().sequential().distinct().forEach((Integer line) -> {
       try {
         fileLinesContext.setIntValue(CoreMetrics.NCLOC_DATA_KEY, line, 1);
       } catch (IllegalArgumentException | IllegalStateException e) {
@@ -517,8 +711,7 @@ public class CxxSquidSensor implements ProjectSensor {
         LOG.debug("NCLOC error in file '{}' at line:{}", inputFile.filename(), line);
       }
     });
-    List<Integer> executableLines = (List<Integer>) sourceFile.getData(CxxMetric.EXECUTABLE_LINES_DATA);
-    executableLines.stream().sequential().distinct().forEach((Integer line) -> {
+    result.getExecutableLines().stream().sequential().distinct().forEach((Integer line) -> {
       try {
         fileLinesContext.setIntValue(CoreMetrics.EXECUTABLE_LINES_DATA_KEY, line, 1);
       } catch (IllegalArgumentException | IllegalStateException e) {
@@ -529,35 +722,34 @@ public class CxxSquidSensor implements ProjectSensor {
     fileLinesContext.save();
   }
 
-  private void saveCpdTokens(InputFile inputFile, SourceFile sourceFile) {
+  private void saveCpdTokens(InputFile inputFile, CxxFileResult result) {
     NewCpdTokens cpdTokens = context.newCpdTokens().onFile(inputFile);
 
-    var data = (List<CxxCpdVisitor.CpdToken>) sourceFile.getData(CxxMetric.CPD_TOKENS_DATA);
-    data.forEach((CxxCpdVisitor.CpdToken item) -> {
+    result.getCpdTokens().forEach((CxxFileResult.CpdToken item) -> {
       try {
-        TextRange range = inputFile.newRange(item.startLine, item.startCol, item.endLine, item.endCol);
-        cpdTokens.addToken(range, item.token);
+        TextRange range = inputFile.newRange(item.startLine(), item.startCol(), item.endLine(), item.endCol());
+        cpdTokens.addToken(range, item.token());
       } catch (IllegalArgumentException | IllegalStateException e) {
         // ignore range errors: parsing errors could lead to wrong location data
-        LOG.debug("CPD error in file '{}' at line:{}, column:{}", inputFile.filename(), item.startLine, item.startCol, e);
+        LOG.debug("CPD error in file '{}' at line:{}, column:{}", inputFile.filename(), item.startLine(),
+          item.startCol(), e);
       }
     });
 
     cpdTokens.save();
   }
 
-  private void saveHighlighting(InputFile inputFile, SourceFile sourceFile) {
+  private void saveHighlighting(InputFile inputFile, CxxFileResult result) {
     NewHighlighting newHighlighting = context.newHighlighting().onFile(inputFile);
 
-    var data = (List<CxxHighlighterVisitor.Highlight>) sourceFile.getData(CxxMetric.HIGHLIGTHING_DATA);
-    data.forEach((CxxHighlighterVisitor.Highlight item) -> {
+    result.getHighlighting().forEach((CxxFileResult.Highlight item) -> {
       try {
-        newHighlighting.highlight(item.startLine, item.startLineOffset, item.endLine, item.endLineOffset,
-          TypeOfText.forCssClass(item.typeOfText));
+        newHighlighting.highlight(item.startLine(), item.startLineOffset(), item.endLine(), item.endLineOffset(),
+          TypeOfText.forCssClass(item.typeOfText()));
       } catch (IllegalArgumentException | IllegalStateException e) {
         // ignore highlight errors: parsing errors could lead to wrong location data
         LOG.debug("Highlighting error in file '{}' at start:{}:{} end:{}:{}", inputFile.filename(),
-          item.startLine, item.startLineOffset, item.endLine, item.endLineOffset, e);
+          item.startLine(), item.startLineOffset(), item.endLine(), item.endLineOffset(), e);
       }
     });
 
@@ -196,6 +196,17 @@ class CxxHighlighterTest {
     checkOnRange(122, 13, 6, null); // module
   }
 
+  @Test
+  @SuppressWarnings("squid:S2699") // ... checkOnRange contains the assertion
+  void inactiveBlock() {
+    // tokens of the inactive block are not highlighted, the string literal after the block is
+    checkOnRange(129, 0, 3, TypeOfText.PREPROCESS_DIRECTIVE); // #if
+    checkOnRange(130, 6, 10, null); // "inactive"
+    checkOnRange(130, 19, 1, null); // 1
+    checkOnRange(131, 0, 6, TypeOfText.PREPROCESS_DIRECTIVE); // #endif
+    checkOnRange(132, 6, 8, TypeOfText.STRING); // "active"
+  }
+
   /**
    * Checks the highlighting of a range of columns. The first column of a line has index 0. The range is the columns of
    * the token.
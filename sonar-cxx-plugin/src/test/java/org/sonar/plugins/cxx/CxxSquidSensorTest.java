@@ -20,40 +20,60 @@
 package org.sonar.plugins.cxx;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.TreeMap;
 import static org.assertj.core.api.Assertions.*;
 import org.assertj.core.api.SoftAssertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mockito;
+import org.slf4j.event.Level;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.rule.ActiveRules;
 import org.sonar.api.batch.rule.CheckFactory;
+import org.sonar.api.batch.rule.internal.ActiveRulesBuilder;
+import org.sonar.api.batch.rule.internal.NewActiveRule;
 import org.sonar.api.batch.sensor.cpd.internal.TokensLine;
 import org.sonar.api.batch.sensor.internal.SensorContextTester;
+import org.sonar.api.batch.sensor.issue.Issue;
 import org.sonar.api.batch.sensor.issue.internal.DefaultNoSonarFilter;
 import org.sonar.api.config.internal.MapSettings;
 import org.sonar.api.measures.CoreMetrics;
 import org.sonar.api.measures.FileLinesContext;
 import org.sonar.api.measures.FileLinesContextFactory;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.testfixtures.log.LogTesterJUnit5;
 import org.sonar.cxx.CxxMetrics;
+import org.sonar.cxx.checks.CheckList;
 
 class CxxSquidSensorTest {
 
   private CxxSquidSensor sensor;
   private final MapSettings settings = new MapSettings();
 
+  @RegisterExtension
+  private final LogTesterJUnit5 logTester = new LogTesterJUnit5();
+
   @BeforeEach
   public void setUp() {
-    ActiveRules rules = mock(ActiveRules.class);
+    sensor = createSensor(mock(ActiveRules.class));
+  }
+
+  private static CxxSquidSensor createSensor(ActiveRules rules) {
     var checkFactory = new CheckFactory(rules);
     FileLinesContextFactory fileLinesContextFactory = mock(FileLinesContextFactory.class);
     FileLinesContext fileLinesContext = mock(FileLinesContext.class);
     when(fileLinesContextFactory.createFor(Mockito.any(InputFile.class))).thenReturn(fileLinesContext);
 
-    sensor = new CxxSquidSensor(fileLinesContextFactory, checkFactory, new DefaultNoSonarFilter(), null);
+    return new CxxSquidSensor(fileLinesContextFactory, checkFactory, new DefaultNoSonarFilter(), null);
   }
 
   @Test
@@ -229,6 +249,191 @@ class CxxSquidSensorTest {
     softly.assertAll();
   }
 
+  @Test
+  void testParallelScanning() throws IOException {
+    File baseDir = TestUtils.loadResource("/org/sonar/plugins/cxx");
+    var files = List.of("cpd.cc", "highlighter.cc", "ncloc.cc", "source.cc");
+    var builder = new ActiveRulesBuilder();
+    for (var rule : List.of("TooLongLine", "TooManyStatementsPerLine", "UndocumentedApi", "FunctionName",
+                            "ParsingErrorRecovery", "MissingNewLineAtEndOfFile")) {
+      builder.addRule(new NewActiveRule.Builder().setRuleKey(RuleKey.of(CheckList.REPOSITORY_KEY, rule)).build());
+    }
+    var rules = builder.build();
+
+    var sequential = SensorContextTester.create(baseDir);
+    sequential.setActiveRules(rules);
+    var inputFiles = new ArrayList<InputFile>();
+    for (var file : files) {
+      var inputFile = TestUtils.buildInputFile(baseDir, file);
+      inputFiles.add(inputFile);
+      sequential.fileSystem().add(inputFile);
+    }
+    createSensor(rules).execute(sequential);
+
+    var parallel = SensorContextTester.create(baseDir);
+    settings.setProperty(CxxSquidSensor.THREADS_KEY, 3);
+    parallel.setSettings(settings);
+    parallel.setActiveRules(rules);
+    for (var file : files) {
+      parallel.fileSystem().add(TestUtils.buildInputFile(baseDir, file));
+    }
+    createSensor(rules).execute(parallel);
+
+    assertThat(issues(sequential)).isNotEmpty();
+    var softly = new SoftAssertions();
+    softly.assertThat(issues(parallel)).isEqualTo(issues(sequential));
+    for (var inputFile : inputFiles) {
+      var key = inputFile.key();
+      softly.assertThat(measures(parallel, key)).isEqualTo(measures(sequential, key));
+      softly.assertThat(cpdTokens(parallel, key)).isEqualTo(cpdTokens(sequential, key));
+      softly.assertThat(highlighting(parallel, inputFile)).isEqualTo(highlighting(sequential, inputFile));
+    }
+    softly.assertAll();
+  }
+
+  private static TreeMap<String, Object> measures(SensorContextTester context, String key) {
+    var measures = new TreeMap<String, Object>();
+    for (var measure : context.measures(key)) {
+      measures.put(measure.metric().key(), measure.value());
+    }
+    return measures;
+  }
+
+  private static List<String> issues(SensorContextTester context) {
+    var issues = new ArrayList<String>();
+    for (Issue issue : context.allIssues()) {
+      var location = issue.primaryLocation();
+      issues.add(issue.ruleKey() + " " + location.inputComponent().key() + ":"
+                   + (location.textRange() != null ? location.textRange().start().line() : 0) + " "
+                   + location.message());
+    }
+    Collections.sort(issues);
+    return issues;
+  }
+
+  private static List<String> cpdTokens(SensorContextTester context, String key) {
+    var tokens = new ArrayList<String>();
+    for (var line : context.cpdTokens(key)) {
+      tokens.add(line.getStartLine() + ":" + line.getStartUnit() + "-" + line.getEndUnit() + " " + line.getValue());
+    }
+    return tokens;
+  }
+
+  private static List<String> highlighting(SensorContextTester context, InputFile inputFile) throws IOException {
+    var highlighting = new ArrayList<String>();
+    var lines = inputFile.contents().split("\\r?\\n|\\r", -1);
+    for (var line = 0; line < lines.length; line++) {
+      for (var offset = 0; offset < lines[line].length(); offset++) {
+        highlighting.add(context.highlightingTypeAt(inputFile.key(), line + 1, offset).toString());
+      }
+    }
+    return highlighting;
+  }
+
+  @Test
+  void testAnalysisCache(@TempDir File cacheDir) {
+    File baseDir = TestUtils.loadResource("/org/sonar/plugins/cxx/include-directories-project");
+    settings.setProperty(CxxSquidSensor.INCLUDE_DIRECTORIES_KEY, "include");
+    settings.setProperty(CxxSquidSensor.CACHE_PATH_KEY, cacheDir.getAbsolutePath());
+
+    var analyzed = SensorContextTester.create(baseDir);
+    analyzed.setSettings(settings);
+    var inputFile = TestUtils.buildInputFile(baseDir, "src/main.cc");
+    analyzed.fileSystem().add(inputFile);
+    sensor.execute(analyzed);
+    assertThat(cacheDir.listFiles()).hasSize(1);
+
+    var replayed = SensorContextTester.create(baseDir);
+    replayed.setSettings(settings);
+    replayed.fileSystem().add(TestUtils.buildInputFile(baseDir, "src/main.cc"));
+    sensor.execute(replayed);
+
+    var softly = new SoftAssertions();
+    softly.assertThat(logTester.logs(Level.INFO)).contains("Analysis cache: 1 files replayed, 0 files analyzed");
+    softly.assertThat(replayed.measure(inputFile.key(), CoreMetrics.NCLOC).value()).isEqualTo(9);
+    softly.assertThat(replayed.measure(inputFile.key(), CoreMetrics.FUNCTIONS).value()).isEqualTo(9);
+    softly.assertThat(replayed.cpdTokens(inputFile.key())).hasSameSizeAs(analyzed.cpdTokens(inputFile.key()));
+    softly.assertThat(replayed.highlightingTypeAt(inputFile.key(), 1, 0))
+      .isEqualTo(analyzed.highlightingTypeAt(inputFile.key(), 1, 0));
+    softly.assertAll();
+  }
+
+  @Test
+  void testAnalysisCacheWithChangedIncludeSearch(@TempDir File baseDir) throws IOException {
+    Files.createDirectories(baseDir.toPath().resolve("include1"));
+    Files.createDirectories(baseDir.toPath().resolve("include2"));
+    Files.writeString(baseDir.toPath().resolve("main.cc"), "#include \"missing.h\"\n#include \"shadowed.h\"\n");
+    Files.writeString(baseDir.toPath().resolve("include2/shadowed.h"), "#define VALUE 2\n");
+    settings.setProperty(CxxSquidSensor.INCLUDE_DIRECTORIES_KEY, "include1,include2");
+    settings.setProperty(CxxSquidSensor.CACHE_PATH_KEY, new File(baseDir, "cache").getAbsolutePath());
+
+    // 1. analyzed, 2. replayed, 3. missing include file exists now, 4. include file in earlier directory
+    executeWithCache(baseDir);
+    executeWithCache(baseDir);
+    Files.writeString(baseDir.toPath().resolve("include1/missing.h"), "#define MISSING 1\n");
+    executeWithCache(baseDir);
+    Files.writeString(baseDir.toPath().resolve("include1/shadowed.h"), "#define VALUE 1\n");
+    executeWithCache(baseDir);
+
+    assertThat(logTester.logs(Level.INFO).stream().filter(log -> log.startsWith("Analysis cache:")))
+      .containsExactly(
+        "Analysis cache: 0 files replayed, 1 files analyzed",
+        "Analysis cache: 1 files replayed, 0 files analyzed",
+        "Analysis cache: 0 files replayed, 1 files analyzed",
+        "Analysis cache: 0 files replayed, 1 files analyzed"
+      );
+  }
+
+  private void executeWithCache(File baseDir) {
+    var context = SensorContextTester.create(baseDir);
+    context.setSettings(settings);
+    context.fileSystem().add(TestUtils.buildInputFile(baseDir, "main.cc"));
+    sensor.execute(context);
+  }
+
+  @Test
+  void testProfileReport(@TempDir File reportDir) throws IOException {
+    File baseDir = TestUtils.loadResource("/org/sonar/plugins/cxx/codechunks-project");
+    var report = new File(reportDir, "profile.json");
+    settings.setProperty(CxxSquidSensor.PROFILE_REPORT_PATH_KEY, report.getAbsolutePath());
+
+    var context = SensorContextTester.create(baseDir);
+    context.setSettings(settings);
+    context.fileSystem().add(TestUtils.buildInputFile(baseDir, "code_chunks.cc"));
+    sensor.execute(context);
+
+    assertThat(report).exists();
+    assertThat(Files.readString(report.toPath()))
+      .contains("\"files\": 1")
+      .contains("\"parser\"")
+      .contains("code_chunks.cc");
+    assertThat(logTester.logs(Level.INFO)).anyMatch(log -> log.startsWith("Analysis profile: 1 file(s)"));
+  }
+
+  @Test
+  void testNoProfileWithoutReportPath(@TempDir File reportDir) {
+    File baseDir = TestUtils.loadResource("/org/sonar/plugins/cxx/codechunks-project");
+    var report = new File(reportDir, "profile.json");
+    settings.setProperty(CxxSquidSensor.PROFILE_REPORT_PATH_KEY, report.getAbsolutePath());
+    settings.setProperty(CxxSquidSensor.PROFILE_GRAMMAR_RULES_KEY, true);
+
+    var profiled = SensorContextTester.create(baseDir);
+    profiled.setSettings(settings);
+    profiled.fileSystem().add(TestUtils.buildInputFile(baseDir, "code_chunks.cc"));
+
+    var notProfiled = SensorContextTester.create(baseDir);
+    notProfiled.fileSystem().add(TestUtils.buildInputFile(baseDir, "code_chunks.cc"));
+
+    sensor.execute(profiled);
+    assertThat(report).exists();
+    assertThat(report.delete()).isTrue();
+    logTester.clear();
+
+    sensor.execute(notProfiled);
+    assertThat(report).doesNotExist();
+    assertThat(logTester.logs(Level.INFO)).noneMatch(log -> log.startsWith("Analysis profile"));
+  }
+
   @Test
   void testBehaviourOnCircularIncludes() {
     // especially: when two files, both belonging to the set of
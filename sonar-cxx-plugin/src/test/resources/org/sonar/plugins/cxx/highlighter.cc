@@ -122,4 +122,14 @@ void test5()
    for (auto module : modules) {}
 }
 
+// inactive block starting with a string literal
+void test6()
+{
+   const char *s =
+#if 0
+      "inactive" + 1;
+#endif
+      "active";
+}
+
 /* EOF */